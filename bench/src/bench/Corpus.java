@@ -0,0 +1,139 @@
+package bench;
+
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Inputs of the benchmarks. "corpus" is every program under tests/ that lexes and parses
+    without errors (errors are printed, which would be measured too), "synthetic-N" is a
+    generated program of N procedures and "expression-N" a program assigning a single
+    expression of N operands.
+ */
+public final class Corpus {
+
+    private static final String SYNTHETIC = "synthetic-";
+    private static final String EXPRESSION = "expression-";
+
+    private Corpus() {
+    }
+
+    public static String[] load(String input) throws IOException {
+        if (input.equals("corpus"))
+            return files(new File(System.getProperty("bench.corpus", "tests")));
+        if (input.startsWith(SYNTHETIC))
+            return new String[] { synthetic(Integer.parseInt(input.substring(SYNTHETIC.length()))) };
+        if (input.startsWith(EXPRESSION))
+            return new String[] { expression(Integer.parseInt(input.substring(EXPRESSION.length()))) };
+
+        throw new IllegalArgumentException("Unknown input " + input);
+    }
+
+    public static long length(String[] sources) {
+        long length = 0;
+        for (String source : sources)
+            length += source.length();
+        return length;
+    }
+
+    private static String[] files(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null)
+            throw new IOException("No corpus at " + dir.getAbsolutePath());
+        Arrays.sort(files);
+
+        List<String> sources = new ArrayList<>();
+        for (File file : files) {
+            if (!file.getName().endsWith(".c"))
+                continue;
+
+            String source = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+            if (isValid(source))
+                sources.add(source);
+        }
+
+        return sources.toArray(new String[sources.size()]);
+    }
+
+    private static boolean isValid(String source) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            Tokeniser tokeniser = new Tokeniser(new Scanner(source, Scanner.Mode.WHOLE_FILE));
+            Parser parser = new Parser(tokeniser);
+            parser.parse();
+            return tokeniser.getErrorCount() == 0 && parser.getErrorCount() == 0;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /*
+        A program of the given number of procedures, each calling the previous one, with a
+        mix of declarations, loops, conditionals, arithmetic, literals and comments.
+     */
+    public static String synthetic(int procedures) {
+        StringBuilder sb = new StringBuilder("#include \"io.h\"\n\n");
+
+        for (int i = 0; i < procedures; i++)
+            sb.append("int g").append(i).append(";\n");
+        sb.append('\n');
+
+        for (int i = 0; i < procedures; i++) {
+            sb.append("/* procedure ").append(i).append(" */\n");
+            sb.append("int p").append(i).append("(int a, char c) {\n");
+            sb.append("  int x;\n  int y;\n  char d;\n");
+            sb.append("  // walk up to a\n");
+            sb.append("  x = 0;\n  y = a * 2 - (a - 1) / 3;\n  d = 'q';\n");
+            sb.append("  while (x < y) {\n");
+            sb.append("    if (x == g").append(i).append(" % 7 + 1)\n");
+            sb.append("      print_s(\"match in p").append(i).append("\\n\");\n");
+            sb.append("    else {\n      x = x + (y - x) / 4;\n      print_c(d);\n    }\n");
+            sb.append("    x = x + 1;\n  }\n");
+            if (i > 0)
+                sb.append("  return x + p").append(i - 1).append("(y, c);\n");
+            else
+                sb.append("  return x;\n");
+            sb.append("}\n\n");
+        }
+
+        sb.append("void main() {\n  int r;\n  char ch;\n  r = read_i();\n  ch = read_c();\n");
+        if (procedures > 0)
+            sb.append("  r = p").append(procedures - 1).append("(r, ch);\n");
+        sb.append("  print_i(r);\n}\n");
+
+        return sb.toString();
+    }
+
+    /*
+        A main assigning an expression of the given number of operands, cycling through the
+        arithmetic operators with a parenthesised operand now and then.
+     */
+    public static String expression(int operands) {
+        String[] ops = { " + ", " - ", " * ", " + ", " / ", " - ", " % " };
+
+        StringBuilder sb = new StringBuilder("void main() {\n  int x;\n  int y;\n  y = read_i();\n  x = y");
+        for (int i = 1; i < operands; i++) {
+            sb.append(ops[i % ops.length]);
+            if (i % 16 == 0)
+                sb.append("(y - ").append(i).append(')');
+            else if (i % 2 == 0)
+                sb.append('y');
+            else
+                sb.append(i);
+        }
+        sb.append(";\n  print_i(x);\n}\n");
+
+        return sb.toString();
+    }
+}
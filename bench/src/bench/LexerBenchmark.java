@@ -0,0 +1,70 @@
+package bench;
+
+import lexer.Scanner;
+import lexer.Token.TokenClass;
+import lexer.TokenBuffer;
+import lexer.Tokeniser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Lexer throughput. The primary score is sources lexed per second, the tokens and chars
+    counters give tokens/s and characters (bytes of the ASCII sources) per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+    @Param({"corpus", "synthetic-100", "synthetic-10000"})
+    public String input;
+
+    private String[] sources;
+    private long length;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long tokens;
+        public long chars;
+    }
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        sources = Corpus.load(input);
+        length = Corpus.length(sources);
+    }
+
+    @Benchmark
+    public int nextToken(Counters counters) {
+        int tokens = 0;
+        for (String source : sources) {
+            Tokeniser tokeniser = new Tokeniser(new Scanner(source, Scanner.Mode.WHOLE_FILE));
+            do {
+                tokens++;
+            } while (tokeniser.nextToken().tokenClass != TokenClass.EOF);
+        }
+
+        counters.tokens += tokens;
+        counters.chars += length;
+        return tokens;
+    }
+
+    @Benchmark
+    public int tokenise(Counters counters) {
+        int tokens = 0;
+        for (String source : sources) {
+            TokenBuffer buffer = new Tokeniser(new Scanner(source, Scanner.Mode.WHOLE_FILE)).tokenise();
+            tokens += buffer.size();
+        }
+
+        counters.tokens += tokens;
+        counters.chars += length;
+        return tokens;
+    }
+}
@@ -0,0 +1,101 @@
+package bench;
+
+import ast.*;
+import ast.expressions.*;
+import ast.statements.*;
+
+/*
+    Counts the nodes of an AST, the unit of parser throughput.
+ */
+public class NodeCounter implements ASTVisitor<Integer> {
+
+    public Integer visitBlock(Block b) {
+        int nodes = 1;
+        for (VarDecl vd : b.varDecls)
+            nodes += vd.accept(this);
+        for (Stmt stmt : b.statements)
+            nodes += stmt.accept(this);
+        return nodes;
+    }
+
+    public Integer visitProcedure(Procedure p) {
+        int nodes = 1;
+        for (VarDecl vd : p.params)
+            nodes += vd.accept(this);
+        return nodes + p.block.accept(this);
+    }
+
+    public Integer visitProgram(Program p) {
+        int nodes = 1;
+        for (VarDecl vd : p.varDecls)
+            nodes += vd.accept(this);
+        for (Procedure proc : p.procs)
+            nodes += proc.accept(this);
+        return nodes + p.main.accept(this);
+    }
+
+    public Integer visitVarDecl(VarDecl vd) {
+        return 1 + vd.var.accept(this);
+    }
+
+    public Integer visitVar(Var v) {
+        return 1;
+    }
+
+    public Integer visitFunctionCallStmt(FunCallStmt funCallStmt) {
+        int nodes = 1;
+        for (Expr arg : funCallStmt.arguments)
+            nodes += arg.accept(this);
+        return nodes;
+    }
+
+    public Integer visitStrLiteral(StrLiteral strLiteral) {
+        return 1;
+    }
+
+    public Integer visitWhile(While whilez) {
+        return 1 + whilez.expr.accept(this) + whilez.statement.accept(this);
+    }
+
+    public Integer visitBinOp(BinOp binOp) {
+        // Operator chains nest to the left, walk down them in a loop
+        int nodes = 0;
+        Expr expr = binOp;
+        while (expr instanceof BinOp) {
+            BinOp op = (BinOp) expr;
+            nodes += 1 + op.rhs.accept(this);
+            expr = op.lhs;
+        }
+        return nodes + expr.accept(this);
+    }
+
+    public Integer visitIf(If anIf) {
+        int nodes = 1 + anIf.ifExpr.accept(this) + anIf.ifStmt.accept(this);
+        if (anIf.hasElse())
+            nodes += anIf.elseStmt.accept(this);
+        return nodes;
+    }
+
+    public Integer visitIntLiteral(IntLiteral intLiteral) {
+        return 1;
+    }
+
+    public Integer visitChrLiteral(ChrLiteral chrLiteral) {
+        return 1;
+    }
+
+    public Integer visitReturn(Return aReturn) {
+        return aReturn.hasReturn() ? 1 + aReturn.returnz.accept(this) : 1;
+    }
+
+    public Integer visitAssign(Assign assign) {
+        return 1 + assign.var.accept(this) + assign.expr.accept(this);
+    }
+
+    public Integer visitFunCallExpr(FunCallExpr funCallExpr) {
+        int nodes = 1;
+        for (Expr arg : funCallExpr.arguments)
+            nodes += arg.accept(this);
+        return nodes;
+    }
+}
@@ -0,0 +1,101 @@
+package bench;
+
+import ast.Program;
+import lexer.PipelinedTokeniser;
+import lexer.Scanner;
+import lexer.TokenBuffer;
+import lexer.Tokeniser;
+import parser.ParallelParser;
+import parser.Parser;
+import parser.table.TableParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Parser throughput. The primary score is sources parsed per second, the nodes counter
+    gives AST nodes/s. parse() lexes as it goes like Main does, parseTokenBuffer() parses
+    tokens lexed once up front and so measures the parser alone. parseParallel() is the
+    same with the procedures parsed in parallel, parseTableDriven() with the TableParser.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"corpus", "synthetic-100", "synthetic-1000", "synthetic-10000", "expression-100000"})
+    public String input;
+
+    private String[] sources;
+    private TokenBuffer[] tokens;
+    private long nodes;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        sources = Corpus.load(input);
+
+        tokens = new TokenBuffer[sources.length];
+        for (int i = 0; i < sources.length; i++)
+            tokens[i] = new Tokeniser(new Scanner(sources[i], Scanner.Mode.WHOLE_FILE)).tokenise();
+
+        // Counted once here, so that walking the tree is not measured
+        nodes = 0;
+        for (TokenBuffer buffer : tokens)
+            nodes += new Parser(buffer).parse().accept(new NodeCounter());
+    }
+
+    @Benchmark
+    public void parse(Counters counters, Blackhole blackhole) {
+        for (String source : sources) {
+            Program program = new Parser(new Tokeniser(new Scanner(source, Scanner.Mode.WHOLE_FILE))).parse();
+            blackhole.consume(program);
+        }
+
+        counters.nodes += nodes;
+    }
+
+    @Benchmark
+    public void parsePipelined(Counters counters, Blackhole blackhole) {
+        for (String source : sources) {
+            Program program = new Parser(new PipelinedTokeniser(new Scanner(source, Scanner.Mode.WHOLE_FILE))).parse();
+            blackhole.consume(program);
+        }
+
+        counters.nodes += nodes;
+    }
+
+    @Benchmark
+    public void parseTokenBuffer(Counters counters, Blackhole blackhole) {
+        for (TokenBuffer buffer : tokens)
+            blackhole.consume(new Parser(buffer).parse());
+
+        counters.nodes += nodes;
+    }
+
+    @Benchmark
+    public void parseParallel(Counters counters, Blackhole blackhole) {
+        for (TokenBuffer buffer : tokens)
+            blackhole.consume(new ParallelParser(buffer).parse());
+
+        counters.nodes += nodes;
+    }
+
+    @Benchmark
+    public void parseTableDriven(Counters counters, Blackhole blackhole) {
+        for (TokenBuffer buffer : tokens)
+            blackhole.consume(new TableParser(buffer).parse());
+
+        counters.nodes += nodes;
+    }
+}
@@ -0,0 +1,88 @@
+package bench;
+
+import ast.Program;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import org.openjdk.jmh.annotations.*;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Semantic analysis throughput. The primary score is programs analysed per second, the nodes
+    counter gives AST nodes/s. twoPasses() resolves names and then checks types in a second
+    walk of the tree, fused() does both in one walk and parallel() checks the types of the
+    procedures in parallel. Only programs without semantic errors are analysed, the errors
+    would be printed and measured too.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SemanticBenchmark {
+
+    @Param({"corpus", "synthetic-100", "synthetic-10000"})
+    public String input;
+
+    private Program[] programs;
+    private long nodes;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            List<Program> valid = new ArrayList<>();
+            for (String source : Corpus.load(input)) {
+                Program program = new Parser(new Tokeniser(new Scanner(source, Scanner.Mode.WHOLE_FILE))).parse();
+                if (new SemanticAnalyzer().analyze(program) == 0)
+                    valid.add(program);
+            }
+            programs = valid.toArray(new Program[valid.size()]);
+        } finally {
+            System.setErr(err);
+        }
+
+        nodes = 0;
+        for (Program program : programs)
+            nodes += program.accept(new NodeCounter());
+    }
+
+    @Benchmark
+    public int twoPasses(Counters counters) {
+        return analyze(new SemanticAnalyzer(SemanticAnalyzer.Mode.SEQUENTIAL), counters);
+    }
+
+    @Benchmark
+    public int fused(Counters counters) {
+        return analyze(new SemanticAnalyzer(SemanticAnalyzer.Mode.FUSED), counters);
+    }
+
+    @Benchmark
+    public int parallel(Counters counters) {
+        return analyze(new SemanticAnalyzer(SemanticAnalyzer.Mode.PARALLEL), counters);
+    }
+
+    private int analyze(SemanticAnalyzer analyzer, Counters counters) {
+        int errors = 0;
+        for (Program program : programs)
+            errors += analyzer.analyze(program);
+
+        counters.nodes += nodes;
+        return errors;
+    }
+}
@@ -0,0 +1,76 @@
+import ast.ASTCache;
+import ast.Program;
+import gen.CodeGenerator;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+/**
+ * Main -gen with analysed programs cached in a directory, keyed by their source (see ASTCache).
+ * A program found there is generated without being lexed, parsed and analysed again, its source
+ * only read. The exit codes are those of Main, the cache statistics are printed to System.err
+ * whichever it exits with.
+ */
+public class CachingMain {
+
+    public static void usage() {
+        System.out.println("Usage: java "+CachingMain.class.getSimpleName()+" cachedirectory inputfile outputfile");
+        System.exit(-1);
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length != 3)
+            usage();
+
+        ASTCache cache = new ASTCache(new File(args[0]));
+        File inputFile = new File(args[1]);
+
+        if (!inputFile.exists()) {
+            System.out.println("File "+inputFile.toString()+" does not exist.");
+            exit(cache, Main.FILE_NOT_FOUND);
+        }
+
+        byte[] source = null;
+        try {
+            source = Files.readAllBytes(inputFile.toPath());
+        } catch (IOException e) {
+            System.out.println("File "+inputFile.toString()+" could not be read.");
+            exit(cache, Main.FILE_NOT_FOUND);
+        }
+
+        Program programAst = cache.get(source);
+        if (programAst == null) {
+            // Lexed from the bytes read, decoded as Scanner(File) would
+            Scanner scanner = new Scanner(new String(source, Charset.defaultCharset()));
+            Parser parser = new Parser(new Tokeniser(scanner));
+            programAst = parser.parse();
+            if (parser.getErrorCount() > 0)
+                exit(cache, Main.PARSER_FAIL);
+            SemanticAnalyzer sem = new SemanticAnalyzer();
+            int errors = sem.analyze(programAst);
+            if (errors > 0)
+                exit(cache, Main.SEM_FAIL);
+            try {
+                cache.put(source, programAst);
+            } catch (IOException e) {
+                System.err.println("AST cache "+args[0]+" could not be written: "+e.getMessage());
+            }
+        }
+        System.err.println(cache);
+
+        CodeGenerator codegen = new CodeGenerator();
+        codegen.emitProgram(programAst);
+    }
+
+    private static void exit(ASTCache cache, int status) {
+        System.err.println(cache);
+        System.exit(status);
+    }
+}
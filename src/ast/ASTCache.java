@@ -0,0 +1,114 @@
+package ast;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Directory of analysed programs in the form ASTWriter writes, one .astc file per source named
+ * after a hash of the source bytes and the compiler version. A program found there is read
+ * back from the mapped file, its source need not be lexed, parsed or analysed again.
+ *
+ * Only programs with no lexing, parsing or semantic errors are meant to be put in the cache.
+ */
+public class ASTCache {
+
+    // Bump along with any change to what the front end makes of a source
+    public static final String COMPILER_VERSION = "1";
+
+    public static final String EXTENSION = ".astc";
+
+    private final File directory;
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public ASTCache(File directory) {
+        this.directory = directory;
+    }
+
+    /*
+        The program cached for source, null if there is none. An entry that cannot be read
+        counts as a miss, to be replaced by the next put.
+     */
+    public Program get(byte[] source) {
+        File file = file(source);
+        if (file.isFile()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Program program = new ASTReader(buffer).read();
+                hits++;
+                return program;
+            } catch (IOException | RuntimeException e) {
+                // Not the entry it should be
+            }
+        }
+
+        misses++;
+        return null;
+    }
+
+    /*
+        Cache program, analysed without errors, for source. The entry is written aside and
+        moved in place so that a concurrent get never reads a partial one.
+     */
+    public void put(byte[] source, Program program) throws IOException {
+        ASTWriter writer = new ASTWriter();
+        program.accept(writer);
+
+        Files.createDirectories(directory.toPath());
+        Path temporary = Files.createTempFile(directory.toPath(), "ast", ".tmp");
+        try {
+            Files.write(temporary, writer.toByteArray());
+            Files.move(temporary, file(source).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private File file(byte[] source) {
+        return new File(directory, key(source) + EXTENSION);
+    }
+
+    /*
+        Hex SHA-256 of the compiler version, the format of the entries and the source.
+     */
+    static String key(byte[] source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update((COMPILER_VERSION + "/" + ASTWriter.FORMAT).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(source);
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest())
+            key.append(String.format("%02x", b));
+        return key.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "AST cache: " + hits + (hits == 1 ? " hit, " : " hits, ") + misses + (misses == 1 ? " miss" : " misses");
+    }
+}
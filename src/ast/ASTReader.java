@@ -0,0 +1,188 @@
+package ast;
+
+import ast.expressions.*;
+import ast.statements.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ast.ASTWriter.*;
+
+/**
+ * Reads back a program written by ASTWriter, e.g. straight from a mapped file.
+ * Var.getVarDecl, the procedures of calls and the types of expressions are set as they were.
+ */
+public class ASTReader {
+
+    private static final Type[] TYPES = Type.values();
+    private static final Op[] OPS = Op.values();
+
+    private final ByteBuffer buffer;
+
+    private String[] strings;
+    private final List<VarDecl> varDecls = new ArrayList<>();
+    private final List<Procedure> procedures = new ArrayList<>();
+
+    // Calls and the index of the procedure each calls, set once all procedures are read
+    private final List<Tree> calls = new ArrayList<>();
+    private final List<Integer> callees = new ArrayList<>();
+
+    public ASTReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /*
+        Throws IllegalArgumentException if the buffer does not hold a program in the current format.
+     */
+    public Program read() {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT)
+            throw new IllegalArgumentException("Not an AST in format " + FORMAT);
+
+        strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<VarDecl> globals = list();
+        List<Procedure> procs = list();
+        procedures.addAll(procs);
+        Procedure main = (Procedure) node();
+        procedures.add(main);
+
+        for (int i = 0; i < calls.size(); i++) {
+            Procedure callee = procedure(callees.get(i));
+            if (calls.get(i) instanceof FunCallExpr)
+                ((FunCallExpr) calls.get(i)).setProcedure(callee);
+            else
+                ((FunCallStmt) calls.get(i)).setProcedure(callee);
+        }
+
+        return new Program(globals, procs, main);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <N extends Tree> List<N> list() {
+        int count = buffer.getInt();
+        ArrayList<N> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            items.add((N) node());
+        return items;
+    }
+
+    private Type type() {
+        int type = buffer.get();
+        return type == 0 ? null : TYPES[type - 1];
+    }
+
+    private String string() {
+        int index = buffer.getInt();
+        return index == NONE ? null : strings[index];
+    }
+
+    private Procedure procedure(int index) {
+        if (index == NONE)
+            return null;
+        return index < 0 ? BUILTINS[-2 - index] : procedures.get(index);
+    }
+
+    /*
+        The call, reading the index of its procedure.
+     */
+    private <C extends Tree> C call(C call) {
+        calls.add(call);
+        callees.add(buffer.getInt());
+        return call;
+    }
+
+    private Tree node() {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case PROCEDURE: {
+                Type type = type();
+                String name = string();
+                List<VarDecl> params = list();
+                return new Procedure(type, name, params, (Block) node());
+            }
+            case BLOCK: {
+                List<VarDecl> declarations = list();
+                List<Stmt> statements = list();
+                return new Block(declarations, statements);
+            }
+            case VAR_DECL: {
+                Type type = type();
+                VarDecl varDecl = new VarDecl(type, new Var(string()));
+                varDecls.add(varDecl);
+                return varDecl;
+            }
+            case FUN_CALL_STMT: {
+                String name = string();
+                List<Expr> arguments = list();
+                return call(new FunCallStmt(name, arguments));
+            }
+            case WHILE: {
+                Expr condition = (Expr) node();
+                return new While(condition, (Stmt) node());
+            }
+            case IF: {
+                Expr condition = (Expr) node();
+                Stmt then = (Stmt) node();
+                return new If(condition, then, (Stmt) node());
+            }
+            case RETURN:
+                return new Return((Expr) node());
+            case ASSIGN: {
+                Var var = (Var) node();
+                return new Assign(var, (Expr) node());
+            }
+            default:
+                return expr(tag);
+        }
+    }
+
+    private Expr expr(byte tag) {
+        Type type = type();
+        Expr expr;
+        switch (tag) {
+            case VAR: {
+                Var var = new Var(string());
+                int varDecl = buffer.getInt();
+                if (varDecl != NONE)
+                    var.setVarDecl(varDecls.get(varDecl));
+                expr = var;
+                break;
+            }
+            case INT_LITERAL:
+                expr = new IntLiteral(buffer.getInt());
+                break;
+            case CHR_LITERAL:
+                expr = new ChrLiteral((char) buffer.getInt());
+                break;
+            case STR_LITERAL:
+                expr = new StrLiteral(string());
+                break;
+            case BIN_OP: {
+                int op = buffer.get();
+                Expr lhs = (Expr) node();
+                expr = new BinOp(lhs, op == NONE ? null : OPS[op], (Expr) node());
+                break;
+            }
+            case FUN_CALL_EXPR: {
+                String name = string();
+                List<Expr> arguments = list();
+                expr = call(new FunCallExpr(name, arguments));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown node " + tag);
+        }
+
+        expr.type = type;
+        return expr;
+    }
+}
@@ -0,0 +1,268 @@
+package ast;
+
+import ast.expressions.*;
+import ast.statements.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a program in the binary form ASTReader reads back, annotations included.
+ *
+ * The form is MAGIC and FORMAT, the strings the program uses, then the nodes in pre-order.
+ * Each node is its tag followed by its fields, a list is its length followed by its nodes.
+ * Strings, declarations and procedures are referred to by index: strings in the order they
+ * were first used, VarDecls in the order they come in and procedures as in Program.procs,
+ * main after them. The builtins are -2 and below, see BUILTINS, and -1 stands for none.
+ *
+ * Types, ops and tags are bytes, a type being its ordinal + 1 or 0 for none.
+ */
+public class ASTWriter implements ASTVisitor<Void> {
+
+    static final int MAGIC = 0x41535443;
+    static final int FORMAT = 1;
+
+    static final int NONE = -1;
+
+    static final Procedure[] BUILTINS = {
+            Procedure.PRINT_S, Procedure.PRINT_C, Procedure.PRINT_I, Procedure.READ_I, Procedure.READ_C
+    };
+
+    static final byte NULL = 0;
+    static final byte PROCEDURE = 1;
+    static final byte BLOCK = 2;
+    static final byte VAR_DECL = 3;
+    static final byte VAR = 4;
+    static final byte INT_LITERAL = 5;
+    static final byte CHR_LITERAL = 6;
+    static final byte STR_LITERAL = 7;
+    static final byte BIN_OP = 8;
+    static final byte FUN_CALL_EXPR = 9;
+    static final byte FUN_CALL_STMT = 10;
+    static final byte WHILE = 11;
+    static final byte IF = 12;
+    static final byte RETURN = 13;
+    static final byte ASSIGN = 14;
+
+    private final Bytes nodes = new Bytes();
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringList = new ArrayList<>();
+    private final Map<VarDecl, Integer> varDecls = new IdentityHashMap<>();
+    private final Map<Procedure, Integer> procedures = new IdentityHashMap<>();
+
+    /*
+        The program written, once it accepted this writer.
+     */
+    public byte[] toByteArray() {
+        Bytes out = new Bytes();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+
+        out.writeInt(stringList.size());
+        for (String s : stringList) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        nodes.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private void visit(Tree node) {
+        if (node == null)
+            nodes.write(NULL);
+        else
+            node.accept(this);
+    }
+
+    private void list(List<? extends Tree> items) {
+        nodes.writeInt(items.size());
+        for (Tree item : items)
+            visit(item);
+    }
+
+    private void type(Type type) {
+        nodes.write(type == null ? 0 : type.ordinal() + 1);
+    }
+
+    private void string(String s) {
+        if (s == null) {
+            nodes.writeInt(NONE);
+            return;
+        }
+
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = stringList.size();
+            strings.put(s, index);
+            stringList.add(s);
+        }
+        nodes.writeInt(index);
+    }
+
+    private void procedure(Procedure p) {
+        Integer index = p == null ? null : procedures.get(p);
+        nodes.writeInt(index == null ? NONE : index);
+    }
+
+    private void expr(byte tag, Expr e) {
+        nodes.write(tag);
+        type(e.type);
+    }
+
+    @Override
+    public Void visitProgram(Program p) {
+        for (int i = 0; i < p.procs.size(); i++)
+            procedures.put(p.procs.get(i), i);
+        procedures.put(p.main, p.procs.size());
+        for (int i = 0; i < BUILTINS.length; i++)
+            procedures.put(BUILTINS[i], -2 - i);
+
+        list(p.varDecls);
+        list(p.procs);
+        visit(p.main);
+        return null;
+    }
+
+    @Override
+    public Void visitProcedure(Procedure p) {
+        nodes.write(PROCEDURE);
+        type(p.type);
+        string(p.name);
+        list(p.params);
+        visit(p.block);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block b) {
+        nodes.write(BLOCK);
+        list(b.varDecls);
+        list(b.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDecl(VarDecl vd) {
+        varDecls.put(vd, varDecls.size());
+
+        nodes.write(VAR_DECL);
+        type(vd.type);
+        string(vd.var == null ? null : vd.var.name);
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Var v) {
+        Integer varDecl = v.getVarDecl() == null ? null : varDecls.get(v.getVarDecl());
+
+        expr(VAR, v);
+        string(v.name);
+        nodes.writeInt(varDecl == null ? NONE : varDecl);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(IntLiteral intLiteral) {
+        expr(INT_LITERAL, intLiteral);
+        nodes.writeInt(intLiteral.value);
+        return null;
+    }
+
+    @Override
+    public Void visitChrLiteral(ChrLiteral chrLiteral) {
+        expr(CHR_LITERAL, chrLiteral);
+        nodes.writeInt(chrLiteral.value);
+        return null;
+    }
+
+    @Override
+    public Void visitStrLiteral(StrLiteral strLiteral) {
+        expr(STR_LITERAL, strLiteral);
+        string(strLiteral.string);
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(BinOp binOp) {
+        expr(BIN_OP, binOp);
+        nodes.write(binOp.op == null ? NONE : binOp.op.ordinal());
+        visit(binOp.lhs);
+        visit(binOp.rhs);
+        return null;
+    }
+
+    @Override
+    public Void visitFunCallExpr(FunCallExpr funCallExpr) {
+        expr(FUN_CALL_EXPR, funCallExpr);
+        string(funCallExpr.name);
+        list(funCallExpr.arguments);
+        procedure(funCallExpr.getProcedure());
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionCallStmt(FunCallStmt funCallStmt) {
+        nodes.write(FUN_CALL_STMT);
+        string(funCallStmt.name);
+        list(funCallStmt.arguments);
+        procedure(funCallStmt.getProcedure());
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While whilez) {
+        nodes.write(WHILE);
+        visit(whilez.expr);
+        visit(whilez.statement);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If anIf) {
+        nodes.write(IF);
+        visit(anIf.ifExpr);
+        visit(anIf.ifStmt);
+        visit(anIf.elseStmt);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Return aReturn) {
+        nodes.write(RETURN);
+        visit(aReturn.returnz);
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(Assign assign) {
+        nodes.write(ASSIGN);
+        visit(assign.var);
+        visit(assign.expr);
+        return null;
+    }
+
+    /*
+        Big-endian like the ByteBuffer ASTReader reads from.
+     */
+    private static class Bytes extends ByteArrayOutputStream {
+
+        void writeInt(int i) {
+            write(i >>> 24);
+            write(i >>> 16);
+            write(i >>> 8);
+            write(i);
+        }
+
+        void writeTo(Bytes out) {
+            out.write(buf, 0, count);
+        }
+    }
+}
@@ -7,6 +7,9 @@ public class BinOp extends Expr {
     public final Op op;
     public final Expr rhs;
 
+    // Structural hash, see HashConsingExprFactory.hash, 0 until computed
+    int hash;
+
     public BinOp(Expr lhs, Op op, Expr rhs) {
         this.lhs = lhs;
         this.op = op;
@@ -0,0 +1,41 @@
+package ast;
+
+import ast.expressions.ChrLiteral;
+import ast.expressions.IntLiteral;
+import ast.expressions.Var;
+
+/**
+ * Makes the expression nodes the Parser builds, a new node for each.
+ * The parser tells it about the scopes and declarations it goes through, so that a factory
+ * sharing nodes knows which uses of a name refer to the same declaration.
+ */
+public class ExprFactory {
+
+    public Var var(String name) {
+        return new Var(name);
+    }
+
+    public IntLiteral intLiteral(int value) {
+        return new IntLiteral(value);
+    }
+
+    public ChrLiteral chrLiteral(char value) {
+        return new ChrLiteral(value);
+    }
+
+    public BinOp binOp(Expr lhs, Op op, Expr rhs) {
+        return new BinOp(lhs, op, rhs);
+    }
+
+    /*
+        Procedures and blocks open a scope, as they do in name analysis.
+     */
+    public void enterScope() {
+    }
+
+    public void leaveScope() {
+    }
+
+    public void declare(String name) {
+    }
+}
@@ -0,0 +1,233 @@
+package ast;
+
+import ast.expressions.ChrLiteral;
+import ast.expressions.IntLiteral;
+import ast.expressions.Var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ExprFactory sharing the expressions without side effects: variables, literals and the
+ * operators over them. Each is made once and handed out again whenever the parser asks for
+ * the same expression, so a repeated subexpression is a single node and two such expressions
+ * are equal exactly when they are the same object.
+ *
+ * Uses of a name share a Var only when they resolve to the same declaration, following the
+ * scopes name analysis opens, so that what it sets on a Var holds for every use. Calls, reads
+ * included, are never shared, and neither is anything over them.
+ */
+public class HashConsingExprFactory extends ExprFactory {
+
+    private static final int NONE = -1;
+
+    // Seeds of the structural hash, one per kind of node
+    private static final int INT_LITERAL = 1;
+    private static final int CHR_LITERAL = 2;
+    private static final int BIN_OP = 3;
+
+    // Innermost last, the names declared in each mapped to their Var, null until it is used
+    private final ArrayList<Map<String, Var>> scopes = new ArrayList<>();
+
+    // Vars of names declared in no enclosing scope
+    private final Map<String, Var> undeclared = new HashMap<>();
+
+    private Expr[] nodes = new Expr[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    // Open addressing hash table of the shared nodes' id + 1, 0 marks a free slot
+    private int[] slots = new int[128];
+
+    public HashConsingExprFactory() {
+        // the globals
+        enterScope();
+    }
+
+    /*
+        Number of distinct nodes shared so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+        Whether e is one of the nodes handed out for sharing.
+     */
+    public boolean isShared(Expr e) {
+        if (e == null)
+            return false;
+
+        int hash = hash(e);
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id == NONE)
+                return false;
+            if (nodes[id] == e)
+                return true;
+        }
+    }
+
+    /*
+        Structural hash of e: equal for expressions this factory would share, computed once
+        for a BinOp. Calls and strings hash by identity.
+     */
+    public static int hash(Expr e) {
+        if (e == null)
+            return 0;
+
+        if (e instanceof Var) {
+            String name = ((Var) e).name;
+            return name == null ? 0 : name.hashCode();
+        }
+        if (e instanceof IntLiteral)
+            return 31 * INT_LITERAL + ((IntLiteral) e).value;
+        if (e instanceof ChrLiteral)
+            return 31 * CHR_LITERAL + ((ChrLiteral) e).value;
+
+        if (e instanceof BinOp) {
+            BinOp binOp = (BinOp) e;
+            if (binOp.hash == 0) {
+                int hash = 31 * BIN_OP + (binOp.op == null ? 0 : binOp.op.ordinal() + 1);
+                hash = 31 * hash + hash(binOp.lhs);
+                binOp.hash = 31 * hash + hash(binOp.rhs);
+            }
+            return binOp.hash;
+        }
+
+        return System.identityHashCode(e);
+    }
+
+    @Override
+    public Var var(String name) {
+        Map<String, Var> scope = undeclared;
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name)) {
+                scope = scopes.get(i);
+                break;
+            }
+        }
+
+        Var var = scope.get(name);
+        if (var == null) {
+            var = intern(new Var(name));
+            scope.put(name, var);
+        }
+        return var;
+    }
+
+    @Override
+    public IntLiteral intLiteral(int value) {
+        return intern(new IntLiteral(value));
+    }
+
+    @Override
+    public ChrLiteral chrLiteral(char value) {
+        return intern(new ChrLiteral(value));
+    }
+
+    @Override
+    public BinOp binOp(Expr lhs, Op op, Expr rhs) {
+        BinOp binOp = new BinOp(lhs, op, rhs);
+        if (op == null || !isShared(lhs) || !isShared(rhs))
+            return binOp;
+
+        return intern(binOp);
+    }
+
+    @Override
+    public void enterScope() {
+        scopes.add(new HashMap<String, Var>());
+    }
+
+    @Override
+    public void leaveScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /*
+        The first declaration of a name in a scope is the one it resolves to.
+     */
+    @Override
+    public void declare(String name) {
+        Map<String, Var> scope = scopes.get(scopes.size() - 1);
+        if (name != null && !scope.containsKey(name))
+            scope.put(name, null);
+    }
+
+    /*
+        The node shared for the expression node stands for, node itself if it is the first.
+     */
+    @SuppressWarnings("unchecked")
+    private <E extends Expr> E intern(E node) {
+        int hash = hash(node);
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id == NONE) {
+                add(node, hash, i);
+                return node;
+            }
+            if (hashes[id] == hash && same(nodes[id], node))
+                return (E) nodes[id];
+        }
+    }
+
+    /*
+        Children are compared by identity, they are shared already. A Var is only ever the
+        same as itself, var looks it up by scope.
+     */
+    private static boolean same(Expr a, Expr b) {
+        if (a == b)
+            return true;
+        if (a.getClass() != b.getClass())
+            return false;
+
+        if (a instanceof IntLiteral)
+            return ((IntLiteral) a).value == ((IntLiteral) b).value;
+        if (a instanceof ChrLiteral)
+            return ((ChrLiteral) a).value == ((ChrLiteral) b).value;
+        if (a instanceof BinOp) {
+            BinOp x = (BinOp) a;
+            BinOp y = (BinOp) b;
+            return x.op == y.op && x.lhs == y.lhs && x.rhs == y.rhs;
+        }
+
+        return false;
+    }
+
+    private void add(Expr node, int hash, int slot) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+
+        int id = size++;
+        nodes[id] = node;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        // keep the table at most half full
+        if (size * 2 > slots.length)
+            rehash();
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = spread(hashes[id]) & mask;
+            while (slots[i] != 0)
+                i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
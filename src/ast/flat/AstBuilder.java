@@ -0,0 +1,131 @@
+package ast.flat;
+
+import ast.*;
+import ast.expressions.*;
+import ast.statements.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Materialises the ast.Program a FlatProgram stands for.
+ */
+class AstBuilder implements FlatVisitor<Tree> {
+
+    Program build(FlatProgram program) {
+        return (Program) program.accept(this);
+    }
+
+    private Tree visit(FlatTree tree, int node) {
+        return node == FlatTree.NONE ? null : tree.accept(node, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <N extends Tree> List<N> list(FlatTree tree, int list) {
+        int count = tree.count(list);
+        List<N> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            items.add((N) visit(tree, tree.item(list, i)));
+        return items;
+    }
+
+    @Override
+    public Tree visitBlock(FlatTree tree, int block) {
+        List<VarDecl> varDecls = list(tree, tree.varDecls(block));
+        List<Stmt> statements = list(tree, tree.statements(block));
+        return new Block(varDecls, statements);
+    }
+
+    @Override
+    public Tree visitProcedure(FlatTree tree, int procedure) {
+        List<VarDecl> params = list(tree, tree.params(procedure));
+        Block block = (Block) visit(tree, tree.block(procedure));
+        return new Procedure(tree.type(procedure), tree.name(procedure), params, block);
+    }
+
+    @Override
+    public Tree visitProgram(FlatProgram program) {
+        FlatTree globals = program.globals();
+        List<VarDecl> varDecls = list(globals, globals.varDecls(globals.root()));
+
+        List<Procedure> procs = new ArrayList<>(program.procedureCount());
+        for (int i = 0; i < program.procedureCount(); i++) {
+            FlatTree tree = program.procedure(i);
+            procs.add((Procedure) visit(tree, tree.root()));
+        }
+
+        FlatTree main = program.main();
+        return new Program(varDecls, procs, (Procedure) visit(main, main.root()));
+    }
+
+    @Override
+    public Tree visitVarDecl(FlatTree tree, int varDecl) {
+        return new VarDecl(tree.type(varDecl), new Var(tree.name(varDecl)));
+    }
+
+    @Override
+    public Tree visitVar(FlatTree tree, int var) {
+        return new Var(tree.name(var));
+    }
+
+    @Override
+    public Tree visitFunctionCallStmt(FlatTree tree, int funCallStmt) {
+        List<Expr> arguments = list(tree, tree.arguments(funCallStmt));
+        return new FunCallStmt(tree.name(funCallStmt), arguments);
+    }
+
+    @Override
+    public Tree visitStrLiteral(FlatTree tree, int strLiteral) {
+        return new StrLiteral(tree.string(strLiteral));
+    }
+
+    @Override
+    public Tree visitWhile(FlatTree tree, int whilez) {
+        Expr condition = (Expr) visit(tree, tree.condition(whilez));
+        Stmt body = (Stmt) visit(tree, tree.body(whilez));
+        return new While(condition, body);
+    }
+
+    @Override
+    public Tree visitBinOp(FlatTree tree, int binOp) {
+        Expr lhs = (Expr) visit(tree, tree.lhs(binOp));
+        Expr rhs = (Expr) visit(tree, tree.rhs(binOp));
+        return new BinOp(lhs, tree.op(binOp), rhs);
+    }
+
+    @Override
+    public Tree visitIf(FlatTree tree, int anIf) {
+        Expr condition = (Expr) visit(tree, tree.condition(anIf));
+        Stmt then = (Stmt) visit(tree, tree.thenStmt(anIf));
+        Stmt otherwise = (Stmt) visit(tree, tree.elseStmt(anIf));
+        return new If(condition, then, otherwise);
+    }
+
+    @Override
+    public Tree visitIntLiteral(FlatTree tree, int intLiteral) {
+        return new IntLiteral(tree.value(intLiteral));
+    }
+
+    @Override
+    public Tree visitChrLiteral(FlatTree tree, int chrLiteral) {
+        return new ChrLiteral(tree.charValue(chrLiteral));
+    }
+
+    @Override
+    public Tree visitReturn(FlatTree tree, int aReturn) {
+        return new Return((Expr) visit(tree, tree.expr(aReturn)));
+    }
+
+    @Override
+    public Tree visitAssign(FlatTree tree, int assign) {
+        Var var = (Var) visit(tree, tree.var(assign));
+        Expr expr = (Expr) visit(tree, tree.expr(assign));
+        return new Assign(var, expr);
+    }
+
+    @Override
+    public Tree visitFunCallExpr(FlatTree tree, int funCallExpr) {
+        List<Expr> arguments = list(tree, tree.arguments(funCallExpr));
+        return new FunCallExpr(tree.name(funCallExpr), arguments);
+    }
+}
@@ -0,0 +1,180 @@
+package ast.flat;
+
+import ast.*;
+import ast.expressions.*;
+import ast.statements.*;
+import lexer.NameTable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Flattens an ast.Program. Children are added before their parents, so each visit
+    returns the index of the node it added.
+ */
+class FlatBuilder implements ASTVisitor<Integer> {
+
+    private static final Procedure[] BUILTINS = {
+            Procedure.PRINT_S, Procedure.PRINT_C, Procedure.PRINT_I, Procedure.READ_I, Procedure.READ_C
+    };
+
+    private static final int NO_EXTRA = -1;
+
+    private final NameTable names;
+    private FlatTree tree;
+
+    // Nodes of the lists being built, nested lists above the ones they are part of
+    private int[] stack = new int[64];
+    private int top = 0;
+
+    FlatBuilder(NameTable names) {
+        this.names = names;
+    }
+
+    FlatProgram build(Program program) {
+        FlatProgram flat = new FlatProgram(names, program.procs.size(), BUILTINS.length);
+
+        tree = flat.newTree(0, program.varDecls.size() + 1);
+        int globals = tree.add(NodeKind.BLOCK, NO_EXTRA, list(program.varDecls), list(Collections.<Tree>emptyList()), FlatTree.NONE);
+        finish(globals);
+
+        int index = 1;
+        for (Procedure p : program.procs)
+            flatten(flat, index++, p);
+        flatten(flat, index++, program.main);
+
+        for (Procedure p : BUILTINS)
+            flatten(flat, index++, p);
+
+        return flat;
+    }
+
+    private void flatten(FlatProgram flat, int index, Procedure p) {
+        tree = flat.newTree(index, 64);
+        finish(visit(p));
+    }
+
+    private void finish(int root) {
+        tree.setRoot(root);
+        tree.trim();
+    }
+
+    private int visit(Tree node) {
+        return node == null ? FlatTree.NONE : node.accept(this);
+    }
+
+    private int list(List<? extends Tree> items) {
+        int from = top;
+        for (Tree item : items)
+            push(visit(item));
+
+        int list = tree.addList(stack, from, top - from);
+        top = from;
+        return list;
+    }
+
+    private void push(int node) {
+        if (top == stack.length)
+            stack = Arrays.copyOf(stack, top * 2);
+        stack[top++] = node;
+    }
+
+    private int name(String name) {
+        return name == null ? NameTable.NO_NAME : names.intern(name);
+    }
+
+    private static int ordinal(Enum<?> e) {
+        return e == null ? NO_EXTRA : e.ordinal();
+    }
+
+    @Override
+    public Integer visitBlock(Block b) {
+        return tree.add(NodeKind.BLOCK, NO_EXTRA, list(b.varDecls), list(b.statements), FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitProcedure(Procedure p) {
+        int params = list(p.params);
+        int block = visit(p.block);
+        return tree.add(NodeKind.PROCEDURE, ordinal(p.type), name(p.name), params, block);
+    }
+
+    @Override
+    public Integer visitProgram(Program p) {
+        // Programs are not nodes, see build
+        return FlatTree.NONE;
+    }
+
+    @Override
+    public Integer visitVarDecl(VarDecl vd) {
+        int name = vd.var == null ? NameTable.NO_NAME : name(vd.var.name);
+        return tree.add(NodeKind.VAR_DECL, ordinal(vd.type), name, FlatTree.NONE, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitVar(Var v) {
+        return tree.add(NodeKind.VAR, NO_EXTRA, name(v.name), FlatTree.NONE, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitFunctionCallStmt(FunCallStmt funCallStmt) {
+        int arguments = list(funCallStmt.arguments);
+        return tree.add(NodeKind.FUN_CALL_STMT, NO_EXTRA, name(funCallStmt.name), arguments, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitStrLiteral(StrLiteral strLiteral) {
+        return tree.add(NodeKind.STR_LITERAL, NO_EXTRA, name(strLiteral.string), FlatTree.NONE, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitWhile(While whilez) {
+        int condition = visit(whilez.expr);
+        int body = visit(whilez.statement);
+        return tree.add(NodeKind.WHILE, NO_EXTRA, condition, body, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitBinOp(BinOp binOp) {
+        int lhs = visit(binOp.lhs);
+        int rhs = visit(binOp.rhs);
+        return tree.add(NodeKind.BIN_OP, ordinal(binOp.op), lhs, rhs, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitIf(If anIf) {
+        int condition = visit(anIf.ifExpr);
+        int then = visit(anIf.ifStmt);
+        int otherwise = visit(anIf.elseStmt);
+        return tree.add(NodeKind.IF, NO_EXTRA, condition, then, otherwise);
+    }
+
+    @Override
+    public Integer visitIntLiteral(IntLiteral intLiteral) {
+        return tree.add(NodeKind.INT_LITERAL, NO_EXTRA, intLiteral.value, FlatTree.NONE, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitChrLiteral(ChrLiteral chrLiteral) {
+        return tree.add(NodeKind.CHR_LITERAL, NO_EXTRA, chrLiteral.value, FlatTree.NONE, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitReturn(Return aReturn) {
+        return tree.add(NodeKind.RETURN, NO_EXTRA, visit(aReturn.returnz), FlatTree.NONE, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitAssign(Assign assign) {
+        int var = visit(assign.var);
+        int expr = visit(assign.expr);
+        return tree.add(NodeKind.ASSIGN, NO_EXTRA, var, expr, FlatTree.NONE);
+    }
+
+    @Override
+    public Integer visitFunCallExpr(FunCallExpr funCallExpr) {
+        int arguments = list(funCallExpr.arguments);
+        return tree.add(NodeKind.FUN_CALL_EXPR, NO_EXTRA, name(funCallExpr.name), arguments, FlatTree.NONE);
+    }
+}
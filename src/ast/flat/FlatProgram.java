@@ -0,0 +1,90 @@
+package ast.flat;
+
+import ast.Program;
+import lexer.NameTable;
+
+/**
+ * A program as FlatTrees, one holding the global declarations and one for each procedure,
+ * main last. The builtin procedures get trees of their own after those, so that calls to
+ * them can be resolved like calls to any other procedure.
+ */
+public class FlatProgram {
+
+    private final NameTable names;
+
+    // The globals, the procedures, main, then the builtins
+    private final FlatTree[] trees;
+    private final int procedureCount;
+
+    FlatProgram(NameTable names, int procedureCount, int builtinCount) {
+        this.names = names;
+        this.procedureCount = procedureCount;
+        this.trees = new FlatTree[procedureCount + builtinCount + 2];
+    }
+
+    FlatTree newTree(int index, int capacity) {
+        trees[index] = new FlatTree(this, index, capacity);
+        return trees[index];
+    }
+
+    public static FlatProgram of(Program program) {
+        return of(program, new NameTable());
+    }
+
+    /*
+        Flatten the program, interning its names into the given table,
+        e.g. the one of the tokeniser the program was parsed from.
+     */
+    public static FlatProgram of(Program program, NameTable names) {
+        return new FlatBuilder(names).build(program);
+    }
+
+    /*
+        The program as an AST. Annotations are not carried over, the AST is as the parser returns it.
+     */
+    public Program toProgram() {
+        return new AstBuilder().build(this);
+    }
+
+    public <T> T accept(FlatVisitor<T> v) {
+        return v.visitProgram(this);
+    }
+
+    public NameTable getNames() {
+        return names;
+    }
+
+    public FlatTree tree(int index) {
+        return trees[index];
+    }
+
+    /*
+        Tree whose root is the BLOCK holding the global declarations, with no statements.
+     */
+    public FlatTree globals() {
+        return trees[0];
+    }
+
+    /*
+        Number of procedures, main excluded.
+     */
+    public int procedureCount() {
+        return procedureCount;
+    }
+
+    public FlatTree procedure(int i) {
+        return trees[1 + i];
+    }
+
+    public FlatTree main() {
+        return trees[1 + procedureCount];
+    }
+
+    public int builtinCount() {
+        return trees.length - procedureCount - 2;
+    }
+
+    public FlatTree builtin(int i) {
+        return trees[2 + procedureCount + i];
+    }
+}
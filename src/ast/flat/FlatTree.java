@@ -0,0 +1,356 @@
+package ast.flat;
+
+import ast.Op;
+import ast.Type;
+import lexer.NameTable;
+
+import java.util.Arrays;
+
+/**
+ * The nodes of one procedure, or of the global declarations, held in primitive arrays instead
+ * of one object per node. A node is its index in the tree, children are referred to by index
+ * and NONE stands for a missing child. Names and string literals are ids in the NameTable of
+ * the program.
+ *
+ * Node layout, operands A, B and C:
+ *   PROCEDURE      type, A name, B params list, C block
+ *   BLOCK          A varDecls list, B statements list
+ *   VAR_DECL       type, A name
+ *   VAR            A name
+ *   INT_LITERAL    A value
+ *   CHR_LITERAL    A value
+ *   STR_LITERAL    A string
+ *   BIN_OP         op, A lhs, B rhs
+ *   FUN_CALL_EXPR  A name, B arguments list
+ *   FUN_CALL_STMT  A name, B arguments list
+ *   WHILE          A condition, B body
+ *   IF             A condition, B then, C else
+ *   RETURN         A expression
+ *   ASSIGN         A var, B expression
+ *
+ * Semantic analysis annotates the tree the way it sets Expr.type, Var.setVarDecl and
+ * setProcedure on the AST, see exprType(int) and linkedTree(int).
+ */
+public class FlatTree {
+
+    public static final int NONE = -1;
+
+    private static final NodeKind[] KINDS = NodeKind.values();
+    private static final Type[] TYPES = Type.values();
+    private static final Op[] OPS = Op.values();
+
+    // Each node takes NODE_SIZE ints, its kind with its type or op above the low byte then its operands
+    private static final int NODE_SIZE = 4;
+    private static final int KIND = 0;
+    private static final int A = 1;
+    private static final int B = 2;
+    private static final int C = 3;
+
+    private static final long NO_LINK = -1L;
+
+    private final FlatProgram program;
+    private final int index;
+
+    private int[] nodes;
+    private int size = 0;
+    private int root = NONE;
+
+    // Line and column of each node, 0 when unknown. Allocated on the first position set.
+    private int[] positions;
+
+    // Child lists, each its length followed by the indices of its nodes
+    private int[] lists;
+    private int listsSize = 0;
+
+    // Annotations, allocated by the first pass setting them.
+    // Types are stored as ordinal + 1, links as the tree index above the node index.
+    private int[] types;
+    private long[] links;
+
+    FlatTree(FlatProgram program, int index, int capacity) {
+        this.program = program;
+        this.index = index;
+        nodes = new int[Math.max(4, capacity) * NODE_SIZE];
+        lists = new int[16];
+    }
+
+    /*
+        Add a node, extra being the ordinal of its type or op, -1 if it has neither.
+     */
+    int add(NodeKind kind, int extra, int a, int b, int c) {
+        if ((size + 1) * NODE_SIZE > nodes.length)
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+
+        int at = size * NODE_SIZE;
+        nodes[at + KIND] = kind.ordinal() | (extra + 1) << 8;
+        nodes[at + A] = a;
+        nodes[at + B] = b;
+        nodes[at + C] = c;
+        return size++;
+    }
+
+    /*
+        Add the list of nodes items[from, from + count), returning its offset.
+     */
+    int addList(int[] items, int from, int count) {
+        if (listsSize + count + 1 > lists.length)
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listsSize + count + 1));
+
+        int offset = listsSize;
+        lists[offset] = count;
+        System.arraycopy(items, from, lists, offset + 1, count);
+        listsSize += count + 1;
+        return offset;
+    }
+
+    void setRoot(int root) {
+        this.root = root;
+    }
+
+    /*
+        Drop the room left for more nodes once the tree is complete.
+     */
+    void trim() {
+        nodes = Arrays.copyOf(nodes, size * NODE_SIZE);
+        if (positions != null)
+            positions = Arrays.copyOf(positions, size * 2);
+        lists = Arrays.copyOf(lists, listsSize);
+    }
+
+    public FlatProgram getProgram() {
+        return program;
+    }
+
+    /*
+        Index of this tree in its program, see FlatProgram.tree(int).
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+        The procedure node, or the block of the global declarations.
+     */
+    public int root() {
+        return root;
+    }
+
+    public <T> T accept(int node, FlatVisitor<T> v) {
+        switch (kind(node)) {
+            case PROCEDURE:
+                return v.visitProcedure(this, node);
+            case BLOCK:
+                return v.visitBlock(this, node);
+            case VAR_DECL:
+                return v.visitVarDecl(this, node);
+            case VAR:
+                return v.visitVar(this, node);
+            case INT_LITERAL:
+                return v.visitIntLiteral(this, node);
+            case CHR_LITERAL:
+                return v.visitChrLiteral(this, node);
+            case STR_LITERAL:
+                return v.visitStrLiteral(this, node);
+            case BIN_OP:
+                return v.visitBinOp(this, node);
+            case FUN_CALL_EXPR:
+                return v.visitFunCallExpr(this, node);
+            case FUN_CALL_STMT:
+                return v.visitFunctionCallStmt(this, node);
+            case WHILE:
+                return v.visitWhile(this, node);
+            case IF:
+                return v.visitIf(this, node);
+            case RETURN:
+                return v.visitReturn(this, node);
+            default:
+                return v.visitAssign(this, node);
+        }
+    }
+
+    public NodeKind kind(int node) {
+        return KINDS[nodes[node * NODE_SIZE + KIND] & 0xFF];
+    }
+
+    private int extra(int node) {
+        return (nodes[node * NODE_SIZE + KIND] >>> 8) - 1;
+    }
+
+    private int operand(int node, int operand) {
+        return nodes[node * NODE_SIZE + operand];
+    }
+
+    /* Payload */
+
+    /*
+        Declared type of a PROCEDURE or VAR_DECL.
+     */
+    public Type type(int node) {
+        int extra = extra(node);
+        return extra < 0 ? null : TYPES[extra];
+    }
+
+    public Op op(int node) {
+        int extra = extra(node);
+        return extra < 0 ? null : OPS[extra];
+    }
+
+    /*
+        Name of a PROCEDURE, VAR_DECL, VAR or call.
+     */
+    public int nameId(int node) {
+        return operand(node, A);
+    }
+
+    public String name(int node) {
+        int id = nameId(node);
+        return id == NameTable.NO_NAME ? null : program.getNames().name(id);
+    }
+
+    public int value(int node) {
+        return operand(node, A);
+    }
+
+    public char charValue(int node) {
+        return (char) operand(node, A);
+    }
+
+    public String string(int node) {
+        int id = operand(node, A);
+        return id == NameTable.NO_NAME ? null : program.getNames().name(id);
+    }
+
+    /* Children */
+
+    public int params(int procedure) {
+        return operand(procedure, B);
+    }
+
+    public int block(int procedure) {
+        return operand(procedure, C);
+    }
+
+    public int varDecls(int block) {
+        return operand(block, A);
+    }
+
+    public int statements(int block) {
+        return operand(block, B);
+    }
+
+    public int lhs(int binOp) {
+        return operand(binOp, A);
+    }
+
+    public int rhs(int binOp) {
+        return operand(binOp, B);
+    }
+
+    public int arguments(int call) {
+        return operand(call, B);
+    }
+
+    /*
+        Condition of a WHILE or IF.
+     */
+    public int condition(int node) {
+        return operand(node, A);
+    }
+
+    public int body(int whilez) {
+        return operand(whilez, B);
+    }
+
+    public int thenStmt(int anIf) {
+        return operand(anIf, B);
+    }
+
+    public int elseStmt(int anIf) {
+        return operand(anIf, C);
+    }
+
+    public int var(int assign) {
+        return operand(assign, A);
+    }
+
+    /*
+        Expression of a RETURN or ASSIGN.
+     */
+    public int expr(int node) {
+        if (kind(node) == NodeKind.RETURN)
+            return operand(node, A);
+        return operand(node, B);
+    }
+
+    /* Lists */
+
+    public int count(int list) {
+        return lists[list];
+    }
+
+    public int item(int list, int i) {
+        return lists[list + 1 + i];
+    }
+
+    /* Positions */
+
+    public int line(int node) {
+        return positions == null ? 0 : positions[node * 2];
+    }
+
+    public int column(int node) {
+        return positions == null ? 0 : positions[node * 2 + 1];
+    }
+
+    public void setPosition(int node, int line, int column) {
+        if (positions == null || positions.length < nodes.length / 2)
+            positions = positions == null ? new int[nodes.length / 2] : Arrays.copyOf(positions, nodes.length / 2);
+        positions[node * 2] = line;
+        positions[node * 2 + 1] = column;
+    }
+
+    /* Annotations */
+
+    /*
+        Type of an expression as set by type checking, null until then.
+     */
+    public Type exprType(int node) {
+        if (types == null || types[node] == 0)
+            return null;
+        return TYPES[types[node] - 1];
+    }
+
+    public void setExprType(int node, Type type) {
+        if (types == null)
+            types = new int[size];
+        types[node] = type == null ? 0 : type.ordinal() + 1;
+    }
+
+    /*
+        Declaration a VAR or call resolves to, as set by name analysis: the tree holding it,
+        null if unresolved, and the VAR_DECL or PROCEDURE node in that tree.
+     */
+    public FlatTree linkedTree(int node) {
+        if (links == null || links[node] == NO_LINK)
+            return null;
+        return program.tree((int) (links[node] >>> 32));
+    }
+
+    public int linkedNode(int node) {
+        if (links == null || links[node] == NO_LINK)
+            return NONE;
+        return (int) links[node];
+    }
+
+    public void setLink(int node, FlatTree tree, int declaration) {
+        if (links == null) {
+            links = new long[size];
+            Arrays.fill(links, NO_LINK);
+        }
+        links[node] = tree == null ? NO_LINK : (long) tree.index << 32 | declaration;
+    }
+}
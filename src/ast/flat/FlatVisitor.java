@@ -0,0 +1,25 @@
+package ast.flat;
+
+/*
+    Visitor over a FlatProgram, the counterpart of ASTVisitor.
+    Nodes are given as the tree they belong to and their index in it, see FlatTree.accept.
+ */
+public interface FlatVisitor<T> {
+
+    T visitBlock(FlatTree tree, int block);
+    T visitProcedure(FlatTree tree, int procedure);
+    T visitProgram(FlatProgram program);
+    T visitVarDecl(FlatTree tree, int varDecl);
+    T visitVar(FlatTree tree, int var);
+    T visitFunctionCallStmt(FlatTree tree, int funCallStmt);
+    T visitStrLiteral(FlatTree tree, int strLiteral);
+    T visitWhile(FlatTree tree, int whilez);
+    T visitBinOp(FlatTree tree, int binOp);
+    T visitIf(FlatTree tree, int anIf);
+    T visitIntLiteral(FlatTree tree, int intLiteral);
+    T visitChrLiteral(FlatTree tree, int chrLiteral);
+    T visitReturn(FlatTree tree, int aReturn);
+    T visitAssign(FlatTree tree, int assign);
+
+    T visitFunCallExpr(FlatTree tree, int funCallExpr);
+}
@@ -0,0 +1,23 @@
+package ast.flat;
+
+/*
+    The kinds of nodes of a FlatTree, one for each class of the ast package.
+ */
+public enum NodeKind {
+
+    PROCEDURE,
+    BLOCK,
+    VAR_DECL,
+    VAR,
+    INT_LITERAL,
+    CHR_LITERAL,
+    STR_LITERAL,
+    BIN_OP,
+    FUN_CALL_EXPR,
+    FUN_CALL_STMT,
+    WHILE,
+    IF,
+    RETURN,
+    ASSIGN;
+
+}
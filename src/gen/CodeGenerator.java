@@ -1,6 +1,7 @@
 package gen;
 
 import ast.Program;
+import ast.flat.FlatProgram;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -21,8 +22,17 @@ public class CodeGenerator {
         GeneratingClassWriter cw = new GeneratingClassWriter();
         cw.visitProgram(program);
 
-        byte[] bytes = cw.toByteArray();
+        emit(cw.toByteArray());
+    }
+
+    public void emitProgram(FlatProgram program) {
+        GeneratingClassWriter cw = new GeneratingClassWriter();
+        cw.visitProgram(program);
+
+        emit(cw.toByteArray());
+    }
 
+    private void emit(byte[] bytes) {
         try {
             write(bytes);
         } catch (IOException e) {
@@ -3,6 +3,9 @@ package gen;
 import ast.*;
 import ast.expressions.*;
 import ast.statements.*;
+import ast.flat.FlatProgram;
+import ast.flat.FlatTree;
+import ast.flat.FlatVisitor;
 import gen.util.BinOpBytecodeMap;
 import gen.util.TypeMap;
 import org.objectweb.asm.*;
@@ -10,14 +13,16 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.objectweb.asm.Opcodes.*;
 import static org.objectweb.asm.Type.getInternalName;
 
 
-public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Void> {
+public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Void>, FlatVisitor<Void> {
 
     private static final String MAIN_CLASS = "Main";
     private static final String IO_CLASS = "IO";
@@ -27,12 +32,12 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
 
     private MethodVisitor currentMethod;
 
-    private Map<String, VarDecl> globals;
+    private Set<String> globals;
 
     public GeneratingClassWriter() {
         super(COMPUTE_FRAMES);
 
-        globals = new HashMap<>();
+        globals = new HashSet<>();
     }
 
     private Map<String, Integer> vars;
@@ -44,7 +49,7 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
 
         // Create global variables
         for (VarDecl varDecl : program.varDecls)
-            visitGlobalVarDecl(varDecl);
+            visitGlobalVarDecl(varDecl.var.name);
 
         // Create static methods
         for (Procedure p : program.procs)
@@ -59,11 +64,11 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
         return null;
     }
 
-    private void visitGlobalVarDecl(VarDecl varDecl) {
-        globals.put(varDecl.var.name, varDecl);
+    private void visitGlobalVarDecl(String name) {
+        globals.add(name);
         visitField(
                 ACC_PUBLIC + ACC_STATIC,
-                varDecl.var.name,
+                name,
                 Type.getDescriptor(int.class),
                 null,   // signature
                 null    // value
@@ -101,20 +106,22 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
 
     @Override
     public Void visitVar(Var v) {
+        return visitVar(v.name);
+    }
+
+    private Void visitVar(String name) {
 
-        if (vars.containsKey(v.name)) {
+        if (vars.containsKey(name)) {
             // Need to load a variable onto the stack
-            currentMethod.visitIntInsn(ILOAD, vars.get(v.name));
+            currentMethod.visitIntInsn(ILOAD, vars.get(name));
         }
 
         // Load global
-        else if (globals.containsKey(v.name)) {
-            VarDecl varDecl = globals.get(v.name);
-
+        else if (globals.contains(name)) {
             currentMethod.visitFieldInsn(
                     GETSTATIC,
                     MAIN_CLASS,
-                    varDecl.var.name,
+                    name,
                     INTEGER);
         }
 
@@ -143,38 +150,46 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
             expr.accept(this);
         }
 
-        if (procedure.name.equals(Procedure.READ_I.name))
-            return visitReadInteger(procedure);
-        if (procedure.name.equals(Procedure.READ_C.name))
-            return visitReadCharacter(procedure);
-        if (procedure.name.equals(Procedure.PRINT_I.name))
-            return visitPrintInteger(procedure);
-        if (procedure.name.equals(Procedure.PRINT_C.name))
-            return visitPrintCharacter(procedure);
+        return visitInvoke(procedure.name, method);
+    }
+
+    private Void visitInvoke(String name, Method method) {
+        if (name.equals(Procedure.READ_I.name))
+            return visitReadInteger(name);
+        if (name.equals(Procedure.READ_C.name))
+            return visitReadCharacter(name);
+        if (name.equals(Procedure.PRINT_I.name))
+            return visitPrintInteger(name);
+        if (name.equals(Procedure.PRINT_C.name))
+            return visitPrintCharacter(name);
 
 
-        currentMethod.visitMethodInsn(INVOKESTATIC, MAIN_CLASS, procedure.name, method.getDescriptor());
+        currentMethod.visitMethodInsn(INVOKESTATIC, MAIN_CLASS, name, method.getDescriptor());
         return null;
     }
 
-    private Void visitReadCharacter(Procedure procedure) {
-        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, procedure.name, "()C");
+    private Void visitReadCharacter(String name) {
+        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, name, "()C");
         return null;
     }
 
-    private Void visitReadInteger(Procedure procedure) {
-        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, procedure.name, "()I");
+    private Void visitReadInteger(String name) {
+        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, name, "()I");
         return null;
     }
 
-    private Void visitPrintCharacter(Procedure procedure) {
-        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, procedure.name, "(C)V");
+    private Void visitPrintCharacter(String name) {
+        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, name, "(C)V");
         return null;
     }
 
     private Void visitPrintString(Procedure procedure, List<Expr> arguments) {
         StrLiteral string = (StrLiteral) arguments.get(0);
-        String stringToPrint = string.string
+        return visitPrintString(procedure.name, string.string);
+    }
+
+    private Void visitPrintString(String name, String string) {
+        String stringToPrint = string
                 .replaceAll("\\\\t", "\t")
                 .replaceAll("\\\\b", "\b")
                 .replaceAll("\\\\n", "\n")
@@ -185,12 +200,12 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
 //                .replaceAll("\\\\", "\\");
 
         currentMethod.visitLdcInsn(stringToPrint);
-        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, procedure.name, "(Ljava/lang/String;)V");
+        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, name, "(Ljava/lang/String;)V");
         return null;
     }
 
-    private Void visitPrintInteger(Procedure procedure) {
-        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, procedure.name, "(I)V");
+    private Void visitPrintInteger(String name) {
+        currentMethod.visitMethodInsn(INVOKESTATIC, IO_CLASS, name, "(I)V");
         return null;
     }
 
@@ -229,20 +244,24 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
         binOp.rhs.accept(this);
         // Should have the two vars on the top of the stack
 
-        if (binOp.op == Op.ADD) {
+        return visitOp(binOp.op);
+    }
+
+    private Void visitOp(Op op) {
+        if (op == Op.ADD) {
             currentMethod.visitInsn(IADD);
         }
-        else if (binOp.op == Op.SUB) {
+        else if (op == Op.SUB) {
             currentMethod.visitInsn(ISUB);
         }
-        else if (binOp.op == Op.MUL) {
+        else if (op == Op.MUL) {
             currentMethod.visitInsn(IMUL);
         }
-        else if (binOp.op == Op.DIV) {
+        else if (op == Op.DIV) {
             currentMethod.visitInsn(IDIV);
         }
-        else if (BINOP_BYTECODE_MAP.containsKey(binOp.op)) {
-            int instruction = BINOP_BYTECODE_MAP.get(binOp.op);
+        else if (BINOP_BYTECODE_MAP.containsKey(op)) {
+            int instruction = BINOP_BYTECODE_MAP.get(op);
             Label elseBlock = new Label();
             currentMethod.visitJumpInsn(instruction, elseBlock);
 
@@ -260,7 +279,7 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
             currentMethod.visitLabel(nextInst);
 
 
-        } else if (binOp.op == Op.MOD) {
+        } else if (op == Op.MOD) {
             currentMethod.visitInsn(IREM);
         }
 
@@ -298,7 +317,10 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
 
     @Override
     public Void visitIntLiteral(IntLiteral intLiteral) {
-        int value = intLiteral.value;
+        return visitIntLiteral(intLiteral.value);
+    }
+
+    private Void visitIntLiteral(int value) {
 
         if (value >= 32768) {
             // can only push at most 2^16, need to do masking
@@ -328,7 +350,7 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
         }
 
         else {
-            currentMethod.visitIntInsn(SIPUSH, intLiteral.value);
+            currentMethod.visitIntInsn(SIPUSH, value);
         }
 
 
@@ -359,20 +381,21 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
         assign.expr.accept(this);
 
         // We need to store it to var, can be global or local
-        Var var = assign.var;
+        return visitStore(assign.var.name);
+    }
 
+    private Void visitStore(String name) {
         // Save as global
-        if (globals.containsKey(var.name)) {
-            VarDecl varDecl = globals.get(var.name);
+        if (globals.contains(name)) {
             currentMethod.visitFieldInsn(
                     PUTSTATIC,
                     MAIN_CLASS,
-                    varDecl.var.name,
+                    name,
                     INTEGER);
         }
         // Save as local
         else {
-            currentMethod.visitVarInsn(ISTORE, vars.get(assign.var.name));
+            currentMethod.visitVarInsn(ISTORE, vars.get(name));
         }
 
         return null;
@@ -464,10 +487,14 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
     }
 
     private Method buildMethod(ast.Type type, String name, List<VarDecl> args) {
-        String methodType = TYPE_MAP.get(type);
         String methodArguments = "";
         for (VarDecl varDecl : args)
             methodArguments += ", " + TYPE_MAP.get(varDecl.type);
+        return buildMethod(type, name, methodArguments);
+    }
+
+    private Method buildMethod(ast.Type type, String name, String methodArguments) {
+        String methodType = TYPE_MAP.get(type);
         methodArguments = methodArguments.replaceFirst(", ", "");
 
         String procedure = String.format("%s %s(%s)", methodType, name, methodArguments);
@@ -486,4 +513,252 @@ public class GeneratingClassWriter extends ClassWriter implements ASTVisitor<Voi
         }
         return max;
     }
+
+    /* Flat AST */
+
+    @Override
+    public Void visitProgram(FlatProgram program) {
+        createClass();
+
+        FlatTree globals = program.globals();
+        int varDecls = globals.varDecls(globals.root());
+        for (int i = 0; i < globals.count(varDecls); i++)
+            visitGlobalVarDecl(globals.name(globals.item(varDecls, i)));
+
+        for (int i = 0; i < program.procedureCount(); i++) {
+            FlatTree procedure = program.procedure(i);
+            procedure.accept(procedure.root(), this);
+        }
+
+        FlatTree main = program.main();
+        main.accept(main.root(), this);
+
+        visitEnd();
+
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(FlatTree tree, int block) {
+
+        Map<String, Integer> old = new HashMap<>(vars);
+
+        int varDecls = tree.varDecls(block);
+        for (int i = 0; i < tree.count(varDecls); i++) {
+            int next = getIndex(vars);
+            vars.put(tree.name(tree.item(varDecls, i)), next);
+        }
+
+        int statements = tree.statements(block);
+        for (int i = 0; i < tree.count(statements); i++)
+            tree.accept(tree.item(statements, i), this);
+
+        vars = old;
+        return null;
+    }
+
+    @Override
+    public Void visitProcedure(FlatTree tree, int procedure) {
+        if (tree.name(procedure).equals("main"))
+            return visitMain(tree, procedure);
+
+        return visitGlobalProcedure(tree, procedure);
+    }
+
+    @Override
+    public Void visitVarDecl(FlatTree tree, int varDecl) {
+        return null;
+    }
+
+    @Override
+    public Void visitVar(FlatTree tree, int var) {
+        return visitVar(tree.name(var));
+    }
+
+    @Override
+    public Void visitFunctionCallStmt(FlatTree tree, int funCallStmt) {
+        visitFunctionCall(tree, funCallStmt);
+        // Pop the value returned, if any
+        if (tree.linkedTree(funCallStmt).type(tree.linkedNode(funCallStmt)) != ast.Type.VOID) {
+            currentMethod.visitInsn(POP);
+        }
+        return null;
+    }
+
+    private Void visitFunctionCall(FlatTree tree, int call) {
+        FlatTree definition = tree.linkedTree(call);
+        int procedure = tree.linkedNode(call);
+        String name = definition.name(procedure);
+        Method method = buildMethod(definition, procedure);
+
+        int arguments = tree.arguments(call);
+        if (name.equals(Procedure.PRINT_S.name))
+            return visitPrintString(name, tree.string(tree.item(arguments, 0)));
+
+        for (int i = 0; i < tree.count(arguments); i++)
+            tree.accept(tree.item(arguments, i), this);
+
+        return visitInvoke(name, method);
+    }
+
+    @Override
+    public Void visitStrLiteral(FlatTree tree, int strLiteral) {
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(FlatTree tree, int whilez) {
+        Label condition = new Label();
+        Label next = new Label();
+
+        currentMethod.visitLabel(condition);
+        tree.accept(tree.condition(whilez), this);
+
+        currentMethod.visitInsn(ICONST_1);
+        currentMethod.visitJumpInsn(IF_ICMPNE, next);
+
+        tree.accept(tree.body(whilez), this);
+
+        currentMethod.visitJumpInsn(GOTO, condition);
+
+        currentMethod.visitLabel(next);
+
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(FlatTree tree, int binOp) {
+        tree.accept(tree.lhs(binOp), this);
+        tree.accept(tree.rhs(binOp), this);
+
+        return visitOp(tree.op(binOp));
+    }
+
+    @Override
+    public Void visitIf(FlatTree tree, int anIf) {
+        tree.accept(tree.condition(anIf), this);
+
+        currentMethod.visitInsn(ICONST_0);
+        Label elseLabel = new Label();
+        Label nextStmt = new Label();
+
+        currentMethod.visitJumpInsn(IF_ICMPEQ, elseLabel);
+
+        tree.accept(tree.thenStmt(anIf), this);
+        currentMethod.visitJumpInsn(GOTO, nextStmt);
+
+        currentMethod.visitLabel(elseLabel);
+        if (tree.elseStmt(anIf) != FlatTree.NONE) tree.accept(tree.elseStmt(anIf), this);
+
+        currentMethod.visitLabel(nextStmt);
+
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(FlatTree tree, int intLiteral) {
+        return visitIntLiteral(tree.value(intLiteral));
+    }
+
+    @Override
+    public Void visitChrLiteral(FlatTree tree, int chrLiteral) {
+        currentMethod.visitIntInsn(SIPUSH, (int) tree.charValue(chrLiteral));
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(FlatTree tree, int aReturn) {
+        if (tree.expr(aReturn) != FlatTree.NONE) {
+            tree.accept(tree.expr(aReturn), this);
+            currentMethod.visitInsn(IRETURN);
+        }
+        else {
+            currentMethod.visitInsn(RETURN);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(FlatTree tree, int assign) {
+        tree.accept(tree.expr(assign), this);
+        return visitStore(tree.name(tree.var(assign)));
+    }
+
+    @Override
+    public Void visitFunCallExpr(FlatTree tree, int funCallExpr) {
+        return visitFunctionCall(tree, funCallExpr);
+    }
+
+    private Void visitMain(FlatTree tree, int procedure) {
+        MethodVisitor main = visitMethod(
+                ACC_PUBLIC + ACC_STATIC,
+                "main",
+                "([Ljava/lang/String;)V",
+                null,
+                null
+        );
+
+        vars = new HashMap<String, Integer>();
+        vars.put("args", 0);
+
+        int params = tree.params(procedure);
+        for (int i = 0; i < tree.count(params); i++)
+            vars.put(tree.name(tree.item(params, i)), vars.size());
+
+        currentMethod = main;
+        main.visitCode();
+
+        tree.accept(tree.block(procedure), this);
+
+        main.visitInsn(RETURN);
+
+        main.visitMaxs(3, 3);
+        main.visitEnd();
+
+        return null;
+    }
+
+    private Void visitGlobalProcedure(FlatTree tree, int procedure) {
+        Method method = buildMethod(tree, procedure);
+
+        vars = new HashMap<String, Integer>();
+
+        int params = tree.params(procedure);
+        for (int i = 0; i < tree.count(params); i++)
+            vars.put(tree.name(tree.item(params, i)), i);
+
+        MethodVisitor proc = visitMethod(
+                ACC_PUBLIC + ACC_STATIC,
+                method.getName(),
+                method.getDescriptor(),
+                null,
+                null
+        );
+
+        proc.visitCode();
+        currentMethod = proc;
+
+        tree.accept(tree.block(procedure), this);
+
+        if (tree.type(procedure) == ast.Type.VOID) {
+            proc.visitInsn(RETURN);
+        }
+        else {
+            proc.visitInsn(ICONST_0);
+            proc.visitInsn(IRETURN);
+        }
+
+        currentMethod.visitMaxs(2, 3);
+        currentMethod.visitEnd();
+
+        return null;
+    }
+
+    private Method buildMethod(FlatTree tree, int procedure) {
+        String methodArguments = "";
+        int params = tree.params(procedure);
+        for (int i = 0; i < tree.count(params); i++)
+            methodArguments += ", " + TYPE_MAP.get(tree.type(tree.item(params, i)));
+        return buildMethod(tree.type(procedure), tree.name(procedure), methodArguments);
+    }
 }
@@ -0,0 +1,120 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * The identifiers of a compilation, each interned once and numbered densely from 0 in the order
+ * they first appear. Later phases can key their tables by these ids instead of by name.
+ * Not thread safe, every tokeniser lexing in parallel needs its own table.
+ */
+public class NameTable {
+
+    public static final int NO_NAME = -1;
+
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    // Open addressing hash table of id + 1, 0 marks a free slot
+    private int[] slots = new int[128];
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /*
+        Id of the name held in chars[from, from + length), adding it if it is new.
+        Does not allocate for names seen before.
+     */
+    public int intern(char[] chars, int from, int length) {
+        int hash = 0;
+        for (int i = from; i < from + length; i++)
+            hash = 31 * hash + chars[i];
+
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id == NO_NAME)
+                return add(new String(chars, from, length), hash, i);
+            if (hashes[id] == hash && matches(names[id], chars, from, length))
+                return id;
+        }
+    }
+
+    public int intern(String name) {
+        int id = lookup(name);
+        if (id != NO_NAME)
+            return id;
+
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        int i = spread(hash) & mask;
+        while (slots[i] != 0)
+            i = (i + 1) & mask;
+
+        return add(name, hash, i);
+    }
+
+    /*
+        Id of the name, NO_NAME if it never appeared.
+     */
+    public int lookup(String name) {
+        int hash = name.hashCode();
+
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id == NO_NAME || (hashes[id] == hash && names[id].equals(name)))
+                return id;
+        }
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        // keep the table at most half full
+        if (size * 2 > slots.length)
+            rehash();
+
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = spread(hashes[id]) & mask;
+            while (slots[i] != 0)
+                i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, char[] chars, int from, int length) {
+        if (name.length() != length)
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (name.charAt(i) != chars[from + i])
+                return false;
+
+        return true;
+    }
+}
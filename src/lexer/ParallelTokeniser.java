@@ -0,0 +1,252 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tokeniser for very large sources, lexing chunks of the source in parallel.
+ *
+ * The source is split at newlines and every chunk is lexed on a ForkJoin pool as if a token
+ * started right there. Whether that guess holds depends on everything before the chunk (the
+ * newline might sit in a block comment or a literal), so the chunks are stitched together
+ * afterwards: the lexer of the previous chunk keeps going past its end until it starts a token
+ * at an offset the next chunk also started a token at. From there on both agree, since lexing
+ * only depends on what follows, and the rest of the next chunk is taken over as is.
+ *
+ * The token stream is the one of a sequential Tokeniser, and so are the lexing errors: they
+ * are reported as the tokens they belong to are handed out.
+ *
+ * Chunks intern names into tables of their own, the first chunk into the one of the tokeniser.
+ * Stitching renumbers the names of the other chunks in the order they appear in the stream, so
+ * name ids come out as a sequential Tokeniser would give them.
+ */
+public class ParallelTokeniser extends Tokeniser {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static ForkJoinPool sharedPool;
+
+    private final Scanner scanner;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private TokenBuffer tokens;
+    private int next = 0;
+
+    public ParallelTokeniser(Scanner scanner) {
+        this(scanner, sharedPool(), CHUNK_SIZE);
+    }
+
+    public ParallelTokeniser(Scanner scanner, ForkJoinPool pool) {
+        this(scanner, pool, CHUNK_SIZE);
+    }
+
+    ParallelTokeniser(Scanner scanner, ForkJoinPool pool, int chunkSize) {
+        super(scanner);
+        this.scanner = scanner;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool();
+        return sharedPool;
+    }
+
+    @Override
+    public Token nextToken() {
+        TokenBuffer tokens = lex();
+
+        int i = next;
+        if (i < tokens.size() - 1)
+            next++;
+
+        if (tokens.tokenClass(i) == TokenClass.INVALID)
+            report(tokens.errorChar(i), tokens.line(i), tokens.column(i));
+
+        return tokens.token(i);
+    }
+
+    /*
+        The whole token stream. Errors of the tokens not handed out yet are reported now.
+     */
+    @Override
+    public TokenBuffer tokenise() {
+        TokenBuffer tokens = lex();
+
+        for (; next < tokens.size() - 1; next++) {
+            if (tokens.tokenClass(next) == TokenClass.INVALID)
+                report(tokens.errorChar(next), tokens.line(next), tokens.column(next));
+        }
+
+        tokens.setErrorCount(getErrorCount());
+        return tokens;
+    }
+
+    private TokenBuffer lex() {
+        if (tokens == null)
+            tokens = stitch(split());
+        return tokens;
+    }
+
+    /*
+        Split the rest of the source into chunks starting at newlines and lex them.
+     */
+    private Chunk[] split() {
+        char[] source = scanner.getSource();
+        int from = scanner.getOffset();
+        int length = scanner.getLength();
+        int startLine = scanner.getLine();
+
+        // Streamed sources are not held in memory, lex them in one go
+        int count = source == null ? 1 : Math.max(1, (length - from) / chunkSize);
+
+        final List<Chunk> chunks = new ArrayList<>();
+        int begin = from;
+        for (int i = 1; i < count; i++) {
+            int target = from + (int) ((long) (length - from) * i / count);
+            int boundary = newline(source, Math.max(begin + 1, target), length);
+            if (boundary == length)
+                break;
+
+            chunks.add(new Chunk(source, length, begin, boundary, chunks.isEmpty() ? scanner : null, getNames()));
+            begin = boundary;
+        }
+        chunks.add(new Chunk(source, length, begin, Integer.MAX_VALUE, chunks.isEmpty() ? scanner : null, getNames()));
+
+        if (chunks.size() == 1) {
+            chunks.get(0).compute();
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(chunks);
+                }
+            });
+        }
+
+        // Chunk scanners count lines from 1 at their first character, which is a newline
+        int lines = startLine - 1;
+        for (int i = 1; i < chunks.size(); i++) {
+            lines += chunks.get(i - 1).breaks;
+            chunks.get(i).lineDelta = lines;
+        }
+
+        return chunks.toArray(new Chunk[chunks.size()]);
+    }
+
+    private static int newline(char[] source, int from, int length) {
+        for (int i = from; i < length; i++)
+            if (source[i] == '\n')
+                return i;
+        return length;
+    }
+
+    private static TokenBuffer stitch(Chunk[] chunks) {
+        Chunk first = chunks[0];
+        TokenBuffer out = first.tokens;
+
+        int total = 0;
+        for (Chunk chunk : chunks)
+            total += chunk.tokens.size() + 1;
+        out.reserve(total);
+
+        // The tokeniser known to be in step with the source, its last scanned token is not in out yet
+        Tokeniser live = first.tokeniser;
+        int liveDelta = first.lineDelta;
+        boolean complete = first.isLast();
+
+        int j = 1;
+        while (!complete) {
+            int start = live.scannedStart();
+
+            if (j < chunks.length && start >= chunks[j].end) {
+                // Went past that chunk without ever falling in step with it
+                j++;
+                continue;
+            }
+
+            int index = j < chunks.length ? chunks[j].tokens.indexOf(start, 0) : -1;
+            if (index >= 0) {
+                Chunk chunk = chunks[j++];
+                out.addAll(chunk.tokens, index, chunk.tokens.size(), chunk.lineDelta, 0);
+                live = chunk.tokeniser;
+                liveDelta = chunk.lineDelta;
+                complete = chunk.isLast();
+            } else {
+                live.addTo(out, liveDelta);
+                complete = live.scannedClass() == TokenClass.EOF;
+                if (!complete)
+                    live.scanToken();
+            }
+        }
+
+        return out;
+    }
+
+    /*
+        Lexes from begin on, keeping the tokens starting before end. The first token starting
+        at or after end is left scanned in the tokeniser. The last chunk has no end and keeps EOF.
+     */
+    private static class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final char[] source;
+        private final int begin;
+        private final int end;
+
+        private final Tokeniser tokeniser;
+        private final TokenBuffer tokens;
+
+        private int breaks;
+        private int lineDelta;
+
+        Chunk(char[] source, int length, int begin, int end, Scanner scanner, NameTable names) {
+            this.source = source;
+            this.begin = begin;
+            this.end = end;
+
+            if (scanner == null) {
+                scanner = new Scanner(source, begin, length);
+                names = new NameTable();
+            }
+            this.tokeniser = new Tokeniser(scanner, names, false);
+
+            if (source == null)
+                this.tokens = new TokenBuffer(names);
+            else
+                this.tokens = new TokenBuffer(source, length, (Math.min(end, length) - begin) / 4, names);
+        }
+
+        boolean isLast() {
+            return end == Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void compute() {
+            while (true) {
+                tokeniser.scanToken();
+                int start = tokeniser.scannedStart();
+                if (start >= end)
+                    break;
+
+                tokeniser.addTo(tokens, 0);
+
+                if (tokeniser.scannedClass() == TokenClass.EOF)
+                    break;
+            }
+
+            if (source != null && !isLast()) {
+                for (int i = begin; i < end; i++)
+                    if (source[i] == '\n' || source[i] == '\r')
+                        breaks++;
+            }
+        }
+    }
+}
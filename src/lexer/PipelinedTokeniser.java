@@ -0,0 +1,252 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tokeniser lexing on another thread, ahead of the one taking the tokens, e.g. a Parser.
+ *
+ * A second tokeniser on the same scanner lexes batches of tokens on an Executor and hands
+ * them over through a bounded single-producer single-consumer queue. Lexing stops when the
+ * queue is full and is started again by the consumer once it took a batch, so no thread is
+ * left waiting on a consumer that stopped before EOF.
+ *
+ * The tokens are those of a Tokeniser on the same scanner, and so are the lexing errors: they
+ * are reported as the tokens they belong to are handed out. Anything thrown while lexing is
+ * rethrown to the consumer in place of the first token that was not lexed.
+ */
+public class PipelinedTokeniser extends Tokeniser {
+
+    private static final int BATCH_SIZE = 256;
+
+    // Batches lexed ahead at most, a power of two
+    private static final int CAPACITY = 16;
+    private static final int MASK = CAPACITY - 1;
+
+    // Waiting on the other side: yield that many times, then park for a while at a time
+    private static final int SPINS = 64;
+    private static final long PARK_NANOS = 20000;
+
+    private static ExecutorService sharedExecutor;
+
+    private final Executor executor;
+    private final Producer producer;
+
+    // The queue: the producer fills slots from tail on, the consumer empties them from head on
+    private final Batch[] slots = new Batch[CAPACITY];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Whether the producer is lexing or about to, set by whoever starts it
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Set once the producer queued EOF or failed, it is not started again then
+    private volatile boolean done = false;
+    private volatile Throwable failure;
+
+    // Consumer side
+    private boolean started = false;
+    private Batch batch;
+    private int next = 0;
+
+    public PipelinedTokeniser(Scanner scanner) {
+        this(scanner, new NameTable());
+    }
+
+    public PipelinedTokeniser(Scanner scanner, NameTable names) {
+        this(scanner, names, sharedExecutor());
+    }
+
+    public PipelinedTokeniser(Scanner scanner, NameTable names, Executor executor) {
+        super(scanner, names);
+        this.executor = executor;
+        this.producer = new Producer(scanner, names);
+    }
+
+    private static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "tokeniser");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutor;
+    }
+
+    @Override
+    public Token nextToken() {
+        if (!started) {
+            started = true;
+            running.set(true);
+            executor.execute(producer);
+        }
+
+        if (batch == null || next == batch.size) {
+            batch = take();
+            next = 0;
+        }
+
+        // EOF ends the last batch, keep handing it out
+        Token token = batch.tokens[next];
+        if (token.tokenClass == TokenClass.EOF)
+            return token;
+
+        if (token.tokenClass == TokenClass.INVALID)
+            report(batch.errorChars[next], batch.lines[next], batch.columns[next]);
+        next++;
+        return token;
+    }
+
+    /*
+        The whole token stream, lexed on the calling thread. Only until tokens were handed out.
+     */
+    @Override
+    public TokenBuffer tokenise() {
+        if (started)
+            throw new IllegalStateException("Tokens are already being handed out one by one");
+        started = true;
+
+        TokenBuffer tokens = producer.tokenise();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.tokenClass(i) == TokenClass.INVALID)
+                report(tokens.errorChar(i), tokens.line(i), tokens.column(i));
+        }
+
+        tokens.setErrorCount(getErrorCount());
+        return tokens;
+    }
+
+    /*
+        The next batch, waiting for the producer if there is none yet.
+     */
+    private Batch take() {
+        long h = head.get();
+        for (int spins = 0; tail.get() == h; spins++) {
+            if (done && tail.get() == h)
+                throw rethrow(failure);
+            await(spins);
+        }
+
+        Batch taken = slots[(int) h & MASK];
+        slots[(int) h & MASK] = null;
+
+        // Volatile, as the producer checks for room after clearing running
+        head.set(h + 1);
+        if (!done && !running.get() && running.compareAndSet(false, true))
+            executor.execute(producer);
+
+        return taken;
+    }
+
+    private static void await(int spins) {
+        if (spins < SPINS)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(PARK_NANOS);
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        throw new IllegalStateException("Lexing failed", failure);
+    }
+
+    /*
+        Lexes batches while there is room for them in the queue.
+     */
+    private class Producer extends Tokeniser implements Runnable {
+
+        private Batch lexing;
+
+        Producer(Scanner scanner, NameTable names) {
+            super(scanner, names, false);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    while (tail.get() - head.get() < CAPACITY) {
+                        boolean last = lex();
+                        publish();
+                        if (last) {
+                            done = true;
+                            return;
+                        }
+                    }
+
+                    // Full: stop, unless the consumer took a batch meanwhile and did not start another producer
+                    running.set(false);
+                    if (tail.get() - head.get() >= CAPACITY || !running.compareAndSet(false, true))
+                        return;
+                }
+            } catch (Throwable t) {
+                // The tokens lexed before go first
+                if (lexing != null && lexing.size > 0)
+                    publish();
+                failure = t;
+                done = true;
+            }
+        }
+
+        /*
+            Lex a batch, returning whether it ends with EOF.
+         */
+        private boolean lex() {
+            lexing = new Batch();
+            Token token;
+            do {
+                token = nextToken();
+                lexing.tokens[lexing.size++] = token;
+            } while (lexing.size < BATCH_SIZE && token.tokenClass != TokenClass.EOF);
+
+            return token.tokenClass == TokenClass.EOF;
+        }
+
+        private void publish() {
+            slots[(int) tail.get() & MASK] = lexing;
+            tail.lazySet(tail.get() + 1);
+            lexing = null;
+        }
+
+        @Override
+        void report(char c, int line, int col) {
+            super.report(c, line, col);
+            if (lexing != null)
+                lexing.error(c, line, col);
+        }
+    }
+
+    private static class Batch {
+
+        private final Token[] tokens = new Token[BATCH_SIZE];
+        private int size = 0;
+
+        // What the INVALID tokens were reported for, by index
+        private final char[] errorChars = new char[BATCH_SIZE];
+        private final int[] lines = new int[BATCH_SIZE];
+        private final int[] columns = new int[BATCH_SIZE];
+
+        /*
+            Error on the token being lexed.
+         */
+        void error(char c, int line, int column) {
+            errorChars[size] = c;
+            lines[size] = line;
+            columns[size] = column;
+        }
+    }
+}
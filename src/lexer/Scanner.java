@@ -1,28 +1,157 @@
 package lexer;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 
 /**
  * @author cdubach
  */
 public class Scanner {
 
-    BufferedReader input;
-    private int peeked = -1;
+    /*
+        STREAMING reads the source through a reader, one chunk at a time.
+        WHOLE_FILE loads the complete source up front (memory mapping files) and
+        serves peek() and next() as plain index arithmetic over a char[].
+     */
+    public enum Mode {
+        STREAMING,
+        WHOLE_FILE
+    }
+
+    /*
+        Returned by peek() and next() once the input is exhausted. Callers that must tell
+        a literal U+FFFF in the source apart from the end of input should use hasNext().
+     */
+    public static final char EOF = '\uFFFF';
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Mode mode;
+
+    // null once the whole source is held in the buffer
+    private Reader input;
+
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+
+    // source offset of buffer[0]
+    private int base = 0;
 
     private int line = 1;
     private int column = 1;
 
+    /*
+        Scanner over the whole file, loaded up front. Should the file not load that way, e.g.
+        a pipe or one too large to map, it is read as a stream instead.
+     */
     public Scanner(File source) throws FileNotFoundException {
-        input = new BufferedReader(new FileReader(source));
+        if (!source.exists())
+            throw new FileNotFoundException(source.toString());
+
+        Mode loaded;
+        try {
+            load(source);
+            loaded = Mode.WHOLE_FILE;
+        } catch (IOException e) {
+            input = new FileReader(source);
+            buffer = new char[CHUNK_SIZE];
+            limit = 0;
+            loaded = Mode.STREAMING;
+        }
+        mode = loaded;
+    }
+
+    public Scanner(File source, Mode mode) throws IOException {
+        this.mode = mode;
+        if (mode == Mode.STREAMING) {
+            input = new FileReader(source);
+            buffer = new char[CHUNK_SIZE];
+        } else {
+            load(source);
+        }
     }
 
     /*
         Helper constructor for testing
      */
     public Scanner(String source) {
-        StringReader reader = new StringReader(source);
-        input = new BufferedReader(reader);
+        this(source, Mode.WHOLE_FILE);
+    }
+
+    public Scanner(String source, Mode mode) {
+        this.mode = mode;
+        if (mode == Mode.STREAMING) {
+            input = new StringReader(source);
+            buffer = new char[CHUNK_SIZE];
+        } else {
+            buffer = source.toCharArray();
+            limit = buffer.length;
+        }
+    }
+
+    /*
+        Scanner over source[from, length), offsets are those of the whole source.
+     */
+    Scanner(char[] source, int from, int length) {
+        this(source, from, length, 1, 1);
+    }
+
+    Scanner(char[] source, int from, int length, int line, int column) {
+        this.mode = Mode.WHOLE_FILE;
+        this.buffer = source;
+        this.position = from;
+        this.limit = length;
+        this.line = line;
+        this.column = column;
+    }
+
+    private void load(File source) throws IOException {
+        if (!source.isFile())
+            throw new IOException(source+" is not a regular file");
+
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(source+" is too large to be mapped");
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CharBuffer chars = Charset.defaultCharset().decode(mapped);
+
+            if (chars.hasArray() && chars.arrayOffset() == 0 && chars.position() == 0) {
+                buffer = chars.array();
+                limit = chars.limit();
+            } else {
+                buffer = new char[chars.remaining()];
+                chars.get(buffer);
+                limit = buffer.length;
+            }
+        }
+    }
+
+    /*
+        Ensure there is at least one unread character in the buffer.
+        Returns false when the source is exhausted.
+     */
+    private boolean fill() throws IOException {
+        if (position < limit)
+            return true;
+        if (input == null)
+            return false;
+
+        int read = input.read(buffer, 0, buffer.length);
+        if (read == -1) {
+            input.close();
+            input = null;
+            return false;
+        }
+
+        base += limit;
+        position = 0;
+        limit = read;
+        return true;
     }
 
 
@@ -34,30 +163,42 @@ public class Scanner {
         return line;
     }
 
-    public char peek() throws IOException {
-        if (peeked != -1)
-            return (char)peeked;
+    /*
+        Number of characters consumed so far, i.e. the source offset of the next character.
+     */
+    public int getOffset() {
+        return base + position;
+    }
 
-        int r = input.read();
-        if (r == -1)
-            throw new EOFException();
+    /*
+        The complete source in WHOLE_FILE mode, null when streaming.
+        Only the first getLength() characters are valid.
+     */
+    char[] getSource() {
+        return mode == Mode.WHOLE_FILE ? buffer : null;
+    }
 
-        peeked = r;
-        return (char) r;
+    int getLength() {
+        return limit;
+    }
+
+    public boolean hasNext() throws IOException {
+        return fill();
+    }
+
+    public char peek() throws IOException {
+        if (!fill())
+            return EOF;
+
+        return buffer[position];
     }
 
 
     public char next() throws IOException {
-        char r;
-        if (peeked != -1) {
-            r = (char) peeked;
-            peeked = -1;
-        } else {
-            int i = input.read();
-            if (i == -1)
-                throw new EOFException();
-            r = (char) i;
-        }
+        if (!fill())
+            return EOF;
+
+        char r = buffer[position++];
 
         if (r == '\n' || r == '\r') {
             line++;
@@ -69,7 +210,8 @@ public class Scanner {
     }
 
     public void close() throws IOException {
-        input.close();
+        if (input != null)
+            input.close();
     }
 
 
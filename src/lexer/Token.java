@@ -95,14 +95,22 @@ public class Token {
     public final String data;
     public final Position position;
 
+    // Id of the data in the NameTable of the compilation, for identifiers and builtins
+    public final int nameId;
+
     public Token(TokenClass type, int lineNum, int colNum) {
         this(type, "", lineNum, colNum);
     }
 
     public Token (TokenClass tokenClass, String data, int lineNum, int colNum) {
+        this(tokenClass, data, NameTable.NO_NAME, lineNum, colNum);
+    }
+
+    public Token(TokenClass tokenClass, String data, int nameId, int lineNum, int colNum) {
         assert (tokenClass != null);
         this.tokenClass = tokenClass;
         this.data = data;
+        this.nameId = nameId;
         this.position = new Position(lineNum, colNum);
     }
 
@@ -0,0 +1,371 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.util.Arrays;
+
+/**
+ * The whole token stream of a source held as parallel primitive arrays, one entry per token
+ * and the EOF token last. Token data is not copied, each token refers to a range of the
+ * source text instead. Token objects are only made on demand, see token(int).
+ * Names are kept as their id in the NameTable of the compilation.
+ */
+public class TokenBuffer {
+
+    private static final TokenClass[] CLASSES = TokenClass.values();
+
+    // The text the token ranges refer to. The source itself in WHOLE_FILE mode,
+    // otherwise a copy of the token data collected while lexing.
+    private char[] text;
+    private int textLength;
+    private final boolean sourced;
+
+    private final NameTable names;
+
+    private int size = 0;
+    private int[] classes;
+    private int[] offsets;
+    private int[] starts;
+    private int[] lengths;
+    private long[] positions;
+    private int[] nameIds;
+
+    // Character reported for each INVALID token, allocated on the first one
+    private char[] errorChars;
+
+    private int errorCount;
+
+    // Programs of the corpus and the synthetic ones average three to five characters a token
+    private static final int CHARS_PER_TOKEN = 3;
+
+    /*
+        Buffer referring to the given source text, sized for as many tokens as such a source
+        usually has so that the arrays are seldom grown.
+     */
+    TokenBuffer(char[] source, int sourceLength, NameTable names) {
+        this(source, sourceLength, sourceLength / CHARS_PER_TOKEN, names);
+    }
+
+    TokenBuffer(char[] source, int sourceLength, int capacity, NameTable names) {
+        this.text = source;
+        this.textLength = sourceLength;
+        this.sourced = true;
+        this.names = names;
+        allocate(Math.max(16, capacity));
+    }
+
+    /*
+        Buffer collecting its own copy of the token data.
+     */
+    TokenBuffer(NameTable names) {
+        this.text = new char[256];
+        this.textLength = 0;
+        this.sourced = false;
+        this.names = names;
+        allocate(256);
+    }
+
+    private void allocate(int capacity) {
+        classes = new int[capacity];
+        offsets = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        positions = new long[capacity];
+        nameIds = new int[capacity];
+    }
+
+    private void ensureCapacity() {
+        if (size == classes.length)
+            ensureCapacity(classes.length * 2);
+    }
+
+    private void ensureCapacity(int capacity) {
+        classes = Arrays.copyOf(classes, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        if (errorChars != null)
+            errorChars = Arrays.copyOf(errorChars, capacity);
+    }
+
+    /*
+        Make room for at least capacity tokens.
+     */
+    void reserve(int capacity) {
+        if (capacity > classes.length)
+            ensureCapacity(capacity);
+    }
+
+    /*
+        Add a token found at the given source offset, whose data is the given range of the text.
+     */
+    void add(TokenClass tokenClass, int offset, int start, int length, int line, int column) {
+        ensureCapacity();
+        classes[size] = tokenClass.ordinal();
+        offsets[size] = offset;
+        starts[size] = start;
+        lengths[size] = length;
+        positions[size] = pack(line, column);
+        nameIds[size] = NameTable.NO_NAME;
+        size++;
+    }
+
+    /*
+        Add a token, copying its data into the buffer's own text.
+     */
+    void add(TokenClass tokenClass, int offset, char[] data, int from, int length, int line, int column) {
+        if (textLength + length > text.length)
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+
+        System.arraycopy(data, from, text, textLength, length);
+        add(tokenClass, offset, textLength, length, line, column);
+        textLength += length;
+    }
+
+    /*
+        Record the character the lexing error of the last token was reported for.
+     */
+    void setErrorChar(char c) {
+        if (errorChars == null)
+            errorChars = new char[classes.length];
+        errorChars[size - 1] = c;
+    }
+
+    /*
+        Record the name of the last token, given its id in the table it was interned in.
+     */
+    void setName(int id, NameTable table) {
+        nameIds[size - 1] = table == names ? id : names.intern(table.name(id));
+    }
+
+    char errorChar(int i) {
+        return errorChars == null ? 0 : errorChars[i];
+    }
+
+    /*
+        Append the tokens [from, to) of other, shifting their lines by lineDelta and their
+        source offsets by offsetDelta. Both buffers must refer to their sources.
+     */
+    void addAll(TokenBuffer other, int from, int to, int lineDelta, int offsetDelta) {
+        assert sourced && other.sourced;
+
+        int count = to - from;
+        if (size + count > classes.length)
+            ensureCapacity(Math.max(classes.length * 2, size + count));
+
+        System.arraycopy(other.classes, from, classes, size, count);
+        System.arraycopy(other.offsets, from, offsets, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        System.arraycopy(other.positions, from, positions, size, count);
+        System.arraycopy(other.nameIds, from, nameIds, size, count);
+
+        if (lineDelta != 0 || offsetDelta != 0) {
+            long positionDelta = (long) lineDelta << 32;
+            for (int i = size; i < size + count; i++) {
+                offsets[i] += offsetDelta;
+                starts[i] += offsetDelta;
+                positions[i] += positionDelta;
+            }
+        }
+
+        if (other.errorChars != null) {
+            if (errorChars == null)
+                errorChars = new char[classes.length];
+            System.arraycopy(other.errorChars, from, errorChars, size, count);
+        }
+
+        // Names interned elsewhere get their ids here, in the order they appear
+        if (other.names != names) {
+            int[] ids = new int[other.names.size()];
+            Arrays.fill(ids, NameTable.NO_NAME);
+
+            for (int i = size; i < size + count; i++) {
+                int id = nameIds[i];
+                if (id == NameTable.NO_NAME)
+                    continue;
+                if (ids[id] == NameTable.NO_NAME)
+                    ids[id] = names.intern(other.names.name(id));
+                nameIds[i] = ids[id];
+            }
+        }
+
+        size += count;
+    }
+
+    /*
+        Index of the token at the given source offset, searching from index from on.
+        Negative if no token starts there.
+     */
+    int indexOf(int offset, int from) {
+        return Arrays.binarySearch(offsets, from, size, offset);
+    }
+
+    /*
+        Whether token i of this buffer and token j of other are the same token at the same place.
+     */
+    boolean same(int i, TokenBuffer other, int j) {
+        if (classes[i] != other.classes[j]
+                || offsets[i] != other.offsets[j]
+                || lengths[i] != other.lengths[j]
+                || positions[i] != other.positions[j])
+            return false;
+
+        for (int k = 0; k < lengths[i]; k++)
+            if (text[starts[i] + k] != other.text[other.starts[j] + k])
+                return false;
+
+        return true;
+    }
+
+    int countInvalid(int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            if (classes[i] == TokenClass.INVALID.ordinal())
+                count++;
+        return count;
+    }
+
+    boolean isSourced() {
+        return sourced;
+    }
+
+    char[] getText() {
+        return text;
+    }
+
+    int getTextLength() {
+        return textLength;
+    }
+
+    public NameTable getNames() {
+        return names;
+    }
+
+    void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    private static long pack(int line, int column) {
+        return ((long) line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public TokenClass tokenClass(int i) {
+        return CLASSES[classes[i]];
+    }
+
+    /*
+        Source offset of the first character of the token.
+     */
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    /*
+        Data of the token as a range of the text.
+     */
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int length(int i) {
+        return lengths[i];
+    }
+
+    public int line(int i) {
+        return (int) (positions[i] >>> 32);
+    }
+
+    public int column(int i) {
+        return (int) positions[i];
+    }
+
+    /*
+        Id of the token's name in getNames(), NameTable.NO_NAME for tokens that are not names.
+     */
+    public int nameId(int i) {
+        return nameIds[i];
+    }
+
+    public String data(int i) {
+        if (nameIds[i] != NameTable.NO_NAME)
+            return names.name(nameIds[i]);
+        if (lengths[i] == 0)
+            return "";
+        return new String(text, starts[i], lengths[i]);
+    }
+
+    public Token token(int i) {
+        return new Token(tokenClass(i), data(i), nameIds[i], line(i), column(i));
+    }
+
+    public Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    /*
+        Cursor on token i, as if advanced past the tokens before it.
+     */
+    public Cursor cursor(int i) {
+        Cursor cursor = new Cursor(this);
+        cursor.index = i;
+        return cursor;
+    }
+
+    /*
+        Walks the buffer by index. Moving past the end keeps returning the EOF token.
+     */
+    public static class Cursor implements TokenCursor {
+
+        private final TokenBuffer buffer;
+        private int index = -1;
+
+        public Cursor(TokenBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int at(int k) {
+            return Math.max(0, Math.min(index + k, buffer.size - 1));
+        }
+
+        @Override
+        public TokenClass tokenClass(int k) {
+            return CLASSES[buffer.classes[at(k)]];
+        }
+
+        @Override
+        public String data() {
+            return buffer.data(at(0));
+        }
+
+        @Override
+        public int nameId() {
+            return buffer.nameIds[at(0)];
+        }
+
+        @Override
+        public Token token() {
+            return buffer.token(at(0));
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public void advance() {
+            index++;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+/**
+ * A position in a stream of tokens, as consumed by the parser.
+ * The cursor starts before the first token, advance() moves onto it.
+ */
+public interface TokenCursor {
+
+    /**
+     * Class of the k-th token from the current one, k = 0 being the current token.
+     */
+    TokenClass tokenClass(int k);
+
+    /**
+     * Data of the current token.
+     */
+    String data();
+
+    /**
+     * NameTable id of the current token, NameTable.NO_NAME if it is not a name.
+     */
+    int nameId();
+
+    /**
+     * The current token as an object, only made on demand for diagnostics.
+     */
+    Token token();
+
+    /**
+     * Number of tokens consumed so far, identifies the current token.
+     */
+    int index();
+
+    void advance();
+}
@@ -0,0 +1,26 @@
+package lexer;
+
+/**
+ * Result of re-lexing an edited source, see Tokeniser.relex.
+ * The tokens [from, oldTo) of the previous stream were replaced by [from, newTo) of the new one,
+ * all other tokens are unchanged apart from being moved along with the text.
+ */
+public class TokenEdit {
+
+    public final TokenBuffer tokens;
+    public final int from;
+    public final int oldTo;
+    public final int newTo;
+
+    public TokenEdit(TokenBuffer tokens, int from, int oldTo, int newTo) {
+        this.tokens = tokens;
+        this.from = from;
+        this.oldTo = oldTo;
+        this.newTo = newTo;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + oldTo + ") -> [" + from + ", " + newTo + ")";
+    }
+}
@@ -1,403 +1,779 @@
 package lexer;
 
 import lexer.Token.TokenClass;
-import lexer.exceptions.UnexpectedCharacter;
+import util.Diagnostics;
 
-import java.io.EOFException;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 
 
 public class Tokeniser {
 
     private Scanner scanner;
 
+    // Identifiers and builtins are interned here as they are recognised
+    private final NameTable names;
+
+    // Diagnostics are printed as they are found, unless lexing on behalf of another tokeniser
+    private final boolean echo;
+
+    // Where errors are recorded, null to print them
+    private Diagnostics diagnostics;
+
     private int error = 0;
     public int getErrorCount() {
 	return this.error;
     }
 
-    private final HashMap<Character, TokenClass> uniqueMatchers;
-    private final HashMap<String, TokenClass> lookaheadMatchers;
-    private final List<String> ESCAPABLES = Arrays.asList(
-            "\\t",
-            "\\b",
-            "\\n",
-            "\\r",
-            "\\f",
-            "\\'",
-            "\\\"",
-            "\\\\"
-    );
+    private static final String INCLUDE = "include";
 
+    /*
+        DFA states. A token starts in START with its first character already consumed,
+        the tokeniser then keeps consuming while the peeked character has a transition.
+        The state it stops in decides which token is emitted.
+     */
+    private static final int DEAD = -1;
+    private static final int START = 0;
+    private static final int WHITESPACE = 1;
+    private static final int SINGLE = 2;
+    private static final int ASSIGN = 3;
+    private static final int BANG = 4;
+    private static final int LT = 5;
+    private static final int GT = 6;
+    private static final int SLASH = 7;
+    private static final int EQ = 8;
+    private static final int NE = 9;
+    private static final int LE = 10;
+    private static final int GE = 11;
+    private static final int LINE_COMMENT = 12;
+    private static final int BLOCK_COMMENT = 13;
+    private static final int BLOCK_COMMENT_STAR = 14;
+    private static final int BLOCK_COMMENT_END = 15;
+    private static final int NUMBER = 16;
+    private static final int IDENTIFIER = 17;
+    private static final int HASH = 18;
+    private static final int CHAR_OPEN = 19;
+    private static final int CHAR_EMPTY = 20;
+    private static final int CHAR_ESCAPE = 21;
+    private static final int CHAR_BODY = 22;
+    private static final int CHAR_CLOSE = 23;
+    private static final int STRING_OPEN = 24;
+    private static final int STRING_BODY = 25;
+    private static final int STRING_ESCAPE = 26;
+    private static final int STRING_CLOSE = 27;
+    private static final int INVALID = 28;
+    private static final int STATES = 29;
+
+    private static final int ASCII = 128;
+
+    // TRANSITIONS[state * ASCII + c] is the state reached by consuming the ASCII character c
+    private static final byte[] TRANSITIONS = new byte[STATES * ASCII];
+
+    // States whose incoming character is part of the token lexeme
+    private static final boolean[] RECORDS = new boolean[STATES];
+
+    private static final TokenClass[] SINGLE_CLASSES = new TokenClass[ASCII];
+
+    static {
+        SINGLE_CLASSES['+'] = TokenClass.PLUS;
+        SINGLE_CLASSES[';'] = TokenClass.SEMICOLON;
+        SINGLE_CLASSES[','] = TokenClass.COMMA;
+        SINGLE_CLASSES['('] = TokenClass.LPAR;
+        SINGLE_CLASSES[')'] = TokenClass.RPAR;
+        SINGLE_CLASSES['{'] = TokenClass.LBRA;
+        SINGLE_CLASSES['}'] = TokenClass.RBRA;
+        SINGLE_CLASSES['-'] = TokenClass.MINUS;
+        SINGLE_CLASSES['*'] = TokenClass.TIMES;
+        SINGLE_CLASSES['%'] = TokenClass.MOD;
+
+        // Everything but white space and comments keeps its lexeme
+        for (int state = SINGLE; state < STATES; state++)
+            RECORDS[state] = !isTrivia(state);
+
+        for (int state = 0; state < STATES; state++)
+            for (char c = 0; c < ASCII; c++)
+                TRANSITIONS[state * ASCII + c] = (byte) computeTransition(state, c);
+    }
 
-    public Tokeniser(Scanner scanner) {
-        this.scanner = scanner;
+    /*
+        The transition function itself. Only used directly for characters outside of ASCII,
+        everything else is served from the precomputed table.
+     */
+    private static int computeTransition(int state, char c) {
+        switch (state) {
+            case START:
+                if (Character.isWhitespace(c)) return WHITESPACE;
+                if (c < ASCII && SINGLE_CLASSES[c] != null) return SINGLE;
+                if (c == '=') return ASSIGN;
+                if (c == '!') return BANG;
+                if (c == '<') return LT;
+                if (c == '>') return GT;
+                if (c == '/') return SLASH;
+                if (Character.isDigit(c)) return NUMBER;
+                if (c == '#') return HASH;
+                if (c == '\'') return CHAR_OPEN;
+                if (c == '"') return STRING_OPEN;
+                if (Character.isAlphabetic(c) || c == '_') return IDENTIFIER;
+                return INVALID;
+            case ASSIGN:
+                return c == '=' ? EQ : DEAD;
+            case BANG:
+                return c == '=' ? NE : DEAD;
+            case LT:
+                return c == '=' ? LE : DEAD;
+            case GT:
+                return c == '=' ? GE : DEAD;
+            case SLASH:
+                if (c == '/') return LINE_COMMENT;
+                if (c == '*') return BLOCK_COMMENT_STAR;
+                return DEAD;
+            case LINE_COMMENT:
+                return c == '\n' ? DEAD : LINE_COMMENT;
+            case BLOCK_COMMENT:
+                return c == '*' ? BLOCK_COMMENT_STAR : BLOCK_COMMENT;
+            case BLOCK_COMMENT_STAR:
+                if (c == '/') return BLOCK_COMMENT_END;
+                return c == '*' ? BLOCK_COMMENT_STAR : BLOCK_COMMENT;
+            case NUMBER:
+                return Character.isDigit(c) ? NUMBER : DEAD;
+            case IDENTIFIER:
+                return Character.isAlphabetic(c) || Character.isDigit(c) || c == '_' ? IDENTIFIER : DEAD;
+            case CHAR_OPEN:
+                if (c == '\'') return CHAR_EMPTY;
+                return isBackslash(c) ? CHAR_ESCAPE : CHAR_BODY;
+            case CHAR_ESCAPE:
+                return isEscapable(c) ? CHAR_BODY : DEAD;
+            case CHAR_BODY:
+                return c == '\'' ? CHAR_CLOSE : DEAD;
+            case STRING_OPEN:
+            case STRING_BODY:
+                if (c == '"') return STRING_CLOSE;
+                return isBackslash(c) ? STRING_ESCAPE : STRING_BODY;
+            case STRING_ESCAPE:
+                return isEscapable(c) ? STRING_BODY : DEAD;
+            default:
+                return DEAD;
+        }
+    }
 
-        this.uniqueMatchers = buildUniqueMatchers();
-        this.lookaheadMatchers = buildLookaheadMatchers();
+    /*
+        Keywords and builtins are told apart from identifiers with a perfect hash on their
+        length and last character: (last + 4 * length) & 31 is collision free for the words
+        below, so classifying an identifier costs a single probe and one comparison.
+     */
+    private static final int KEYWORD_SLOTS = 32;
+    private static final char[][] KEYWORDS = new char[KEYWORD_SLOTS][];
+    private static final TokenClass[] KEYWORD_CLASSES = new TokenClass[KEYWORD_SLOTS];
+    private static final String[] KEYWORD_DATA = new String[KEYWORD_SLOTS];
+
+    static {
+        keyword("int", TokenClass.INT, "");
+        keyword("void", TokenClass.VOID, "");
+        keyword("char", TokenClass.CHAR, "");
+        keyword("if", TokenClass.IF, "");
+        keyword("else", TokenClass.ELSE, "");
+        keyword("while", TokenClass.WHILE, "");
+        keyword("return", TokenClass.RETURN, "");
+        keyword("main", TokenClass.MAIN, "");
+        keyword(Token.PRINT_S, TokenClass.PRINT, Token.PRINT_S);
+        keyword(Token.PRINT_C, TokenClass.PRINT, Token.PRINT_C);
+        keyword(Token.PRINT_I, TokenClass.PRINT, Token.PRINT_I);
+        keyword("read_c", TokenClass.READ, "read_c");
+        keyword("read_i", TokenClass.READ, "read_i");
     }
 
-    private HashMap<String, TokenClass> buildLookaheadMatchers() {
-        HashMap<String, TokenClass> matchers = new HashMap<>();
-        matchers.put("==", TokenClass.EQ);
-        matchers.put("!=", TokenClass.NE);
-        matchers.put("<=", TokenClass.LE);
-        matchers.put(">=", TokenClass.GE);
-        return matchers;
+    private static void keyword(String word, TokenClass tokenClass, String data) {
+        char[] chars = word.toCharArray();
+        int slot = keywordSlot(chars, chars.length);
+
+        if (KEYWORDS[slot] != null)
+            throw new IllegalStateException("Keyword hash collision between " + word + " and " + new String(KEYWORDS[slot]));
+
+        KEYWORDS[slot] = chars;
+        KEYWORD_CLASSES[slot] = tokenClass;
+        KEYWORD_DATA[slot] = data;
     }
 
-    private HashMap<Character, TokenClass> buildUniqueMatchers() {
-        HashMap<Character, TokenClass> matchers = new HashMap<>();
-        matchers.put('+', TokenClass.PLUS);
-        matchers.put(';', TokenClass.SEMICOLON);
-        matchers.put(',', TokenClass.COMMA);
-        matchers.put('(', TokenClass.LPAR);
-        matchers.put(')', TokenClass.RPAR);
-        matchers.put('{', TokenClass.LBRA);
-        matchers.put('}', TokenClass.RBRA);
-        matchers.put('=', TokenClass.ASSIGN);
-        matchers.put('-', TokenClass.MINUS);
-        matchers.put('*', TokenClass.TIMES);
-        matchers.put('%', TokenClass.MOD);
-        matchers.put('/', TokenClass.DIV);
-        matchers.put('<', TokenClass.LT);
-        matchers.put('>', TokenClass.GT);
-        return matchers;
+    private static int keywordSlot(char[] chars, int length) {
+        return (chars[length - 1] + (length << 2)) & (KEYWORD_SLOTS - 1);
     }
 
+    private static boolean isTrivia(int state) {
+        return state == WHITESPACE || (state >= LINE_COMMENT && state <= BLOCK_COMMENT_END);
+    }
 
-    public Token nextToken() {
-        Token result;
-        try {
-             result = next();
-        } catch (EOFException eof) {
-            // end of file, nothing to worry about, just return EOF token
-            return new Token(TokenClass.EOF, scanner.getLine(), scanner.getColumn());
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-            // something went horribly wrong, abort
-            System.exit(-1);
-            return null;
-        }
-        return result;
+    private static int transition(int state, char c) {
+        if (c < ASCII)
+            return TRANSITIONS[state * ASCII + c];
+        return computeTransition(state, c);
     }
 
-    private Token next() throws IOException {
+    // Lexeme of the token being recognised, reused across tokens
+    private char[] text = new char[64];
+    private int textLength;
 
-	    // get the next character
-        char c = scanner.next();
+    /*
+        The token recognised by the last call to scan(). Its data is text[dataFrom, dataTo),
+        and text[0] lies at offset tokenStart of the source.
+     */
+    private TokenClass tokenClass;
+    private int tokenLine;
+    private int tokenColumn;
+    private int tokenStart;
+    private int dataFrom;
+    private int dataTo;
+    private char errorChar;
+    private int tokenName;
 
-        int line = scanner.getLine();
-        int col = scanner.getColumn();
+    public Tokeniser(Scanner scanner) {
+        this(scanner, new NameTable());
+    }
 
-        // skip white spaces
-        if (Character.isWhitespace(c))
-            return next();
+    /*
+        Tokeniser interning names into the given table, shared by all sources of a compilation.
+     */
+    public Tokeniser(Scanner scanner, NameTable names) {
+        this(scanner, names, true);
+    }
 
-        // Attempt a peak, otherwise fall back to single tokens
-        try {
-            char peek = scanner.peek();
-            String pair = Character.toString(c) + Character.toString(peek);
+    Tokeniser(Scanner scanner, NameTable names, boolean echo) {
+        this.scanner = scanner;
+        this.names = names;
+        this.echo = echo;
+    }
 
-            if (lookaheadMatchers.containsKey(pair)) {
-                TokenClass tokenClass = lookaheadMatchers.get(pair);
-                return buildTokenPair(pair, tokenClass, line, col);
-            }
+    public NameTable getNames() {
+        return names;
+    }
 
-            // There are still comments to consider
-            if (pair.equals("//")) return comment(c);
-            if (pair.equals("/*")) return multilineComment(c);
 
-        } catch (EOFException e) {
-            if (line != scanner.getLine() || col != scanner.getColumn())
-                // comments have processed some stream, go again
-                return next();
-        }
+    public Token nextToken() {
+        scanToken();
+        return new Token(tokenClass, data(), tokenName, tokenLine, tokenColumn);
+    }
+
+    /*
+        Lex the whole input into a TokenBuffer, the EOF token included.
+        In WHOLE_FILE mode the buffer refers to the source itself instead of copying token data.
+     */
+    public TokenBuffer tokenise() {
+        char[] source = scanner.getSource();
+        TokenBuffer tokens = source != null ? new TokenBuffer(source, scanner.getLength(), names) : new TokenBuffer(names);
+
+        do {
+            scanToken();
+            addTo(tokens, 0);
+        } while (tokenClass != TokenClass.EOF);
 
+        tokens.setErrorCount(error);
+        return tokens;
+    }
 
-        // Time for single char matches
-        if (uniqueMatchers.containsKey(c)) {
-            TokenClass tokenClass = uniqueMatchers.get(c);
-            return new Token(tokenClass, line, col);
+    /*
+        Re-lex a source after replacing the removed characters at offset with inserted, given
+        previous, the TokenBuffer of the whole source before the edit. Lexing restarts at the
+        last token before the edit and stops at the first token starting where an old one did,
+        past the end of the line the edit ends on. The old tokens from there on are kept as they
+        are, moved along with the text.
+     */
+    public static TokenEdit relex(TokenBuffer previous, int offset, int removed, String inserted) {
+        if (!previous.isSourced())
+            throw new IllegalArgumentException("Token buffer does not refer to its source");
+
+        char[] old = previous.getText();
+        int oldLength = previous.getTextLength();
+        if (offset < 0 || removed < 0 || offset + removed > oldLength)
+            throw new IllegalArgumentException("Edit of " + removed + " characters at " + offset + " outside of the source");
+
+        int delta = inserted.length() - removed;
+        int length = oldLength + delta;
+        int editEnd = offset + inserted.length();
+
+        char[] source = new char[length];
+        System.arraycopy(old, 0, source, 0, offset);
+        inserted.getChars(0, inserted.length(), source, offset);
+        System.arraycopy(old, offset + removed, source, editEnd, oldLength - offset - removed);
+
+        int lineDelta = lineBreaks(source, offset, editEnd) - lineBreaks(old, offset, offset + removed);
+
+        // Restart at the last token before the edit, the source up to its first character is unchanged
+        int found = previous.indexOf(offset, 0);
+        int from = (found >= 0 ? found : -found - 1) - 1;
+
+        Scanner scanner;
+        if (from < 0) {
+            from = 0;
+            scanner = new Scanner(source, 0, length);
+        } else {
+            int start = previous.offset(from);
+            scanner = new Scanner(source, start, length, lineAt(previous, from), columnAt(source, start));
         }
 
-        if (Character.isDigit(c)) return number(c);
-
-        // Headers
-        if (c == '#') return include(c);
-
-        // Char
-        if (c == '\'') return character(c);
-
-        // String
-        if (c == '"') return stringLiteral(c);
-
-        if (Character.isAlphabetic(c) || c == '_') {
-            String identifier = identifier(c);
-
-            if (identifier.equals("int")) return new Token(TokenClass.INT, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("void")) return new Token(TokenClass.VOID, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("char")) return new Token(TokenClass.CHAR, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("if")) return new Token(TokenClass.IF, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("else")) return new Token(TokenClass.ELSE, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("while")) return new Token(TokenClass.WHILE, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("return")) return new Token(TokenClass.RETURN, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals(Token.PRINT_S)) return new Token(TokenClass.PRINT, identifier, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals(Token.PRINT_C)) return new Token(TokenClass.PRINT, identifier, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals(Token.PRINT_I)) return new Token(TokenClass.PRINT, identifier, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("main")) return new Token(TokenClass.MAIN, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("read_c")) return new Token(TokenClass.READ, identifier, scanner.getLine(), scanner.getColumn());
-            else if (identifier.equals("read_i")) return new Token(TokenClass.READ, identifier, scanner.getLine(), scanner.getColumn());
-            else return new Token(TokenClass.IDENTIFIER, identifier, line, col);
+        // Old tokens are only reused past a line break, before it their columns moved with the edit
+        int sync = editEnd;
+        while (sync < length && !isLineBreak(source[sync]))
+            sync++;
+
+        TokenBuffer tokens = new TokenBuffer(source, length, previous.size() + 16, previous.getNames());
+        tokens.addAll(previous, 0, from, 0, 0);
+
+        Tokeniser tokeniser = new Tokeniser(scanner, previous.getNames(), false);
+        int oldTo = previous.size();
+        while (true) {
+            tokeniser.scanToken();
+
+            int start = tokeniser.scannedStart();
+            if (start > sync) {
+                int index = previous.indexOf(start - delta, from);
+                if (index >= 0) {
+                    oldTo = index;
+                    break;
+                }
+            }
+
+            tokeniser.addTo(tokens, 0);
+            if (tokeniser.scannedClass() == TokenClass.EOF)
+                break;
         }
 
-        // if we reach this point, it means we did not recognise a valid token
-        return error(c, Character.toString(c), line, col);
-    }
+        int newTo = tokens.size();
+        tokens.addAll(previous, oldTo, previous.size(), lineDelta, delta);
 
-    private Token number(char c) throws IOException {
+        // Re-lexed tokens the edit did not change are not part of the changed range
+        while (from < oldTo && from < newTo && tokens.same(from, previous, from))
+            from++;
 
-        int line = scanner.getLine();
-        int col = scanner.getColumn() -1; // Need to mark the previous col
-        StringBuilder buffer = new StringBuilder(Character.toString(c));
+        tokens.setErrorCount(previous.getErrorCount()
+                - previous.countInvalid(from, oldTo)
+                + tokens.countInvalid(from, newTo));
 
-        try {
-            while (Character.isDigit(scanner.peek())) {
-                buffer.append(scanner.next());
-            }
-        } catch (EOFException e) {
-            if (buffer.charAt(0) == '0' && buffer.length() > 1) {
-                // Cannot have a number starting with a 0 and followed by other digits
-                return error(c, buffer.toString(), line, col);
-            }
+        return new TokenEdit(tokens, from, oldTo, newTo);
+    }
 
-            return new Token(TokenClass.NUMBER, buffer.toString(), line, col);
-        }
+    /*
+        Line of the first character of token index. Tokens that cannot span lines are
+        reported on the line they start on, count the line breaks from the closest one.
+     */
+    private static int lineAt(TokenBuffer tokens, int index) {
+        int start = tokens.offset(index);
 
-        if (buffer.charAt(0) == '0' && buffer.length() > 1) {
-            // Cannot have a number starting with a 0 and followed by other digits
-            return error(c, buffer.toString(), line, col);
+        for (int i = index; i >= 0; i--) {
+            TokenClass tokenClass = tokens.tokenClass(i);
+            if (tokenClass != TokenClass.CHARACTER && tokenClass != TokenClass.STRING_LITERAL && tokenClass != TokenClass.INVALID)
+                return tokens.line(i) + lineBreaks(tokens.getText(), tokens.offset(i), start);
         }
 
-        return new Token(TokenClass.NUMBER, buffer.toString(), line, col);
+        return 1 + lineBreaks(tokens.getText(), 0, start);
     }
 
     /*
-        We have detected that we have # symbol, read the rest and validate.
+        Scanner column before reading the character at offset.
      */
-    public Token include(char startChar /* # */) throws IOException {
-        StringBuilder buffer = new StringBuilder(Character.toString(startChar));
+    private static int columnAt(char[] source, int offset) {
+        int i = offset - 1;
+        while (i >= 0 && !isLineBreak(source[i]))
+            i--;
 
-        int line = scanner.getLine();
-        int col = scanner.getColumn();
+        return i < 0 ? offset + 1 : offset - 1 - i;
+    }
 
-        char expected = 'i';
-        final String include = "include";
+    private static int lineBreaks(char[] source, int from, int to) {
+        int breaks = 0;
+        for (int i = from; i < to; i++)
+            if (isLineBreak(source[i]))
+                breaks++;
+        return breaks;
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /*
+        Recognise the next token into the fields below, without making a Token.
+     */
+    void scanToken() {
         try {
-            for (Character c : include.toCharArray()) {
-                expected = c;
-                buffer.append(readAndAssert(c));
-            }
-        }
-        catch (UnexpectedCharacter e) {
-            buffer.append(e.character);
-            return error(expected, buffer.toString(), line, col);
-        }
-        catch (EOFException e) {
-            return error(expected, buffer.toString());
+            scan();
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            // something went horribly wrong, abort
+            System.exit(-1);
         }
+    }
 
-        return new Token(Token.TokenClass.INCLUDE, buffer.toString(), scanner.getLine(), scanner.getColumn());
+    TokenClass scannedClass() {
+        return tokenClass;
     }
 
-    public Token character(char c) throws IOException {
-        StringBuilder buffer = new StringBuilder();
+    /*
+        Source offset of the first character of the scanned token.
+     */
+    int scannedStart() {
+        return tokenStart;
+    }
 
-        // Read until we reach a closing quote
-        // Escaped quotes should be skipped
-        try {
-            c = scanner.next();
-            buffer.append(c);
+    /*
+        Add the scanned token to the buffer, shifting its line by lineDelta.
+     */
+    void addTo(TokenBuffer tokens, int lineDelta) {
+        if (scanner.getSource() != null)
+            tokens.add(tokenClass, tokenStart, tokenStart + dataFrom, dataTo - dataFrom, tokenLine + lineDelta, tokenColumn);
+        else
+            tokens.add(tokenClass, tokenStart, text, dataFrom, dataTo - dataFrom, tokenLine + lineDelta, tokenColumn);
+
+        if (tokenClass == TokenClass.INVALID)
+            tokens.setErrorChar(errorChar);
+        else if (tokenName != NameTable.NO_NAME)
+            tokens.setName(tokenName, names);
+    }
 
-            // There's no content - invalid
-            if (c == '\'') {
-                return error(c, "'" + buffer.toString());
+    private void scan() throws IOException {
+        char c;
+        int line, col;
+        int state, previous;
+
+        // skip white spaces and comments, one run of them per iteration
+        do {
+            // end of file, nothing to worry about, just return EOF token
+            if (!scanner.hasNext()) {
+                tokenStart = scanner.getOffset();
+                textLength = 0;
+                token(TokenClass.EOF, 0, 0, scanner.getLine(), scanner.getColumn());
+                return;
             }
 
-            if (isBackslash(c)) buffer.append(escape(c));
+            // get the next character
+            c = scanner.next();
 
-            // We should be expecting a closing quote
-            if (scanner.peek() != '\'') {
-                // Read until we find a quote
-                while (scanner.peek() != '\'') {
-                    buffer.append(scanner.next());
-                }
+            line = scanner.getLine();
+            col = scanner.getColumn();
 
-                // Consume terminating quote
-                buffer.append(scanner.next());
+            tokenStart = scanner.getOffset() - 1;
+            textLength = 0;
+            state = transition(START, c);
+            if (RECORDS[state])
+                append(c);
+
+            // Run the automaton for as long as the next character can extend the token
+            previous = START;
+            while (scanner.hasNext()) {
+                int target = transition(state, scanner.peek());
+                if (target == DEAD)
+                    break;
+
+                char consumed = scanner.next();
+                if (RECORDS[target])
+                    append(consumed);
 
-                return error(c, "'" + buffer.toString());
+                previous = state;
+                state = target;
             }
+        } while (isTrivia(state));
+
+        switch (state) {
+            case SINGLE:
+                token(SINGLE_CLASSES[c], 0, 0, line, col);
+                return;
+            case ASSIGN:
+                token(TokenClass.ASSIGN, 0, 0, line, col);
+                return;
+            case LT:
+                token(TokenClass.LT, 0, 0, line, col);
+                return;
+            case GT:
+                token(TokenClass.GT, 0, 0, line, col);
+                return;
+            case SLASH:
+                token(TokenClass.DIV, 0, 0, line, col);
+                return;
+            case EQ:
+                token(TokenClass.EQ, 0, 2, line, col);
+                return;
+            case NE:
+                token(TokenClass.NE, 0, 2, line, col);
+                return;
+            case LE:
+                token(TokenClass.LE, 0, 2, line, col);
+                return;
+            case GE:
+                token(TokenClass.GE, 0, 2, line, col);
+                return;
+
+            case NUMBER:
+                number(c, line, col - 1); // Need to mark the previous col
+                return;
+            case IDENTIFIER:
+                identifier(line, col);
+                return;
+
+            // Headers
+            case HASH:
+                include();
+                return;
+
+            case CHAR_OPEN:
+            case CHAR_EMPTY:
+            case CHAR_ESCAPE:
+            case CHAR_BODY:
+            case CHAR_CLOSE:
+                character(state);
+                return;
+
+            case STRING_OPEN:
+            case STRING_BODY:
+            case STRING_ESCAPE:
+            case STRING_CLOSE:
+                stringLiteral(state, previous, line, col - 1);
+                return;
+
+            case BANG:
+            default:
+                // if we reach this point, it means we did not recognise a valid token
+                error(c, 0, 1, line, col);
         }
-        catch (EOFException e) {
-            return error(c, "'" + buffer.toString());
+    }
+
+    private void number(char c, int line, int col) {
+        if (text[0] == '0' && textLength > 1) {
+            // Cannot have a number starting with a 0 and followed by other digits
+            error(c, 0, textLength, line, col);
+            return;
         }
-        catch (UnexpectedCharacter unexpectedCharacter) {
-            // Read until we find a quote
-            while (scanner.peek() != '\'') {
-                buffer.append(scanner.next());
+
+        token(TokenClass.NUMBER, 0, textLength, line, col);
+    }
+
+    /*
+        We have detected that we have # symbol, read the rest and validate.
+     */
+    private void include() throws IOException {
+        int line = scanner.getLine();
+        int col = scanner.getColumn();
+
+        for (int i = 0; i < INCLUDE.length(); i++) {
+            char expected = INCLUDE.charAt(i);
+            if (!scanner.hasNext()) {
+                error(expected, 0, textLength);
+                return;
             }
 
-            // Consume terminating quote
-            buffer.append(scanner.next());
+            char c = scanner.next();
+            append(c);
 
-            return error(c, buffer.toString(), scanner.getLine(), scanner.getColumn());
+            if (c != expected) {
+                error(expected, 0, textLength, line, col);
+                return;
+            }
         }
 
-        // Consume closing '
-        scanner.next();
-
-        return new Token(Token.TokenClass.CHARACTER, buffer.toString(), scanner.getLine(), scanner.getColumn());
+        token(TokenClass.INCLUDE, 0, textLength, scanner.getLine(), scanner.getColumn());
     }
 
-    public Token stringLiteral(char c) throws IOException {
-        StringBuilder buffer = new StringBuilder();
-
-        int line = scanner.getLine();
-        int col = scanner.getColumn() - 1;
+    /*
+        The automaton stopped inside a character literal, the text holds it from the opening quote on.
+     */
+    private void character(int state) throws IOException {
+        switch (state) {
+            case CHAR_CLOSE:
+                token(TokenClass.CHARACTER, 1, textLength - 1, scanner.getLine(), scanner.getColumn());
+                return;
 
-        try {
-            c = scanner.peek();
+            // There's no content - invalid
+            case CHAR_EMPTY:
+                error('\'', 0, 2);
+                return;
+
+            case CHAR_OPEN:
+                error('\'', 0, 1);
+                return;
+
+            case CHAR_ESCAPE:
+                if (!scanner.hasNext()) {
+                    error(text[1], 0, textLength);
+                    return;
+                }
 
-            while (scanner.peek() != '"') {
+                // Invalid escape, read until we find a quote and consume it
+                if (!readUntil('\'')) {
+                    error(text[1], 1, textLength);
+                    return;
+                }
+                append(scanner.next());
 
-                c = scanner.next();
-                buffer.append(c);
+                error(text[1], 1, textLength, scanner.getLine(), scanner.getColumn());
+                return;
 
-                if (isBackslash(c)) buffer.append(escape(c));
-            }
+            default:
+                // More than one character, read until we find a quote
+                if (!readUntil('\'')) {
+                    error(text[1], 0, textLength);
+                    return;
+                }
 
-            c = scanner.next(); // consume end quotes
+                // Consume terminating quote
+                append(scanner.next());
 
+                error(text[1], 0, textLength);
         }
-        catch (EOFException e) {
-            return error(c, buffer.toString());
-        }
+    }
 
-        catch (UnexpectedCharacter uc) {
-            // read until next "
-            while (scanner.peek() != '"') {
-                c = scanner.next();
-                buffer.append(c);
-            }
+    /*
+        The automaton stopped inside a string literal, the text holds it from the opening quote on.
+     */
+    private void stringLiteral(int state, int previous, int line, int col) throws IOException {
+        switch (state) {
+            case STRING_CLOSE:
+                for (int i = 1; i < textLength - 1; i++) {
+                    if (text[i] == '\n') {
+                        error(text[i], 1, textLength - 1, line, col + i - 1);
+                        return;
+                    }
+                }
 
-            // Read closing "
-            c = scanner.next();
-            buffer.append(c);
+                token(TokenClass.STRING_LITERAL, 1, textLength - 1, scanner.getLine(), scanner.getColumn());
+                return;
 
-            return error(uc.character, "\"" + buffer.toString(), uc.line, uc.col);
-        }
+            case STRING_OPEN:
+                error('"', 1, 1);
+                return;
 
-        int newLineIndex = buffer.indexOf("\n");
-        if (newLineIndex > -1) {
-            return error(buffer.charAt(newLineIndex), buffer.toString(), line, col + newLineIndex);
-        }
+            case STRING_ESCAPE:
+                if (!scanner.hasNext()) {
+                    error('\\', 1, textLength);
+                    return;
+                }
 
-        return new Token(Token.TokenClass.STRING_LITERAL, buffer.toString(), scanner.getLine(), scanner.getColumn());
-    }
+                char unexpected = scanner.peek();
+                int unexpectedLine = scanner.getLine();
+                int unexpectedCol = scanner.getColumn();
 
-    private Token buildTokenPair(String pair, TokenClass tokenClass, int line, int column) throws IOException {
-        // We have read the first character, peeked the second. Advance the scanner pointer
-        scanner.next();
-        return new Token(tokenClass, pair, line, column);
-    }
+                // read until next " and consume it
+                if (readUntil('"'))
+                    append(scanner.next());
 
-    private Token multilineComment(char c) throws IOException {
+                error(unexpected, 0, textLength, unexpectedLine, unexpectedCol);
+                return;
 
-        StringBuilder buffer = new StringBuilder(Character.toString(c));
-        // Consume astrix
-        buffer.append(scanner.next());
+            default:
+                // Ran out of input, report the last character read outside of an escape
+                char last = previous == STRING_ESCAPE ? '\\' : text[textLength - 1];
+                error(last, 1, textLength);
+        }
+    }
 
-        c = scanner.next();
-        // Start reading comment
-        buffer.append(c);
+    private void identifier(int line, int col) {
+        int slot = keywordSlot(text, textLength);
+        char[] keyword = KEYWORDS[slot];
 
-        while (!buffer.substring(buffer.length() - 2, buffer.length()).equals("*/")) {
-            c = scanner.next();
-            buffer.append(c);
+        if (keyword != null && isText(keyword)) {
+            if (KEYWORD_DATA[slot].isEmpty()) {
+                token(KEYWORD_CLASSES[slot], 0, 0, scanner.getLine(), scanner.getColumn());
+                return;
+            }
+
+            // Builtins are names of procedures
+            token(KEYWORD_CLASSES[slot], 0, textLength, scanner.getLine(), scanner.getColumn());
+        } else {
+            token(TokenClass.IDENTIFIER, 0, textLength, line, col);
         }
 
-        return next();
+        tokenName = names.intern(text, 0, textLength);
     }
 
-    private Token comment(char c) throws IOException {
-        // Go to the end of line
-        char next = scanner.peek();
-        while (next != '\n') {
-            scanner.next();
-            next = scanner.peek();
-        }
-        return next();
-    }
+    private boolean isText(char[] chars) {
+        if (chars.length != textLength)
+            return false;
 
-    private String identifier(char c) throws IOException {
-        StringBuilder buffer = new StringBuilder(Character.toString(c));
+        for (int i = 0; i < textLength; i++)
+            if (chars[i] != text[i])
+                return false;
 
-        try {
-            char peek = scanner.peek();
+        return true;
+    }
 
-            if (Character.isAlphabetic(peek))
-                buffer.append(scanner.next());
+    /*
+        Append characters to the text up to, but excluding, the terminator.
+        Returns false if the input ran out before the terminator was found.
+     */
+    private boolean readUntil(char terminator) throws IOException {
+        while (scanner.peek() != terminator || !scanner.hasNext()) {
+            if (!scanner.hasNext())
+                return false;
+            append(scanner.next());
+        }
+        return true;
+    }
 
-            peek = scanner.peek();
-            while (Character.isAlphabetic(peek) || Character.isDigit(peek) || peek == '_') {
-                buffer.append(scanner.next());
-                peek = scanner.peek();
-            }
+    private void append(char c) {
+        if (textLength == text.length)
+            text = Arrays.copyOf(text, text.length * 2);
+        text[textLength++] = c;
+    }
 
-        } catch (EOFException e) {
-            return buffer.toString();
-        }
-        return buffer.toString();
+    private String data() {
+        if (tokenName != NameTable.NO_NAME)
+            return names.name(tokenName);
+        if (dataFrom == dataTo)
+            return "";
+        return new String(text, dataFrom, dataTo - dataFrom);
     }
 
-    private void error(char c, int line, int col) {
-        System.out.println("Lexing error: unrecognised character ("+c+") at "+line+":"+col);
-        error++;
+    private void token(TokenClass tokenClass, int from, int to, int line, int col) {
+        this.tokenClass = tokenClass;
+        this.dataFrom = from;
+        this.dataTo = to;
+        this.tokenLine = line;
+        this.tokenColumn = col;
+        this.tokenName = NameTable.NO_NAME;
     }
 
-    private Token error(char c, String data, int line, int col) {
-        error(c, line, col);
-        return new Token(TokenClass.INVALID, data, line, col);
+    /*
+        Have the errors recorded in diagnostics rather than printed as they come.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
     }
 
-    private Token error(char c, String data) {
-        error(c, scanner.getLine(), scanner.getColumn());
-        return new Token(TokenClass.INVALID, data, scanner.getLine(), scanner.getColumn());
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
     }
 
-    private char readAndAssert(char expected) throws IOException, UnexpectedCharacter {
-        char next = scanner.next();
+    void report(char c, int line, int col) {
+        if (echo && diagnostics != null)
+            diagnostics.add(Diagnostics.Kind.LEXING, line, col, "unrecognised character (%s)", c);
+        else if (echo)
+            System.out.println("Lexing error: unrecognised character ("+c+") at "+line+":"+col);
+        errorChar = c;
+        error++;
+    }
 
-        if (next != expected)
-            throw new UnexpectedCharacter(next, scanner.getLine(), scanner.getColumn());
+    private void error(char c, int from, int to, int line, int col) {
+        report(c, line, col);
+        token(TokenClass.INVALID, from, to, line, col);
+    }
 
-        return next;
+    private void error(char c, int from, int to) {
+        error(c, from, to, scanner.getLine(), scanner.getColumn());
     }
 
-    private char escape(char c) throws UnexpectedCharacter, IOException {
-        // Received a \, next should be an escape char
-        if (ESCAPABLES.contains(Character.toString(c) + scanner.peek())) {
-            // consume and pass back
-            return scanner.next();
+    private static boolean isEscapable(char c) {
+        switch (c) {
+            case 't':
+            case 'b':
+            case 'n':
+            case 'r':
+            case 'f':
+            case '\'':
+            case '"':
+            case '\\':
+                return true;
+            default:
+                return false;
         }
-        throw new UnexpectedCharacter(scanner.peek(), scanner.getLine(), scanner.getColumn());
     }
 
-    private boolean isBackslash(char c) {
+    private static boolean isBackslash(char c) {
         return c == '\\';
     }
 
@@ -0,0 +1,202 @@
+package parser;
+
+import ast.Procedure;
+import ast.Program;
+import ast.VarDecl;
+import lexer.Token;
+import lexer.Token.TokenClass;
+import lexer.TokenBuffer;
+import lexer.TokenEdit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for a source that was edited, given the Program parsed without errors from the source
+ * before the edit and the TokenEdit from Tokeniser.relex.
+ *
+ * The globals and the procedures ending before the changed tokens are found by matching the
+ * braces of each body, as in ParallelParser, the procedures after them and main by matching
+ * braces backwards from the end. Their tokens are the ones they were parsed from, so they are
+ * taken over from the previous Program as they are, the same objects. Only what lies in
+ * between is parsed, and a section after the edit is taken over only once parsing got to its
+ * first token: if the edit unbalanced the braces the rest is parsed as usual.
+ *
+ * The Program and the errors are those of a Parser on the edited tokens.
+ */
+public class IncrementalParser extends Parser {
+
+    // Furthest past the current token the parser looks
+    private static final int LOOKAHEAD = 2;
+
+    private final Program previous;
+    private final TokenEdit edit;
+    private final TokenBuffer tokens;
+    private final TokenBuffer.Cursor cursor;
+
+    // Whether parsing is where the previous parse was, with the procedures taken over so far
+    private boolean aligned = false;
+
+    // First token of each procedure after the edit, then of main, -1 when main is not after it
+    private int[] tail;
+
+    public IncrementalParser(Program previous, TokenEdit edit) {
+        this(previous, edit, edit.tokens.cursor());
+    }
+
+    private IncrementalParser(Program previous, TokenEdit edit, TokenBuffer.Cursor cursor) {
+        super(cursor);
+        this.previous = previous;
+        this.edit = edit;
+        this.tokens = edit.tokens;
+        this.cursor = cursor;
+    }
+
+    @Override
+    List<VarDecl> parseGlobals() {
+        int end = globalsEnd(cursor.index());
+        if (end < 0 || end + LOOKAHEAD >= edit.from)
+            return super.parseGlobals();
+
+        skipTo(end);
+        aligned = true;
+        return previous.varDecls;
+    }
+
+    @Override
+    public List<Procedure> parseProcedures() {
+        List<Procedure> before = previous.procs;
+        ArrayList<Procedure> procedures = new ArrayList<>(before.size());
+
+        // Unchanged procedures before the edit
+        int i = cursor.index();
+        while (aligned && procedures.size() < before.size() && ParallelParser.isProcedureAt(tokens, i)) {
+            int end = ParallelParser.procedureEnd(tokens, i);
+            if (end < 0 || end + LOOKAHEAD >= edit.from || !declares(i, before.get(procedures.size())))
+                break;
+
+            procedures.add(before.get(procedures.size()));
+            i = end;
+        }
+        skipTo(i);
+
+        tail = tail(before.size() - procedures.size());
+
+        // The edited ones, until parsing gets to one after the edit
+        int next = 0;
+        while (isProcedure()) {
+            while (next < tail.length - 1 && tail[next] < cursor.index())
+                next++;
+
+            if (next < tail.length - 1 && tail[next] == cursor.index()) {
+                procedures.addAll(before.subList(before.size() - (tail.length - 1 - next), before.size()));
+                skipTo(tail[tail.length - 1]);
+                break;
+            }
+
+            procedures.add(parseProcedure());
+        }
+
+        procedures.trimToSize();
+        return procedures;
+    }
+
+    @Override
+    public Procedure parseMain() {
+        int main = tail == null ? -1 : tail[tail.length - 1];
+        if (main < 0 || cursor.index() != main)
+            return super.parseMain();
+
+        skipTo(tokens.size() - 1);
+        return previous.main;
+    }
+
+    private void skipTo(int i) {
+        while (cursor.index() < i)
+            nextToken();
+    }
+
+    /*
+        Index of the token after the includes and global variable declarations from token i on,
+        -1 if there are not as many declarations as before.
+     */
+    private int globalsEnd(int i) {
+        while (tokens.tokenClass(i) == TokenClass.INCLUDE && tokens.tokenClass(i + 1) == TokenClass.STRING_LITERAL)
+            i += 2;
+
+        int count = 0;
+        while (ParallelParser.isProcedureAt(tokens, i) && tokens.tokenClass(i + 2) == TokenClass.SEMICOLON) {
+            i += 3;
+            count++;
+        }
+
+        return count == previous.varDecls.size() ? i : -1;
+    }
+
+    /*
+        First tokens of at most count procedures and of main, all after the edit, as found
+        matching braces backwards from the end. Only main if it is not after the edit either.
+     */
+    private int[] tail(int count) {
+        int[] starts = new int[count + 1];
+        int at = count;
+
+        int main = headerStart(tokens.size() - 1, TokenClass.MAIN);
+        if (main < edit.newTo || tokens.tokenClass(main) != TokenClass.VOID)
+            main = -1;
+        starts[at] = main;
+
+        int start = main;
+        while (start >= 0 && at > 0) {
+            start = headerStart(start, TokenClass.IDENTIFIER);
+            if (start < edit.newTo || !ParallelParser.isProcedureAt(tokens, start) || !declares(start, previous.procs.get(previous.procs.size() - (count - at) - 1)))
+                break;
+            starts[--at] = start;
+        }
+
+        int[] tail = new int[count + 1 - at];
+        System.arraycopy(starts, at, tail, 0, tail.length);
+        return tail;
+    }
+
+    /*
+        First token of the procedure whose body ends just before token end, with the given
+        class of name token, or -1 if its tokens do not read as a procedure.
+     */
+    private int headerStart(int end, TokenClass name) {
+        int i = end - 1;
+        if (i < 0 || tokens.tokenClass(i) != TokenClass.RBRA)
+            return -1;
+
+        // Body
+        int depth = 0;
+        for (; i >= 0; i--) {
+            if (tokens.tokenClass(i) == TokenClass.RBRA)
+                depth++;
+            else if (tokens.tokenClass(i) == TokenClass.LBRA && --depth == 0)
+                break;
+        }
+
+        // Parameters
+        i--;
+        if (i < 0 || tokens.tokenClass(i) != TokenClass.RPAR)
+            return -1;
+        while (--i >= 0 && tokens.tokenClass(i) != TokenClass.LPAR) {
+            TokenClass c = tokens.tokenClass(i);
+            if (c != TokenClass.IDENTIFIER && c != TokenClass.COMMA && !Token.TYPES.contains(c))
+                return -1;
+        }
+
+        i -= 2;
+        if (i < 0 || tokens.tokenClass(i + 1) != name)
+            return -1;
+        return i;
+    }
+
+    /*
+        Whether the procedure starting at token i is a new parse of p, as far as its name tells.
+     */
+    private boolean declares(int i, Procedure p) {
+        return tokens.data(i + 1).equals(p.name);
+    }
+}
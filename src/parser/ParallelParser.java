@@ -0,0 +1,185 @@
+package parser;
+
+import ast.Procedure;
+import lexer.Token;
+import lexer.Token.TokenClass;
+import lexer.TokenBuffer;
+import lexer.Tokeniser;
+import util.Diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parser for very large programs, parsing the procedures in parallel.
+ *
+ * Includes and globals are parsed as usual. The tokens after them are then pre-scanned for
+ * procedure boundaries, matching the braces of each body, and runs of consecutive procedures
+ * are parsed on a ForkJoin pool, each by a parser of its own starting at the first token of its
+ * run. A run is taken over only if parsing before it ended right where it starts, with no error
+ * reported on that token: from there on its parser went just as a sequential one would. The
+ * first run not taken over, and main, are parsed sequentially.
+ *
+ * Each run records its errors apart, they are recorded here as the run is taken over. Errors,
+ * their messages and their order are those of a Parser on the same TokenBuffer.
+ */
+public class ParallelParser extends Parser {
+
+    // Tokens per run
+    private static final int RUN_SIZE = 1 << 12;
+
+    private static ForkJoinPool sharedPool;
+
+    private final TokenBuffer tokens;
+    private final TokenBuffer.Cursor cursor;
+    private final ForkJoinPool pool;
+    private final int runSize;
+
+    public ParallelParser(Tokeniser tokeniser) {
+        this(tokeniser.tokenise());
+    }
+
+    public ParallelParser(TokenBuffer tokens) {
+        this(tokens, sharedPool(), RUN_SIZE);
+    }
+
+    public ParallelParser(TokenBuffer tokens, ForkJoinPool pool) {
+        this(tokens, pool, RUN_SIZE);
+    }
+
+    ParallelParser(TokenBuffer tokens, ForkJoinPool pool, int runSize) {
+        this(tokens, tokens.cursor(), pool, runSize);
+    }
+
+    private ParallelParser(TokenBuffer tokens, TokenBuffer.Cursor cursor, ForkJoinPool pool, int runSize) {
+        super(cursor);
+        this.tokens = tokens;
+        this.cursor = cursor;
+        this.pool = pool;
+        this.runSize = runSize;
+    }
+
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool();
+        return sharedPool;
+    }
+
+    @Override
+    public List<Procedure> parseProcedures() {
+        final List<Run> runs = split(cursor.index());
+        if (runs.size() < 2)
+            return super.parseProcedures();
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(runs);
+            }
+        });
+
+        ArrayList<Procedure> procedures = new ArrayList<>();
+        for (Run run : runs) {
+            if (run.start != cursor.index() || getLastErrorIndex() == run.start)
+                break;
+
+            procedures.addAll(run.procedures);
+            addErrors(run.parser);
+            while (cursor.index() < run.cursor.index())
+                nextToken();
+        }
+
+        // The rest, if any, as usual
+        procedures.addAll(super.parseProcedures());
+
+        procedures.trimToSize();
+        return procedures;
+    }
+
+    /*
+        Runs of at least runSize tokens covering the procedures from token from on.
+     */
+    private List<Run> split(int from) {
+        List<Run> runs = new ArrayList<>();
+
+        int start = from;
+        int i = from;
+        while (isProcedureAt(tokens, i)) {
+            int end = procedureEnd(tokens, i);
+            if (end < 0)
+                break;
+
+            i = end;
+            if (i - start >= runSize) {
+                runs.add(new Run(start, i));
+                start = i;
+            }
+        }
+        if (i > start)
+            runs.add(new Run(start, i));
+
+        return runs;
+    }
+
+    /*
+        Whether a procedure starts at token i, as Parser.isProcedure would tell.
+     */
+    static boolean isProcedureAt(TokenBuffer tokens, int i) {
+        return i + 1 < tokens.size()
+                && Token.TYPES.contains(tokens.tokenClass(i))
+                && tokens.tokenClass(i + 1) == TokenClass.IDENTIFIER;
+    }
+
+    /*
+        Index of the token after the closing brace of the body of the procedure starting at
+        token i, -1 if there is no body or its braces do not match.
+     */
+    static int procedureEnd(TokenBuffer tokens, int i) {
+        while (tokens.tokenClass(i) != TokenClass.LBRA) {
+            if (tokens.tokenClass(i) == TokenClass.RBRA || tokens.tokenClass(i) == TokenClass.EOF)
+                return -1;
+            i++;
+        }
+
+        int depth = 0;
+        for (; tokens.tokenClass(i) != TokenClass.EOF; i++) {
+            if (tokens.tokenClass(i) == TokenClass.LBRA)
+                depth++;
+            else if (tokens.tokenClass(i) == TokenClass.RBRA && --depth == 0)
+                return i + 1;
+        }
+
+        return -1;
+    }
+
+    /*
+        Parses the procedures from token start on, stopping at the first one starting at or after end.
+     */
+    private class Run extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        private final TokenBuffer.Cursor cursor;
+        private final Parser parser;
+        private final List<Procedure> procedures = new ArrayList<>();
+
+        Run(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.cursor = tokens.cursor(start);
+            this.parser = new Parser(cursor);
+            parser.setDiagnostics(new Diagnostics(getDiagnostics() == null ? Diagnostics.NO_LIMIT : getDiagnostics().getLimit()));
+        }
+
+        @Override
+        protected void compute() {
+            while (cursor.index() < end && parser.isProcedure())
+                procedures.add(parser.parseProcedure());
+        }
+    }
+}
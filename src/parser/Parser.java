@@ -5,12 +5,14 @@ import ast.expressions.*;
 import ast.statements.*;
 import lexer.Token;
 import lexer.Token.TokenClass;
+import lexer.TokenBuffer;
+import lexer.TokenCursor;
 import lexer.Tokeniser;
 import parser.wrappers.TypeIdentifier;
+import util.Diagnostics;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
 
 
 /**
@@ -18,24 +20,66 @@ import java.util.Queue;
  */
 public class Parser {
 
-    private Token token;
+    private final TokenCursor cursor;
 
-    // use for backtracking (useful for distinguishing decls from procs when parsing a program for instance)
-    private Queue<Token> buffer = new LinkedList<>();
+    private final ExprFactory exprs;
 
-    private final Tokeniser tokeniser;
+    // Where errors are recorded, null to have them printed once parse() is over
+    private Diagnostics diagnostics;
 
+    public Parser(Tokeniser tokeniser) {
+        this(new TokeniserCursor(tokeniser));
+    }
 
+    public Parser(Tokeniser tokeniser, ExprFactory exprs) {
+        this(new TokeniserCursor(tokeniser), exprs);
+    }
 
-    public Parser(Tokeniser tokeniser) {
-        this.tokeniser = tokeniser;
+    public Parser(TokenBuffer tokens) {
+        this(tokens.cursor());
+    }
+
+    public Parser(TokenCursor cursor) {
+        this(cursor, new ExprFactory());
+    }
+
+    /*
+        Parser building its expressions with exprs, e.g. one sharing them.
+     */
+    public Parser(TokenCursor cursor, ExprFactory exprs) {
+        this.cursor = cursor;
+        this.exprs = exprs;
     }
 
     public Program parse() {
-        // get the first token
-        nextToken();
+        // Unless recorded elsewhere, errors are printed together once parsing is over, however it ends
+        Diagnostics own = diagnostics == null ? Diagnostics.fromProperties() : null;
+        if (own != null)
+            diagnostics = own;
+
+        // The tokeniser parsed from records its errors alongside, in the order they come
+        Tokeniser tokeniser = null;
+        if (diagnostics != null && cursor instanceof TokeniserCursor) {
+            tokeniser = ((TokeniserCursor) cursor).getTokeniser();
+            if (tokeniser.getDiagnostics() == null)
+                tokeniser.setDiagnostics(diagnostics);
+            else
+                tokeniser = null;
+        }
+
+        try {
+            // get the first token
+            nextToken();
 
-        return parseProgram();
+            return parseProgram();
+        } finally {
+            if (tokeniser != null)
+                tokeniser.setDiagnostics(null);
+            if (own != null) {
+                diagnostics = null;
+                own.flush();
+            }
+        }
     }
 
     public int getErrorCount() {
@@ -43,70 +87,121 @@ public class Parser {
     }
 
     private int error = 0;
-    private Token lastErrorToken;
+    private int lastErrorIndex = -1;
 
     private void error(TokenClass... expected) {
 
-        if (lastErrorToken == token) {
+        if (lastErrorIndex == cursor.index()) {
             // skip this error, same token causing trouble
             return;
         }
 
-        StringBuilder sb = new StringBuilder();
-        String sep = "";
-        for (TokenClass e : expected) {
-            sb.append(sep);
-            sb.append(e);
-            sep = "|";
-        }
-        System.out.println("Parsing error: expected ("+sb+") found ("+token+") at "+token.position);
+        Token token = cursor.token();
+        if (diagnostics != null)
+            diagnostics.add(Diagnostics.Kind.PARSING, token.position, "expected (%s) found (%s)", new Expected(expected), token);
+        else
+            System.out.println("Parsing error: expected ("+new Expected(expected)+") found ("+token+") at "+token.position);
 
         error++;
-        lastErrorToken = token;
+        lastErrorIndex = cursor.index();
     }
 
     /*
-     * Look ahead the i^th element from the stream of token.
-     * i should be >= 1
+        Have the errors recorded in diagnostics rather than printed as they come.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /*
+        The token classes an error expected, joined only once printed.
      */
-    private Token lookAhead(int i) {
-        // ensures the buffer has the element we want to look ahead
-        while (buffer.size() < i)
-            buffer.add(tokeniser.nextToken());
-        assert buffer.size() >= i;
-
-        int cnt=1;
-        for (Token t : buffer) {
-            if (cnt == i)
-                return t;
-            cnt++;
+    private static class Expected {
+        private final TokenClass[] classes;
+
+        Expected(TokenClass[] classes) {
+            this.classes = classes;
         }
 
-        assert false; // should never reach this
-        return null;
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            String sep = "";
+            for (TokenClass e : classes) {
+                sb.append(sep);
+                sb.append(e);
+                sep = "|";
+            }
+            return sb.toString();
+        }
     }
 
+    int getLastErrorIndex() {
+        return lastErrorIndex;
+    }
 
     /*
-     * Consumes the next token from the tokeniser or the buffer if not empty.
+        Take over the errors of a parser that recorded them apart,
+        as if this one had come across them.
      */
-    public void nextToken() {
-        if (!buffer.isEmpty())
-            token = buffer.remove();
+    void addErrors(Parser other) {
+        if (diagnostics != null)
+            diagnostics.addAll(other.diagnostics);
         else
-            token = tokeniser.nextToken();
+            other.diagnostics.flush();
+
+        error += other.error;
+        if (other.lastErrorIndex >= 0)
+            lastErrorIndex = other.lastErrorIndex;
+    }
+
+    /*
+     * Class of the i^th token ahead in the stream of tokens.
+     * i should be >= 1
+     */
+    private TokenClass lookAhead(int i) {
+        return cursor.tokenClass(i);
+    }
+
+
+    /*
+     * Consumes the next token.
+     */
+    public void nextToken() {
+        cursor.advance();
     }
 
     /*
      * If the current token is equals to the expected one, then skip it, otherwise report an error.
-     * Returns the expected token or null if an error occurred.
+     * Returns the class of the expected token or null if an error occurred.
      */
-    private Token expect(TokenClass... expected) {
+    private TokenClass expect(TokenClass... expected) {
+        TokenClass current = cursor.tokenClass(0);
         for (TokenClass e : expected) {
-            if (e == token.tokenClass) {
-                Token cur = token;
+            if (e == current) {
                 nextToken();
-                return cur;
+                return current;
+            }
+        }
+
+        error(expected);
+        return null;
+    }
+
+    /*
+     * As expect, but returns the data of the expected token or null if an error occurred.
+     */
+    private String expectData(TokenClass... expected) {
+        TokenClass current = cursor.tokenClass(0);
+        for (TokenClass e : expected) {
+            if (e == current) {
+                String data = cursor.data();
+                nextToken();
+                return data;
             }
         }
 
@@ -120,23 +215,24 @@ public class Parser {
     */
 
     private boolean accept(TokenClass... expected) {
+        TokenClass current = cursor.tokenClass(0);
         boolean result = false;
         for (TokenClass e : expected)
-            result |= (e == token.tokenClass);
+            result |= (e == current);
         return result;
     }
 
     private boolean accept(List<TokenClass> expected) {
+        TokenClass current = cursor.tokenClass(0);
         boolean result = false;
         for (TokenClass t: expected)
-            result |= t == token.tokenClass;
+            result |= t == current;
         return result;
     }
 
 
     private Program parseProgram() {
-        parseIncludes();
-        List<VarDecl> varDecls = parseVariableDeclarations();
+        List<VarDecl> varDecls = parseGlobals();
         List<Procedure> procs = parseProcedures();
         Procedure main = parseMain();
 
@@ -144,23 +240,33 @@ public class Parser {
         return new Program(varDecls, procs, main);
     }
 
+    /*
+        Includes, then the global variable declarations.
+     */
+    List<VarDecl> parseGlobals() {
+        parseIncludes();
+        return parseVariableDeclarations();
+    }
+
     // includes are ignored, so does not need to return an AST node
     private void parseIncludes() {
-	    if (accept(TokenClass.INCLUDE)) {
+	    while (accept(TokenClass.INCLUDE)) {
             nextToken();
             expect(TokenClass.STRING_LITERAL);
-            parseIncludes();
         }
     }
 
+    /*
+        Repetitions are parsed with loops rather than one call per element, so long lists
+        neither deepen the stack nor get copied over as they grow.
+     */
     public List<VarDecl> parseVariableDeclarations() {
-        List<VarDecl> variableDeclarations = new LinkedList<>();
+        ArrayList<VarDecl> variableDeclarations = new ArrayList<>();
 
-        if (isVariableDeclaration()) {
+        while (isVariableDeclaration())
             variableDeclarations.add(parseVariableDeclaration());
-            variableDeclarations.addAll(parseVariableDeclarations());
-        }
 
+        variableDeclarations.trimToSize();
         return variableDeclarations;
     }
 
@@ -168,24 +274,29 @@ public class Parser {
 
         TypeIdentifier typeIdentifier = parseTypeIdent();
         expect(TokenClass.SEMICOLON);
+        exprs.declare(typeIdentifier.var.name);
         return new VarDecl(typeIdentifier.type, typeIdentifier.var);
     }
 
     public List<Procedure> parseProcedures() {
-        List<Procedure> procedures = new LinkedList<>();
-        if (isProcedure()) {
+        ArrayList<Procedure> procedures = new ArrayList<>();
+
+        while (isProcedure())
             procedures.add(parseProcedure());
-            procedures.addAll(parseProcedures());
-        }
+
+        procedures.trimToSize();
         return procedures;
     }
 
-    private Procedure parseProcedure() {
+    Procedure parseProcedure() {
         TypeIdentifier typeIdentifier = parseTypeIdent();
         expect(TokenClass.LPAR);
+
+        exprs.enterScope();
         List<VarDecl> params = parseParams();
         expect(TokenClass.RPAR);
         Block block = parseBody();
+        exprs.leaveScope();
 
         return new Procedure(
                 typeIdentifier.type,
@@ -196,18 +307,19 @@ public class Parser {
     }
 
     private List<VarDecl> parseParams() {
-        List<VarDecl> params = new LinkedList<>();
+        ArrayList<VarDecl> params = new ArrayList<>();
 
-        if (isTypeIdentifier()) {
+        while (isTypeIdentifier()) {
             TypeIdentifier ti = parseTypeIdent();
             params.add(new VarDecl(ti.type, ti.var));
+            exprs.declare(ti.var.name);
 
-            if (isParamRepetition()) {
-                expect(TokenClass.COMMA);
-                params.addAll(parseParams());
-            }
+            if (!isParamRepetition())
+                break;
+            expect(TokenClass.COMMA);
         }
 
+        params.trimToSize();
         return params;
     }
 
@@ -217,10 +329,10 @@ public class Parser {
 
 
     private Type parseType() {
-        Token t = expect(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID);
+        TokenClass t = expect(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID);
 
         assert t != null;
-        switch (t.tokenClass) {
+        switch (t) {
             case INT:
                 return Type.INT;
             case CHAR:
@@ -232,12 +344,12 @@ public class Parser {
         return null;
     }
 
-    private boolean isProcedure() {
+    boolean isProcedure() {
         return isTypeIdentifier();
     }
 
     private boolean isTypeIdentifier() {
-        return isType() && lookAhead(1).tokenClass == TokenClass.IDENTIFIER;
+        return isType() && lookAhead(1) == TokenClass.IDENTIFIER;
     }
 
     private boolean isType() {
@@ -245,43 +357,47 @@ public class Parser {
     }
 
     private boolean isVariableDeclaration() {
-        return isTypeIdentifier() && lookAhead(2).tokenClass == TokenClass.SEMICOLON;
+        return isTypeIdentifier() && lookAhead(2) == TokenClass.SEMICOLON;
     }
 
     private TypeIdentifier parseTypeIdent() {
         Type type = parseType();
-        Token identifier = expect(TokenClass.IDENTIFIER);
-        return new TypeIdentifier(type, new Var(identifier.data));
+        String identifier = expectData(TokenClass.IDENTIFIER);
+        return new TypeIdentifier(type, new Var(identifier));
     }
 
     public Procedure parseMain() {
-        Token t = expect(TokenClass.VOID);
+        expect(TokenClass.VOID);
         Type type = Type.VOID;
 
         expect(TokenClass.MAIN);
         expect(TokenClass.LPAR);
         expect(TokenClass.RPAR);
 
+        exprs.enterScope();
         Block body = parseBody();
-        return new Procedure(type, "main", new LinkedList<VarDecl>(), body);
+        exprs.leaveScope();
+        return new Procedure(type, "main", new ArrayList<VarDecl>(0), body);
     }
 
     public Block parseBody() {
         expect(TokenClass.LBRA);
+        exprs.enterScope();
         List<VarDecl> varDecls = parseVariableDeclarations();
         List<Stmt> statements = parserStatementList();
+        exprs.leaveScope();
         expect(TokenClass.RBRA);
 
         return new Block(varDecls, statements);
     }
 
     private List<Stmt> parserStatementList() {
-        List<Stmt> statements = new LinkedList<>();
-        if (isStatement()) {
+        ArrayList<Stmt> statements = new ArrayList<>();
+
+        while (isStatement())
             statements.add(parseStatement());
-            statements.addAll(parserStatementList());
-        }
 
+        statements.trimToSize();
         return statements;
     }
 
@@ -293,26 +409,28 @@ public class Parser {
         }
 
         if (isPrintString()) {
-            Token print = expect(TokenClass.PRINT);
+            String print = expectData(TokenClass.PRINT);
             expect(TokenClass.LPAR);
-            Token argument = expect(TokenClass.STRING_LITERAL);
+            String argument = expectData(TokenClass.STRING_LITERAL);
             expect(TokenClass.RPAR);
             expect(TokenClass.SEMICOLON);
 
-            List<Expr> arguments = new LinkedList<>();
+            List<Expr> arguments = new ArrayList<>(1);
 
             if (argument != null) {
-                arguments.add(new StrLiteral(argument.data));
+                arguments.add(new StrLiteral(argument));
             }
 
-            return new FunCallStmt(print.data, arguments);
+            return new FunCallStmt(print, arguments);
         }
 
-        switch (token.tokenClass) {
+        switch (cursor.tokenClass(0)) {
             case LBRA:
                 expect(TokenClass.LBRA);
+                exprs.enterScope();
                 List<VarDecl> varDecls = parseVariableDeclarations();
                 List<Stmt> statements = parserStatementList();
+                exprs.leaveScope();
                 expect(TokenClass.RBRA);
 
                 return new Block(varDecls, statements);
@@ -335,13 +453,13 @@ public class Parser {
                 return new If(ifExpr, ifStatement, elseStatement);
 
             case IDENTIFIER:
-                Token var = expect(TokenClass.IDENTIFIER);
+                String var = expectData(TokenClass.IDENTIFIER);
                 expect(TokenClass.ASSIGN);
                 Expr expr = parseLexicalExpression();
                 expect(TokenClass.SEMICOLON);
 
                 if (var != null & expr != null)
-                    return new Assign(new Var(var.data), expr);
+                    return new Assign(new Var(var), expr);
                 return null;
 
             case RETURN:
@@ -351,24 +469,24 @@ public class Parser {
                 return new Return(returnz);
 
             case PRINT:
-                Token print = expect(TokenClass.PRINT);
+                String print = expectData(TokenClass.PRINT);
                 expect(TokenClass.LPAR);
                 Expr argExpr = parseLexicalExpression();
                 expect(TokenClass.RPAR);
                 expect(TokenClass.SEMICOLON);
 
-                List<Expr> arguments = new LinkedList<Expr>();
+                List<Expr> arguments = new ArrayList<>(1);
                 if (argExpr != null) arguments.add(argExpr);
-                if (print != null) return new FunCallStmt(print.data, arguments);
+                if (print != null) return new FunCallStmt(print, arguments);
                 return null;
 
             case READ:
-                Token read = expect(TokenClass.READ);
+                String read = expectData(TokenClass.READ);
                 expect(TokenClass.LPAR);
                 expect(TokenClass.RPAR);
                 expect(TokenClass.SEMICOLON);
                 if (read != null)
-                    return new FunCallStmt(read.data, new LinkedList<Expr>());
+                    return new FunCallStmt(read, new ArrayList<Expr>(0));
                 return null;
 
             default:
@@ -383,41 +501,34 @@ public class Parser {
     }
 
     private boolean isPrintString() {
-        return token.tokenClass == TokenClass.PRINT && token.data.equals(Token.PRINT_S);
+        return cursor.tokenClass(0) == TokenClass.PRINT && cursor.data().equals(Token.PRINT_S);
     }
 
     public FunCallStmt parseFunctionCall() {
-        Token identifier = expect(TokenClass.IDENTIFIER);
+        String identifier = expectData(TokenClass.IDENTIFIER);
         expect(TokenClass.LPAR);
         List<Expr> arguments = parseArgumentList();
         expect(TokenClass.RPAR);
 
-        return new FunCallStmt(identifier.data, arguments);
+        return new FunCallStmt(identifier, arguments);
     }
 
     private List<Expr> parseArgumentList() {
-        List<Expr> arguments = new LinkedList<>();
+        ArrayList<Expr> arguments = new ArrayList<>();
 
         if (accept(TokenClass.IDENTIFIER)) {
-            Token t = expect(TokenClass.IDENTIFIER);
-            arguments.add(new Var(t.data));
-            arguments.addAll(parseArgumentRepetition());
-        }
+            String t = expectData(TokenClass.IDENTIFIER);
+            arguments.add(new Var(t));
 
-        return arguments;
-    }
-
-    private List<Expr> parseArgumentRepetition() {
-        List<Expr> arguments = new LinkedList<>();
-        if (accept(TokenClass.COMMA)) {
-            expect(TokenClass.COMMA);
-            Token t = expect(TokenClass.IDENTIFIER);
-
-            if (t != null) arguments.add(new Var(t.data));
+            while (accept(TokenClass.COMMA)) {
+                expect(TokenClass.COMMA);
+                t = expectData(TokenClass.IDENTIFIER);
 
-            arguments.addAll(parseArgumentRepetition());
+                if (t != null) arguments.add(new Var(t));
+            }
         }
 
+        arguments.trimToSize();
         return arguments;
     }
 
@@ -429,10 +540,8 @@ public class Parser {
     }
 
     public Expr parseLexicalExpression() {
-        if (isTerm()) {
-            Expr term = parseTerm();
-            return parseLexicalExpressionRepetition(term);
-        }
+        if (isTerm())
+            return parseBinary(ADDITIVE);
         else errorExpectedFactor();
 
         return null;
@@ -450,39 +559,50 @@ public class Parser {
         error(TokenClass.MINUS, TokenClass.IDENTIFIER, TokenClass.NUMBER, TokenClass.CHARACTER, TokenClass.LPAR);
     }
 
-    private Expr parseLexicalExpressionRepetition(Expr lhs) {
-        if (isLexicalExpressionRep()) {
-            Token t = expect(TokenClass.PLUS, TokenClass.MINUS);
-            Expr term = parseTerm();
-            Expr continuation = parseLexicalExpressionRepetition(term);
-            return new BinOp(lhs, Op.getOp(t.tokenClass), continuation);
-        }
-        return lhs;
+    public Expr parseTerm() {
+        return parseBinary(MULTIPLICATIVE);
     }
 
-    private boolean isLexicalExpressionRep() {
-        return accept(TokenClass.PLUS, TokenClass.MINUS);
-    }
+    // Precedence of the arithmetic operators, NONE for any other token
+    private static final int NONE = 0;
+    private static final int ADDITIVE = 1;
+    private static final int MULTIPLICATIVE = 2;
 
-    public Expr parseTerm() {
-        Expr factor = parseFactor();
-        return parseTermRepetition(factor);
+    private static int precedence(TokenClass t) {
+        switch (t) {
+            case PLUS:
+            case MINUS:
+                return ADDITIVE;
+            case TIMES:
+            case DIV:
+            case MOD:
+                return MULTIPLICATIVE;
+            default:
+                return NONE;
+        }
     }
 
-    private Expr parseTermRepetition(Expr lhs) {
-        if (isTermRepetition()) {
+    /*
+     * Precedence climbing over lexp and term: a run of operators of the same precedence is
+     * folded to the left in a loop, so a - b - c is (a - b) - c. Only moving to a tighter
+     * level recurses, the stack depth is bounded by the number of levels, not by the length
+     * of the expression.
+     */
+    private Expr parseBinary(int minPrecedence) {
+        Expr lhs = minPrecedence < MULTIPLICATIVE ? parseBinary(minPrecedence + 1) : parseFactor();
 
-            Token operation = expect(TokenClass.DIV, TokenClass.TIMES, TokenClass.MOD);
-            Expr rhs = parseTermRepetition(parseFactor());
-            if (operation != null && rhs != null) {
-                return new BinOp(lhs, Op.getOp(operation.tokenClass), rhs);
-            }
+        while (precedence(cursor.tokenClass(0)) == minPrecedence) {
+            TokenClass t = cursor.tokenClass(0);
+            nextToken();
+
+            Expr rhs = minPrecedence < MULTIPLICATIVE ? parseBinary(minPrecedence + 1) : parseFactor();
+
+            // leave out an operator whose operand is missing
+            if (rhs != null)
+                lhs = exprs.binOp(lhs, Op.getOp(t), rhs);
         }
-        return lhs;
-    }
 
-    private boolean isTermRepetition() {
-        return accept(TokenClass.DIV, TokenClass.TIMES, TokenClass.MOD);
+        return lhs;
     }
 
     public Expr parseFactor() {
@@ -492,7 +612,7 @@ public class Parser {
             return new FunCallExpr(funCallStmt.name, funCallStmt.arguments);
         }
 
-        switch (token.tokenClass) {
+        switch (cursor.tokenClass(0)) {
             case LPAR:
                 expect(TokenClass.LPAR);
                 Expr expr = parseLexicalExpression();
@@ -500,40 +620,41 @@ public class Parser {
                 return expr;
 
             case IDENTIFIER:
-                Token identifier = expect(TokenClass.IDENTIFIER);
-                return new Var(identifier.data);
+                String identifier = expectData(TokenClass.IDENTIFIER);
+                return exprs.var(identifier);
 
             case NUMBER:
-                Token number = expect(TokenClass.NUMBER);
-                return new IntLiteral(Integer.parseInt(number.data));
+                String number = expectData(TokenClass.NUMBER);
+                return exprs.intLiteral(Integer.parseInt(number));
 
             case MINUS:
                 expect(TokenClass.MINUS);
-                Token val = expect(TokenClass.IDENTIFIER, TokenClass.NUMBER);
+                TokenClass valClass = cursor.tokenClass(0);
+                String val = expectData(TokenClass.IDENTIFIER, TokenClass.NUMBER);
 
-                IntLiteral zero = new IntLiteral(0);
+                IntLiteral zero = exprs.intLiteral(0);
                 if (val == null) return zero;
 
                 Op op = Op.SUB;
-                return new BinOp(
+                return exprs.binOp(
                         zero,
                         op,
-                        val.tokenClass == TokenClass.IDENTIFIER
-                            ? new Var(val.data)
-                            : new IntLiteral(Integer.parseInt(val.data))
+                        valClass == TokenClass.IDENTIFIER
+                            ? exprs.var(val)
+                            : exprs.intLiteral(Integer.parseInt(val))
                 );
 
             case CHARACTER:
-                Token c = expect(TokenClass.CHARACTER);
-                return new ChrLiteral(c.data.charAt(0));
+                String c = expectData(TokenClass.CHARACTER);
+                return exprs.chrLiteral(c.charAt(0));
 
             case READ:
-                Token read = expect(TokenClass.READ);
+                String read = expectData(TokenClass.READ);
                 expect(TokenClass.LPAR);
                 expect(TokenClass.RPAR);
 
                 if (read != null)
-                    return new FunCallExpr(read.data, new LinkedList<Expr>());
+                    return new FunCallExpr(read, new ArrayList<Expr>(0));
                 return null;
 
         }
@@ -556,23 +677,23 @@ public class Parser {
     public Expr parseExpression() {
         Expr lhs = parseLexicalExpression();
 
-        if (isComparator(token)) {
-            Token t = expect(TokenClass.GT,
+        if (isComparator()) {
+            TokenClass t = expect(TokenClass.GT,
                     TokenClass.LT,
                     TokenClass.GE,
                     TokenClass.LE,
                     TokenClass.NE,
                     TokenClass.EQ);
 
-            Op op = Op.getOp(t.tokenClass);
+            Op op = Op.getOp(t);
             Expr rhs = parseLexicalExpression();
-            return new BinOp(lhs, op, rhs);
+            return exprs.binOp(lhs, op, rhs);
         }
 
         return lhs;
     }
 
-    private boolean isComparator(Token ahead) {
+    private boolean isComparator() {
         return accept(Token.COMPARATORS);
     }
 
@@ -589,11 +710,11 @@ public class Parser {
     }
 
     private boolean isFuncationCall() {
-        return accept(TokenClass.IDENTIFIER) && lookAhead(1).tokenClass == TokenClass.LPAR;
+        return accept(TokenClass.IDENTIFIER) && lookAhead(1) == TokenClass.LPAR;
     }
 
     public Token getToken() {
-        return token;
+        return cursor.token();
     }
 
 }
@@ -0,0 +1,99 @@
+package parser;
+
+import lexer.Token;
+import lexer.Token.TokenClass;
+import lexer.TokenCursor;
+import lexer.Tokeniser;
+
+/*
+    Cursor over tokens pulled from a Tokeniser one at a time, buffering the lookahead
+    in a ring: the current token and the ones looked ahead at sit in consecutive slots,
+    so looking ahead and advancing take constant time and allocate nothing.
+ */
+class TokeniserCursor implements TokenCursor {
+
+    // The grammar looks at most two tokens ahead (distinguishing decls from procs for instance),
+    // one more keeps the ring a power of two so that slots wrap around with a mask
+    static final int LOOKAHEAD = 3;
+
+    private static final int CAPACITY = LOOKAHEAD + 1;
+    private static final int MASK = CAPACITY - 1;
+
+    private final Tokeniser tokeniser;
+
+    private final Token[] ring = new Token[CAPACITY];
+    private int head = 0;
+
+    // Tokens held from head on, the current one included.
+    // Before the first advance() the current token is an empty slot.
+    private int count = 1;
+
+    private int index = -1;
+
+    TokeniserCursor(Tokeniser tokeniser) {
+        this.tokeniser = tokeniser;
+    }
+
+    Tokeniser getTokeniser() {
+        return tokeniser;
+    }
+
+    /*
+     * The k^th token from the current one, 0 <= k <= LOOKAHEAD.
+     */
+    private Token at(int k) {
+        if (k > LOOKAHEAD)
+            throw new IllegalArgumentException("Cannot look " + k + " tokens ahead, at most " + LOOKAHEAD);
+
+        while (count <= k) {
+            ring[(head + count) & MASK] = pull();
+            count++;
+        }
+
+        return ring[(head + k) & MASK];
+    }
+
+    /*
+        Tokenisers stop at EOF, keep handing out the last token past the end.
+        The slot before head still holds the previous token when nothing is buffered.
+     */
+    private Token pull() {
+        Token next = tokeniser.nextToken();
+        if (next != null)
+            return next;
+        return ring[(head + count - 1) & MASK];
+    }
+
+    @Override
+    public TokenClass tokenClass(int k) {
+        return at(k).tokenClass;
+    }
+
+    @Override
+    public String data() {
+        return ring[head].data;
+    }
+
+    @Override
+    public int nameId() {
+        return ring[head].nameId;
+    }
+
+    @Override
+    public Token token() {
+        return ring[head];
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void advance() {
+        head = (head + 1) & MASK;
+        count--;
+        at(0);
+        index++;
+    }
+}
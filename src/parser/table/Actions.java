@@ -0,0 +1,22 @@
+package parser.table;
+
+import lexer.TokenCursor;
+
+/**
+ * What TableParser makes of what it parses: a value for each token and one for each
+ * alternative of a rule, from the values of its symbols. See Grammar for the values of
+ * optional parts, repetitions and groups.
+ */
+public interface Actions {
+
+    /**
+     * Value of the current token of the cursor, about to be consumed.
+     */
+    Object token(TokenCursor cursor);
+
+    /**
+     * Value of the alternative of a rule (see GrammarTables for the rules) from the values of
+     * its symbols, in values[from] on. The array is the parser's stack, it is not to be kept.
+     */
+    Object reduce(int rule, int alternative, Object[] values, int from);
+}
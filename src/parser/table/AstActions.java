@@ -0,0 +1,183 @@
+package parser.table;
+
+import ast.*;
+import ast.expressions.*;
+import ast.statements.*;
+import lexer.Token.TokenClass;
+import lexer.TokenCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static parser.table.GrammarTables.*;
+
+/*
+    Builds the same tree as the hand-written Parser from what TableParser parses.
+ */
+class AstActions implements Actions {
+
+    @Override
+    public Object token(TokenCursor cursor) {
+        TokenClass tokenClass = cursor.tokenClass(0);
+        switch (tokenClass) {
+            case IDENTIFIER:
+            case STRING_LITERAL:
+            case PRINT:
+            case READ:
+                return cursor.data();
+            case NUMBER:
+                return Integer.parseInt(cursor.data());
+            case CHARACTER:
+                return cursor.data().charAt(0);
+            default:
+                return tokenClass;
+        }
+    }
+
+    @Override
+    public Object reduce(int rule, int alternative, Object[] values, int from) {
+        switch (rule) {
+            case PROGRAM:
+                return new Program(list(values[from + 1], VarDecl.class), list(values[from + 2], Procedure.class), (Procedure) values[from + 3]);
+            case INCLUDES:
+                return null;
+            case STMTLIST:
+                return list(values[from], Stmt.class);
+            case MAIN:
+                return new Procedure(Type.VOID, "main", new ArrayList<VarDecl>(0), (Block) values[from + 4]);
+            case PROCEDURE:
+                return new Procedure((Type) values[from], (String) values[from + 1], list(values[from + 3], VarDecl.class), (Block) values[from + 5]);
+            case TYPE:
+                return alternative == 0 ? Type.INT : alternative == 1 ? Type.CHAR : Type.VOID;
+            case PARAMS:
+                return params((Object[]) values[from]);
+            case BODY:
+                return new Block(list(values[from + 1], VarDecl.class), list(values[from + 2], Stmt.class));
+            case TYPEIDENT:
+                return new VarDecl((Type) values[from], new Var((String) values[from + 1]));
+            case EXP:
+                if (alternative == 6)
+                    return values[from];
+                return new BinOp((Expr) values[from], Op.getOp((TokenClass) values[from + 1]), (Expr) values[from + 2]);
+            case VARDECLS:
+                return firsts(values[from], VarDecl.class);
+            case STMT:
+                return statement(alternative, values, from);
+            case LEXP:
+            case TERM:
+                return fold((Expr) values[from], (List<?>) values[from + 1]);
+            case FACTOR:
+                return factor(alternative, values, from);
+            case FUNCALL:
+                return new FunCallStmt((String) values[from], arguments((Object[]) values[from + 2]));
+            default:
+                throw new IllegalArgumentException("No action for rule " + rule);
+        }
+    }
+
+    private Stmt statement(int alternative, Object[] values, int from) {
+        switch (alternative) {
+            case 0:
+                return new Block(list(values[from + 1], VarDecl.class), list(values[from + 2], Stmt.class));
+            case 1:
+                return new While((Expr) values[from + 2], (Stmt) values[from + 4]);
+            case 2: {
+                Object[] elseStmt = (Object[]) values[from + 5];
+                return new If((Expr) values[from + 2], (Stmt) values[from + 4], elseStmt == null ? null : (Stmt) elseStmt[1]);
+            }
+            case 3:
+                return new Assign(new Var((String) values[from]), (Expr) values[from + 2]);
+            case 4:
+                return new Return((Expr) values[from + 1]);
+            case 5:
+                return new FunCallStmt((String) values[from], single((Expr) new StrLiteral((String) values[from + 2])));
+            case 6:
+            case 7:
+                return new FunCallStmt((String) values[from], single((Expr) values[from + 2]));
+            case 8:
+                return (FunCallStmt) values[from];
+            default:
+                return new FunCallStmt((String) values[from], new ArrayList<Expr>(0));
+        }
+    }
+
+    private Expr factor(int alternative, Object[] values, int from) {
+        switch (alternative) {
+            case 0:
+                return (Expr) values[from + 1];
+            case 1: {
+                Object value = values[from + 1];
+                Expr operand = value instanceof String ? new Var((String) value) : new IntLiteral((Integer) value);
+                if (values[from] == null)
+                    return operand;
+                return new BinOp(new IntLiteral(0), Op.SUB, operand);
+            }
+            case 2:
+                return new ChrLiteral((Character) values[from]);
+            case 3: {
+                FunCallStmt call = (FunCallStmt) values[from];
+                return new FunCallExpr(call.name, call.arguments);
+            }
+            default:
+                return new FunCallExpr((String) values[from], new ArrayList<Expr>(0));
+        }
+    }
+
+    /*
+        Operands folded to the left, a - b - c being (a - b) - c.
+     */
+    private static Expr fold(Expr lhs, List<?> rest) {
+        for (Object item : rest) {
+            Object[] opOperand = (Object[]) item;
+            lhs = new BinOp(lhs, Op.getOp((TokenClass) opOperand[0]), (Expr) opOperand[1]);
+        }
+        return lhs;
+    }
+
+    private static List<VarDecl> params(Object[] params) {
+        ArrayList<VarDecl> list = new ArrayList<>();
+        if (params != null) {
+            list.add((VarDecl) params[0]);
+            for (Object item : (List<?>) params[1])
+                list.add((VarDecl) ((Object[]) item)[1]);
+        }
+        list.trimToSize();
+        return list;
+    }
+
+    private static List<Expr> arguments(Object[] arguments) {
+        ArrayList<Expr> list = new ArrayList<>();
+        if (arguments != null) {
+            list.add(new Var((String) arguments[0]));
+            for (Object item : (List<?>) arguments[1])
+                list.add(new Var((String) ((Object[]) item)[1]));
+        }
+        list.trimToSize();
+        return list;
+    }
+
+    private static <T> List<T> single(T item) {
+        List<T> list = new ArrayList<>(1);
+        list.add(item);
+        return list;
+    }
+
+    /*
+        A repetition of a single symbol, its list holds the values themselves.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> list(Object list, Class<T> type) {
+        return (List<T>) list;
+    }
+
+    /*
+        A repetition of a sequence, the first value of each.
+     */
+    private static <T> List<T> firsts(Object list, Class<T> type) {
+        List<?> items = (List<?>) list;
+        ArrayList<T> firsts = new ArrayList<>(items.size());
+        for (Object item : items)
+            firsts.add(type.cast(((Object[]) item)[0]));
+        return firsts;
+    }
+}
@@ -0,0 +1,470 @@
+package parser.table;
+
+import lexer.Token;
+import lexer.Token.TokenClass;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A grammar in the notation of grammar/ebnf.txt, brought down to plain productions for
+ * LLGenerator.
+ *
+ * Rules are named in lower case, token classes in upper case (IDENT for IDENTIFIER) and
+ * keywords and punctuation are quoted as they are written in a source. Optional parts,
+ * repetitions and groups become nonterminals of their own, named after the rule they occur
+ * in, and alternatives starting alike are left factored.
+ *
+ * Every symbol makes one value when parsed: a token makes its own, a rule whatever its action
+ * makes of the values of the alternative it went through. An optional part makes the value
+ * of what it holds or null, a repetition the list of the values of its items, a group of more
+ * than one symbol the array of their values.
+ */
+class Grammar {
+
+    // What a production does with the values of its symbols once they are all parsed
+
+    // Leaves them on the stack, for the production they stand in for
+    static final int PASS = -1;
+    // Collects the values since the production started into a List
+    static final int LIST = -2;
+    // Makes null, the production is empty
+    static final int NONE = -3;
+    // Collects the arity last values into an Object[]
+    static final int TUPLE = -4;
+
+    private static final Map<String, TokenClass> LITERALS = new HashMap<>();
+
+    static {
+        literal("#include", TokenClass.INCLUDE);
+        literal("int", TokenClass.INT);
+        literal("char", TokenClass.CHAR);
+        literal("void", TokenClass.VOID);
+        literal("main", TokenClass.MAIN);
+        literal("if", TokenClass.IF);
+        literal("else", TokenClass.ELSE);
+        literal("while", TokenClass.WHILE);
+        literal("return", TokenClass.RETURN);
+        literal(Token.PRINT_S, TokenClass.PRINT);
+        literal(Token.PRINT_C, TokenClass.PRINT);
+        literal(Token.PRINT_I, TokenClass.PRINT);
+        literal("read_c", TokenClass.READ);
+        literal("read_i", TokenClass.READ);
+        literal("=", TokenClass.ASSIGN);
+        literal("{", TokenClass.LBRA);
+        literal("}", TokenClass.RBRA);
+        literal("(", TokenClass.LPAR);
+        literal(")", TokenClass.RPAR);
+        literal(";", TokenClass.SEMICOLON);
+        literal(",", TokenClass.COMMA);
+        literal("==", TokenClass.EQ);
+        literal("!=", TokenClass.NE);
+        literal("<", TokenClass.LT);
+        literal(">", TokenClass.GT);
+        literal("<=", TokenClass.LE);
+        literal(">=", TokenClass.GE);
+        literal("+", TokenClass.PLUS);
+        literal("-", TokenClass.MINUS);
+        literal("*", TokenClass.TIMES);
+        literal("/", TokenClass.DIV);
+        literal("%", TokenClass.MOD);
+    }
+
+    private static void literal(String literal, TokenClass tokenClass) {
+        LITERALS.put(literal, tokenClass);
+    }
+
+    // Symbols: the terminals, then the rules in the order they are defined, then the nonterminals made for them
+    final List<String> names = new ArrayList<>();
+    int terminals;
+    int rules;
+
+    // By terminal, the data of the tokens of a class that are told apart by it, null for the others
+    final List<TokenClass> terminalClasses = new ArrayList<>();
+    final List<String> terminalData = new ArrayList<>();
+
+    final List<Production> productions = new ArrayList<>();
+
+    static class Production {
+        final int lhs;
+        final int[] rhs;
+
+        // PASS, LIST, NONE, TUPLE or the rule whose alternative this is
+        final int action;
+        final int alternative;
+
+        // Number of values the action takes, the values of the symbols it was factored out of included
+        final int arity;
+
+        Production(int lhs, int[] rhs, int action, int alternative, int arity) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+            this.action = action;
+            this.alternative = alternative;
+            this.arity = arity;
+        }
+    }
+
+    /*
+        An element of the notation before it is brought down to productions.
+     */
+    private static class Element {
+        static final int SYMBOL = 0;
+        static final int GROUP = 1;
+        static final int OPTIONAL = 2;
+        static final int STAR = 3;
+        static final int PLUS = 4;
+
+        final int kind;
+        final String symbol;
+        final List<List<Element>> alternatives;
+
+        Element(String symbol) {
+            this.kind = SYMBOL;
+            this.symbol = symbol;
+            this.alternatives = null;
+        }
+
+        Element(int kind, List<List<Element>> alternatives) {
+            this.kind = kind;
+            this.symbol = null;
+            this.alternatives = alternatives;
+        }
+    }
+
+    /*
+        Throws IllegalArgumentException if the grammar does not read or uses an undefined rule.
+     */
+    static Grammar read(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[4096];
+        for (int n; (n = reader.read(buffer)) > 0; )
+            text.append(buffer, 0, n);
+
+        return new Grammar(new Notation(text).rules());
+    }
+
+    private Grammar(Map<String, List<List<Element>>> definitions) {
+        // Terminals first, so that they are numbered from 0
+        Map<String, Integer> symbols = new HashMap<>();
+        for (List<List<Element>> alternatives : definitions.values())
+            addTerminals(alternatives, symbols);
+        terminals = names.size();
+
+        for (String rule : definitions.keySet()) {
+            symbols.put(rule, names.size());
+            names.add(rule);
+        }
+        rules = names.size() - terminals;
+
+        int rule = terminals;
+        for (List<List<Element>> alternatives : definitions.values()) {
+            for (int i = 0; i < alternatives.size(); i++) {
+                List<Element> alternative = alternatives.get(i);
+                productions.add(new Production(rule, lower(alternative, rule, symbols), rule - terminals, i, alternative.size()));
+            }
+            rule++;
+        }
+
+        leftFactor();
+    }
+
+    int start() {
+        return terminals;
+    }
+
+    int symbols() {
+        return names.size();
+    }
+
+    boolean isTerminal(int symbol) {
+        return symbol < terminals;
+    }
+
+    private void addTerminals(List<List<Element>> alternatives, Map<String, Integer> symbols) {
+        for (List<Element> alternative : alternatives) {
+            for (Element e : alternative) {
+                if (e.kind != Element.SYMBOL)
+                    addTerminals(e.alternatives, symbols);
+                else if (isTerminal(e.symbol) && !symbols.containsKey(e.symbol)) {
+                    symbols.put(e.symbol, names.size());
+                    names.add(e.symbol);
+                    addTerminal(e.symbol);
+                }
+            }
+        }
+    }
+
+    private static boolean isTerminal(String symbol) {
+        return symbol.startsWith("\"") || Character.isUpperCase(symbol.charAt(0));
+    }
+
+    private void addTerminal(String symbol) {
+        if (symbol.startsWith("\"")) {
+            String literal = symbol.substring(1, symbol.length() - 1);
+            TokenClass tokenClass = LITERALS.get(literal);
+            if (tokenClass == null)
+                throw new IllegalArgumentException("Unknown token " + symbol);
+
+            terminalClasses.add(tokenClass);
+            terminalData.add(tokenClass == TokenClass.PRINT || tokenClass == TokenClass.READ ? literal : null);
+            return;
+        }
+
+        try {
+            terminalClasses.add(TokenClass.valueOf(symbol.equals("IDENT") ? "IDENTIFIER" : symbol));
+            terminalData.add(null);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown token class " + symbol);
+        }
+    }
+
+    private int[] lower(List<Element> alternative, int rule, Map<String, Integer> symbols) {
+        int[] rhs = new int[alternative.size()];
+        for (int i = 0; i < rhs.length; i++)
+            rhs[i] = lower(alternative.get(i), rule, symbols);
+        return rhs;
+    }
+
+    /*
+        The symbol standing for e, adding the nonterminal and productions it takes.
+     */
+    private int lower(Element e, int rule, Map<String, Integer> symbols) {
+        if (e.kind == Element.SYMBOL) {
+            Integer symbol = symbols.get(e.symbol);
+            if (symbol == null)
+                throw new IllegalArgumentException("Undefined rule " + e.symbol);
+            return symbol;
+        }
+
+        // A group of a single symbol is that symbol
+        if (e.kind == Element.GROUP && e.alternatives.size() == 1 && e.alternatives.get(0).size() == 1)
+            return lower(e.alternatives.get(0).get(0), rule, symbols);
+
+        int symbol = nonterminal(rule);
+        switch (e.kind) {
+            case Element.GROUP:
+                group(symbol, e.alternatives, rule, symbols);
+                break;
+            case Element.OPTIONAL:
+                group(symbol, e.alternatives, rule, symbols);
+                productions.add(new Production(symbol, new int[0], NONE, 0, 0));
+                break;
+            default: {
+                // The list starts before the first item, the items are then parsed by a nonterminal of their own
+                int item = lower(new Element(Element.GROUP, e.alternatives), rule, symbols);
+                int items = nonterminal(rule);
+                int[] rhs = e.kind == Element.STAR ? new int[] { items } : new int[] { item, items };
+                productions.add(new Production(symbol, rhs, LIST, 0, 0));
+                productions.add(new Production(items, new int[] { item, items }, PASS, 0, 2));
+                productions.add(new Production(items, new int[0], PASS, 0, 0));
+            }
+        }
+        return symbol;
+    }
+
+    private void group(int symbol, List<List<Element>> alternatives, int rule, Map<String, Integer> symbols) {
+        for (List<Element> alternative : alternatives) {
+            int[] rhs = lower(alternative, rule, symbols);
+            productions.add(new Production(symbol, rhs, rhs.length == 1 ? PASS : TUPLE, 0, rhs.length));
+        }
+    }
+
+    private int nonterminal(int rule) {
+        names.add(names.get(rule) + "#" + (names.size() - terminals - rules + 1));
+        return names.size() - 1;
+    }
+
+    /*
+        Alternatives of a nonterminal starting with the same symbols are merged up to where they
+        differ and the rest is parsed by a new nonterminal. The actions move along with the rest,
+        the values of the symbols in common are still on the stack when they run.
+     */
+    private void leftFactor() {
+        for (int lhs = terminals; lhs < names.size(); lhs++) {
+            while (factorOnce(lhs))
+                ;
+        }
+    }
+
+    private boolean factorOnce(int lhs) {
+        for (Production first : productions) {
+            if (first.lhs != lhs || first.rhs.length == 0)
+                continue;
+
+            List<Production> common = new ArrayList<>();
+            for (Production p : productions) {
+                if (p.lhs == lhs && p.rhs.length > 0 && p.rhs[0] == first.rhs[0])
+                    common.add(p);
+            }
+            if (common.size() > 1) {
+                factor(lhs, common);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void factor(int lhs, List<Production> common) {
+        int prefix = common.get(0).rhs.length;
+        for (Production p : common) {
+            int length = 0;
+            while (length < Math.min(prefix, p.rhs.length) && p.rhs[length] == common.get(0).rhs[length])
+                length++;
+            prefix = length;
+        }
+
+        int rest = nonterminal(lhs < terminals + rules ? lhs : ruleOf(lhs));
+        int[] rhs = new int[prefix + 1];
+        System.arraycopy(common.get(0).rhs, 0, rhs, 0, prefix);
+        rhs[prefix] = rest;
+
+        productions.set(productions.indexOf(common.get(0)), new Production(lhs, rhs, PASS, 0, rhs.length));
+        for (Production p : common) {
+            productions.remove(p);
+            int[] suffix = new int[p.rhs.length - prefix];
+            System.arraycopy(p.rhs, prefix, suffix, 0, suffix.length);
+            productions.add(new Production(rest, suffix, p.action, p.alternative, p.arity));
+        }
+    }
+
+    /*
+        The rule a nonterminal made for a part of it was named after.
+     */
+    private int ruleOf(int nonterminal) {
+        String name = names.get(nonterminal);
+        return names.indexOf(name.substring(0, name.indexOf('#')));
+    }
+
+    /*
+        Reader of the notation, a recursive descent over its tokens.
+     */
+    private static class Notation {
+
+        private final List<String> tokens = new ArrayList<>();
+        private int next = 0;
+
+        Notation(CharSequence text) {
+            int i = 0;
+            boolean lineStart = true;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    lineStart = true;
+                    i++;
+                } else if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '#' && lineStart) {
+                    while (i < text.length() && text.charAt(i) != '\n')
+                        i++;
+                } else {
+                    lineStart = false;
+                    int from = i;
+                    if (c == '"') {
+                        i = indexOf(text, '"', i + 1) + 1;
+                        if (i == 0)
+                            throw new IllegalArgumentException("Unterminated literal at " + from);
+                    } else if (Character.isLetter(c) || c == '_') {
+                        while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'))
+                            i++;
+                    } else if (c == ':' && text.subSequence(i, Math.min(i + 3, text.length())).toString().equals("::=")) {
+                        i += 3;
+                    } else if ("|()[]*+".indexOf(c) >= 0) {
+                        i++;
+                    } else {
+                        throw new IllegalArgumentException("Unexpected '" + c + "' at " + i);
+                    }
+                    tokens.add(text.subSequence(from, i).toString());
+                }
+            }
+        }
+
+        private static int indexOf(CharSequence text, char c, int from) {
+            for (int i = from; i < text.length(); i++)
+                if (text.charAt(i) == c)
+                    return i;
+            return -1;
+        }
+
+        private String peek(int k) {
+            return next + k < tokens.size() ? tokens.get(next + k) : null;
+        }
+
+        private String take(String expected) {
+            String token = peek(0);
+            if (token == null || (expected != null && !token.equals(expected)))
+                throw new IllegalArgumentException("Expected " + (expected == null ? "a symbol" : expected) + " but found " + token);
+            next++;
+            return token;
+        }
+
+        Map<String, List<List<Element>>> rules() {
+            Map<String, List<List<Element>>> rules = new LinkedHashMap<>();
+            while (peek(0) != null) {
+                String name = take(null);
+                take("::=");
+                if (rules.put(name, alternatives()) != null)
+                    throw new IllegalArgumentException("Rule " + name + " is defined twice");
+            }
+            return rules;
+        }
+
+        private List<List<Element>> alternatives() {
+            List<List<Element>> alternatives = new ArrayList<>();
+            alternatives.add(sequence());
+            while ("|".equals(peek(0))) {
+                take("|");
+                alternatives.add(sequence());
+            }
+            return alternatives;
+        }
+
+        private List<Element> sequence() {
+            List<Element> sequence = new ArrayList<>();
+            while (peek(0) != null && !isEndOfSequence())
+                sequence.add(element());
+            return sequence;
+        }
+
+        private boolean isEndOfSequence() {
+            String token = peek(0);
+            return token.equals("|") || token.equals(")") || token.equals("]") || "::=".equals(peek(1));
+        }
+
+        private Element element() {
+            String token = take(null);
+            Element e;
+            if (token.equals("(")) {
+                e = new Element(Element.GROUP, alternatives());
+                take(")");
+            } else if (token.equals("[")) {
+                e = new Element(Element.OPTIONAL, alternatives());
+                take("]");
+            } else if (token.equals("*") || token.equals("+") || token.equals("::=")) {
+                throw new IllegalArgumentException("Unexpected " + token);
+            } else {
+                e = new Element(token);
+            }
+
+            if ("*".equals(peek(0)) || "+".equals(peek(0))) {
+                int kind = take(null).equals("*") ? Element.STAR : Element.PLUS;
+                List<List<Element>> item = e.kind == Element.GROUP ? e.alternatives : single(e);
+                e = new Element(kind, item);
+            }
+            return e;
+        }
+
+        private static List<List<Element>> single(Element e) {
+            List<Element> sequence = new ArrayList<>();
+            sequence.add(e);
+            List<List<Element>> alternatives = new ArrayList<>();
+            alternatives.add(sequence);
+            return alternatives;
+        }
+    }
+}
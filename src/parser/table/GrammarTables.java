@@ -0,0 +1,384 @@
+package parser.table;
+
+import lexer.Token.TokenClass;
+
+/*
+    Generated by LLGenerator from grammar/ebnf.txt, do not edit.
+    37 terminals, 47 nonterminals, 87 productions, 6 choices looking further ahead, 1 ambiguous.
+ */
+public final class GrammarTables {
+
+    // Rules, as passed to Actions.reduce with the index of the alternative taken
+    public static final int PROGRAM = 0;
+    public static final int INCLUDES = 1;
+    public static final int STMTLIST = 2;
+    public static final int MAIN = 3;
+    public static final int PROCEDURE = 4;
+    public static final int TYPE = 5;
+    public static final int PARAMS = 6;
+    public static final int BODY = 7;
+    public static final int TYPEIDENT = 8;
+    public static final int EXP = 9;
+    public static final int VARDECLS = 10;
+    public static final int STMT = 11;
+    public static final int LEXP = 12;
+    public static final int TERM = 13;
+    public static final int FACTOR = 14;
+    public static final int FUNCALL = 15;
+
+    static final int TERMINALS = 37;
+    static final int SYMBOLS = 84;
+    static final int START = 37;
+
+    static final int PASS = -1;
+    static final int LIST = -2;
+    static final int NONE = -3;
+    static final int TUPLE = -4;
+
+    static final String[] NAMES = {
+            "EOF",
+            "\"#include\"",
+            "STRING_LITERAL",
+            "\"void\"",
+            "\"main\"",
+            "\"(\"",
+            "\")\"",
+            "IDENT",
+            "\"int\"",
+            "\"char\"",
+            "\",\"",
+            "\"{\"",
+            "\"}\"",
+            "\">\"",
+            "\"<\"",
+            "\">=\"",
+            "\"<=\"",
+            "\"!=\"",
+            "\"==\"",
+            "\";\"",
+            "\"while\"",
+            "\"if\"",
+            "\"else\"",
+            "\"=\"",
+            "\"return\"",
+            "\"print_s\"",
+            "\"print_c\"",
+            "\"print_i\"",
+            "\"read_c\"",
+            "\"read_i\"",
+            "\"+\"",
+            "\"-\"",
+            "\"/\"",
+            "\"*\"",
+            "\"%\"",
+            "NUMBER",
+            "CHARACTER",
+            "program",
+            "includes",
+            "stmtlist",
+            "main",
+            "procedure",
+            "type",
+            "params",
+            "body",
+            "typeident",
+            "exp",
+            "vardecls",
+            "stmt",
+            "lexp",
+            "term",
+            "factor",
+            "funcall",
+            "program#1",
+            "program#2",
+            "includes#3",
+            "includes#4",
+            "includes#5",
+            "stmtlist#6",
+            "stmtlist#7",
+            "params#8",
+            "params#9",
+            "params#10",
+            "params#11",
+            "vardecls#12",
+            "vardecls#13",
+            "vardecls#14",
+            "stmt#15",
+            "stmt#16",
+            "lexp#17",
+            "lexp#18",
+            "lexp#19",
+            "lexp#20",
+            "term#21",
+            "term#22",
+            "term#23",
+            "term#24",
+            "factor#25",
+            "factor#26",
+            "funcall#27",
+            "funcall#28",
+            "funcall#29",
+            "funcall#30",
+            "exp#31",
+    };
+
+    // By terminal, and the data telling apart tokens of the same class
+    static final TokenClass[] TERMINAL_CLASSES = {
+            TokenClass.EOF,
+            TokenClass.INCLUDE,
+            TokenClass.STRING_LITERAL,
+            TokenClass.VOID,
+            TokenClass.MAIN,
+            TokenClass.LPAR,
+            TokenClass.RPAR,
+            TokenClass.IDENTIFIER,
+            TokenClass.INT,
+            TokenClass.CHAR,
+            TokenClass.COMMA,
+            TokenClass.LBRA,
+            TokenClass.RBRA,
+            TokenClass.GT,
+            TokenClass.LT,
+            TokenClass.GE,
+            TokenClass.LE,
+            TokenClass.NE,
+            TokenClass.EQ,
+            TokenClass.SEMICOLON,
+            TokenClass.WHILE,
+            TokenClass.IF,
+            TokenClass.ELSE,
+            TokenClass.ASSIGN,
+            TokenClass.RETURN,
+            TokenClass.PRINT,
+            TokenClass.PRINT,
+            TokenClass.PRINT,
+            TokenClass.READ,
+            TokenClass.READ,
+            TokenClass.PLUS,
+            TokenClass.MINUS,
+            TokenClass.DIV,
+            TokenClass.TIMES,
+            TokenClass.MOD,
+            TokenClass.NUMBER,
+            TokenClass.CHARACTER,
+    };
+
+    static final String[] TERMINAL_DATA = {
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            "print_s",
+            "print_c",
+            "print_i",
+            "read_c",
+            "read_i",
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+    };
+
+    // By production: its symbols, then what is done with their values, see Grammar
+    static final int[][] RHS = {
+            {54}, // program#1 ::= program#2
+            {41, 54}, // program#2 ::= procedure program#2
+            {}, // program#2 ::=
+            {38, 47, 53, 40, 0}, // program ::= includes vardecls program#1 main EOF
+            {1, 2}, // includes#4 ::= "#include" STRING_LITERAL
+            {57}, // includes#3 ::= includes#5
+            {56, 57}, // includes#5 ::= includes#4 includes#5
+            {}, // includes#5 ::=
+            {55}, // includes ::= includes#3
+            {59}, // stmtlist#6 ::= stmtlist#7
+            {48, 59}, // stmtlist#7 ::= stmt stmtlist#7
+            {}, // stmtlist#7 ::=
+            {58}, // stmtlist ::= stmtlist#6
+            {3, 4, 5, 6, 44}, // main ::= "void" "main" "(" ")" body
+            {42, 7, 5, 43, 6, 44}, // procedure ::= type IDENT "(" params ")" body
+            {8}, // type ::= "int"
+            {9}, // type ::= "char"
+            {3}, // type ::= "void"
+            {10, 45}, // params#10 ::= "," typeident
+            {63}, // params#9 ::= params#11
+            {62, 63}, // params#11 ::= params#10 params#11
+            {}, // params#11 ::=
+            {45, 61}, // params#8 ::= typeident params#9
+            {}, // params#8 ::=
+            {60}, // params ::= params#8
+            {11, 47, 39, 12}, // body ::= "{" vardecls stmtlist "}"
+            {42, 7}, // typeident ::= type IDENT
+            {49, 83}, // exp ::= lexp exp#31
+            {45, 19}, // vardecls#13 ::= typeident ";"
+            {66}, // vardecls#12 ::= vardecls#14
+            {65, 66}, // vardecls#14 ::= vardecls#13 vardecls#14
+            {}, // vardecls#14 ::=
+            {64}, // vardecls ::= vardecls#12
+            {11, 47, 39, 12}, // stmt ::= "{" vardecls stmtlist "}"
+            {20, 5, 46, 6, 48}, // stmt ::= "while" "(" exp ")" stmt
+            {22, 48}, // stmt#15 ::= "else" stmt
+            {}, // stmt#15 ::=
+            {21, 5, 46, 6, 48, 67}, // stmt ::= "if" "(" exp ")" stmt stmt#15
+            {7, 23, 49, 19}, // stmt ::= IDENT "=" lexp ";"
+            {49}, // stmt#16 ::= lexp
+            {}, // stmt#16 ::=
+            {24, 68, 19}, // stmt ::= "return" stmt#16 ";"
+            {25, 5, 2, 6, 19}, // stmt ::= "print_s" "(" STRING_LITERAL ")" ";"
+            {26, 5, 49, 6, 19}, // stmt ::= "print_c" "(" lexp ")" ";"
+            {27, 5, 49, 6, 19}, // stmt ::= "print_i" "(" lexp ")" ";"
+            {52, 19}, // stmt ::= funcall ";"
+            {28, 5, 6, 19}, // stmt ::= "read_c" "(" ")" ";"
+            {29, 5, 6, 19}, // stmt ::= "read_i" "(" ")" ";"
+            {30}, // lexp#19 ::= "+"
+            {31}, // lexp#19 ::= "-"
+            {71, 50}, // lexp#18 ::= lexp#19 term
+            {72}, // lexp#17 ::= lexp#20
+            {70, 72}, // lexp#20 ::= lexp#18 lexp#20
+            {}, // lexp#20 ::=
+            {50, 69}, // lexp ::= term lexp#17
+            {32}, // term#23 ::= "/"
+            {33}, // term#23 ::= "*"
+            {34}, // term#23 ::= "%"
+            {75, 51}, // term#22 ::= term#23 factor
+            {76}, // term#21 ::= term#24
+            {74, 76}, // term#24 ::= term#22 term#24
+            {}, // term#24 ::=
+            {51, 73}, // term ::= factor term#21
+            {5, 49, 6}, // factor ::= "(" lexp ")"
+            {31}, // factor#25 ::= "-"
+            {}, // factor#25 ::=
+            {7}, // factor#26 ::= IDENT
+            {35}, // factor#26 ::= NUMBER
+            {77, 78}, // factor ::= factor#25 factor#26
+            {36}, // factor ::= CHARACTER
+            {52}, // factor ::= funcall
+            {28, 5, 6}, // factor ::= "read_c" "(" ")"
+            {29, 5, 6}, // factor ::= "read_i" "(" ")"
+            {10, 7}, // funcall#29 ::= "," IDENT
+            {82}, // funcall#28 ::= funcall#30
+            {81, 82}, // funcall#30 ::= funcall#29 funcall#30
+            {}, // funcall#30 ::=
+            {7, 80}, // funcall#27 ::= IDENT funcall#28
+            {}, // funcall#27 ::=
+            {7, 5, 79, 6}, // funcall ::= IDENT "(" funcall#27 ")"
+            {13, 49}, // exp#31 ::= ">" lexp
+            {14, 49}, // exp#31 ::= "<" lexp
+            {15, 49}, // exp#31 ::= ">=" lexp
+            {16, 49}, // exp#31 ::= "<=" lexp
+            {17, 49}, // exp#31 ::= "!=" lexp
+            {18, 49}, // exp#31 ::= "==" lexp
+            {}, // exp#31 ::=
+    };
+
+    static final int[] ACTIONS = {-2, -1, -1, 0, -4, -2, -1, -1, 1, -2, -1, -1, 2, 3, 4, 5, 5, 5, -4, -2, -1, -1, -4, -3, 6, 7, 8, -1, -4, -2, -1, -1, 10, 11, 11, -4, -3, 11, 11, -1, -3, 11, 11, 11, 11, 11, 11, 11, -1, -1, -4, -2, -1, -1, 12, -1, -1, -1, -4, -2, -1, -1, 13, 14, -1, -3, -1, -1, 14, 14, 14, 14, 14, -4, -2, -1, -1, -4, -3, 15, 9, 9, 9, 9, 9, 9, 9};
+    static final int[] ALTERNATIVES = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 2, 3, 0, 0, 4, 5, 6, 7, 8, 9, 10, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2, 3, 4, 5, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2, 3, 4, 5, 6};
+    static final int[] ARITIES = {0, 2, 0, 5, 2, 0, 2, 0, 1, 0, 2, 0, 1, 5, 6, 1, 1, 1, 2, 0, 2, 0, 2, 0, 1, 4, 2, 2, 2, 0, 2, 0, 1, 4, 5, 2, 0, 6, 4, 1, 0, 3, 5, 5, 5, 2, 4, 4, 1, 1, 2, 0, 2, 0, 2, 1, 1, 1, 2, 0, 2, 0, 2, 3, 1, 0, 1, 1, 2, 1, 1, 3, 3, 2, 0, 2, 0, 2, 0, 4, 3, 3, 3, 3, 3, 3, 1};
+
+    // By nonterminal and terminal the production to take, -1 for none, -2 - i to look further ahead with LOOKAHEAD[i]
+    static final int[][] TABLE = {
+            {-1, 3, -1, 3, -1, -1, -1, -1, 3, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // program
+            {-1, 8, -1, 8, -1, -1, -1, -1, 8, 8, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // includes
+            {-1, -1, -1, -1, -1, -1, -1, 12, -1, -1, -1, 12, 12, -1, -1, -1, -1, -1, -1, -1, 12, 12, -1, -1, 12, 12, 12, 12, 12, 12, -1, -1, -1, -1, -1, -1, -1}, // stmtlist
+            {-1, -1, -1, 13, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // main
+            {-1, -1, -1, 14, -1, -1, -1, -1, 14, 14, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // procedure
+            {-1, -1, -1, 17, -1, -1, -1, -1, 15, 16, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // type
+            {-1, -1, -1, 24, -1, -1, 24, -1, 24, 24, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // params
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 25, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // body
+            {-1, -1, -1, 26, -1, -1, -1, -1, 26, 26, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // typeident
+            {-1, -1, -1, -1, -1, 27, -1, 27, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 27, 27, -1, 27, -1, -1, -1, 27, 27}, // exp
+            {-1, -1, -1, 32, -1, -1, -1, 32, 32, 32, -1, 32, 32, -1, -1, -1, -1, -1, -1, -1, 32, 32, -1, -1, 32, 32, 32, 32, 32, 32, -1, -1, -1, -1, -1, -1, -1}, // vardecls
+            {-1, -1, -1, -1, -1, -1, -1, -2, -1, -1, -1, 33, -1, -1, -1, -1, -1, -1, -1, -1, 34, 37, -1, -1, 41, 42, 43, 44, 46, 47, -1, -1, -1, -1, -1, -1, -1}, // stmt
+            {-1, -1, -1, -1, -1, 54, -1, 54, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 54, 54, -1, 54, -1, -1, -1, 54, 54}, // lexp
+            {-1, -1, -1, -1, -1, 62, -1, 62, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 62, 62, -1, 62, -1, -1, -1, 62, 62}, // term
+            {-1, -1, -1, -1, -1, 63, -1, -3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 71, 72, -1, 68, -1, -1, -1, 68, 69}, // factor
+            {-1, -1, -1, -1, -1, -1, -1, 79, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // funcall
+            {-1, -1, -1, 0, -1, -1, -1, -1, 0, 0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // program#1
+            {-1, -1, -1, -4, -1, -1, -1, -1, 1, 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // program#2
+            {-1, 5, -1, 5, -1, -1, -1, -1, 5, 5, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // includes#3
+            {-1, 4, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // includes#4
+            {-1, 6, -1, 7, -1, -1, -1, -1, 7, 7, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // includes#5
+            {-1, -1, -1, -1, -1, -1, -1, 9, -1, -1, -1, 9, 9, -1, -1, -1, -1, -1, -1, -1, 9, 9, -1, -1, 9, 9, 9, 9, 9, 9, -1, -1, -1, -1, -1, -1, -1}, // stmtlist#6
+            {-1, -1, -1, -1, -1, -1, -1, 10, -1, -1, -1, 10, 11, -1, -1, -1, -1, -1, -1, -1, 10, 10, -1, -1, 10, 10, 10, 10, 10, 10, -1, -1, -1, -1, -1, -1, -1}, // stmtlist#7
+            {-1, -1, -1, 22, -1, -1, 23, -1, 22, 22, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // params#8
+            {-1, -1, -1, -1, -1, -1, 19, -1, -1, -1, 19, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // params#9
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 18, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // params#10
+            {-1, -1, -1, -1, -1, -1, 21, -1, -1, -1, 20, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // params#11
+            {-1, -1, -1, 29, -1, -1, -1, 29, 29, 29, -1, 29, 29, -1, -1, -1, -1, -1, -1, -1, 29, 29, -1, -1, 29, 29, 29, 29, 29, 29, -1, -1, -1, -1, -1, -1, -1}, // vardecls#12
+            {-1, -1, -1, 28, -1, -1, -1, -1, 28, 28, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // vardecls#13
+            {-1, -1, -1, -5, -1, -1, -1, 31, -6, -7, -1, 31, 31, -1, -1, -1, -1, -1, -1, -1, 31, 31, -1, -1, 31, 31, 31, 31, 31, 31, -1, -1, -1, -1, -1, -1, -1}, // vardecls#14
+            {-1, -1, -1, -1, -1, -1, -1, 36, -1, -1, -1, 36, 36, -1, -1, -1, -1, -1, -1, -1, 36, 36, 35, -1, 36, 36, 36, 36, 36, 36, -1, -1, -1, -1, -1, -1, -1}, // stmt#15
+            {-1, -1, -1, -1, -1, 39, -1, 39, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 40, -1, -1, -1, -1, -1, -1, -1, -1, 39, 39, -1, 39, -1, -1, -1, 39, 39}, // stmt#16
+            {-1, -1, -1, -1, -1, -1, 51, -1, -1, -1, -1, -1, -1, 51, 51, 51, 51, 51, 51, 51, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 51, 51, -1, -1, -1, -1, -1}, // lexp#17
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 50, 50, -1, -1, -1, -1, -1}, // lexp#18
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 48, 49, -1, -1, -1, -1, -1}, // lexp#19
+            {-1, -1, -1, -1, -1, -1, 53, -1, -1, -1, -1, -1, -1, 53, 53, 53, 53, 53, 53, 53, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 52, 52, -1, -1, -1, -1, -1}, // lexp#20
+            {-1, -1, -1, -1, -1, -1, 59, -1, -1, -1, -1, -1, -1, 59, 59, 59, 59, 59, 59, 59, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 59, 59, 59, 59, 59, -1, -1}, // term#21
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 58, 58, 58, -1, -1}, // term#22
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 55, 56, 57, -1, -1}, // term#23
+            {-1, -1, -1, -1, -1, -1, 61, -1, -1, -1, -1, -1, -1, 61, 61, 61, 61, 61, 61, 61, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 61, 61, 60, 60, 60, -1, -1}, // term#24
+            {-1, -1, -1, -1, -1, -1, -1, 65, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 64, -1, -1, -1, 65, -1}, // factor#25
+            {-1, -1, -1, -1, -1, -1, -1, 66, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 67, -1}, // factor#26
+            {-1, -1, -1, -1, -1, -1, 78, 77, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // funcall#27
+            {-1, -1, -1, -1, -1, -1, 74, -1, -1, -1, 74, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // funcall#28
+            {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 73, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // funcall#29
+            {-1, -1, -1, -1, -1, -1, 76, -1, -1, -1, 75, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // funcall#30
+            {-1, -1, -1, -1, -1, -1, 86, -1, -1, -1, -1, -1, -1, 80, 81, 82, 83, 84, 85, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1}, // exp#31
+    };
+
+    // By choice the production to take when no row matches, then the rows: a production and the classes of the tokens after the current one
+    static final int[] LOOKAHEAD_DEFAULTS = {38, 68, 1, 31, 30, 30};
+
+    static final int[][] LOOKAHEAD_PRODUCTIONS = {
+            {45},
+            {70},
+            {2},
+            {30},
+            {31},
+            {31},
+    };
+
+    static final TokenClass[][][] LOOKAHEAD_CLASSES = {
+            {
+                    {TokenClass.LPAR},
+            },
+            {
+                    {TokenClass.LPAR},
+            },
+            {
+                    {TokenClass.MAIN},
+            },
+            {
+                    {TokenClass.IDENTIFIER, TokenClass.SEMICOLON},
+            },
+            {
+                    {TokenClass.IDENTIFIER, TokenClass.LPAR},
+            },
+            {
+                    {TokenClass.IDENTIFIER, TokenClass.LPAR},
+            },
+    };
+}
@@ -0,0 +1,420 @@
+package parser.table;
+
+import lexer.Token.TokenClass;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the tables TableParser parses with from a grammar in the notation of
+ * grammar/ebnf.txt:
+ *
+ *   java parser.table.LLGenerator grammar/ebnf.txt src/parser/table/GrammarTables.java
+ *
+ * The table predicts the production of a nonterminal from the next token, as in LL(1). The
+ * grammar is not quite LL(1), declarations and procedures for one start alike, so where the
+ * next token leaves more than one production the generator looks at the tokens after it, up
+ * to MAX_LOOKAHEAD, as the hand-written Parser does. The lookahead sets are those of strong
+ * LL(k), computed from the FIRST and FOLLOW sets of the grammar. A choice the lookahead does
+ * not settle between a production and an empty one goes to the former, which is how a
+ * dangling else binds to the closest if.
+ */
+public class LLGenerator {
+
+    static final int MAX_LOOKAHEAD = 3;
+
+    private final Grammar grammar;
+
+    // FIRST and FOLLOW sets of MAX_LOOKAHEAD tokens, by symbol
+    private final List<Set<List<Integer>>> first = new ArrayList<>();
+    private final List<Set<List<Integer>>> follow = new ArrayList<>();
+
+    // By nonterminal and terminal the production to take, -1 if none, -2 - i to look further ahead with choice i
+    private final int[][] table;
+
+    // By choice, rows of a production and the classes of the tokens after the current one, and the production for any others
+    private final List<List<int[]>> rows = new ArrayList<>();
+    private final List<Integer> defaults = new ArrayList<>();
+
+    private int ambiguities = 0;
+
+    LLGenerator(Grammar grammar) {
+        this.grammar = grammar;
+        this.table = new int[grammar.symbols() - grammar.terminals][grammar.terminals];
+
+        computeFirst();
+        computeFollow();
+        computeTable();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java parser.table.LLGenerator <grammar> <tables.java>");
+            System.exit(1);
+        }
+
+        String source;
+        try (Reader reader = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8)) {
+            source = generate(reader, args[0]);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8)) {
+            writer.write(source);
+        }
+    }
+
+    /*
+        Source of the GrammarTables class for the grammar read from path. Throws
+        IllegalArgumentException if the grammar needs more lookahead than MAX_LOOKAHEAD.
+     */
+    static String generate(Reader reader, String path) throws IOException {
+        return new LLGenerator(Grammar.read(reader)).source(path);
+    }
+
+    /* FIRST and FOLLOW */
+
+    private void computeFirst() {
+        for (int s = 0; s < grammar.symbols(); s++) {
+            Set<List<Integer>> set = new HashSet<>();
+            if (grammar.isTerminal(s))
+                set.add(Collections.singletonList(s));
+            first.add(set);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Grammar.Production p : grammar.productions)
+                changed |= first.get(p.lhs).addAll(first(p.rhs, 0));
+        }
+    }
+
+    private void computeFollow() {
+        for (int s = 0; s < grammar.symbols(); s++)
+            follow.add(new HashSet<List<Integer>>());
+        follow.get(grammar.start()).add(Collections.<Integer>emptyList());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Grammar.Production p : grammar.productions) {
+                for (int i = 0; i < p.rhs.length; i++) {
+                    if (!grammar.isTerminal(p.rhs[i]))
+                        changed |= follow.get(p.rhs[i]).addAll(concat(first(p.rhs, i + 1), follow.get(p.lhs)));
+                }
+            }
+        }
+    }
+
+    private Set<List<Integer>> first(int[] symbols, int from) {
+        Set<List<Integer>> set = Collections.singleton(Collections.<Integer>emptyList());
+        for (int i = from; i < symbols.length; i++)
+            set = concat(set, first.get(symbols[i]));
+        return set;
+    }
+
+    /*
+        The sequences of a followed by those of b, cut at MAX_LOOKAHEAD.
+     */
+    private static Set<List<Integer>> concat(Set<List<Integer>> a, Set<List<Integer>> b) {
+        Set<List<Integer>> set = new HashSet<>();
+        for (List<Integer> x : a) {
+            if (x.size() == MAX_LOOKAHEAD) {
+                set.add(x);
+                continue;
+            }
+            for (List<Integer> y : b) {
+                List<Integer> xy = new ArrayList<>(x);
+                xy.addAll(y.subList(0, Math.min(y.size(), MAX_LOOKAHEAD - x.size())));
+                set.add(xy);
+            }
+        }
+        return set;
+    }
+
+    /* Table */
+
+    private void computeTable() {
+        int eof = grammar.terminalClasses.indexOf(TokenClass.EOF);
+        if (eof < 0)
+            throw new IllegalArgumentException("The grammar never reaches EOF");
+
+        for (int[] row : table)
+            Arrays.fill(row, -1);
+
+        // The lookahead of each production, padded with EOF as cursors look past the end
+        List<Set<List<Integer>>> lookahead = new ArrayList<>();
+        for (Grammar.Production p : grammar.productions) {
+            Set<List<Integer>> set = new HashSet<>();
+            for (List<Integer> sequence : concat(first(p.rhs, 0), follow.get(p.lhs))) {
+                List<Integer> padded = new ArrayList<>(sequence);
+                while (padded.size() < MAX_LOOKAHEAD)
+                    padded.add(eof);
+                set.add(padded);
+            }
+            lookahead.add(set);
+        }
+
+        for (int lhs = grammar.terminals; lhs < grammar.symbols(); lhs++) {
+            for (int t = 0; t < grammar.terminals; t++) {
+                List<Integer> candidates = new ArrayList<>();
+                for (int p = 0; p < grammar.productions.size(); p++) {
+                    if (grammar.productions.get(p).lhs == lhs && startsWith(lookahead.get(p), t))
+                        candidates.add(p);
+                }
+
+                if (candidates.size() == 1)
+                    table[lhs - grammar.terminals][t] = candidates.get(0);
+                else if (candidates.size() > 1)
+                    table[lhs - grammar.terminals][t] = resolve(lhs, t, candidates, lookahead);
+            }
+        }
+    }
+
+    private static boolean startsWith(Set<List<Integer>> sequences, int t) {
+        for (List<Integer> sequence : sequences) {
+            if (sequence.get(0) == t)
+                return true;
+        }
+        return false;
+    }
+
+    /*
+        Rows telling the candidates apart by the classes of the tokens after t, or the one
+        candidate that is not empty when none are enough. The candidate with the most rows
+        goes without, it is taken when no row matches.
+     */
+    private int resolve(int lhs, int t, List<Integer> candidates, List<Set<List<Integer>>> lookahead) {
+        for (int k = 2; k <= MAX_LOOKAHEAD; k++) {
+            List<int[]> resolved = new ArrayList<>();
+            Set<List<Integer>> seen = new HashSet<>();
+            boolean disjoint = true;
+
+            for (int p : candidates) {
+                Set<List<Integer>> own = new LinkedHashSet<>();
+                for (List<Integer> sequence : lookahead.get(p)) {
+                    if (sequence.get(0) != t)
+                        continue;
+
+                    // Only the current token is told apart by its data
+                    List<Integer> classes = new ArrayList<>();
+                    for (int i = 1; i < k; i++)
+                        classes.add(grammar.terminalClasses.get(sequence.get(i)).ordinal());
+                    own.add(classes);
+                }
+
+                for (List<Integer> classes : own) {
+                    disjoint &= seen.add(classes);
+                    int[] row = new int[k];
+                    row[0] = p;
+                    for (int i = 1; i < k; i++)
+                        row[i] = classes.get(i - 1);
+                    resolved.add(row);
+                }
+            }
+
+            if (disjoint) {
+                int fallback = mostRows(candidates, resolved);
+                List<int[]> others = new ArrayList<>();
+                for (int[] row : resolved) {
+                    if (row[0] != fallback)
+                        others.add(row);
+                }
+
+                Collections.sort(others, ROW_ORDER);
+                rows.add(others);
+                defaults.add(fallback);
+                return -1 - rows.size();
+            }
+        }
+
+        int nonEmpty = -1;
+        for (int p : candidates) {
+            if (grammar.productions.get(p).rhs.length > 0) {
+                if (nonEmpty >= 0)
+                    throw notLL(lhs, t);
+                nonEmpty = p;
+            }
+        }
+        if (nonEmpty < 0)
+            throw notLL(lhs, t);
+
+        ambiguities++;
+        return nonEmpty;
+    }
+
+    private IllegalArgumentException notLL(int lhs, int t) {
+        return new IllegalArgumentException("Grammar is not LL(" + MAX_LOOKAHEAD + ") at "
+                + grammar.names.get(lhs) + " on " + grammar.names.get(t));
+    }
+
+    private static int mostRows(List<Integer> candidates, List<int[]> rows) {
+        int most = candidates.get(0);
+        int mostCount = 0;
+        for (int p : candidates) {
+            int count = 0;
+            for (int[] row : rows) {
+                if (row[0] == p)
+                    count++;
+            }
+            if (count > mostCount) {
+                most = p;
+                mostCount = count;
+            }
+        }
+        return most;
+    }
+
+    private static final Comparator<int[]> ROW_ORDER = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] a, int[] b) {
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i])
+                    return a[i] < b[i] ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    /* Source */
+
+    private String source(String path) {
+        StringBuilder out = new StringBuilder();
+        out.append("package parser.table;\n\n");
+        out.append("import lexer.Token.TokenClass;\n\n");
+        out.append("/*\n");
+        out.append("    Generated by LLGenerator from ").append(path).append(", do not edit.\n");
+        out.append("    ").append(grammar.terminals).append(" terminals, ")
+                .append(grammar.symbols() - grammar.terminals).append(" nonterminals, ")
+                .append(grammar.productions.size()).append(" productions, ")
+                .append(rows.size()).append(" choices looking further ahead, ")
+                .append(ambiguities).append(" ambiguous.\n");
+        out.append(" */\n");
+        out.append("public final class GrammarTables {\n\n");
+
+        out.append("    // Rules, as passed to Actions.reduce with the index of the alternative taken\n");
+        for (int r = 0; r < grammar.rules; r++)
+            out.append("    public static final int ").append(grammar.names.get(grammar.terminals + r).toUpperCase()).append(" = ").append(r).append(";\n");
+        out.append('\n');
+
+        out.append("    static final int TERMINALS = ").append(grammar.terminals).append(";\n");
+        out.append("    static final int SYMBOLS = ").append(grammar.symbols()).append(";\n");
+        out.append("    static final int START = ").append(grammar.start()).append(";\n\n");
+
+        out.append("    static final int PASS = ").append(Grammar.PASS).append(";\n");
+        out.append("    static final int LIST = ").append(Grammar.LIST).append(";\n");
+        out.append("    static final int NONE = ").append(Grammar.NONE).append(";\n");
+        out.append("    static final int TUPLE = ").append(Grammar.TUPLE).append(";\n\n");
+
+        out.append("    static final String[] NAMES = {\n");
+        for (String name : grammar.names)
+            out.append("            \"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+        out.append("    };\n\n");
+
+        out.append("    // By terminal, and the data telling apart tokens of the same class\n");
+        out.append("    static final TokenClass[] TERMINAL_CLASSES = {\n");
+        for (TokenClass c : grammar.terminalClasses)
+            out.append("            TokenClass.").append(c).append(",\n");
+        out.append("    };\n\n");
+        out.append("    static final String[] TERMINAL_DATA = {\n");
+        for (String data : grammar.terminalData)
+            out.append("            ").append(data == null ? "null" : "\"" + data + "\"").append(",\n");
+        out.append("    };\n\n");
+
+        out.append("    // By production: its symbols, then what is done with their values, see Grammar\n");
+        out.append("    static final int[][] RHS = {\n");
+        for (Grammar.Production p : grammar.productions)
+            out.append("            ").append(ints(p.rhs)).append(", // ").append(describe(p)).append('\n');
+        out.append("    };\n\n");
+        out.append("    static final int[] ACTIONS = ").append(ints(actions())).append(";\n");
+        out.append("    static final int[] ALTERNATIVES = ").append(ints(alternatives())).append(";\n");
+        out.append("    static final int[] ARITIES = ").append(ints(arities())).append(";\n\n");
+
+        out.append("    // By nonterminal and terminal the production to take, -1 for none, -2 - i to look further ahead with LOOKAHEAD[i]\n");
+        out.append("    static final int[][] TABLE = {\n");
+        for (int n = 0; n < table.length; n++)
+            out.append("            ").append(ints(table[n])).append(", // ").append(grammar.names.get(grammar.terminals + n)).append('\n');
+        out.append("    };\n\n");
+
+        out.append("    // By choice the production to take when no row matches, then the rows: a production and the classes of the tokens after the current one\n");
+        out.append("    static final int[] LOOKAHEAD_DEFAULTS = ").append(ints(defaults())).append(";\n\n");
+        out.append("    static final int[][] LOOKAHEAD_PRODUCTIONS = {\n");
+        for (List<int[]> choice : rows) {
+            int[] productions = new int[choice.size()];
+            for (int i = 0; i < productions.length; i++)
+                productions[i] = choice.get(i)[0];
+            out.append("            ").append(ints(productions)).append(",\n");
+        }
+        out.append("    };\n\n");
+        out.append("    static final TokenClass[][][] LOOKAHEAD_CLASSES = {\n");
+        for (List<int[]> choice : rows) {
+            out.append("            {\n");
+            for (int[] row : choice) {
+                out.append("                    {");
+                for (int i = 1; i < row.length; i++)
+                    out.append(i > 1 ? ", " : "").append("TokenClass.").append(TokenClass.values()[row[i]]);
+                out.append("},\n");
+            }
+            out.append("            },\n");
+        }
+        out.append("    };\n");
+
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private int[] defaults() {
+        int[] values = new int[defaults.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = defaults.get(i);
+        return values;
+    }
+
+    private int[] actions() {
+        int[] actions = new int[grammar.productions.size()];
+        for (int p = 0; p < actions.length; p++)
+            actions[p] = grammar.productions.get(p).action;
+        return actions;
+    }
+
+    private int[] alternatives() {
+        int[] alternatives = new int[grammar.productions.size()];
+        for (int p = 0; p < alternatives.length; p++)
+            alternatives[p] = grammar.productions.get(p).alternative;
+        return alternatives;
+    }
+
+    private int[] arities() {
+        int[] arities = new int[grammar.productions.size()];
+        for (int p = 0; p < arities.length; p++)
+            arities[p] = grammar.productions.get(p).arity;
+        return arities;
+    }
+
+    private String describe(Grammar.Production p) {
+        StringBuilder sb = new StringBuilder(grammar.names.get(p.lhs)).append(" ::=");
+        for (int s : p.rhs)
+            sb.append(' ').append(grammar.names.get(s));
+        return sb.toString();
+    }
+
+    private static String ints(int[] values) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++)
+            sb.append(i > 0 ? ", " : "").append(values[i]);
+        return sb.append('}').toString();
+    }
+}
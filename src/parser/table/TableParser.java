@@ -0,0 +1,248 @@
+package parser.table;
+
+import ast.Program;
+import lexer.Token;
+import lexer.Token.TokenClass;
+import lexer.TokenBuffer;
+import lexer.TokenCursor;
+import util.Diagnostics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static parser.table.GrammarTables.*;
+
+/**
+ * Parser driven by the tables LLGenerator generates from grammar/ebnf.txt, with an explicit
+ * stack instead of recursion: the symbols still to parse are on one stack and the values of
+ * the ones parsed on another, where the Actions of the productions take them from.
+ *
+ * It builds the same tree as the hand-written Parser for a program without syntax errors.
+ * It stops at the first one, reporting it as Parser does and returning null.
+ */
+public class TableParser {
+
+    // By token class its terminal, NO_TERMINAL if the grammar has none, BY_DATA if its tokens are told apart by their data
+    private static final int NO_TERMINAL = -1;
+    private static final int BY_DATA = -2;
+    private static final int[] CLASS_TERMINALS = new int[TokenClass.values().length];
+
+    static {
+        Arrays.fill(CLASS_TERMINALS, NO_TERMINAL);
+        for (int t = 0; t < TERMINALS; t++)
+            CLASS_TERMINALS[TERMINAL_CLASSES[t].ordinal()] = TERMINAL_DATA[t] == null ? t : BY_DATA;
+    }
+
+    private final TokenCursor cursor;
+
+    // Terminal of the current token
+    private int current;
+
+    // Symbols still to parse, the end of production p standing for SYMBOLS + p
+    private int[] symbols = new int[64];
+    private int symbolCount = 0;
+
+    private Object[] values = new Object[64];
+    private int valueCount = 0;
+
+    // Where the values of the lists being parsed start
+    private int[] marks = new int[16];
+    private int markCount = 0;
+
+    private int error = 0;
+
+    // Where the error is recorded, null to have it printed once parse() is over
+    private Diagnostics diagnostics;
+
+    public TableParser(TokenBuffer tokens) {
+        this(tokens.cursor());
+    }
+
+    public TableParser(TokenCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    public Program parse() {
+        return (Program) parse(new AstActions());
+    }
+
+    /*
+        The value the actions make of the program, null after a syntax error.
+     */
+    public Object parse(Actions actions) {
+        // Unless recorded elsewhere, the error is printed once parsing is over, however it ends
+        Diagnostics own = diagnostics == null ? Diagnostics.fromProperties() : null;
+        if (own != null)
+            diagnostics = own;
+
+        try {
+            advance();
+            pushSymbol(START);
+
+            while (symbolCount > 0) {
+                int symbol = symbols[--symbolCount];
+
+                if (symbol >= SYMBOLS) {
+                    reduce(symbol - SYMBOLS, actions);
+                } else if (symbol < TERMINALS) {
+                    if (symbol != current) {
+                        error(symbol);
+                        return null;
+                    }
+                    pushValue(actions.token(cursor));
+                    advance();
+                } else {
+                    int production = predict(symbol);
+                    if (production < 0) {
+                        error(symbol);
+                        return null;
+                    }
+                    expand(production);
+                }
+            }
+
+            return values[0];
+        } finally {
+            if (own != null) {
+                diagnostics = null;
+                own.flush();
+            }
+        }
+    }
+
+    public int getErrorCount() {
+        return error;
+    }
+
+    /*
+        Have the error recorded in diagnostics rather than printed.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    private void advance() {
+        cursor.advance();
+
+        int terminal = CLASS_TERMINALS[cursor.tokenClass(0).ordinal()];
+        if (terminal == BY_DATA) {
+            String data = cursor.data();
+            terminal = NO_TERMINAL;
+            for (int t = 0; t < TERMINALS; t++) {
+                if (TERMINAL_CLASSES[t] == cursor.tokenClass(0) && data.equals(TERMINAL_DATA[t]))
+                    terminal = t;
+            }
+        }
+        current = terminal;
+    }
+
+    private int predict(int nonterminal) {
+        if (current == NO_TERMINAL)
+            return -1;
+
+        int production = TABLE[nonterminal - TERMINALS][current];
+        if (production >= -1)
+            return production;
+
+        int choice = -2 - production;
+        TokenClass[][] rows = LOOKAHEAD_CLASSES[choice];
+        for (int row = 0; row < rows.length; row++) {
+            if (matches(rows[row]))
+                return LOOKAHEAD_PRODUCTIONS[choice][row];
+        }
+        return LOOKAHEAD_DEFAULTS[choice];
+    }
+
+    private boolean matches(TokenClass[] classes) {
+        for (int i = 0; i < classes.length; i++) {
+            if (cursor.tokenClass(i + 1) != classes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void expand(int production) {
+        int action = ACTIONS[production];
+        if (action == NONE) {
+            pushValue(null);
+            return;
+        }
+
+        if (action == LIST)
+            pushMark(valueCount);
+        if (action != PASS)
+            pushSymbol(SYMBOLS + production);
+
+        int[] rhs = RHS[production];
+        for (int i = rhs.length - 1; i >= 0; i--)
+            pushSymbol(rhs[i]);
+    }
+
+    private void reduce(int production, Actions actions) {
+        int action = ACTIONS[production];
+        int from = action == LIST ? marks[--markCount] : valueCount - ARITIES[production];
+
+        Object value;
+        if (action == LIST) {
+            ArrayList<Object> list = new ArrayList<>(valueCount - from);
+            for (int i = from; i < valueCount; i++)
+                list.add(values[i]);
+            value = list;
+        } else if (action == TUPLE) {
+            value = Arrays.copyOfRange(values, from, valueCount);
+        } else {
+            value = actions.reduce(action, ALTERNATIVES[production], values, from);
+        }
+
+        Arrays.fill(values, from, valueCount, null);
+        valueCount = from;
+        pushValue(value);
+    }
+
+    private void pushSymbol(int symbol) {
+        if (symbolCount == symbols.length)
+            symbols = Arrays.copyOf(symbols, symbolCount * 2);
+        symbols[symbolCount++] = symbol;
+    }
+
+    private void pushValue(Object value) {
+        if (valueCount == values.length)
+            values = Arrays.copyOf(values, valueCount * 2);
+        values[valueCount++] = value;
+    }
+
+    private void pushMark(int mark) {
+        if (markCount == marks.length)
+            marks = Arrays.copyOf(marks, markCount * 2);
+        marks[markCount++] = mark;
+    }
+
+    /*
+        Reported as Parser does, expecting the classes of the tokens symbol can start with.
+     */
+    private void error(int symbol) {
+        Set<TokenClass> expected = new LinkedHashSet<>();
+        if (symbol < TERMINALS) {
+            expected.add(TERMINAL_CLASSES[symbol]);
+        } else {
+            for (int t = 0; t < TERMINALS; t++) {
+                if (TABLE[symbol - TERMINALS][t] != -1)
+                    expected.add(TERMINAL_CLASSES[t]);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        String sep = "";
+        for (TokenClass e : expected) {
+            sb.append(sep);
+            sb.append(e);
+            sep = "|";
+        }
+        Token token = cursor.token();
+        diagnostics.add(Diagnostics.Kind.PARSING, token.position, "expected (%s) found (%s)", sb, token);
+
+        error++;
+    }
+}
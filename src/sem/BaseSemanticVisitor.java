@@ -1,5 +1,6 @@
 package sem;
 
+import util.Diagnostics;
 
 /**
  * 
@@ -9,6 +10,9 @@ package sem;
 public abstract class BaseSemanticVisitor<T> implements SemanticVisitor<T> {
 
 	private int errors;
+
+	// Where errors are recorded rather than printed, if not null
+	private Diagnostics diagnostics;
 	
 	public BaseSemanticVisitor() {
 		errors = 0;
@@ -19,7 +23,40 @@ public abstract class BaseSemanticVisitor<T> implements SemanticVisitor<T> {
 	}
 	
 	protected void error(String message) {
-		System.err.println("semantic error: " + message);
+		print(message, diagnostics);
 		errors++;
 	}
+
+	/*
+		As error(String.format(format, args)), only formatted once printed.
+	 */
+	protected void error(String format, Object... args) {
+		if (diagnostics != null)
+			diagnostics.add(Diagnostics.Kind.SEMANTIC, format, args);
+		else
+			print(String.format(format, args));
+		errors++;
+	}
+
+	static void print(String message) {
+		System.err.println("semantic error: " + message);
+	}
+
+	static void print(String message, Diagnostics diagnostics) {
+		if (diagnostics != null)
+			diagnostics.add(Diagnostics.Kind.SEMANTIC, message);
+		else
+			print(message);
+	}
+
+	/*
+		Have the errors recorded in diagnostics rather than printed.
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	public Diagnostics getDiagnostics() {
+		return diagnostics;
+	}
 }
@@ -0,0 +1,537 @@
+package sem;
+
+import ast.*;
+import ast.expressions.*;
+import ast.statements.*;
+import ast.flat.FlatProgram;
+import ast.flat.FlatTree;
+import lexer.NameTable;
+import sem.name.NameAnalysisVisitor;
+import sem.name.Symbol;
+import sem.name.SymbolTable;
+import sem.name.symbols.FlatProcSymbol;
+import sem.name.symbols.ProcSymbol;
+import util.Diagnostics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NameAnalysisVisitor and TypeCheckVisitor in a single walk of the tree: each node has its
+ * names resolved and then its type computed. Diagnostics are the same as running the two
+ * one after the other, type errors being held back until the whole program is resolved.
+ * The few parts TypeCheckVisitor skips, the variable assigned to and the arguments of a call
+ * with the wrong number of them, only have their names resolved.
+ */
+public class FusedSemanticVisitor extends BaseSemanticVisitor<Type> {
+
+	private static final List<Op> ARITHMETIC_OPS = Arrays.asList(Op.ADD, Op.SUB, Op.MUL, Op.DIV, Op.MOD);
+
+    private final SymbolTable symbols;
+
+    // Resolves leaves and the parts left unchecked, in the same table
+    private final NameAnalysisVisitor names;
+
+    // Formats and arguments of the type errors held back
+    private final List<String> typeErrors = new ArrayList<>();
+    private final List<Object[]> typeErrorArgs = new ArrayList<>();
+
+    private Type procedureType;
+    private String procedureName;
+
+    public FusedSemanticVisitor() {
+        symbols = new SymbolTable();
+        names = new NameAnalysisVisitor(symbols);
+    }
+
+    @Override
+    public int getErrorCount() {
+        return super.getErrorCount() + names.getErrorCount();
+    }
+
+    /*
+        Reported once the program is resolved, where TypeCheckVisitor would report it.
+     */
+    private void typeError(String format, Object... args) {
+        typeErrors.add(format);
+        typeErrorArgs.add(args);
+    }
+
+    private void reportTypeErrors() {
+        for (int i = 0; i < typeErrors.size(); i++)
+            error(typeErrors.get(i), typeErrorArgs.get(i));
+        typeErrors.clear();
+        typeErrorArgs.clear();
+    }
+
+    @Override
+    public void setDiagnostics(Diagnostics diagnostics) {
+        super.setDiagnostics(diagnostics);
+        names.setDiagnostics(diagnostics);
+    }
+
+    @Override
+    public Type visitProgram(Program program) {
+        visitVarDecls(program.varDecls);
+        for (Procedure p : program.procs)
+            p.accept(this);
+        Type type = program.main.accept(this);
+
+        reportTypeErrors();
+        return type;
+    }
+
+	@Override
+	public Type visitBlock(Block b) {
+        symbols.enterScope();
+        visitVarDecls(b.varDecls);
+
+        // Returns the type of the latest statement
+        Type type = null;
+        for (Stmt stmt : b.statements)
+            type = stmt.accept(this);
+
+        symbols.leaveScope();
+        return type;
+	}
+
+    @Override
+	public Type visitProcedure(Procedure p) {
+        if (symbols.lookup(p.name) != null)
+            error("Encountered duplicate procedure definition '%s'", p.name);
+        else
+            symbols.put(new ProcSymbol(p));
+
+        procedureType = p.type;
+        procedureName = p.name;
+
+        symbols.enterScope();
+        visitVarDecls(p.params);
+        p.block.accept(this);
+        symbols.leaveScope();
+
+        procedureType = null;
+        return p.type;
+	}
+
+	@Override
+	public Type visitVarDecl(VarDecl vd) {
+        names.visitVarDecl(vd);
+
+        // Void is disallowed
+        if (vd.type == Type.VOID) typeError("Variable declaration cannot be void");
+        return null;
+	}
+
+	@Override
+	public Type visitVar(Var v) {
+        names.visitVar(v);
+
+        VarDecl varDecl = v.getVarDecl();
+        if (varDecl == null) {
+            typeError("Encountered undeclared variable %s", v.name);
+            return Type.VOID;
+        }
+        v.type = varDecl.type;
+        return v.type;
+	}
+
+	@Override
+	public Type visitFunctionCallStmt(FunCallStmt funCallStmt) {
+        Symbol symbol = resolveCall(symbols.lookup(funCallStmt.name), funCallStmt.name);
+        if (symbol != null)
+            funCallStmt.setProcedure(((ProcSymbol) symbol).procedure);
+
+        return checkCall(funCallStmt.name, funCallStmt.getProcedure(), funCallStmt.arguments, symbol != null, false);
+	}
+
+	@Override
+	public Type visitFunCallExpr(FunCallExpr funCallExpr) {
+        Symbol symbol = resolveCall(symbols.lookup(funCallExpr.name), funCallExpr.name);
+        if (symbol != null)
+            funCallExpr.setProcedure(((ProcSymbol) symbol).procedure);
+
+        return checkCall(funCallExpr.name, funCallExpr.getProcedure(), funCallExpr.arguments, symbol != null, true);
+	}
+
+    private Type checkCall(String name, Procedure definition, List<Expr> arguments, boolean resolved, boolean expression) {
+        if (definition == null) {
+            // Undeclared function call stmt
+            typeError("Function call %s is undeclared.", name);
+            return Type.VOID;
+        }
+
+        if (arguments.size() != definition.params.size()) {
+            typeError(
+                    "Function call expression '%s' requires %d arguments, not %d",
+                    name,
+                    definition.params.size(),
+                    arguments.size());
+            if (resolved) {
+                for (Expr argument : arguments)
+                    argument.accept(names);
+            }
+            // Still return the type that it should have so we can continue
+            return definition.type;
+        }
+
+        for (int i = 0; i < arguments.size(); i++) {
+            Type argType = arguments.get(i).accept(this);
+            Type defType = definition.params.get(i).type;
+
+            if (argType != defType) {
+                typeError(
+                        "Function call expression '%s' expected argument of type %s but got %s at position %d",
+                        name, defType, argType, i + 1
+                );
+            }
+        }
+
+        // Check an expression is not returning void
+        if (expression && definition.type == Type.VOID)
+            typeError("Function call expression '%s' is not allowed to return VOID", name);
+
+        return definition.type;
+    }
+
+	@Override
+	public Type visitStrLiteral(StrLiteral strLiteral) {
+		return Type.STRING;
+	}
+
+	@Override
+	public Type visitWhile(While whilez) {
+        // Expr needs to be an int
+        Type exprType = whilez.expr.accept(this);
+        if (exprType != Type.INT)
+            typeError("While (expression) needs to be of type INT. Encountered %s", exprType);
+
+        whilez.statement.accept(this);
+        return Type.INT;
+	}
+
+	@Override
+	public Type visitBinOp(BinOp binOp) {
+        Type lhs = binOp.lhs.accept(this);
+        Type rhs = binOp.rhs.accept(this);
+        checkBinOp(binOp.op, lhs, rhs);
+
+        // Let the analysis continue without null dragons
+        return Type.INT;
+	}
+
+    private void checkBinOp(Op op, Type lhs, Type rhs) {
+        // Arithmetics need ints on both sides, comparisons the same type
+        if (ARITHMETIC_OPS.contains(op)) {
+            if (lhs != Type.INT) typeError(
+                    "Invalid type found on LHS = %s. Arithmetic expression require INT types on both sides.",
+                    lhs
+            );
+
+            if (rhs != Type.INT) typeError(
+                    "Invalid type found on RHS = %s. Arithmetic expression require INT types on both sides.",
+                    lhs
+            );
+        }
+        else if (lhs != rhs) {
+            typeError("Expected BinaryOp LHS = RHS, found %s = %s.", lhs, rhs);
+        }
+    }
+
+	@Override
+	public Type visitIf(If anIf) {
+        Type condition = anIf.ifExpr.accept(this);
+        if (condition != Type.INT)
+            typeError("Condition needs to resolve to an integer. %s encountered.", condition);
+
+        anIf.ifStmt.accept(this);
+        if (anIf.hasElse()) anIf.elseStmt.accept(this);
+
+        return Type.VOID;
+	}
+
+	@Override
+	public Type visitIntLiteral(IntLiteral intLiteral) {
+		return Type.INT;
+	}
+
+	@Override
+	public Type visitChrLiteral(ChrLiteral chrLiteral) {
+		return Type.CHAR;
+	}
+
+	@Override
+	public Type visitReturn(Return aReturn) {
+        Type t = Type.VOID;
+        if (aReturn.hasReturn())
+            t = aReturn.returnz.accept(this);
+
+        checkReturn(t);
+        return t;
+	}
+
+    private void checkReturn(Type t) {
+        if (procedureType != t) typeError(
+                "Unexpected return type %s from procedure '%s'. %s required.",
+                t,
+                procedureName,
+                procedureType
+        );
+    }
+
+	@Override
+	public Type visitAssign(Assign assign) {
+        names.visitVar(assign.var);
+
+        Type type = assign.expr.accept(this);
+        Type lhsType = assign.var.getVarDecl().type;
+        if (type != lhsType)
+            typeError("Illegal assignment %s %s = %s", assign.var.type, assign.var.name, type);
+
+        return lhsType;
+	}
+
+    private void visitVarDecls(List<VarDecl> varDecls) {
+        for (VarDecl vd : varDecls)
+            vd.accept(this);
+    }
+
+    /*
+        The procedure of the name in scope, given the symbol it resolves to, reported as
+        NameAnalysisVisitor does and null if none.
+     */
+    private Symbol resolveCall(Symbol symbol, String name) {
+        if (symbol == null) {
+            error("Undeclared procedure call '%s' used.", name);
+            return null;
+        }
+        else if (!symbol.isProc()) {
+            error("Expression '%s' must be used as function call.", name);
+            return null;
+        }
+        return symbol;
+    }
+
+    /* Flat AST */
+
+    @Override
+    public Type visitProgram(FlatProgram program) {
+        // Calls to builtins resolve to their trees
+        for (int i = 0; i < program.builtinCount(); i++) {
+            FlatTree builtin = program.builtin(i);
+            symbols.put(new FlatProcSymbol(builtin, builtin.root()), names(builtin), builtin.nameId(builtin.root()));
+        }
+
+        FlatTree globals = program.globals();
+        visitAll(globals, globals.varDecls(globals.root()));
+
+        for (int i = 0; i < program.procedureCount(); i++) {
+            FlatTree procedure = program.procedure(i);
+            procedure.accept(procedure.root(), this);
+        }
+        FlatTree main = program.main();
+        Type type = main.accept(main.root(), this);
+
+        reportTypeErrors();
+        return type;
+    }
+
+    @Override
+    public Type visitBlock(FlatTree tree, int block) {
+        symbols.enterScope();
+        visitAll(tree, tree.varDecls(block));
+
+        Type type = null;
+        int statements = tree.statements(block);
+        for (int i = 0; i < tree.count(statements); i++)
+            type = tree.accept(tree.item(statements, i), this);
+
+        symbols.leaveScope();
+        return type;
+    }
+
+    @Override
+    public Type visitProcedure(FlatTree tree, int procedure) {
+        String name = tree.name(procedure);
+        if (symbols.lookup(names(tree), tree.nameId(procedure)) != null)
+            error("Encountered duplicate procedure definition '%s'", name);
+        else
+            symbols.put(new FlatProcSymbol(tree, procedure), names(tree), tree.nameId(procedure));
+
+        procedureType = tree.type(procedure);
+        procedureName = name;
+
+        symbols.enterScope();
+        visitAll(tree, tree.params(procedure));
+        tree.accept(tree.block(procedure), this);
+        symbols.leaveScope();
+
+        procedureType = null;
+        return tree.type(procedure);
+    }
+
+    @Override
+    public Type visitVarDecl(FlatTree tree, int varDecl) {
+        names.visitVarDecl(tree, varDecl);
+
+        if (tree.type(varDecl) == Type.VOID) typeError("Variable declaration cannot be void");
+        return null;
+    }
+
+    @Override
+    public Type visitVar(FlatTree tree, int var) {
+        names.visitVar(tree, var);
+
+        FlatTree declaration = tree.linkedTree(var);
+        if (declaration == null) {
+            typeError("Encountered undeclared variable %s", tree.name(var));
+            return Type.VOID;
+        }
+
+        Type type = declaration.type(tree.linkedNode(var));
+        tree.setExprType(var, type);
+        return type;
+    }
+
+    @Override
+    public Type visitFunctionCallStmt(FlatTree tree, int funCallStmt) {
+        return visitCall(tree, funCallStmt, false);
+    }
+
+    @Override
+    public Type visitFunCallExpr(FlatTree tree, int funCallExpr) {
+        return visitCall(tree, funCallExpr, true);
+    }
+
+    private Type visitCall(FlatTree tree, int call, boolean expression) {
+        String name = tree.name(call);
+        Symbol symbol = resolveCall(symbols.lookup(names(tree), tree.nameId(call)), name);
+        boolean resolved = symbol != null;
+        if (resolved) {
+            FlatProcSymbol procSymbol = (FlatProcSymbol) symbol;
+            tree.setLink(call, procSymbol.tree, procSymbol.procedure);
+        }
+
+        FlatTree definition = tree.linkedTree(call);
+        if (definition == null) {
+            typeError("Function call %s is undeclared.", name);
+            return Type.VOID;
+        }
+
+        int procedure = tree.linkedNode(call);
+        int params = definition.params(procedure);
+        int arguments = tree.arguments(call);
+
+        if (tree.count(arguments) != definition.count(params)) {
+            typeError(
+                    "Function call expression '%s' requires %d arguments, not %d",
+                    name,
+                    definition.count(params),
+                    tree.count(arguments));
+            if (resolved) {
+                for (int i = 0; i < tree.count(arguments); i++)
+                    tree.accept(tree.item(arguments, i), names);
+            }
+            return definition.type(procedure);
+        }
+
+        for (int i = 0; i < tree.count(arguments); i++) {
+            Type argType = tree.accept(tree.item(arguments, i), this);
+            Type defType = definition.type(definition.item(params, i));
+
+            if (argType != defType) {
+                typeError(
+                        "Function call expression '%s' expected argument of type %s but got %s at position %d",
+                        name, defType, argType, i + 1
+                );
+            }
+        }
+
+        // Check an expression is not returning void
+        if (expression && definition.type(procedure) == Type.VOID)
+            typeError("Function call expression '%s' is not allowed to return VOID", name);
+
+        return definition.type(procedure);
+    }
+
+    @Override
+    public Type visitStrLiteral(FlatTree tree, int strLiteral) {
+        return Type.STRING;
+    }
+
+    @Override
+    public Type visitWhile(FlatTree tree, int whilez) {
+        Type exprType = tree.accept(tree.condition(whilez), this);
+        if (exprType != Type.INT)
+            typeError("While (expression) needs to be of type INT. Encountered %s", exprType);
+
+        tree.accept(tree.body(whilez), this);
+        return Type.INT;
+    }
+
+    @Override
+    public Type visitBinOp(FlatTree tree, int binOp) {
+        Type lhs = tree.accept(tree.lhs(binOp), this);
+        Type rhs = tree.accept(tree.rhs(binOp), this);
+        checkBinOp(tree.op(binOp), lhs, rhs);
+
+        return Type.INT;
+    }
+
+    @Override
+    public Type visitIf(FlatTree tree, int anIf) {
+        Type condition = tree.accept(tree.condition(anIf), this);
+        if (condition != Type.INT)
+            typeError("Condition needs to resolve to an integer. %s encountered.", condition);
+
+        tree.accept(tree.thenStmt(anIf), this);
+        if (tree.elseStmt(anIf) != FlatTree.NONE) tree.accept(tree.elseStmt(anIf), this);
+
+        return Type.VOID;
+    }
+
+    @Override
+    public Type visitIntLiteral(FlatTree tree, int intLiteral) {
+        return Type.INT;
+    }
+
+    @Override
+    public Type visitChrLiteral(FlatTree tree, int chrLiteral) {
+        return Type.CHAR;
+    }
+
+    @Override
+    public Type visitReturn(FlatTree tree, int aReturn) {
+        Type t = Type.VOID;
+        if (tree.expr(aReturn) != FlatTree.NONE)
+            t = tree.accept(tree.expr(aReturn), this);
+
+        checkReturn(t);
+        return t;
+    }
+
+    @Override
+    public Type visitAssign(FlatTree tree, int assign) {
+        int var = tree.var(assign);
+        names.visitVar(tree, var);
+
+        Type type = tree.accept(tree.expr(assign), this);
+
+        FlatTree declaration = tree.linkedTree(var);
+        Type lhsType = declaration == null ? null : declaration.type(tree.linkedNode(var));
+        if (type != lhsType)
+            typeError("Illegal assignment %s %s = %s", tree.exprType(var), tree.name(var), type);
+
+        return lhsType;
+    }
+
+    private void visitAll(FlatTree tree, int list) {
+        for (int i = 0; i < tree.count(list); i++)
+            tree.accept(tree.item(list, i), this);
+    }
+
+    private static NameTable names(FlatTree tree) {
+        return tree.getProgram().getNames();
+    }
+}
@@ -0,0 +1,264 @@
+package sem;
+
+import ast.Procedure;
+import ast.Program;
+import ast.VarDecl;
+import ast.expressions.FunCallExpr;
+import ast.expressions.Var;
+import ast.statements.FunCallStmt;
+import sem.name.NameAnalysisVisitor;
+import sem.name.Symbol;
+import sem.name.SymbolTable;
+import sem.name.symbols.ProcSymbol;
+import sem.name.symbols.VarSymbol;
+import sem.type.TypeCheckVisitor;
+import util.Diagnostics;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Semantic analysis of the programs IncrementalParser parses edit after edit, where a procedure
+ * left as it was is the same object as before.
+ *
+ * Analysing a procedure records what it depends on: each global, builtin or procedure it looks
+ * up in the global scope, the nodes it linked to them, and whether its own name was taken. When
+ * the same procedure comes again, its dependencies are looked up again where it is declared. If
+ * they resolve to the same declarations, or to new ones of the same signature whose nodes are
+ * linked to them instead, its errors are the ones recorded and it is not visited again.
+ * Otherwise, as for a new procedure, its names are resolved and its types checked again.
+ *
+ * The globals are always analysed again. Errors, their messages and their order are those of
+ * the sequential analysis, all name errors first and then all type errors.
+ */
+class IncrementalAnalysis implements NameAnalysisVisitor.GlobalLookups {
+
+    private Map<Procedure, Analysis> analyses = new IdentityHashMap<>();
+    private List<Procedure> revisited = new ArrayList<>();
+
+    // Being recorded
+    private Analysis current;
+
+    /*
+        What the analysis of a procedure found and relied on.
+     */
+    private static class Analysis {
+        final Diagnostics nameErrors = new Diagnostics();
+        final Diagnostics typeErrors = new Diagnostics();
+
+        // Whether its name was taken when it was declared
+        boolean duplicate;
+
+        // By name what it resolved to in the global scope
+        final Map<String, Dependency> dependencies = new LinkedHashMap<>();
+    }
+
+    private static class Dependency {
+        // VarDecl or Procedure, null if the name was not declared
+        Object declaration;
+        final List<Object> nodes = new ArrayList<>();
+
+        Dependency(Object declaration) {
+            this.declaration = declaration;
+        }
+    }
+
+    /*
+        Analyses the program, recording its errors in diagnostics. Returns their number.
+     */
+    int analyze(Program program, Diagnostics diagnostics) {
+        SymbolTable symbols = new SymbolTable();
+        NameAnalysisVisitor names = new NameAnalysisVisitor(symbols);
+        names.setDiagnostics(diagnostics);
+        names.setGlobalLookups(this);
+
+        // Recorded after all the name errors
+        Diagnostics typeErrors = new Diagnostics(diagnostics.getLimit());
+        TypeCheckVisitor types = new TypeCheckVisitor();
+        types.setDiagnostics(typeErrors);
+        for (VarDecl varDecl : program.varDecls) {
+            varDecl.accept(names);
+            varDecl.accept(types);
+        }
+
+        int errors = names.getErrorCount() + types.getErrorCount();
+
+        List<Procedure> procedures = new ArrayList<>(program.procs);
+        procedures.add(program.main);
+
+        Map<Procedure, Analysis> previous = analyses;
+        analyses = new IdentityHashMap<>();
+        revisited = new ArrayList<>();
+
+        for (Procedure procedure : procedures) {
+            Analysis analysis = previous.get(procedure);
+            if (analysis != null && !reuse(analysis, procedure, symbols)) {
+                // As parsed afresh, name analysis only links what resolves
+                for (Dependency dependency : analysis.dependencies.values())
+                    relink(dependency, null);
+                analysis = null;
+            }
+            if (analysis == null)
+                analysis = visit(procedure, names);
+
+            analyses.put(procedure, analysis);
+            diagnostics.addAll(analysis.nameErrors);
+            typeErrors.addAll(analysis.typeErrors);
+            errors += analysis.nameErrors.getCount(Diagnostics.Kind.SEMANTIC) + analysis.typeErrors.getCount(Diagnostics.Kind.SEMANTIC);
+        }
+
+        diagnostics.addAll(typeErrors);
+        return errors;
+    }
+
+    /*
+        The procedures visited by the last analysis, the others reusing what was recorded.
+     */
+    List<Procedure> getRevisited() {
+        return revisited;
+    }
+
+    /*
+        The procedures p calls, builtins included, as of the last analysis.
+     */
+    Set<Procedure> callees(Procedure p) {
+        Set<Procedure> callees = new LinkedHashSet<>();
+        for (Dependency dependency : analyses.get(p).dependencies.values()) {
+            if (dependency.declaration instanceof Procedure)
+                callees.add((Procedure) dependency.declaration);
+        }
+        return callees;
+    }
+
+    /*
+        The global variables p reads or assigns, as of the last analysis.
+     */
+    Set<VarDecl> globals(Procedure p) {
+        Set<VarDecl> globals = new LinkedHashSet<>();
+        for (Dependency dependency : analyses.get(p).dependencies.values()) {
+            if (dependency.declaration instanceof VarDecl)
+                globals.add((VarDecl) dependency.declaration);
+        }
+        return globals;
+    }
+
+    private Analysis visit(Procedure procedure, NameAnalysisVisitor names) {
+        revisited.add(procedure);
+
+        // Kept whole, the limit may be another one next time
+        current = new Analysis();
+        names.setDiagnostics(current.nameErrors);
+        procedure.accept(names);
+
+        TypeCheckVisitor types = new TypeCheckVisitor();
+        types.setDiagnostics(current.typeErrors);
+        procedure.accept(types);
+
+        Analysis analysis = current;
+        current = null;
+        return analysis;
+    }
+
+    @Override
+    public void lookedUp(String name, Symbol symbol, Object node) {
+        if (node instanceof Procedure) {
+            current.duplicate = symbol != null;
+            return;
+        }
+
+        Dependency dependency = current.dependencies.get(name);
+        if (dependency == null) {
+            dependency = new Dependency(declaration(symbol));
+            current.dependencies.put(name, dependency);
+        }
+        dependency.nodes.add(node);
+    }
+
+    /*
+        Whether what the procedure relied on still holds where it is declared now, declaring it
+        and linking its nodes to the declarations they now resolve to if so.
+     */
+    private boolean reuse(Analysis analysis, Procedure procedure, SymbolTable symbols) {
+        boolean duplicate = symbols.lookup(procedure.name) != null;
+        if (duplicate != analysis.duplicate)
+            return false;
+
+        List<Dependency> moved = new ArrayList<>();
+        List<Object> declarations = new ArrayList<>();
+        for (Map.Entry<String, Dependency> entry : analysis.dependencies.entrySet()) {
+            Dependency dependency = entry.getValue();
+
+            // In its body the procedure's own name is the procedure, unless it was taken
+            Object declaration = entry.getKey().equals(procedure.name) && !duplicate
+                    ? procedure
+                    : declaration(symbols.lookup(entry.getKey()));
+
+            if (declaration == dependency.declaration)
+                continue;
+            if (!sameSignature(declaration, dependency.declaration))
+                return false;
+
+            moved.add(dependency);
+            declarations.add(declaration);
+        }
+
+        for (int i = 0; i < moved.size(); i++)
+            relink(moved.get(i), declarations.get(i));
+
+        if (!duplicate)
+            symbols.put(new ProcSymbol(procedure));
+        return true;
+    }
+
+    /*
+        Links the nodes name analysis linked to the declaration, or unlinks them all if null. A
+        variable used as a procedure or the other way round is left unlinked.
+     */
+    private static void relink(Dependency dependency, Object declaration) {
+        dependency.declaration = declaration;
+        for (Object node : dependency.nodes) {
+            if (node instanceof Var && (declaration == null || declaration instanceof VarDecl))
+                ((Var) node).setVarDecl((VarDecl) declaration);
+            else if (node instanceof FunCallStmt && (declaration == null || declaration instanceof Procedure))
+                ((FunCallStmt) node).setProcedure((Procedure) declaration);
+            else if (node instanceof FunCallExpr && (declaration == null || declaration instanceof Procedure))
+                ((FunCallExpr) node).setProcedure((Procedure) declaration);
+        }
+    }
+
+    /*
+        Whether resolving to b instead of a leaves the messages and types of the analysis as they
+        were: the same type for a variable, the same types returned and taken for a procedure.
+     */
+    private static boolean sameSignature(Object a, Object b) {
+        if (a instanceof VarDecl && b instanceof VarDecl)
+            return ((VarDecl) a).type == ((VarDecl) b).type;
+
+        if (a instanceof Procedure && b instanceof Procedure) {
+            Procedure p = (Procedure) a;
+            Procedure q = (Procedure) b;
+            if (p.type != q.type || p.params.size() != q.params.size())
+                return false;
+            for (int i = 0; i < p.params.size(); i++) {
+                if (p.params.get(i).type != q.params.get(i).type)
+                    return false;
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private static Object declaration(Symbol symbol) {
+        if (symbol instanceof VarSymbol)
+            return ((VarSymbol) symbol).varDecl;
+        if (symbol instanceof ProcSymbol)
+            return ((ProcSymbol) symbol).procedure;
+        return null;
+    }
+}
@@ -1,29 +1,256 @@
 package sem;
 
+import ast.Procedure;
 import ast.Program;
+import ast.VarDecl;
+import ast.flat.FlatProgram;
+import ast.flat.FlatTree;
 import sem.name.NameAnalysisVisitor;
+import sem.name.SymbolTable;
 import sem.type.TypeCheckVisitor;
+import util.Diagnostics;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SemanticAnalyzer {
-	
+
+    /*
+        SEQUENTIAL resolves names and then checks types in a second walk of the tree. FUSED does
+        both in one walk. PARALLEL resolves names as SEQUENTIAL does, then checks the type of each
+        procedure body on a ForkJoin pool, a TypeCheckVisitor each, once the names resolved have
+        made every global and signature known. INCREMENTAL analyses again only the procedures
+        that changed since the last program analysed, or whose dependencies did, see
+        IncrementalAnalysis; flat programs it analyses as SEQUENTIAL does. Errors, their
+        messages and their order are the same in every mode.
+     */
+    public enum Mode {
+        SEQUENTIAL,
+        FUSED,
+        PARALLEL,
+        INCREMENTAL
+    }
+
+    // Fewer procedures than this are not worth the pool
+    private static final int MIN_PARALLEL_PROCEDURES = 8;
+
+    private static ForkJoinPool sharedPool;
+
+	private final Mode mode;
+	private final ForkJoinPool pool;
+
+	// What the analyses so far recorded, in INCREMENTAL mode
+	private final IncrementalAnalysis incremental = new IncrementalAnalysis();
+
+	// Where errors are recorded, null to have them printed once an analysis is over
+	private Diagnostics diagnostics;
+
+	public SemanticAnalyzer() {
+		this(Mode.SEQUENTIAL);
+	}
+
+	public SemanticAnalyzer(Mode mode) {
+		this(mode, mode == Mode.PARALLEL ? sharedPool() : null);
+	}
+
+	public SemanticAnalyzer(Mode mode, ForkJoinPool pool) {
+		this.mode = mode;
+		this.pool = pool;
+	}
+
+	/*
+		Have the errors recorded in diagnostics rather than printed as they come.
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool();
+        return sharedPool;
+    }
+
 	public int analyze(Program prog) {
-		// List of visitors
-		ArrayList<SemanticVisitor> visitors = new ArrayList<SemanticVisitor>() {{
-			add(new NameAnalysisVisitor());
-			add(new TypeCheckVisitor());
-		}};
-		// Error accumulator
-		int errors = 0;
-		
-		// Apply each visitor to the AST
-		for (SemanticVisitor v : visitors) {
-			prog.accept(v);
-			errors += v.getErrorCount();
+		Diagnostics own = ownDiagnostics();
+		try {
+			if (mode == Mode.PARALLEL)
+				return analyzeInParallel(prog);
+			if (mode == Mode.INCREMENTAL)
+				return incremental.analyze(prog, diagnostics);
+
+			// Error accumulator
+			int errors = 0;
+
+			// Apply each visitor to the AST
+			for (SemanticVisitor<?> v : visitors(new SymbolTable())) {
+				prog.accept(v);
+				errors += v.getErrorCount();
+			}
+
+			// Return the number of errors.
+			return errors;
+		} finally {
+			flush(own);
+		}
+	}
+
+	public int analyze(FlatProgram prog) {
+		Diagnostics own = ownDiagnostics();
+		try {
+			if (mode == Mode.PARALLEL)
+				return analyzeInParallel(prog);
+
+			int errors = 0;
+
+			// Names are resolved by the ids the program has them by
+			for (SemanticVisitor<?> v : visitors(new SymbolTable(prog.getNames()))) {
+				prog.accept(v);
+				errors += v.getErrorCount();
+			}
+
+			return errors;
+		} finally {
+			flush(own);
 		}
-		
-		// Return the number of errors.
-		return errors;
 	}
+
+	/*
+		Diagnostics of this analysis' own if none were set, errors then being printed
+		together once it is over, however it ends.
+	 */
+	private Diagnostics ownDiagnostics() {
+		if (diagnostics != null)
+			return null;
+		diagnostics = Diagnostics.fromProperties();
+		return diagnostics;
+	}
+
+	private void flush(Diagnostics own) {
+		if (own == null)
+			return;
+		diagnostics = null;
+		own.flush();
+	}
+
+	private ArrayList<BaseSemanticVisitor<?>> visitors(SymbolTable symbols) {
+		ArrayList<BaseSemanticVisitor<?>> visitors = new ArrayList<>();
+		if (mode == Mode.FUSED) {
+			visitors.add(new FusedSemanticVisitor());
+		} else {
+			visitors.add(new NameAnalysisVisitor(symbols));
+			visitors.add(new TypeCheckVisitor());
+		}
+
+		for (BaseSemanticVisitor<?> v : visitors)
+			v.setDiagnostics(diagnostics);
+		return visitors;
+	}
+
+    /*
+        The procedures the last INCREMENTAL analysis visited, the others were left as they were.
+     */
+    public List<Procedure> getRevisited() {
+        return incremental.getRevisited();
+    }
+
+    IncrementalAnalysis getIncrementalAnalysis() {
+        return incremental;
+    }
+
+    private int analyzeInParallel(Program prog) {
+        NameAnalysisVisitor names = new NameAnalysisVisitor();
+        names.setDiagnostics(diagnostics);
+        prog.accept(names);
+        int errors = names.getErrorCount();
+
+        TypeCheckVisitor globals = new TypeCheckVisitor();
+        globals.setDiagnostics(diagnostics);
+        for (VarDecl varDecl : prog.varDecls)
+            varDecl.accept(globals);
+        errors += globals.getErrorCount();
+
+        List<ProcedureCheck> checks = new ArrayList<>();
+        for (Procedure procedure : prog.procs)
+            checks.add(new ProcedureCheck(procedure, null, diagnostics.getLimit()));
+        checks.add(new ProcedureCheck(prog.main, null, diagnostics.getLimit()));
+
+        return errors + check(checks);
+    }
+
+    private int analyzeInParallel(FlatProgram prog) {
+        NameAnalysisVisitor names = new NameAnalysisVisitor(new SymbolTable(prog.getNames()));
+        names.setDiagnostics(diagnostics);
+        prog.accept(names);
+        int errors = names.getErrorCount();
+
+        TypeCheckVisitor globals = new TypeCheckVisitor();
+        globals.setDiagnostics(diagnostics);
+        FlatTree tree = prog.globals();
+        int varDecls = tree.varDecls(tree.root());
+        for (int i = 0; i < tree.count(varDecls); i++)
+            tree.accept(tree.item(varDecls, i), globals);
+        errors += globals.getErrorCount();
+
+        List<ProcedureCheck> checks = new ArrayList<>();
+        for (int i = 0; i < prog.procedureCount(); i++)
+            checks.add(new ProcedureCheck(null, prog.procedure(i), diagnostics.getLimit()));
+        checks.add(new ProcedureCheck(null, prog.main(), diagnostics.getLimit()));
+
+        return errors + check(checks);
+    }
+
+    /*
+        Runs the checks and records their errors in the order of the checks.
+     */
+    private int check(final List<ProcedureCheck> checks) {
+        if (checks.size() < MIN_PARALLEL_PROCEDURES || pool.getParallelism() == 1) {
+            for (ProcedureCheck check : checks)
+                check.compute();
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(checks);
+                }
+            });
+        }
+
+        int errors = 0;
+        for (ProcedureCheck check : checks) {
+            diagnostics.addAll(check.diagnostics);
+            errors += check.visitor.getErrorCount();
+        }
+        return errors;
+    }
+
+    /*
+        Type check of one procedure, of the AST or of a flat tree, its errors recorded apart.
+     */
+    private static class ProcedureCheck extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Procedure procedure;
+        private final FlatTree tree;
+        private final TypeCheckVisitor visitor = new TypeCheckVisitor();
+        private final Diagnostics diagnostics;
+
+        ProcedureCheck(Procedure procedure, FlatTree tree, int limit) {
+            this.procedure = procedure;
+            this.tree = tree;
+            this.diagnostics = new Diagnostics(limit);
+            visitor.setDiagnostics(diagnostics);
+        }
+
+        @Override
+        protected void compute() {
+            if (procedure != null)
+                procedure.accept(visitor);
+            else
+                tree.accept(tree.root(), visitor);
+        }
+    }
 }
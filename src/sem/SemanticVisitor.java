@@ -4,8 +4,9 @@ package sem;
  * @author dhil
  * An interface for semantic visitors.
  * Exposes a method for extracting the number of errors encountered during an AST traversal.
+ * Semantic visitors run over flat ASTs too, see ast.flat.FlatProgram.
  */
-public interface SemanticVisitor<T> extends ast.ASTVisitor<T> {
+public interface SemanticVisitor<T> extends ast.ASTVisitor<T>, ast.flat.FlatVisitor<T> {
 	/**
 	 * Returns a count of errors determined by the visitor during a single AST traversal.
 	 * @return number of errors
@@ -3,7 +3,12 @@ package sem.name;
 import ast.*;
 import ast.expressions.*;
 import ast.statements.*;
+import ast.flat.FlatProgram;
+import ast.flat.FlatTree;
+import lexer.NameTable;
 import sem.BaseSemanticVisitor;
+import sem.name.symbols.FlatProcSymbol;
+import sem.name.symbols.FlatVarSymbol;
 import sem.name.symbols.ProcSymbol;
 import sem.name.symbols.VarSymbol;
 
@@ -11,16 +16,44 @@ import java.util.List;
 
 public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 
-	private Scope scope;
+	private SymbolTable symbols;
 
+    /*
+        Told of every name looked up that resolves to a global or builtin, or to nothing, with the
+        node it was looked up for: a Var, a call, or a Procedure checking its name is not taken.
+     */
+    public interface GlobalLookups {
+        void lookedUp(String name, Symbol symbol, Object node);
+    }
+
+    private GlobalLookups globalLookups;
+
+	/*
+		Kept for the Scope API the tests build on, the analyses themselves start from a SymbolTable.
+	 */
 	public NameAnalysisVisitor(Scope scope) {
-		this.scope = scope;
+		this.symbols = scope.getTable();
 	}
 
 	public NameAnalysisVisitor() {
-		this.scope = new Scope();
+		this.symbols = new SymbolTable();
 	}
 
+	public NameAnalysisVisitor(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
+
+    public void setGlobalLookups(GlobalLookups globalLookups) {
+        this.globalLookups = globalLookups;
+    }
+
+    private Symbol lookup(String name, Object node) {
+        Symbol symbol = symbols.lookup(name);
+        if (globalLookups != null && (symbol == null || symbols.level(name) == 0))
+            globalLookups.lookedUp(name, symbol, node);
+        return symbol;
+    }
+
     @Override
     public Void visitProgram(Program program) {
 
@@ -36,13 +69,10 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 
 	@Override
 	public Void visitBlock(Block b) {
-		Scope oldScope = scope;
-
-        scope = new Scope(oldScope);
+        symbols.enterScope();
         visitVarDecls(b.varDecls);
         visitStatements(b.statements);
-
-        scope = oldScope;
+        symbols.leaveScope();
 
 		return null;
 	}
@@ -50,50 +80,48 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
     @Override
 	public Void visitProcedure(Procedure p) {
 
-        Symbol symbol = scope.lookup(p.name);
+        Symbol symbol = lookup(p.name, p);
 
         if (symbol != null)
-            error(String.format("Encountered duplicate procedure definition '%s'", p.name));
+            error("Encountered duplicate procedure definition '%s'", p.name);
         else {
             symbol = new ProcSymbol(p);
-            scope.put(symbol);
+            symbols.put(symbol);
         }
 
-        Scope oldScope = scope;
-
         // process method contents
-        scope = new Scope(oldScope);
+        symbols.enterScope();
         visitVarDecls(p.params);
         p.block.accept(this);
 
         // Return to proper scope
-        scope = oldScope;
+        symbols.leaveScope();
 
 		return null;
 	}
 
 	@Override
 	public Void visitVarDecl(VarDecl vd) {
-        Symbol symbol = scope.lookupCurrent(vd.var.name);
+        Symbol symbol = symbols.lookupCurrent(vd.var.name);
 
         if (symbol != null)
-            error(String.format("Encountered duplicate declaration of %s", vd.var));
+            error("Encountered duplicate declaration of %s", vd.var);
         else
-            scope.put(new VarSymbol(vd));
+            symbols.put(new VarSymbol(vd));
 
 		return null;
 	}
 
 	@Override
 	public Void visitVar(Var v) {
-        Symbol symbol = scope.lookup(v.name);
+        Symbol symbol = lookup(v.name, v);
 
         // Symbol must be in the table
         if (symbol == null) {
-            error(String.format("Attempted to use an undeclared variable %s", v.name));
+            error("Attempted to use an undeclared variable %s", v.name);
         }
         else if (!symbol.isVar()) {
-            error(String.format("Attempted to use %s as a variable.", v.name));
+            error("Attempted to use %s as a variable.", v.name);
         }
         else {
             VarSymbol varSymbol = (VarSymbol) symbol;
@@ -106,14 +134,14 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 	@Override
 	public Void visitFunctionCallStmt(FunCallStmt funCallStmt) {
         // Check name is defined
-        Symbol symbol = scope.lookup(funCallStmt.name);
+        Symbol symbol = lookup(funCallStmt.name, funCallStmt);
 
         if (symbol == null) {
-            error(String.format("Undeclared procedure call '%s' used.", funCallStmt.name));
+            error("Undeclared procedure call '%s' used.", funCallStmt.name);
             return null;
         }
         else if (!symbol.isProc()) {
-            error(String.format("Expression '%s' must be used as function call.", funCallStmt.name));
+            error("Expression '%s' must be used as function call.", funCallStmt.name);
             return null;
         }
 
@@ -184,14 +212,14 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 	@Override
 	public Void visitFunCallExpr(FunCallExpr funCallExpr) {
         // Check name is defined
-        Symbol symbol = scope.lookup(funCallExpr.name);
+        Symbol symbol = lookup(funCallExpr.name, funCallExpr);
 
         if (symbol == null) {
-            error(String.format("Undeclared procedure call '%s' used.", funCallExpr.name));
+            error("Undeclared procedure call '%s' used.", funCallExpr.name);
             return null;
         }
         else if (!symbol.isProc()) {
-            error(String.format("Expression '%s' must be used as function call.", funCallExpr.name));
+            error("Expression '%s' must be used as function call.", funCallExpr.name);
             return null;
         }
 
@@ -215,4 +243,179 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
             stmt.accept(this);
     }
 
+    /* Flat AST */
+
+    @Override
+    public Void visitProgram(FlatProgram program) {
+        // Calls to builtins resolve to their trees
+        for (int i = 0; i < program.builtinCount(); i++) {
+            FlatTree builtin = program.builtin(i);
+            symbols.put(new FlatProcSymbol(builtin, builtin.root()), names(builtin), builtin.nameId(builtin.root()));
+        }
+
+        FlatTree globals = program.globals();
+        visitAll(globals, globals.varDecls(globals.root()));
+
+        for (int i = 0; i < program.procedureCount(); i++) {
+            FlatTree procedure = program.procedure(i);
+            procedure.accept(procedure.root(), this);
+        }
+        FlatTree main = program.main();
+        main.accept(main.root(), this);
+
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(FlatTree tree, int block) {
+        symbols.enterScope();
+        visitAll(tree, tree.varDecls(block));
+        visitAll(tree, tree.statements(block));
+        symbols.leaveScope();
+
+        return null;
+    }
+
+    @Override
+    public Void visitProcedure(FlatTree tree, int procedure) {
+        Symbol symbol = lookup(tree, procedure);
+
+        if (symbol != null)
+            error("Encountered duplicate procedure definition '%s'", tree.name(procedure));
+        else
+            symbols.put(new FlatProcSymbol(tree, procedure), names(tree), tree.nameId(procedure));
+
+        symbols.enterScope();
+        visitAll(tree, tree.params(procedure));
+        tree.accept(tree.block(procedure), this);
+        symbols.leaveScope();
+
+        return null;
+    }
+
+    @Override
+    public Void visitVarDecl(FlatTree tree, int varDecl) {
+        Symbol symbol = symbols.lookupCurrent(names(tree), tree.nameId(varDecl));
+
+        if (symbol != null)
+            error("Encountered duplicate declaration of Var(%s)", tree.name(varDecl));
+        else
+            symbols.put(new FlatVarSymbol(tree, varDecl), names(tree), tree.nameId(varDecl));
+
+        return null;
+    }
+
+    @Override
+    public Void visitVar(FlatTree tree, int var) {
+        Symbol symbol = lookup(tree, var);
+
+        if (symbol == null) {
+            error("Attempted to use an undeclared variable %s", tree.name(var));
+        }
+        else if (!symbol.isVar()) {
+            error("Attempted to use %s as a variable.", tree.name(var));
+        }
+        else {
+            FlatVarSymbol varSymbol = (FlatVarSymbol) symbol;
+            tree.setLink(var, varSymbol.tree, varSymbol.varDecl);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionCallStmt(FlatTree tree, int funCallStmt) {
+        return visitCall(tree, funCallStmt);
+    }
+
+    @Override
+    public Void visitFunCallExpr(FlatTree tree, int funCallExpr) {
+        return visitCall(tree, funCallExpr);
+    }
+
+    private Void visitCall(FlatTree tree, int call) {
+        Symbol symbol = lookup(tree, call);
+
+        if (symbol == null) {
+            error("Undeclared procedure call '%s' used.", tree.name(call));
+            return null;
+        }
+        else if (!symbol.isProc()) {
+            error("Expression '%s' must be used as function call.", tree.name(call));
+            return null;
+        }
+
+        FlatProcSymbol procSymbol = (FlatProcSymbol) symbol;
+        tree.setLink(call, procSymbol.tree, procSymbol.procedure);
+
+        visitAll(tree, tree.arguments(call));
+
+        return null;
+    }
+
+    @Override
+    public Void visitStrLiteral(FlatTree tree, int strLiteral) {
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(FlatTree tree, int whilez) {
+        tree.accept(tree.condition(whilez), this);
+        tree.accept(tree.body(whilez), this);
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(FlatTree tree, int binOp) {
+        tree.accept(tree.lhs(binOp), this);
+        tree.accept(tree.rhs(binOp), this);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(FlatTree tree, int anIf) {
+        tree.accept(tree.condition(anIf), this);
+        tree.accept(tree.thenStmt(anIf), this);
+        if (tree.elseStmt(anIf) != FlatTree.NONE) tree.accept(tree.elseStmt(anIf), this);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(FlatTree tree, int intLiteral) {
+        return null;
+    }
+
+    @Override
+    public Void visitChrLiteral(FlatTree tree, int chrLiteral) {
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(FlatTree tree, int aReturn) {
+        if (tree.expr(aReturn) != FlatTree.NONE) tree.accept(tree.expr(aReturn), this);
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(FlatTree tree, int assign) {
+        tree.accept(tree.var(assign), this);
+        tree.accept(tree.expr(assign), this);
+        return null;
+    }
+
+    private void visitAll(FlatTree tree, int list) {
+        for (int i = 0; i < tree.count(list); i++)
+            tree.accept(tree.item(list, i), this);
+    }
+
+    /*
+        Symbol of the name of the node, looked up by its id in the names of the tree's program.
+     */
+    private Symbol lookup(FlatTree tree, int node) {
+        return symbols.lookup(names(tree), tree.nameId(node));
+    }
+
+    private static NameTable names(FlatTree tree) {
+        return tree.getProgram().getNames();
+    }
 }
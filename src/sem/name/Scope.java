@@ -1,57 +1,98 @@
 package sem.name;
 
-import ast.Procedure;
-import sem.name.symbols.ProcSymbol;
-
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * One level of a SymbolTable. Scope() starts a table at its global level, Scope(outer) enters
+ * a level of its own inside outer. A scope is open until it is closed, or replaced by another
+ * scope made inside the same outer one: its level is then left, dropping the symbols declared
+ * in it and in the scopes inside it, and using it again is an error.
+ */
 public class Scope {
 
 	private Scope outer;
-    private Map<String, Symbol> symbolTable;
+    private SymbolTable table;
+    private int level;
+
+    // The open scope made inside this one, if any
+    private Scope inner;
+    private boolean closed;
+
 
-	
-	public Scope(Scope outer) { 
+	public Scope(Scope outer) {
 		this.outer = outer;
-        symbolTable = new HashMap<>();
 
         // top level
         if (outer == null) {
-            initBuiltIns();
+            table = new SymbolTable();
+            level = 0;
+        } else {
+            outer.checkOpen();
+            table = outer.table;
+
+            // A sibling scope is replaced, the levels inside outer are left
+            if (outer.inner != null)
+                outer.inner.close();
+            while (table.depth() > outer.level)
+                table.leaveScope();
+
+            table.enterScope();
+            level = table.depth();
+            outer.inner = this;
         }
 	}
 
-    private void initBuiltIns() {
-        symbolTable.put("print_i", new ProcSymbol(Procedure.PRINT_I));
-        symbolTable.put("print_s", new ProcSymbol(Procedure.PRINT_S));
-        symbolTable.put("print_c", new ProcSymbol(Procedure.PRINT_C));
-        symbolTable.put("read_i", new ProcSymbol(Procedure.READ_I));
-        symbolTable.put("read_c", new ProcSymbol(Procedure.READ_C));
-    }
-	
 	public Scope() { this(null); }
-	
-	public Symbol lookup(String name) {
-		Symbol current = lookupCurrent(name);
 
-        if (current == null && outer != null) {
-            return outer.lookup(name);
-        }
-
-        return current;
+	public Symbol lookup(String name) {
+		checkOpen();
+		return table.lookup(name, level);
 	}
-	
+
 	public Symbol lookupCurrent(String name) {
-		return symbolTable.get(name);
+		checkOpen();
+		return table.lookupCurrent(name, level);
 	}
-	
+
 	public void put(Symbol sym) {
-		symbolTable.put(sym.name, sym);
+		checkOpen();
+		table.put(sym, level);
 	}
 
+    /*
+        Leaves the level of this scope and of the scopes inside it. The global scope keeps its
+        level, the table it started being left as it is.
+     */
+    public void close() {
+        if (closed)
+            return;
+
+        if (inner != null)
+            inner.close();
+        if (level > 0) {
+            while (table.depth() >= level)
+                table.leaveScope();
+        }
+        if (outer != null && outer.inner == this)
+            outer.inner = null;
+        closed = true;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("Scope already left");
+    }
+
+    /*
+        A copy of the symbols declared in this scope.
+     */
     public Map<String, Symbol> getSymbolTable() {
-        return symbolTable;
+        checkOpen();
+        return table.symbols(level);
+    }
+
+    public SymbolTable getTable() {
+        return table;
     }
 
     public Scope getOuter() {
@@ -60,6 +101,6 @@ public class Scope {
 
     @Override
     public String toString() {
-        return "Scope(" + outer + ", " + symbolTable +  ")";
+        return "Scope(" + outer + ", " + (closed ? "closed" : table.symbols(level)) +  ")";
     }
 }
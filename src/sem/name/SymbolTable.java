@@ -0,0 +1,272 @@
+package sem.name;
+
+import ast.Procedure;
+import lexer.NameTable;
+import sem.name.symbols.ProcSymbol;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The symbols of a whole compilation in one flat table. Each name, by its id in a NameTable,
+ * has a stack of bindings with the innermost on top, and each scope level an undo log of the
+ * bindings declared in it. Entering a scope allocates nothing, leaving it pops the bindings
+ * in its log. Looking a name up by its id in the table's NameTable, that of the compilation
+ * if given, is an array index; by its id in another NameTable it is an index too once the
+ * name has been mapped; by a String it is one probe of the NameTable, hashing the name.
+ * Level 0 is the global scope, holding the builtins.
+ */
+public class SymbolTable {
+
+    private static final int NONE = -1;
+
+    private final NameTable names;
+
+    // Ids in names of the ids of another table looked up by, NONE where not mapped yet
+    private NameTable foreign;
+    private int[] foreignIds = new int[0];
+
+    // By name id the binding on top of its stack
+    private int[] heads = new int[64];
+
+    // Bindings, each linked to the one it shadows. Free ones are linked from free.
+    private Symbol[] symbols = new Symbol[64];
+    private int[] ids = new int[64];
+    private int[] levels = new int[64];
+    private int[] shadowed = new int[64];
+    private int size = 0;
+    private int free = NONE;
+
+    // By level the bindings declared in it
+    private int[][] logs = new int[8][];
+    private int[] logSizes = new int[8];
+    private int depth = 0;
+
+    public SymbolTable() {
+        this(new NameTable());
+    }
+
+    /*
+        Table keyed by the ids of names, e.g. those the lexer interned for the compilation.
+     */
+    public SymbolTable(NameTable names) {
+        this.names = names;
+        Arrays.fill(heads, NONE);
+        logs[0] = new int[16];
+
+        put(new ProcSymbol(Procedure.PRINT_I));
+        put(new ProcSymbol(Procedure.PRINT_S));
+        put(new ProcSymbol(Procedure.PRINT_C));
+        put(new ProcSymbol(Procedure.READ_I));
+        put(new ProcSymbol(Procedure.READ_C));
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public void enterScope() {
+        depth++;
+        if (depth == logs.length) {
+            logs = Arrays.copyOf(logs, depth * 2);
+            logSizes = Arrays.copyOf(logSizes, depth * 2);
+        }
+        if (logs[depth] == null)
+            logs[depth] = new int[16];
+    }
+
+    /*
+        Drops the bindings of the innermost scope, uncovering those they shadowed.
+     */
+    public void leaveScope() {
+        if (depth == 0)
+            throw new IllegalStateException("Cannot leave the global scope");
+
+        int[] log = logs[depth];
+        for (int i = logSizes[depth] - 1; i >= 0; i--) {
+            int binding = log[i];
+            heads[ids[binding]] = shadowed[binding];
+            release(binding);
+        }
+        logSizes[depth] = 0;
+        depth--;
+    }
+
+    /*
+        The innermost symbol of the name, null if none is in scope.
+     */
+    public Symbol lookup(String name) {
+        int binding = head(names.lookup(name));
+        return binding == NONE ? null : symbols[binding];
+    }
+
+    /*
+        The symbol of the name declared in the innermost scope, null if there is none.
+     */
+    public Symbol lookupCurrent(String name) {
+        int binding = head(names.lookup(name));
+        return binding == NONE || levels[binding] != depth ? null : symbols[binding];
+    }
+
+    /*
+        Level of the innermost symbol of the name, -1 if none is in scope.
+     */
+    public int level(String name) {
+        int binding = head(names.lookup(name));
+        return binding == NONE ? -1 : levels[binding];
+    }
+
+    /*
+        Declares the symbol in the innermost scope, replacing one of the same name declared there.
+     */
+    public void put(Symbol symbol) {
+        put(symbol, depth);
+    }
+
+    public NameTable getNames() {
+        return names;
+    }
+
+    /* Names by their id in a NameTable, that of the table or another */
+
+    public Symbol lookup(NameTable table, int id) {
+        int binding = head(id(table, id));
+        return binding == NONE ? null : symbols[binding];
+    }
+
+    public Symbol lookupCurrent(NameTable table, int id) {
+        int binding = head(id(table, id));
+        return binding == NONE || levels[binding] != depth ? null : symbols[binding];
+    }
+
+    /*
+        Declares the symbol, named by id in table, in the innermost scope.
+     */
+    public void put(Symbol symbol, NameTable table, int id) {
+        put(symbol, id(table, id), depth);
+    }
+
+    /* Levels other than the innermost, for Scope */
+
+    Symbol lookup(String name, int level) {
+        int binding = head(names.lookup(name));
+        while (binding != NONE && levels[binding] > level)
+            binding = shadowed[binding];
+        return binding == NONE ? null : symbols[binding];
+    }
+
+    Symbol lookupCurrent(String name, int level) {
+        int binding = head(names.lookup(name));
+        while (binding != NONE && levels[binding] > level)
+            binding = shadowed[binding];
+        return binding == NONE || levels[binding] != level ? null : symbols[binding];
+    }
+
+    void put(Symbol symbol, int level) {
+        put(symbol, names.intern(symbol.name), level);
+    }
+
+    private void put(Symbol symbol, int id, int level) {
+        if (level > depth)
+            throw new IllegalStateException("Scope already left");
+
+        if (id >= heads.length) {
+            int length = heads.length;
+            heads = Arrays.copyOf(heads, Math.max(id + 1, length * 2));
+            Arrays.fill(heads, length, heads.length, NONE);
+        }
+
+        // Bindings of inner levels stay on top of the new one
+        int above = NONE;
+        int binding = heads[id];
+        while (binding != NONE && levels[binding] > level) {
+            above = binding;
+            binding = shadowed[binding];
+        }
+
+        if (binding != NONE && levels[binding] == level) {
+            symbols[binding] = symbol;
+            return;
+        }
+
+        int added = allocate(symbol, id, level, binding);
+        if (above == NONE)
+            heads[id] = added;
+        else
+            shadowed[above] = added;
+        log(level, added);
+    }
+
+    /*
+        The symbols declared in the level, in the order they were.
+     */
+    Map<String, Symbol> symbols(int level) {
+        Map<String, Symbol> map = new LinkedHashMap<>();
+        for (int i = 0; i < logSizes[level]; i++) {
+            Symbol symbol = symbols[logs[level][i]];
+            map.put(symbol.name, symbol);
+        }
+        return map;
+    }
+
+    private int head(int id) {
+        return id == NameTable.NO_NAME || id >= heads.length ? NONE : heads[id];
+    }
+
+    /*
+        Id in names of the name of the given id in table, mapped once for each name of the last
+        other table looked up by.
+     */
+    private int id(NameTable table, int id) {
+        if (table == names || id == NameTable.NO_NAME)
+            return id;
+
+        if (table != foreign) {
+            foreign = table;
+            foreignIds = new int[0];
+        }
+        if (id >= foreignIds.length) {
+            int length = foreignIds.length;
+            foreignIds = Arrays.copyOf(foreignIds, Math.max(id + 1, table.size()));
+            Arrays.fill(foreignIds, length, foreignIds.length, NONE);
+        }
+        if (foreignIds[id] == NONE)
+            foreignIds[id] = names.intern(table.name(id));
+        return foreignIds[id];
+    }
+
+    private int allocate(Symbol symbol, int id, int level, int shadows) {
+        int binding = free;
+        if (binding != NONE) {
+            free = shadowed[binding];
+        } else {
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+                shadowed = Arrays.copyOf(shadowed, size * 2);
+            }
+            binding = size++;
+        }
+
+        symbols[binding] = symbol;
+        ids[binding] = id;
+        levels[binding] = level;
+        shadowed[binding] = shadows;
+        return binding;
+    }
+
+    private void release(int binding) {
+        symbols[binding] = null;
+        shadowed[binding] = free;
+        free = binding;
+    }
+
+    private void log(int level, int binding) {
+        int[] log = logs[level];
+        if (logSizes[level] == log.length)
+            logs[level] = log = Arrays.copyOf(log, log.length * 2);
+        log[logSizes[level]++] = binding;
+    }
+}
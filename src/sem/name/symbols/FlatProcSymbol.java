@@ -0,0 +1,27 @@
+package sem.name.symbols;
+
+
+import ast.flat.FlatTree;
+import sem.name.Symbol;
+
+public class FlatProcSymbol extends Symbol {
+
+    public final FlatTree tree;
+    public final int procedure;
+
+    public FlatProcSymbol(FlatTree tree, int procedure) {
+        super(tree.name(procedure));
+        this.tree = tree;
+        this.procedure = procedure;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcSymbol(" + name + ")";
+    }
+
+    @Override
+    public boolean isProc() {
+        return true;
+    }
+}
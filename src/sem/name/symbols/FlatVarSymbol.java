@@ -0,0 +1,28 @@
+package sem.name.symbols;
+
+
+import ast.flat.FlatTree;
+import sem.name.Symbol;
+
+public class FlatVarSymbol extends Symbol {
+
+    public final FlatTree tree;
+    public final int varDecl;
+
+    public FlatVarSymbol(FlatTree tree, int varDecl) {
+        super(tree.name(varDecl));
+        this.tree = tree;
+        this.varDecl = varDecl;
+    }
+
+    @Override
+    public String toString() {
+        return "VarSymbol(" + name + ")";
+    }
+
+    @Override
+    public boolean isVar() {
+        return true;
+    }
+
+}
@@ -3,6 +3,8 @@ package sem.type;
 import ast.*;
 import ast.expressions.*;
 import ast.statements.*;
+import ast.flat.FlatProgram;
+import ast.flat.FlatTree;
 import sem.BaseSemanticVisitor;
 
 import java.util.Arrays;
@@ -65,10 +67,10 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
         VarDecl varDecl = v.getVarDecl();
 
         if (varDecl == null) {
-            error(String.format(
+            error(
                     "Encountered undeclared variable %s",
                     v.name
-            ));
+            );
             return Type.VOID;
         }
 		v.type = varDecl.type;
@@ -81,18 +83,18 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
 
         if (definition == null) {
             // Undeclared function call stmt
-            error(String.format(
+            error(
                     "Function call %s is undeclared.", funCallStmt.name
-            ));
+            );
             return Type.VOID;
         }
 
         if (funCallStmt.arguments.size() != definition.params.size()) {
-            error(String.format(
+            error(
                     "Function call expression '%s' requires %d arguments, not %d",
                     funCallStmt.name,
                     definition.params.size(),
-                    funCallStmt.arguments.size()));
+                    funCallStmt.arguments.size());
             // Still return the type that it should have so we can continue
             return definition.type;
         }
@@ -105,10 +107,10 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
             Type defType = defCallArg.type;
 
             if (argType != defType) {
-                error(String.format(
+                error(
                         "Function call expression '%s' expected argument of type %s but got %s at position %d",
                         funCallStmt.name, defType, argType, i + 1
-                ));
+                );
             }
         }
 
@@ -126,10 +128,10 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
         Type exprType = whilez.expr.accept(this);
 
         if (exprType != Type.INT) {
-            error(String.format(
+            error(
                     "While (expression) needs to be of type INT. Encountered %s",
                     exprType
-            ));
+            );
         }
 
         whilez.statement.accept(this);
@@ -146,15 +148,15 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
             Type lhs = binOp.lhs.accept(this);
             Type rhs = binOp.rhs.accept(this);
 
-            if (lhs != Type.INT) error(String.format(
+            if (lhs != Type.INT) error(
                     "Invalid type found on LHS = %s. Arithmetic expression require INT types on both sides.",
                     lhs
-            ));
+            );
 
-            if (rhs != Type.INT) error(String.format(
+            if (rhs != Type.INT) error(
                     "Invalid type found on RHS = %s. Arithmetic expression require INT types on both sides.",
                     lhs
-            ));
+            );
 
         }
         // Comparisons
@@ -164,11 +166,11 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
             Type rhs = binOp.rhs.accept(this);
 
             if (lhs != rhs) {
-                error(String.format(
+                error(
                         "Expected BinaryOp LHS = RHS, found %s = %s.",
                         lhs,
                         rhs
-                ));
+                );
             }
 
         }
@@ -180,10 +182,10 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
 	@Override
 	public Type visitIf(If anIf) {
         Type condition = anIf.ifExpr.accept(this);
-        if (condition != Type.INT) error(String.format(
+        if (condition != Type.INT) error(
                 "Condition needs to resolve to an integer. %s encountered.",
                 condition
-        ));
+        );
 
         anIf.ifStmt.accept(this);
         if (anIf.hasElse()) anIf.elseStmt.accept(this);
@@ -209,12 +211,12 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
             t = aReturn.returnz.accept(this);
         }
 
-        if (procedureType != t) error(String.format(
+        if (procedureType != t) error(
                 "Unexpected return type %s from procedure '%s'. %s required.",
                 t,
                 procedureName,
                 procedureType
-        ));
+        );
 
         return t;
 	}
@@ -224,12 +226,12 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
         Type type = assign.expr.accept(this);
         Type lhsType = assign.var.getVarDecl().type;
         if (type != lhsType) {
-            error(String.format(
+            error(
                     "Illegal assignment %s %s = %s",
                     assign.var.type,
                     assign.var.name,
                     type
-            ));
+            );
         }
         return lhsType;
 	}
@@ -240,18 +242,18 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
 
         if (definition == null) {
             // Undeclared function call stmt
-            error(String.format(
+            error(
                     "Function call %s is undeclared.", funCallExpr.name
-            ));
+            );
             return Type.VOID;
         }
 
         if (funCallExpr.arguments.size() != definition.params.size()) {
-            error(String.format(
+            error(
                     "Function call expression '%s' requires %d arguments, not %d",
                     funCallExpr.name,
                     definition.params.size(),
-                    funCallExpr.arguments.size()));
+                    funCallExpr.arguments.size());
             // Still return the type that it should have so we can continue
             return definition.type;
         }
@@ -264,21 +266,249 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
             Type defType = defCallArg.type;
 
             if (argType != defType) {
-                error(String.format(
+                error(
                         "Function call expression '%s' expected argument of type %s but got %s at position %d",
                         funCallExpr.name, defType, argType, i + 1
-                ));
+                );
             }
         }
 
         // Check it is not returning void
         if (definition.type == Type.VOID)
-            error(String.format(
+            error(
                     "Function call expression '%s' is not allowed to return VOID",
                     funCallExpr.name
-            ));
+            );
 
         return definition.type;
 	}
 
+    /* Flat AST */
+
+    @Override
+    public Type visitProgram(FlatProgram program) {
+        FlatTree globals = program.globals();
+        visitAll(globals, globals.varDecls(globals.root()));
+
+        for (int i = 0; i < program.procedureCount(); i++) {
+            FlatTree procedure = program.procedure(i);
+            procedure.accept(procedure.root(), this);
+        }
+
+        FlatTree main = program.main();
+        return main.accept(main.root(), this);
+    }
+
+    @Override
+    public Type visitBlock(FlatTree tree, int block) {
+        visitAll(tree, tree.varDecls(block));
+
+        Type type = null;
+        int statements = tree.statements(block);
+        for (int i = 0; i < tree.count(statements); i++)
+            type = tree.accept(tree.item(statements, i), this);
+
+        return type;
+    }
+
+    @Override
+    public Type visitProcedure(FlatTree tree, int procedure) {
+        procedureType = tree.type(procedure);
+        procedureName = tree.name(procedure);
+
+        visitAll(tree, tree.params(procedure));
+        tree.accept(tree.block(procedure), this);
+
+        procedureType = null;
+        return tree.type(procedure);
+    }
+
+    @Override
+    public Type visitVarDecl(FlatTree tree, int varDecl) {
+        if (tree.type(varDecl) == Type.VOID) error("Variable declaration cannot be void");
+        return null;
+    }
+
+    @Override
+    public Type visitVar(FlatTree tree, int var) {
+        FlatTree declaration = tree.linkedTree(var);
+
+        if (declaration == null) {
+            error(
+                    "Encountered undeclared variable %s",
+                    tree.name(var)
+            );
+            return Type.VOID;
+        }
+
+        Type type = declaration.type(tree.linkedNode(var));
+        tree.setExprType(var, type);
+        return type;
+    }
+
+    @Override
+    public Type visitFunctionCallStmt(FlatTree tree, int funCallStmt) {
+        return visitCall(tree, funCallStmt, false);
+    }
+
+    @Override
+    public Type visitFunCallExpr(FlatTree tree, int funCallExpr) {
+        return visitCall(tree, funCallExpr, true);
+    }
+
+    private Type visitCall(FlatTree tree, int call, boolean expression) {
+        String name = tree.name(call);
+        FlatTree definition = tree.linkedTree(call);
+
+        if (definition == null) {
+            error("Function call %s is undeclared.", name);
+            return Type.VOID;
+        }
+
+        int procedure = tree.linkedNode(call);
+        int params = definition.params(procedure);
+        int arguments = tree.arguments(call);
+
+        if (tree.count(arguments) != definition.count(params)) {
+            error(
+                    "Function call expression '%s' requires %d arguments, not %d",
+                    name,
+                    definition.count(params),
+                    tree.count(arguments));
+            return definition.type(procedure);
+        }
+
+        for (int i = 0; i < tree.count(arguments); i++) {
+            Type argType = tree.accept(tree.item(arguments, i), this);
+            Type defType = definition.type(definition.item(params, i));
+
+            if (argType != defType) {
+                error(
+                        "Function call expression '%s' expected argument of type %s but got %s at position %d",
+                        name, defType, argType, i + 1
+                );
+            }
+        }
+
+        // Check an expression is not returning void
+        if (expression && definition.type(procedure) == Type.VOID)
+            error(
+                    "Function call expression '%s' is not allowed to return VOID",
+                    name
+            );
+
+        return definition.type(procedure);
+    }
+
+    @Override
+    public Type visitStrLiteral(FlatTree tree, int strLiteral) {
+        return Type.STRING;
+    }
+
+    @Override
+    public Type visitWhile(FlatTree tree, int whilez) {
+        Type exprType = tree.accept(tree.condition(whilez), this);
+
+        if (exprType != Type.INT) {
+            error(
+                    "While (expression) needs to be of type INT. Encountered %s",
+                    exprType
+            );
+        }
+
+        tree.accept(tree.body(whilez), this);
+        return Type.INT;
+    }
+
+    @Override
+    public Type visitBinOp(FlatTree tree, int binOp) {
+        Type lhs = tree.accept(tree.lhs(binOp), this);
+        Type rhs = tree.accept(tree.rhs(binOp), this);
+
+        if (ARITHMETIC_OPS.contains(tree.op(binOp))) {
+            if (lhs != Type.INT) error(
+                    "Invalid type found on LHS = %s. Arithmetic expression require INT types on both sides.",
+                    lhs
+            );
+
+            if (rhs != Type.INT) error(
+                    "Invalid type found on RHS = %s. Arithmetic expression require INT types on both sides.",
+                    lhs
+            );
+        }
+        else if (lhs != rhs) {
+            error(
+                    "Expected BinaryOp LHS = RHS, found %s = %s.",
+                    lhs,
+                    rhs
+            );
+        }
+
+        return Type.INT;
+    }
+
+    @Override
+    public Type visitIf(FlatTree tree, int anIf) {
+        Type condition = tree.accept(tree.condition(anIf), this);
+        if (condition != Type.INT) error(
+                "Condition needs to resolve to an integer. %s encountered.",
+                condition
+        );
+
+        tree.accept(tree.thenStmt(anIf), this);
+        if (tree.elseStmt(anIf) != FlatTree.NONE) tree.accept(tree.elseStmt(anIf), this);
+
+        return Type.VOID;
+    }
+
+    @Override
+    public Type visitIntLiteral(FlatTree tree, int intLiteral) {
+        return Type.INT;
+    }
+
+    @Override
+    public Type visitChrLiteral(FlatTree tree, int chrLiteral) {
+        return Type.CHAR;
+    }
+
+    @Override
+    public Type visitReturn(FlatTree tree, int aReturn) {
+        Type t = Type.VOID;
+        if (tree.expr(aReturn) != FlatTree.NONE)
+            t = tree.accept(tree.expr(aReturn), this);
+
+        if (procedureType != t) error(
+                "Unexpected return type %s from procedure '%s'. %s required.",
+                t,
+                procedureName,
+                procedureType
+        );
+
+        return t;
+    }
+
+    @Override
+    public Type visitAssign(FlatTree tree, int assign) {
+        Type type = tree.accept(tree.expr(assign), this);
+
+        int var = tree.var(assign);
+        FlatTree declaration = tree.linkedTree(var);
+        Type lhsType = declaration == null ? null : declaration.type(tree.linkedNode(var));
+
+        if (type != lhsType) {
+            error(
+                    "Illegal assignment %s %s = %s",
+                    tree.exprType(var),
+                    tree.name(var),
+                    type
+            );
+        }
+        return lhsType;
+    }
+
+    private void visitAll(FlatTree tree, int list) {
+        for (int i = 0; i < tree.count(list); i++)
+            tree.accept(tree.item(list, i), this);
+    }
+
 }
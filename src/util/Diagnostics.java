@@ -0,0 +1,200 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Errors of a compilation collected rather than printed as they come, each kept as its kind,
+ * its message format, the arguments to format it with and where in the source it is, if known.
+ * Messages are only formatted when flushed, all at once, a single write to each stream they go to.
+ *
+ * Past the limit of errors of a kind, those errors are counted but not kept, a line saying
+ * how many there were more being printed after the others instead.
+ */
+public class Diagnostics {
+
+    public enum Kind {
+        LEXING("Lexing", "Lexing error: ", false),
+        PARSING("Parsing", "Parsing error: ", false),
+        SEMANTIC("Semantic analysis", "semantic error: ", true);
+
+        private final String phase;
+        private final String prefix;
+
+        // Printed to System.err rather than System.out
+        private final boolean err;
+
+        Kind(String phase, String prefix, boolean err) {
+            this.phase = phase;
+            this.prefix = prefix;
+            this.err = err;
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Object[] NO_ARGS = new Object[0];
+
+    // Position of an error not at any place in the source
+    private static final long NO_POSITION = -1;
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final int limit;
+
+    private int size = 0;
+    private byte[] kinds = new byte[16];
+    private String[] formats = new String[16];
+    private Object[][] args = new Object[16][];
+
+    // Line in the upper half, column in the lower one
+    private long[] positions = new long[16];
+
+    // Errors of each kind since the last flush, kept or not
+    private final int[] counts = new int[KINDS.length];
+
+    public Diagnostics() {
+        this(NO_LIMIT);
+    }
+
+    /*
+        Diagnostics keeping at most limit errors of each kind between flushes.
+     */
+    public Diagnostics(int limit) {
+        this.limit = limit;
+    }
+
+    /*
+        Diagnostics keeping as many errors of each kind as -Ddiagnostics.limit=n says, all of them if unset.
+     */
+    public static Diagnostics fromProperties() {
+        return new Diagnostics(Integer.getInteger("diagnostics.limit", NO_LIMIT));
+    }
+
+    /*
+        Record an error whose message is format formatted with args, or format itself
+        if there are none.
+     */
+    public void add(Kind kind, String format, Object... args) {
+        add(kind, NO_POSITION, format, args);
+    }
+
+    /*
+        As add(kind, format, args), the error being at line:column of the source.
+     */
+    public void add(Kind kind, int line, int column, String format, Object... args) {
+        add(kind, (long) line << 32 | column & 0xFFFFFFFFL, format, args);
+    }
+
+    public void add(Kind kind, Position position, String format, Object... args) {
+        add(kind, position.line, position.column, format, args);
+    }
+
+    /*
+        Record the errors other recorded, in their order, as if added here. The ones past its
+        limit are counted.
+     */
+    public void addAll(Diagnostics other) {
+        synchronized (other) {
+            synchronized (this) {
+                int[] kept = new int[KINDS.length];
+                for (int i = 0; i < other.size; i++) {
+                    kept[other.kinds[i]]++;
+                    add(KINDS[other.kinds[i]], other.positions[i], other.formats[i], other.args[i]);
+                }
+                for (int k = 0; k < KINDS.length; k++)
+                    counts[k] += other.counts[k] - kept[k];
+            }
+        }
+    }
+
+    private synchronized void add(Kind kind, long position, String format, Object[] args) {
+        if (counts[kind.ordinal()]++ >= limit)
+            return;
+
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            formats = Arrays.copyOf(formats, size * 2);
+            this.args = Arrays.copyOf(this.args, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        formats[size] = format;
+        this.args[size] = args.length == 0 ? NO_ARGS : args;
+        positions[size] = position;
+        size++;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /*
+        Errors of the kind recorded since the last flush, including those past the limit.
+     */
+    public synchronized int getCount(Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    public synchronized String message(int i) {
+        Kind kind = KINDS[kinds[i]];
+        String message = kind.prefix + (args[i].length == 0 ? formats[i] : String.format(formats[i], args[i]));
+        if (positions[i] == NO_POSITION)
+            return message;
+        return message + " at " + line(i) + ":" + column(i);
+    }
+
+    /*
+        Line of the i^th error kept, -1 if it has no position.
+     */
+    public synchronized int line(int i) {
+        return positions[i] == NO_POSITION ? -1 : (int) (positions[i] >>> 32);
+    }
+
+    /*
+        Column of the i^th error kept, -1 if it has no position.
+     */
+    public synchronized int column(int i) {
+        return positions[i] == NO_POSITION ? -1 : (int) positions[i];
+    }
+
+    /*
+        Number of errors kept since the last flush.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /*
+        Prints the errors kept, in the order they were recorded, and how many of each kind were
+        left out, then forgets about them.
+     */
+    public synchronized void flush() {
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+        String newline = System.lineSeparator();
+
+        for (int i = 0; i < size; i++)
+            (KINDS[kinds[i]].err ? err : out).append(message(i)).append(newline);
+
+        for (Kind kind : KINDS) {
+            int omitted = counts[kind.ordinal()] - limit;
+            if (omitted > 0)
+                (kind.err ? err : out).append(kind.phase).append(": ").append(omitted).append(" more errors not shown").append(newline);
+        }
+
+        write(System.out, out);
+        write(System.err, err);
+
+        Arrays.fill(formats, 0, size, null);
+        Arrays.fill(args, 0, size, null);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private static void write(PrintStream stream, StringBuilder text) {
+        if (text.length() == 0)
+            return;
+        stream.print(text);
+        stream.flush();
+    }
+}
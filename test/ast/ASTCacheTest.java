@@ -0,0 +1,148 @@
+package ast;
+
+import ast.expressions.FunCallExpr;
+import ast.expressions.Var;
+import ast.statements.Assign;
+import ast.statements.FunCallStmt;
+import ast.statements.While;
+import gen.GeneratingClassWriter;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ASTCacheTest {
+
+    private static final String PROGRAM =
+            "#include \"io.h\"\n" +
+            "int total;\n" +
+            "int add(int a, int b) { return a + b; }\n" +
+            "void report(int n) {\n" +
+            "  print_s(\"total\\n\");\n" +
+            "  print_i(n);\n" +
+            "}\n" +
+            "void main() {\n" +
+            "  int i;\n" +
+            "  char c;\n" +
+            "  i = read_i();\n" +
+            "  c = 'x';\n" +
+            "  while (i > 0) {\n" +
+            "    if (i % 2 == 0) total = add(total, i);\n" +
+            "    else { print_c(c); }\n" +
+            "    i = i - 1;\n" +
+            "  }\n" +
+            "  report(total);\n" +
+            "  return;\n" +
+            "}\n";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    /* Binary form */
+
+    @Test public void readWrite_RoundTrips() {
+        Program program = analyze(PROGRAM);
+        assertEquals(program.toString(), roundTrip(program).toString());
+    }
+
+    @Test public void readWrite_KeepsAnnotations() {
+        Program program = roundTrip(analyze(PROGRAM));
+        Procedure main = program.main;
+
+        // i = read_i();
+        Assign assign = (Assign) main.block.statements.get(0);
+        assertSame(main.block.varDecls.get(0), assign.var.getVarDecl());
+        assertSame(Procedure.READ_I, ((FunCallExpr) assign.expr).getProcedure());
+
+        // while (i > 0)
+        BinOp condition = (BinOp) ((While) main.block.statements.get(2)).expr;
+        assertEquals(Type.INT, condition.lhs.type);
+
+        // report(total); resolves to the procedure and the global read back
+        FunCallStmt report = (FunCallStmt) main.block.statements.get(3);
+        assertSame(program.procs.get(1), report.getProcedure());
+        assertSame(program.varDecls.get(0), ((Var) report.arguments.get(0)).getVarDecl());
+    }
+
+    @Test public void readWrite_GeneratesTheSameCode() {
+        Program program = analyze(PROGRAM);
+        assertArrayEquals(generate(program), generate(roundTrip(program)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read_FailsOnOtherData() {
+        new ASTReader(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 })).read();
+    }
+
+    /* Cache */
+
+    @Test public void cache_HitsOnceWritten() throws IOException {
+        ASTCache cache = new ASTCache(folder.getRoot());
+        byte[] source = PROGRAM.getBytes(StandardCharsets.UTF_8);
+
+        assertNull(cache.get(source));
+        cache.put(source, analyze(PROGRAM));
+
+        Program cached = cache.get(source);
+        assertEquals(analyze(PROGRAM).toString(), String.valueOf(cached));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals("AST cache: 1 hit, 1 miss", cache.toString());
+    }
+
+    @Test public void cache_KeyedBySource() throws IOException {
+        ASTCache cache = new ASTCache(folder.getRoot());
+        cache.put(PROGRAM.getBytes(StandardCharsets.UTF_8), analyze(PROGRAM));
+
+        assertNull(cache.get((PROGRAM + "\n").getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test public void cache_MissesOnBrokenEntry() throws IOException {
+        ASTCache cache = new ASTCache(folder.getRoot());
+        byte[] source = PROGRAM.getBytes(StandardCharsets.UTF_8);
+        cache.put(source, analyze(PROGRAM));
+
+        File[] entries = folder.getRoot().listFiles();
+        assertEquals(1, entries.length);
+        assertTrue(entries[0].getName().endsWith(ASTCache.EXTENSION));
+        byte[] bytes = Files.readAllBytes(entries[0].toPath());
+        Files.write(entries[0].toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertNull(cache.get(source));
+        cache.put(source, analyze(PROGRAM));
+        assertNotNull(cache.get(source));
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    private Program roundTrip(Program program) {
+        ASTWriter writer = new ASTWriter();
+        program.accept(writer);
+        return new ASTReader(ByteBuffer.wrap(writer.toByteArray())).read();
+    }
+
+    private byte[] generate(Program program) {
+        GeneratingClassWriter writer = new GeneratingClassWriter();
+        writer.visitProgram(program);
+        return writer.toByteArray();
+    }
+
+    private Program analyze(String source) {
+        Parser parser = new Parser(new Tokeniser(new Scanner(source)));
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        assertEquals(0, new SemanticAnalyzer().analyze(program));
+        return program;
+    }
+}
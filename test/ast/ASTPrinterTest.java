@@ -259,7 +259,7 @@ public class ASTPrinterTest {
         String out = writer.toString();
         out = out.replaceAll(" ", "");
 
-        assertEquals(out, "Program(Procedure(VOID,main,Block(VarDecl(INT,Var(i)),Assign(Var(i),BinOp(IntLiteral(9),DIV,IntLiteral(3))),Assign(Var(i),BinOp(Var(i),MOD,IntLiteral(2))),Assign(Var(i),BinOp(BinOp(Var(i),ADD,IntLiteral(10)),MUL,BinOp(IntLiteral(7),MOD,BinOp(IntLiteral(0),SUB,IntLiteral(5))))),Assign(Var(i),BinOp(Var(i),ADD,BinOp(IntLiteral(3),ADD,BinOp(Var(i),ADD,IntLiteral(5))))),Assign(Var(i),BinOp(Var(i),MUL,BinOp(IntLiteral(3),MUL,IntLiteral(4)))),Assign(Var(i),BinOp(Var(i),MOD,BinOp(IntLiteral(5),MOD,IntLiteral(6)))),Assign(Var(i),BinOp(Var(i),DIV,IntLiteral(9))),Assign(Var(i),BinOp(Var(i),ADD,BinOp(IntLiteral(3),MUL,IntLiteral(4)))),Assign(Var(i),BinOp(Var(i),DIV,BinOp(IntLiteral(3),MUL,IntLiteral(4)))),Assign(Var(i),BinOp(Var(i),SUB,BinOp(IntLiteral(3),ADD,IntLiteral(4)))))))");
+        assertEquals(out, "Program(Procedure(VOID,main,Block(VarDecl(INT,Var(i)),Assign(Var(i),BinOp(IntLiteral(9),DIV,IntLiteral(3))),Assign(Var(i),BinOp(Var(i),MOD,IntLiteral(2))),Assign(Var(i),BinOp(BinOp(Var(i),ADD,IntLiteral(10)),MUL,BinOp(IntLiteral(7),MOD,BinOp(IntLiteral(0),SUB,IntLiteral(5))))),Assign(Var(i),BinOp(BinOp(BinOp(Var(i),ADD,IntLiteral(3)),ADD,Var(i)),ADD,IntLiteral(5))),Assign(Var(i),BinOp(BinOp(Var(i),MUL,IntLiteral(3)),MUL,IntLiteral(4))),Assign(Var(i),BinOp(BinOp(Var(i),MOD,IntLiteral(5)),MOD,IntLiteral(6))),Assign(Var(i),BinOp(Var(i),DIV,IntLiteral(9))),Assign(Var(i),BinOp(Var(i),ADD,BinOp(IntLiteral(3),MUL,IntLiteral(4)))),Assign(Var(i),BinOp(BinOp(Var(i),DIV,IntLiteral(3)),MUL,IntLiteral(4))),Assign(Var(i),BinOp(BinOp(Var(i),SUB,IntLiteral(3)),ADD,IntLiteral(4))))))");
     }
 
 
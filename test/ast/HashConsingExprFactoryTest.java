@@ -0,0 +1,166 @@
+package ast;
+
+import ast.expressions.FunCallExpr;
+import ast.expressions.Var;
+import ast.statements.Assign;
+import ast.statements.FunCallStmt;
+import gen.GeneratingClassWriter;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import org.junit.Test;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HashConsingExprFactoryTest {
+
+    private static final String PROGRAM =
+            "int x;\n" +
+            "int square(int a) {\n" +
+            "  int b;\n" +
+            "  b = a * a + a * a;\n" +
+            "  { int a; a = 2; b = b - a * a; }\n" +
+            "  return b;\n" +
+            "}\n" +
+            "void main() {\n" +
+            "  int y;\n" +
+            "  x = 3;\n" +
+            "  y = x + 1;\n" +
+            "  { char x; x = 'c'; print_c(x); y = y + 1; }\n" +
+            "  y = x + 1;\n" +
+            "  print_i(square(y) - square(y));\n" +
+            "  print_i(read_i() + read_i());\n" +
+            "}\n";
+
+    /* Sharing */
+
+    @Test public void parse_SharesIdenticalSubexpressions() {
+        Procedure square = parse(PROGRAM).procs.get(0);
+
+        // b = a * a + a * a;
+        BinOp sum = (BinOp) assignment(square.block, 0).expr;
+        assertSame(sum.lhs, sum.rhs);
+        assertSame(((BinOp) sum.lhs).lhs, ((BinOp) sum.lhs).rhs);
+        assertEquals(HashConsingExprFactory.hash(sum.lhs), HashConsingExprFactory.hash(sum.rhs));
+    }
+
+    @Test public void parse_SharesNamesByDeclaration() {
+        Program program = parse(PROGRAM);
+        Procedure square = program.procs.get(0);
+        Block inner = (Block) square.block.statements.get(1);
+
+        // the parameter a and the a of the inner block
+        BinOp outer = (BinOp) ((BinOp) assignment(square.block, 0).expr).lhs;
+        BinOp shadowed = (BinOp) ((BinOp) assignment(inner, 1).expr).rhs;
+        assertNotSame(outer.lhs, shadowed.lhs);
+        assertEquals("a", ((Var) shadowed.lhs).name);
+
+        // x + 1 around the block declaring a char x
+        Block main = program.main.block;
+        assertSame(assignment(main, 1).expr, assignment(main, 3).expr);
+        Var local = (Var) ((FunCallStmt) ((Block) main.statements.get(2)).statements.get(1)).arguments.get(0);
+        assertNotSame(((BinOp) assignment(main, 1).expr).lhs, local);
+    }
+
+    @Test public void parse_DoesNotShareCalls() {
+        Block main = parse(PROGRAM).main.block;
+
+        BinOp squares = (BinOp) ((FunCallStmt) main.statements.get(4)).arguments.get(0);
+        assertNotSame(squares.lhs, squares.rhs);
+        assertTrue(squares.lhs instanceof FunCallExpr);
+
+        BinOp reads = (BinOp) ((FunCallStmt) main.statements.get(5)).arguments.get(0);
+        assertNotSame(reads.lhs, reads.rhs);
+    }
+
+    @Test public void parse_MakesFewerNodes() {
+        int shared = distinctNodes(parse(PROGRAM));
+        int unshared = distinctNodes(parseUnshared(PROGRAM));
+        assertTrue(shared + " < " + unshared, shared < unshared);
+    }
+
+    /* Same program */
+
+    @Test public void parse_BuildsTheSameTree() {
+        assertEquals(parseUnshared(PROGRAM).toString(), parse(PROGRAM).toString());
+    }
+
+    @Test public void analyze_AnnotatesLikeUnshared() {
+        Program shared = parse(PROGRAM);
+        Program unshared = parseUnshared(PROGRAM);
+        assertEquals(0, new SemanticAnalyzer().analyze(shared));
+        assertEquals(0, new SemanticAnalyzer().analyze(unshared));
+
+        assertArrayEquals(generate(unshared), generate(shared));
+    }
+
+    @Test public void analyze_ReportsLikeUnshared() {
+        String program =
+                "int f(int a) { { char a; a = 'x'; return a + a; } }\n" +
+                "void main() { int z; z = q + q; z = f + f; z = z + z; { char z; z = z + 1; } }\n";
+
+        assertEquals(analyze(parseUnshared(program)), analyze(parse(program)));
+    }
+
+    private String analyze(Program program) {
+        PrintStream err = System.err;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(out));
+        try {
+            int errors = new SemanticAnalyzer().analyze(program);
+            return errors + "\n" + out;
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    private Assign assignment(Block block, int index) {
+        return (Assign) block.statements.get(index);
+    }
+
+    private int distinctNodes(Program program) {
+        final Map<Expr, Boolean> seen = new IdentityHashMap<>();
+        program.accept(new ASTPrinter(new PrintWriter(new StringWriter())) {
+            @Override
+            public Void visitVar(Var v) {
+                seen.put(v, true);
+                return super.visitVar(v);
+            }
+
+            @Override
+            public Void visitBinOp(BinOp binOp) {
+                seen.put(binOp, true);
+                return super.visitBinOp(binOp);
+            }
+        });
+        return seen.size();
+    }
+
+    private byte[] generate(Program program) {
+        GeneratingClassWriter writer = new GeneratingClassWriter();
+        writer.visitProgram(program);
+        return writer.toByteArray();
+    }
+
+    private Program parse(String source) {
+        Parser parser = new Parser(new Tokeniser(new Scanner(source)), new HashConsingExprFactory());
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        return program;
+    }
+
+    private Program parseUnshared(String source) {
+        Parser parser = new Parser(new Tokeniser(new Scanner(source)));
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        return program;
+    }
+}
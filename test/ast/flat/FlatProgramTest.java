@@ -0,0 +1,269 @@
+package ast.flat;
+
+import ast.Op;
+import ast.Program;
+import ast.Type;
+import gen.GeneratingClassWriter;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import org.junit.Test;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FlatProgramTest {
+
+    private static final String PROGRAM =
+            "#include \"io.h\"\n" +
+            "int total;\n" +
+            "char last;\n" +
+            "int add(int a, int b) { return a + b; }\n" +
+            "char first() { return 'x'; }\n" +
+            "void report(int n) {\n" +
+            "  print_s(\"total\\n\");\n" +
+            "  print_i(n + 70000);\n" +
+            "}\n" +
+            "void main() {\n" +
+            "  int i;\n" +
+            "  char c;\n" +
+            "  i = read_i();\n" +
+            "  c = first();\n" +
+            "  while (i > 0) {\n" +
+            "    int j;\n" +
+            "    j = i % 3;\n" +
+            "    if (j == 0) total = add(total, i);\n" +
+            "    else { last = c; print_c(last); }\n" +
+            "    i = i - 1 * 2;\n" +
+            "  }\n" +
+            "  report(total);\n" +
+            "  return;\n" +
+            "}\n";
+
+    private static final String ERRONEOUS =
+            "void foo(int a) { return a; }\n" +
+            "int foo() { return 'c'; }\n" +
+            "void main() {\n" +
+            "  int x;\n" +
+            "  char x;\n" +
+            "  x = y;\n" +
+            "  foo(x, x);\n" +
+            "  x = foo(x);\n" +
+            "  while ('c') x = 'c' + 1;\n" +
+            "  if (x < 'c') bar();\n" +
+            "  x();\n" +
+            "  x = read_c();\n" +
+            "}\n";
+
+    /* Layout */
+
+    @Test
+    public void layout_OneTreePerProcedure() {
+        FlatProgram flat = FlatProgram.of(parse(PROGRAM));
+
+        assertEquals(3, flat.procedureCount());
+        assertEquals("add", flat.procedure(0).name(flat.procedure(0).root()));
+        assertEquals("report", flat.procedure(2).name(flat.procedure(2).root()));
+        assertEquals("main", flat.main().name(flat.main().root()));
+        assertEquals(5, flat.builtinCount());
+
+        FlatTree globals = flat.globals();
+        int varDecls = globals.varDecls(globals.root());
+        assertEquals(NodeKind.BLOCK, globals.kind(globals.root()));
+        assertEquals(2, globals.count(varDecls));
+        assertEquals(Type.CHAR, globals.type(globals.item(varDecls, 1)));
+        assertEquals(0, globals.count(globals.statements(globals.root())));
+    }
+
+    @Test
+    public void layout_Nodes() {
+        FlatTree add = FlatProgram.of(parse(PROGRAM)).procedure(0);
+        int procedure = add.root();
+
+        assertEquals(NodeKind.PROCEDURE, add.kind(procedure));
+        assertEquals(Type.INT, add.type(procedure));
+        assertEquals(2, add.count(add.params(procedure)));
+        assertEquals("b", add.name(add.item(add.params(procedure), 1)));
+
+        int statements = add.statements(add.block(procedure));
+        int aReturn = add.item(statements, 0);
+        assertEquals(NodeKind.RETURN, add.kind(aReturn));
+
+        int sum = add.expr(aReturn);
+        assertEquals(NodeKind.BIN_OP, add.kind(sum));
+        assertEquals(Op.ADD, add.op(sum));
+        assertEquals("a", add.name(add.lhs(sum)));
+        assertEquals("b", add.name(add.rhs(sum)));
+
+        // params, a, b, a + b, return, block and the procedure
+        assertEquals(8, add.size());
+    }
+
+    @Test
+    public void layout_MissingChildren() {
+        FlatTree main = FlatProgram.of(parse("void main() { if (1) return; }")).main();
+        int anIf = main.item(main.statements(main.block(main.root())), 0);
+
+        assertEquals(FlatTree.NONE, main.elseStmt(anIf));
+        assertEquals(FlatTree.NONE, main.expr(main.thenStmt(anIf)));
+    }
+
+    @Test
+    public void positions_UnknownUntilSet() {
+        FlatTree add = FlatProgram.of(parse(PROGRAM)).procedure(0);
+        int procedure = add.root();
+
+        assertEquals(0, add.line(procedure));
+        add.setPosition(procedure, 4, 5);
+        assertEquals(4, add.line(procedure));
+        assertEquals(5, add.column(procedure));
+        assertEquals(0, add.column(add.block(procedure)));
+    }
+
+    @Test
+    public void names_SharedWithTokeniser() {
+        Tokeniser tokeniser = new Tokeniser(new Scanner(PROGRAM));
+        Program program = parse(tokeniser);
+        FlatProgram flat = FlatProgram.of(program, tokeniser.getNames());
+
+        FlatTree main = flat.main();
+        assertEquals(tokeniser.getNames().lookup("main"), main.nameId(main.root()));
+        assertSame(tokeniser.getNames(), flat.getNames());
+    }
+
+    /* Adapters */
+
+    @Test
+    public void toProgram_RoundTrips() {
+        Program program = parse(PROGRAM);
+        assertEquals(program.toString(), FlatProgram.of(program).toProgram().toString());
+
+        program = parse(ERRONEOUS);
+        assertEquals(program.toString(), FlatProgram.of(program).toProgram().toString());
+    }
+
+    /* Semantic analysis */
+
+    @Test
+    public void analyze_Annotates() {
+        FlatProgram flat = FlatProgram.of(parse(PROGRAM));
+        assertEquals(0, new SemanticAnalyzer().analyze(flat));
+
+        FlatTree main = flat.main();
+        int statements = main.statements(main.block(main.root()));
+
+        // c = first();
+        int assign = main.item(statements, 1);
+        int c = main.var(assign);
+        assertSame(main, main.linkedTree(c));
+        assertEquals("c", main.name(main.linkedNode(c)));
+
+        int call = main.expr(assign);
+        assertSame(flat.procedure(1), main.linkedTree(call));
+        assertEquals(flat.procedure(1).root(), main.linkedNode(call));
+        assertEquals(NodeKind.FUN_CALL_EXPR, main.kind(call));
+
+        // while (i > 0)
+        int condition = main.condition(main.item(statements, 2));
+        assertEquals(Type.INT, main.exprType(main.lhs(condition)));
+        assertSame(main, main.linkedTree(main.lhs(condition)));
+
+        // report(total); resolves total to the globals
+        int total = main.item(main.arguments(main.item(statements, 3)), 0);
+        assertSame(flat.globals(), main.linkedTree(total));
+    }
+
+    @Test
+    public void analyze_BuiltinsResolveToTheirTrees() {
+        FlatProgram flat = FlatProgram.of(parse(PROGRAM));
+        new SemanticAnalyzer().analyze(flat);
+
+        FlatTree main = flat.main();
+        int readI = main.expr(main.item(main.statements(main.block(main.root())), 0));
+        FlatTree builtin = main.linkedTree(readI);
+
+        assertEquals("read_i", builtin.name(builtin.root()));
+        assertEquals(Type.INT, builtin.type(builtin.root()));
+    }
+
+    @Test
+    public void analyze_AgreesWithAst() {
+        for (String source : Arrays.asList(PROGRAM, ERRONEOUS)) {
+            Program program = parse(source);
+            FlatProgram flat = FlatProgram.of(parse(source));
+
+            ByteArrayOutputStream astErrors = new ByteArrayOutputStream();
+            ByteArrayOutputStream flatErrors = new ByteArrayOutputStream();
+
+            int astCount = analyze(program, astErrors);
+            int flatCount = analyze(flat, flatErrors);
+
+            assertEquals(astCount, flatCount);
+            assertEquals(astErrors.toString(), flatErrors.toString());
+        }
+    }
+
+    @Test
+    public void analyze_ReportsErrors() {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int count = analyze(FlatProgram.of(parse(ERRONEOUS)), errors);
+
+        assertTrue(count > 0);
+        assertTrue(errors.toString().contains("Encountered duplicate procedure definition 'foo'"));
+        assertTrue(errors.toString().contains("Encountered duplicate declaration of Var(x)"));
+        assertTrue(errors.toString().contains("Attempted to use an undeclared variable y"));
+        assertTrue(errors.toString().contains("Function call expression 'foo' is not allowed to return VOID"));
+    }
+
+    /* Code generation */
+
+    @Test
+    public void generate_AgreesWithAst() {
+        Program program = parse(PROGRAM);
+        new SemanticAnalyzer().analyze(program);
+        GeneratingClassWriter astWriter = new GeneratingClassWriter();
+        astWriter.visitProgram(program);
+
+        FlatProgram flat = FlatProgram.of(parse(PROGRAM));
+        new SemanticAnalyzer().analyze(flat);
+        GeneratingClassWriter flatWriter = new GeneratingClassWriter();
+        flatWriter.visitProgram(flat);
+
+        assertArrayEquals(astWriter.toByteArray(), flatWriter.toByteArray());
+    }
+
+    private int analyze(Program program, ByteArrayOutputStream errors) {
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errors));
+        try {
+            return new SemanticAnalyzer().analyze(program);
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    private int analyze(FlatProgram program, ByteArrayOutputStream errors) {
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errors));
+        try {
+            return new SemanticAnalyzer().analyze(program);
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    private Program parse(String source) {
+        return parse(new Tokeniser(new Scanner(source)));
+    }
+
+    private Program parse(Tokeniser tokeniser) {
+        Parser parser = new Parser(tokeniser);
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        return program;
+    }
+}
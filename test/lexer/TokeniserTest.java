@@ -2,11 +2,24 @@ package lexer;
 
 import org.junit.Test;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class TokeniserTest {
 
@@ -488,6 +501,96 @@ public class TokeniserTest {
     }
 
 
+    /* End of input */
+    @Test public void scanner_ReturnsSentinelAtEndOfInput() throws Exception {
+        Scanner scanner = new Scanner("a");
+
+        assertTrue(scanner.hasNext());
+        assertEquals('a', scanner.next());
+        assertFalse(scanner.hasNext());
+        assertEquals(Scanner.EOF, scanner.peek());
+        assertEquals(Scanner.EOF, scanner.next());
+    }
+
+    @Test public void scanner_StreamingReturnsSentinelAtEndOfInput() throws Exception {
+        Scanner scanner = new Scanner("ab", Scanner.Mode.STREAMING);
+
+        assertEquals('a', scanner.next());
+        assertEquals('b', scanner.peek());
+        assertEquals('b', scanner.next());
+        assertFalse(scanner.hasNext());
+        assertEquals(Scanner.EOF, scanner.next());
+    }
+
+    @Test public void next_RepeatedlyReturnsEOFAtEndOfInput() {
+        Tokeniser tokeniser = getTokeniser("foo");
+
+        assertEquals(Token.TokenClass.IDENTIFIER, tokeniser.nextToken().tokenClass);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(0, tokeniser.getErrorCount());
+    }
+
+    @Test public void next_TokensEndingAtEndOfInput() {
+        verifyTokenFollowedByEOF("123", Token.TokenClass.NUMBER, "123");
+        verifyTokenFollowedByEOF("foo_1", Token.TokenClass.IDENTIFIER, "foo_1");
+        verifyTokenFollowedByEOF("while", Token.TokenClass.WHILE, "");
+        verifyTokenFollowedByEOF("read_i", Token.TokenClass.READ, "read_i");
+        verifyTokenFollowedByEOF("/", Token.TokenClass.DIV, "");
+        verifyTokenFollowedByEOF("<", Token.TokenClass.LT, "");
+    }
+
+    @Test public void next_SingleLineCommentAtEndOfInput() {
+        Token token = getTokeniser("// no new line").nextToken();
+        assertEquals(Token.TokenClass.EOF, token.tokenClass);
+    }
+
+    @Test public void next_UnterminatedMultiLineCommentRunsToEndOfInput() {
+        Tokeniser tokeniser = getTokeniser("/* never closed");
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(0, tokeniser.getErrorCount());
+    }
+
+    @Test public void next_IncludeCutShortByEndOfInput() {
+        Tokeniser tokeniser = getTokeniser("#inc");
+        Token token = tokeniser.nextToken();
+
+        assertEquals(Token.TokenClass.INVALID, token.tokenClass);
+        assertEquals("#inc", token.data);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(1, tokeniser.getErrorCount());
+    }
+
+    @Test public void next_UnterminatedStringLiteralIsInvalid() {
+        Tokeniser tokeniser = getTokeniser("\"abc");
+        Token token = tokeniser.nextToken();
+
+        assertEquals(Token.TokenClass.INVALID, token.tokenClass);
+        assertEquals("abc", token.data);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(1, tokeniser.getErrorCount());
+    }
+
+    @Test public void next_BackslashAtEndOfInputIsInvalid() {
+        verifyTokenFollowedByEOF("'\\", Token.TokenClass.INVALID, "'\\");
+        verifyTokenFollowedByEOF("\"\\", Token.TokenClass.INVALID, "\\");
+    }
+
+    @Test public void next_UnterminatedInvalidEscapeIsReported() {
+        Tokeniser tokeniser = getTokeniser("'\\q");
+        Token token = tokeniser.nextToken();
+        assertEquals(Token.TokenClass.INVALID, token.tokenClass);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(1, tokeniser.getErrorCount());
+
+        tokeniser = getTokeniser("\"\\q");
+        token = tokeniser.nextToken();
+        assertEquals(Token.TokenClass.INVALID, token.tokenClass);
+        assertEquals("\"\\q", token.data);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(1, tokeniser.getErrorCount());
+    }
+
     /*
         Full Program tests
      */
@@ -574,6 +677,148 @@ public class TokeniserTest {
         verifyTokenSequence(program, expected);
     }
 
+    /* Long runs of comments and white space */
+    private static final int MILLION = 1000000;
+
+    @Test public void next_MillionLineComments() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < MILLION; i++)
+            program.append("// comment\n");
+        program.append("int x;");
+
+        verifyTokensAfterTrivia(new Scanner(program.toString()), MILLION + 1);
+    }
+
+    @Test public void next_MillionLinesAlternatingTrivia() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < MILLION; i++) {
+            switch (i % 4) {
+                case 0: program.append("/* block */\n"); break;
+                case 1: program.append("\n"); break;
+                case 2: program.append("  // line\n"); break;
+                default: program.append("\t/**/ /* a\n * b */\n"); break;
+            }
+        }
+        program.append("int x;");
+
+        verifyTokensAfterTrivia(new Scanner(program.toString(), Scanner.Mode.STREAMING), MILLION + MILLION / 4 + 1);
+    }
+
+    @Test public void tokenise_MillionLineCommentFile() throws Exception {
+        File file = File.createTempFile("comments", ".c");
+        file.deleteOnExit();
+
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        for (int i = 0; i < MILLION; i++)
+            writer.write(i % 2 == 0 ? "// a comment on its own line\n" : "/* and a block one */  \n");
+        writer.write("int x;");
+        writer.close();
+
+        TokenBuffer tokens = new Tokeniser(new Scanner(file, Scanner.Mode.WHOLE_FILE)).tokenise();
+
+        assertEquals(4, tokens.size());
+        assertEquals(Token.TokenClass.INT, tokens.tokenClass(0));
+        assertEquals(MILLION + 1, tokens.line(0));
+        assertEquals("x", tokens.data(1));
+        assertEquals(0, tokens.getErrorCount());
+    }
+
+    @Test public void fileScanner_LoadsWholeFileByDefault() throws Exception {
+        File file = File.createTempFile("program", ".c");
+        file.deleteOnExit();
+
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        writer.write("int x;\n");
+        writer.close();
+
+        Scanner scanner = new Scanner(file);
+        assertTrue(scanner.getSource() != null);
+        assertEquals("x", new Tokeniser(scanner).tokenise().data(1));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void fileScanner_FailsOnMissingFile() throws Exception {
+        new Scanner(new File("does/not/exist.c"));
+    }
+
+    @Test public void fileScanner_StreamsWhatIsNotARegularFile() throws Exception {
+        final File fifo = new File(System.getProperty("java.io.tmpdir"), "program" + System.nanoTime() + ".c");
+        fifo.deleteOnExit();
+        Process mkfifo = new ProcessBuilder("mkfifo", fifo.getPath()).start();
+        assumeTrue(mkfifo.waitFor() == 0);
+
+        // Opening a pipe blocks until both ends are open
+        Thread writing = new Thread() {
+            @Override
+            public void run() {
+                try (Writer writer = new FileWriter(fifo)) {
+                    writer.write("int x;\n");
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        writing.start();
+
+        Scanner scanner = new Scanner(fifo);
+        assertTrue(scanner.getSource() == null);
+        assertEquals("x", new Tokeniser(scanner).tokenise().data(1));
+        writing.join();
+    }
+
+    /* Token buffer */
+    @Test public void tokenise_MatchesNextToken() {
+        String program = "#include \"io.h\"\nint x; // comment\nvoid main() {\n" +
+                "  x = 'a' + 10 % -x; /* block */ print_s(\"hi\\n\");\n" +
+                "  if (x >= 01 != 0) read_c(); '\\q' \"bad\nline\" ! @\n}";
+
+        verifyBufferMatchesTokeniser(program, Scanner.Mode.WHOLE_FILE);
+        verifyBufferMatchesTokeniser(program, Scanner.Mode.STREAMING);
+    }
+
+    @Test public void tokenise_StreamingAcrossChunks() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            program.append("print_i(identifier").append(i).append(" + 'c'); \"some string\"\n");
+
+        verifyBufferMatchesTokeniser(program.toString(), Scanner.Mode.STREAMING);
+    }
+
+    @Test public void tokenise_EmptyInputHoldsEOF() {
+        TokenBuffer tokens = getTokeniser("  // nothing\n").tokenise();
+
+        assertEquals(1, tokens.size());
+        assertEquals(Token.TokenClass.EOF, tokens.tokenClass(0));
+        assertEquals("", tokens.data(0));
+    }
+
+    @Test public void tokenise_RefersToSource() {
+        TokenBuffer tokens = getTokeniser("int foo;").tokenise();
+
+        assertEquals(4, tokens.size());
+        assertEquals(Token.TokenClass.IDENTIFIER, tokens.tokenClass(1));
+        assertEquals(4, tokens.start(1));
+        assertEquals(3, tokens.length(1));
+        assertEquals("foo", tokens.data(1));
+        assertEquals(1, tokens.line(1));
+    }
+
+    @Test public void cursor_StaysOnEOF() {
+        TokenCursor cursor = getTokeniser("a b").tokenise().cursor();
+
+        cursor.advance();
+        assertEquals("a", cursor.data());
+        assertEquals(Token.TokenClass.IDENTIFIER, cursor.tokenClass(1));
+        assertEquals(Token.TokenClass.EOF, cursor.tokenClass(2));
+        assertEquals(Token.TokenClass.EOF, cursor.tokenClass(5));
+
+        cursor.advance();
+        cursor.advance();
+        cursor.advance();
+        assertEquals(Token.TokenClass.EOF, cursor.tokenClass(0));
+        assertEquals(3, cursor.index());
+    }
+
     private void verifyTokenSequence(String content, List<Token> expectedTokens) {
         verifyTokenSequence(content, expectedTokens, 0);
     }
@@ -603,6 +848,313 @@ public class TokeniserTest {
         assertEquals(Token.TokenClass.EOF, token.tokenClass);
     }
 
+    /* Name interning */
+    @Test public void names_DenseInOrderOfAppearance() {
+        Tokeniser tokeniser = getTokeniser("int foo; char bar;\nvoid main() { foo = bar; print_i(foo); }");
+        TokenBuffer tokens = tokeniser.tokenise();
+
+        int[] expected = {
+                NameTable.NO_NAME, 0, NameTable.NO_NAME, NameTable.NO_NAME, 1, NameTable.NO_NAME,
+                NameTable.NO_NAME, NameTable.NO_NAME, NameTable.NO_NAME, NameTable.NO_NAME, NameTable.NO_NAME,
+                0, NameTable.NO_NAME, 1, NameTable.NO_NAME,
+                2, NameTable.NO_NAME, 0, NameTable.NO_NAME, NameTable.NO_NAME, NameTable.NO_NAME,
+                NameTable.NO_NAME
+        };
+        assertEquals(expected.length, tokens.size());
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], tokens.nameId(i));
+
+        NameTable names = tokeniser.getNames();
+        assertEquals(3, names.size());
+        assertEquals("print_i", names.name(2));
+        assertSame(tokens.data(1), tokens.data(11));
+        assertEquals(1, names.lookup("bar"));
+        assertEquals(NameTable.NO_NAME, names.lookup("main"));
+    }
+
+    @Test public void names_SharedAcrossSources() {
+        NameTable names = new NameTable();
+        Token first = new Tokeniser(new Scanner("a b"), names).nextToken();
+        Tokeniser second = new Tokeniser(new Scanner("c a"), names);
+
+        assertEquals(0, first.nameId);
+        assertEquals(1, second.nextToken().nameId);
+        Token again = second.nextToken();
+        assertEquals(0, again.nameId);
+        assertSame(first.data, again.data);
+    }
+
+    @Test public void names_ManyIdentifiers() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            program.append("x").append(i).append(' ');
+        for (int i = 0; i < 10000; i++)
+            program.append("x").append(i).append(' ');
+
+        TokenBuffer tokens = getTokeniser(program.toString()).tokenise();
+        for (int i = 0; i < 20000; i++)
+            assertEquals(i % 10000, tokens.nameId(i));
+        assertEquals(10000, tokens.getNames().size());
+        assertEquals(1234, tokens.getNames().lookup("x1234"));
+    }
+
+    /* Parallel lexing */
+    private static final String SPANNING = "int x; /* a block comment\n" +
+            "spanning int y;\nseveral lines */ char c;\n" +
+            "print_s(\"a string \n with a newline\");\n" +
+            "'\\\nq'; 'ab\ncd' x = 012 ! 3;\n" +
+            "// int z;\n\r\nvoid main() { read_c(); }\n";
+
+    @Test public void parallel_MatchesSequential() {
+        for (int chunkSize = 1; chunkSize < 64; chunkSize++)
+            verifyParallelMatchesSequential(SPANNING, chunkSize);
+    }
+
+    @Test public void parallel_LargeInput() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            program.append(SPANNING);
+
+        verifyParallelMatchesSequential(program.toString(), 1 << 12);
+    }
+
+    @Test public void parallel_UnterminatedComment() {
+        StringBuilder program = new StringBuilder("int x; /*");
+        for (int i = 0; i < 1000; i++)
+            program.append("\nint y;");
+
+        verifyParallelMatchesSequential(program.toString(), 16);
+    }
+
+    /* Pipelined lexing */
+
+    @Test public void pipelined_MatchesSequential() {
+        verifyPipelinedMatchesSequential(SPANNING);
+        verifyPipelinedMatchesSequential("");
+    }
+
+    @Test public void pipelined_LargeInput() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+            program.append(SPANNING);
+
+        verifyPipelinedMatchesSequential(program.toString());
+    }
+
+    @Test public void pipelined_StopsLexingWhenNotTaken() throws InterruptedException {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 100000; i++)
+            program.append("int x").append(i).append(";\n");
+
+        final List<Thread> threads = new ArrayList<>();
+        Tokeniser pipelined = new PipelinedTokeniser(new Scanner(program.toString()), new NameTable(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Thread thread = new Thread(command);
+                threads.add(thread);
+                thread.start();
+            }
+        });
+
+        assertEquals(Token.TokenClass.INT, pipelined.nextToken().tokenClass);
+        threads.get(0).join(10000);
+        assertFalse(threads.get(0).isAlive());
+
+        // Taking tokens again starts lexing again
+        Token token;
+        int count = 1;
+        do {
+            token = pipelined.nextToken();
+            count++;
+        } while (token.tokenClass != Token.TokenClass.EOF);
+
+        assertEquals(300001, count);
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test public void pipelined_RethrowsWhereLexingFailed() {
+        NameTable names = new NameTable() {
+            @Override
+            public int intern(char[] chars, int from, int length) {
+                if (new String(chars, from, length).equals("boom"))
+                    throw new IllegalStateException("boom");
+                return super.intern(chars, from, length);
+            }
+        };
+        Tokeniser pipelined = new PipelinedTokeniser(new Scanner("int x; boom;"), names);
+
+        assertEquals(Token.TokenClass.INT, pipelined.nextToken().tokenClass);
+        assertEquals("x", pipelined.nextToken().data);
+        assertEquals(Token.TokenClass.SEMICOLON, pipelined.nextToken().tokenClass);
+        try {
+            pipelined.nextToken();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test public void pipelined_Tokenise() {
+        TokenBuffer tokens = new PipelinedTokeniser(new Scanner(SPANNING)).tokenise();
+        TokenBuffer expected = getTokeniser(SPANNING).tokenise();
+
+        assertEquals(expected.size(), tokens.size());
+        assertEquals(expected.getErrorCount(), tokens.getErrorCount());
+        for (int i = 0; i < tokens.size(); i++)
+            assertTrue(tokens.same(i, expected, i));
+    }
+
+    /* Incremental re-lexing */
+    @Test public void relex_RenameIdentifier() {
+        String program = "int foo;\nvoid main() {\n  foo = 1;\n}\n";
+        TokenEdit edit = verifyRelex(program, program.indexOf("foo = "), 3, "barbaz");
+
+        // The rest of the line moves, so it is part of the changed range
+        assertEquals(8, edit.from);
+        assertEquals(12, edit.oldTo);
+        assertEquals(12, edit.newTo);
+        assertEquals("barbaz", edit.tokens.data(8));
+    }
+
+    @Test public void relex_ExtendsTokenBeforeEdit() {
+        TokenEdit edit = verifyRelex("int ab;\n", 6, 0, "c");
+
+        assertEquals("abc", edit.tokens.data(1));
+    }
+
+    @Test public void relex_OpenBlockComment() {
+        String program = "int x;\nint y;\nint z; /* end */\nvoid main() {}\n";
+        TokenEdit edit = verifyRelex(program, program.indexOf("int y"), 0, "/*");
+
+        // int y; int z; are gone, nothing new
+        assertEquals(3, edit.from);
+        assertEquals(9, edit.oldTo);
+        assertEquals(3, edit.newTo);
+        assertEquals(Token.TokenClass.VOID, edit.tokens.tokenClass(edit.newTo));
+    }
+
+    @Test public void relex_StringAcrossLines() {
+        String program = "print_s(\"a\");\nx = 1;\ny = 2;\n";
+        verifyRelex(program, program.indexOf("a\""), 1, "a\n b");
+        verifyRelex(program, program.indexOf("\")"), 1, "");
+    }
+
+    @Test public void relex_LargeSourceTouchesFewTokens() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            program.append("x").append(i).append(" = x").append(i).append(" + 1; // line\n");
+
+        int offset = program.indexOf("x5000 =");
+        TokenEdit edit = verifyRelex(program.toString(), offset, 5, "y");
+
+        assertEquals(6, edit.newTo - edit.from);
+        assertEquals(edit.oldTo - edit.from, edit.newTo - edit.from);
+    }
+
+    @Test public void relex_KeepsNameIds() {
+        String program = "int foo;\nint bar;\nvoid main() {\n  foo = bar;\n}\n";
+        TokenBuffer previous = getTokeniser(program).tokenise();
+        TokenEdit edit = Tokeniser.relex(previous, program.indexOf("foo = "), 3, "baz");
+
+        assertSame(previous.getNames(), edit.tokens.getNames());
+        assertEquals(2, edit.tokens.nameId(11));
+        assertEquals(1, edit.tokens.nameId(13));
+        assertEquals(0, edit.tokens.nameId(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void relex_EditOutsideSource() {
+        Tokeniser.relex(getTokeniser("int x;").tokenise(), 4, 10, "");
+    }
+
+    private void verifyTokensAfterTrivia(Scanner scanner, int line) {
+        Tokeniser tokeniser = new Tokeniser(scanner);
+
+        Token token = tokeniser.nextToken();
+        assertEquals(Token.TokenClass.INT, token.tokenClass);
+        assertTrue(token.position.toString().startsWith(line + ":"));
+        assertEquals("x", tokeniser.nextToken().data);
+        assertEquals(Token.TokenClass.SEMICOLON, tokeniser.nextToken().tokenClass);
+        assertEquals(Token.TokenClass.EOF, tokeniser.nextToken().tokenClass);
+        assertEquals(0, tokeniser.getErrorCount());
+    }
+
+    private TokenEdit verifyRelex(String program, int offset, int removed, String inserted) {
+        TokenEdit edit = Tokeniser.relex(getTokeniser(program).tokenise(), offset, removed, inserted);
+
+        String edited = program.substring(0, offset) + inserted + program.substring(offset + removed);
+        TokenBuffer expected = getTokeniser(edited).tokenise();
+
+        assertEquals(expected.size(), edit.tokens.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.tokenClass(i), edit.tokens.tokenClass(i));
+            assertEquals(expected.data(i), edit.tokens.data(i));
+            assertEquals(expected.offset(i), edit.tokens.offset(i));
+            assertEquals(expected.nameId(i) == NameTable.NO_NAME, edit.tokens.nameId(i) == NameTable.NO_NAME);
+            assertEquals(expected.token(i).position.toString(), edit.tokens.token(i).position.toString());
+        }
+        assertEquals(expected.getErrorCount(), edit.tokens.getErrorCount());
+
+        return edit;
+    }
+
+    private void verifyParallelMatchesSequential(String program, int chunkSize) {
+        Tokeniser sequential = getTokeniser(program);
+        Tokeniser parallel = new ParallelTokeniser(new Scanner(program), new ForkJoinPool(4), chunkSize);
+
+        Token expected;
+        do {
+            expected = sequential.nextToken();
+            Token actual = parallel.nextToken();
+
+            assertEquals(expected.tokenClass, actual.tokenClass);
+            assertEquals(expected.data, actual.data);
+            assertEquals(expected.position.toString(), actual.position.toString());
+            assertEquals(expected.nameId, actual.nameId);
+            assertEquals(sequential.getErrorCount(), parallel.getErrorCount());
+        } while (expected.tokenClass != Token.TokenClass.EOF);
+
+        assertEquals(Token.TokenClass.EOF, parallel.nextToken().tokenClass);
+    }
+
+    private void verifyPipelinedMatchesSequential(String program) {
+        Tokeniser sequential = getTokeniser(program);
+        Tokeniser pipelined = new PipelinedTokeniser(new Scanner(program));
+
+        Token expected;
+        do {
+            expected = sequential.nextToken();
+            Token actual = pipelined.nextToken();
+
+            assertEquals(expected.tokenClass, actual.tokenClass);
+            assertEquals(expected.data, actual.data);
+            assertEquals(expected.position.toString(), actual.position.toString());
+            assertEquals(expected.nameId, actual.nameId);
+            assertEquals(sequential.getErrorCount(), pipelined.getErrorCount());
+        } while (expected.tokenClass != Token.TokenClass.EOF);
+
+        assertEquals(Token.TokenClass.EOF, pipelined.nextToken().tokenClass);
+        assertEquals(sequential.getNames().size(), pipelined.getNames().size());
+    }
+
+    private void verifyBufferMatchesTokeniser(String program, Scanner.Mode mode) {
+        Tokeniser tokeniser = new Tokeniser(new Scanner(program, mode));
+        TokenBuffer tokens = new Tokeniser(new Scanner(program, mode)).tokenise();
+
+        for (int i = 0; i < tokens.size(); i++) {
+            Token expected = tokeniser.nextToken();
+            Token actual = tokens.token(i);
+
+            assertEquals(expected.tokenClass, actual.tokenClass);
+            assertEquals(expected.data, actual.data);
+            assertEquals(expected.position.toString(), actual.position.toString());
+            assertEquals(expected.nameId, actual.nameId);
+        }
+
+        assertEquals(Token.TokenClass.EOF, tokens.tokenClass(tokens.size() - 1));
+        assertEquals(tokeniser.getErrorCount(), tokens.getErrorCount());
+    }
+
     private Tokeniser getTokeniser(String content) {
         return new Tokeniser(new Scanner(content));
     }
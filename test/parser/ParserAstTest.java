@@ -310,24 +310,24 @@ public class ParserAstTest {
     @Test
     public void expression_mix() {
         BinOp binOp = (BinOp) getParser("2+3+4").parseLexicalExpression();
-        assertEquals(2, ((IntLiteral) binOp.lhs).value);
+        BinOp lhs = (BinOp) binOp.lhs;
+        assertEquals(2, ((IntLiteral) lhs.lhs).value);
+        assertEquals(Op.ADD, lhs.op);
+        assertEquals(3, ((IntLiteral) lhs.rhs).value);
         assertEquals(Op.ADD, binOp.op);
-        BinOp rhs = (BinOp) binOp.rhs;
-        assertEquals(3, ((IntLiteral) rhs.lhs).value);
-        assertEquals(Op.ADD, rhs.op);
-        assertEquals(4, ((IntLiteral) rhs.rhs).value);
+        assertEquals(4, ((IntLiteral) binOp.rhs).value);
     }
 
     @Test
     public void expression_chain() {
         BinOp binOp = (BinOp) getParser("i / 5 * 6").parseLexicalExpression();
 
-        Var i = (Var) binOp.lhs;
-        Op div = binOp.op;
-        BinOp rhs = (BinOp) binOp.rhs;
-        IntLiteral five = (IntLiteral) rhs.lhs;
-        IntLiteral six = (IntLiteral) rhs.rhs;
-        Op times = rhs.op;
+        BinOp lhs = (BinOp) binOp.lhs;
+        Var i = (Var) lhs.lhs;
+        Op div = lhs.op;
+        IntLiteral five = (IntLiteral) lhs.rhs;
+        IntLiteral six = (IntLiteral) binOp.rhs;
+        Op times = binOp.op;
 
         assertEquals("i", i.name);
         assertEquals(Op.DIV, div);
@@ -355,6 +355,45 @@ public class ParserAstTest {
 
     }
 
+    @Test public void expression_SubtractionIsLeftAssociative() {
+        BinOp binOp = (BinOp) getParser("a - b - c").parseLexicalExpression();
+
+        BinOp lhs = (BinOp) binOp.lhs;
+        assertEquals("a", ((Var) lhs.lhs).name);
+        assertEquals(Op.SUB, lhs.op);
+        assertEquals("b", ((Var) lhs.rhs).name);
+        assertEquals(Op.SUB, binOp.op);
+        assertEquals("c", ((Var) binOp.rhs).name);
+    }
+
+    @Test public void expression_PrecedenceLevels() {
+        BinOp binOp = (BinOp) getParser("a + b * c % d - e").parseLexicalExpression();
+
+        // (a + ((b * c) % d)) - e
+        assertEquals(Op.SUB, binOp.op);
+        assertEquals("e", ((Var) binOp.rhs).name);
+        BinOp add = (BinOp) binOp.lhs;
+        assertEquals(Op.ADD, add.op);
+        assertEquals("a", ((Var) add.lhs).name);
+        BinOp mod = (BinOp) add.rhs;
+        assertEquals(Op.MOD, mod.op);
+        assertEquals("d", ((Var) mod.rhs).name);
+        BinOp mul = (BinOp) mod.lhs;
+        assertEquals(Op.MUL, mul.op);
+        assertEquals("b", ((Var) mul.lhs).name);
+        assertEquals("c", ((Var) mul.rhs).name);
+    }
+
+    @Test public void expression_ComparisonOfArithmetic() {
+        BinOp binOp = (BinOp) getParser("a - 1 >= b * 2 - c").parseExpression();
+
+        assertEquals(Op.GE, binOp.op);
+        assertEquals(Op.SUB, ((BinOp) binOp.lhs).op);
+        BinOp rhs = (BinOp) binOp.rhs;
+        assertEquals(Op.SUB, rhs.op);
+        assertEquals(Op.MUL, ((BinOp) rhs.lhs).op);
+    }
+
 
 
     private void assertProcedure(Type type, String name, Procedure p) {
@@ -1,17 +1,38 @@
 package parser;
 
 
+import ast.BinOp;
+import ast.Expr;
+import ast.Op;
+import ast.Program;
+import ast.expressions.Var;
+import ast.statements.Assign;
+import ast.statements.FunCallStmt;
+import lexer.PipelinedTokeniser;
 import lexer.Scanner;
 import lexer.Token;
+import lexer.Token.TokenClass;
+import lexer.TokenBuffer;
+import lexer.TokenCursor;
+import lexer.TokenEdit;
 import lexer.Tokeniser;
 import org.junit.Test;
+import util.Diagnostics;
 import util.MockTokeniser;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ParserTest {
 
@@ -601,15 +622,453 @@ public class ParserTest {
         assertErrorCountAndEOF(p);
     }
 
+    /* Token cursor */
+    @Test public void tokeniserCursor_LooksAheadPastEnd() {
+        TokeniserCursor cursor = new TokeniserCursor(new MockTokeniser(INT_VAR_DECL));
+        assertEquals(Token.TokenClass.INT, cursor.tokenClass(1));
 
+        cursor.advance();
+        assertEquals(Token.TokenClass.INT, cursor.tokenClass(0));
+        assertEquals(Token.TokenClass.SEMICOLON, cursor.tokenClass(2));
+        assertEquals(Token.TokenClass.EOF, cursor.tokenClass(TokeniserCursor.LOOKAHEAD));
 
+        for (int i = 0; i < 5; i++)
+            cursor.advance();
+        assertEquals(Token.TokenClass.EOF, cursor.tokenClass(0));
+        assertEquals(Token.TokenClass.EOF, cursor.tokenClass(1));
+        assertEquals(5, cursor.index());
+    }
+
+    @Test public void tokeniserCursor_WrapsAround() {
+        List<Token> tokens = duplicate(CHAR_VAR_DECL, 10);
+        TokeniserCursor cursor = new TokeniserCursor(new MockTokeniser(tokens));
+
+        for (int i = 0; i < tokens.size(); i++) {
+            cursor.advance();
+            int k = i % (TokeniserCursor.LOOKAHEAD + 1);
+            Token.TokenClass expected = i + k < tokens.size() ? tokens.get(i + k).tokenClass : Token.TokenClass.EOF;
+
+            assertEquals(expected, cursor.tokenClass(k));
+            assertEquals(tokens.get(i).tokenClass, cursor.tokenClass(0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tokeniserCursor_LimitsLookahead() {
+        TokeniserCursor cursor = new TokeniserCursor(new MockTokeniser(INT_VAR_DECL));
+        cursor.advance();
+        cursor.tokenClass(TokeniserCursor.LOOKAHEAD + 1);
+    }
+
+    /* Token buffer */
+    @Test public void tokenBuffer_ParsesProgram() {
+        Parser p = getBufferedParser("#include \"io.h\"\n" +
+                "int x;\n" +
+                "int inc(int a) { return a + 1; }\n" +
+                "void main() { x = inc(x) * -2; if (x > 0) print_s(\"ok\"); else read_c(); }");
+        p.parse();
+
+        assertErrorCountAndEOF(p);
+    }
+
+    @Test public void tokenBuffer_ReportsErrors() {
+        Parser p = getBufferedParser("void main() { x = ; }");
+        p.parse();
+
+        assertEquals(1, p.getErrorCount());
+    }
+
+    /* Long lists */
+    private static final int SMALL_STACK = 256 * 1024;
+
+    @Test public void longLists_ParseOnSmallStack() throws Throwable {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 50000; i++)
+            program.append("int g").append(i).append(";\n");
+        for (int i = 0; i < 5000; i++)
+            program.append("void p").append(i).append("(int a, char b) { a = a + 1; }\n");
+
+        program.append("void main() {\n");
+        for (int i = 0; i < 50000; i++)
+            program.append("  int x").append(i).append(";\n");
+        for (int i = 0; i < 50000; i++)
+            program.append("  x").append(i).append(" = read_i();\n");
+        program.append("  p0(");
+        for (int i = 0; i < 50000; i++)
+            program.append(i == 0 ? "" : ", ").append("x").append(i);
+        program.append(");\n}\n");
+
+        Program ast = parseOnSmallStack(program.toString());
+
+        assertEquals(50000, ast.varDecls.size());
+        assertEquals(5000, ast.procs.size());
+        assertEquals(50000, ast.main.block.varDecls.size());
+        assertEquals(50001, ast.main.block.statements.size());
+        FunCallStmt call = (FunCallStmt) ast.main.block.statements.get(50000);
+        assertEquals(50000, call.arguments.size());
+    }
+
+    @Test public void longLists_ParseInLinearWork() throws Throwable {
+        long[] small = parseWork(50000);
+        long[] large = parseWork(100000);
+
+        // Twice the statements, twice the tokens looked at and about twice the memory, not four times
+        assertEquals(2.0, (double) large[0] / small[0], 0.01);
+        if (small[1] >= 0)
+            assertTrue(large[1] + " bytes against " + small[1], large[1] < 3 * small[1]);
+    }
+
+    /*
+        Calls to the cursor and bytes allocated, -1 if they cannot be told, parsing statements(count).
+     */
+    private long[] parseWork(int count) throws Throwable {
+        CountingCursor cursor = new CountingCursor(new Tokeniser(new Scanner(statements(count))).tokenise().cursor());
+        long[] allocated = new long[1];
+        Program ast = parseOnSmallStack(cursor, allocated);
+        assertEquals(count, ast.main.block.statements.size());
+        return new long[] { cursor.calls, allocated[0] };
+    }
+
+    private static class CountingCursor implements TokenCursor {
+        private final TokenCursor cursor;
+        long calls = 0;
+
+        CountingCursor(TokenCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public TokenClass tokenClass(int k) {
+            calls++;
+            return cursor.tokenClass(k);
+        }
+
+        @Override
+        public String data() {
+            calls++;
+            return cursor.data();
+        }
+
+        @Override
+        public int nameId() {
+            calls++;
+            return cursor.nameId();
+        }
+
+        @Override
+        public Token token() {
+            calls++;
+            return cursor.token();
+        }
+
+        @Override
+        public int index() {
+            calls++;
+            return cursor.index();
+        }
+
+        @Override
+        public void advance() {
+            calls++;
+            cursor.advance();
+        }
+    }
+
+    @Test public void longExpression_ParsesOnSmallStack() throws Throwable {
+        StringBuilder program = new StringBuilder("void main() {\n  int x;\n  x = x");
+        for (int i = 1; i < 100000; i++)
+            program.append(" - ").append(i).append(" * 2");
+        program.append(";\n}\n");
+
+        Program ast = parseOnSmallStack(program.toString());
+
+        // (((x - 1 * 2) - 2 * 2) - ...), a left spine of subtractions
+        Expr expr = ((Assign) ast.main.block.statements.get(0)).expr;
+        int subtractions = 0;
+        while (expr instanceof BinOp) {
+            BinOp binOp = (BinOp) expr;
+            assertEquals(Op.SUB, binOp.op);
+            assertEquals(Op.MUL, ((BinOp) binOp.rhs).op);
+            expr = binOp.lhs;
+            subtractions++;
+        }
+        assertEquals(99999, subtractions);
+        assertEquals("x", ((Var) expr).name);
+    }
+
+    /* Parallel parsing */
+    private static final String PROCEDURES =
+            "#include \"io.h\"\n" +
+            "int g;\n" +
+            "int inc(int a) { return a + 1; }\n" +
+            "void nested(int a) { { int b; b = a; { while (b > 0) { b = b - 1; } } } }\n" +
+            "char c() { if (g == 1) { return 'a'; } else return 'b'; }\n" +
+            "void none() { }\n";
+
+    @Test public void parallel_ParsesLikeSequential() {
+        StringBuilder program = new StringBuilder(PROCEDURES);
+        for (int i = 0; i < 200; i++)
+            program.append("int p").append(i).append("(int a) { int b; b = inc(a) * ").append(i).append("; return b; }\n");
+        program.append("void main() { g = inc(g); }\n");
+
+        assertParsesLikeSequential(program.toString());
+    }
+
+    @Test public void parallel_ReportsErrorsLikeSequential() {
+        String[] broken = {
+                // errors inside bodies
+                "void e1() { x = ; }\n",
+                "int e2(int a, ) { return a; }\n",
+                "void e3() { if x { } }\n",
+                // unbalanced braces, the scan and the parser disagree on where procedures end
+                "void e4() { { }\n",
+                "void e5() { } }\n",
+                "void e6() { while (1) { g = 1; }\n",
+                // an error on the first token of the next procedure
+                "void e7() { g = 1 }\n",
+                "void e8() { return 1\n}\n",
+                // not a procedure at all
+                "int ;\n",
+        };
+
+        for (String error : broken) {
+            StringBuilder program = new StringBuilder(PROCEDURES);
+            for (int i = 0; i < 20; i++) {
+                program.append("void p").append(i).append("() { g = g + ").append(i).append("; }\n");
+                if (i % 7 == 3)
+                    program.append(error);
+            }
+            program.append("void main() { }\n");
+
+            assertParsesLikeSequential(program.toString());
+        }
+    }
+
+    @Test public void parallel_ParsesWithoutProcedures() {
+        assertParsesLikeSequential("int g;\nvoid main() { g = 1; }\n");
+        assertParsesLikeSequential("void main() { }\n");
+        assertParsesLikeSequential("int x(\n");
+    }
+
+    private void assertParsesLikeSequential(String program) {
+        TokenBuffer tokens = new Tokeniser(new Scanner(program)).tokenise();
+
+        ByteArrayOutputStream sequentialOut = new ByteArrayOutputStream();
+        Parser sequential = new Parser(tokens);
+        Program expected = parseTo(sequential, sequentialOut);
+
+        List<String> sequentialPositions = positions(new Parser(tokens));
+
+        for (int runSize : new int[] { 1, 7, 64 }) {
+            ByteArrayOutputStream parallelOut = new ByteArrayOutputStream();
+            Parser parallel = new ParallelParser(tokens, new ForkJoinPool(4), runSize);
+            Program actual = parseTo(parallel, parallelOut);
+
+            assertEquals(String.valueOf(expected), String.valueOf(actual));
+            assertEquals(sequentialOut.toString(), parallelOut.toString());
+            assertEquals(sequential.getErrorCount(), parallel.getErrorCount());
+            assertEquals(sequential.getToken().position.toString(), parallel.getToken().position.toString());
+
+            // Errors of the runs keep their positions as they are taken over
+            assertEquals(sequentialPositions, positions(new ParallelParser(tokens, new ForkJoinPool(4), runSize)));
+        }
+    }
 
+    private static List<String> positions(Parser parser) {
+        Diagnostics diagnostics = new Diagnostics();
+        parser.setDiagnostics(diagnostics);
+        parser.parse();
+
+        List<String> positions = new ArrayList<>();
+        for (int i = 0; i < diagnostics.size(); i++)
+            positions.add(diagnostics.line(i) + ":" + diagnostics.column(i));
+        return positions;
+    }
+
+    /* Pipelined lexing */
+
+    @Test public void pipelined_ParsesLikeLockstep() {
+        StringBuilder program = new StringBuilder(PROCEDURES);
+        for (int i = 0; i < 2000; i++) {
+            program.append("int p").append(i).append("(int a) { int b; b = inc(a) * ").append(i).append("; return b; }\n");
+            if (i % 500 == 7)
+                program.append("void e").append(i).append("() { g = 1 @ 2; x = ; }\n");
+        }
+        program.append("void main() { g = inc(g); }\n");
+
+        ByteArrayOutputStream lockstepOut = new ByteArrayOutputStream();
+        Parser lockstep = new Parser(new Tokeniser(new Scanner(program.toString())));
+        Program expected = parseTo(lockstep, lockstepOut);
+
+        ByteArrayOutputStream pipelinedOut = new ByteArrayOutputStream();
+        Parser pipelined = new Parser(new PipelinedTokeniser(new Scanner(program.toString())));
+        Program actual = parseTo(pipelined, pipelinedOut);
+
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(lockstepOut.toString(), pipelinedOut.toString());
+        assertEquals(lockstep.getErrorCount(), pipelined.getErrorCount());
+        assertTrue(lockstepOut.toString().contains("Lexing error"));
+    }
+
+    /* Incremental parsing */
+
+    private static final String EDITED =
+            "#include \"io.h\"\n" +
+            "int g;\n" +
+            "char h;\n" +
+            "int inc(int a) { return a + 1; }\n" +
+            "void nested(int a) { { int b; b = a; { while (b > 0) { b = b - 1; } } } }\n" +
+            "char c() { if (g == 1) { return 'a'; } else return 'b'; }\n" +
+            "void none() { }\n" +
+            "void main() { g = inc(g); }\n";
+
+    @Test public void incremental_ReusesUnchangedProcedures() {
+        Program previous = new Parser(new Tokeniser(new Scanner(EDITED)).tokenise()).parse();
+        TokenEdit edit = edit(EDITED, "b = b - 1", 9, "b = b - 2");
+        Program program = assertReparsesLikeFullParse(previous, edit);
+
+        assertSame(previous.varDecls, program.varDecls);
+        assertSame(previous.procs.get(0), program.procs.get(0));
+        assertNotSame(previous.procs.get(1), program.procs.get(1));
+        assertSame(previous.procs.get(2), program.procs.get(2));
+        assertSame(previous.procs.get(3), program.procs.get(3));
+        assertSame(previous.main, program.main);
+    }
+
+    @Test public void incremental_ReparsesGlobals() {
+        Program previous = new Parser(new Tokeniser(new Scanner(EDITED)).tokenise()).parse();
+        Program program = assertReparsesLikeFullParse(previous, edit(EDITED, "char h;", 7, "int h;"));
+
+        assertNotSame(previous.varDecls, program.varDecls);
+        for (int i = 0; i < previous.procs.size(); i++)
+            assertSame(previous.procs.get(i), program.procs.get(i));
+        assertSame(previous.main, program.main);
+    }
+
+    @Test public void incremental_ReparsesMain() {
+        Program previous = new Parser(new Tokeniser(new Scanner(EDITED)).tokenise()).parse();
+        Program program = assertReparsesLikeFullParse(previous, edit(EDITED, "g = inc(g);", 11, "g = 2;"));
+
+        assertSame(previous.varDecls, program.varDecls);
+        for (int i = 0; i < previous.procs.size(); i++)
+            assertSame(previous.procs.get(i), program.procs.get(i));
+        assertNotSame(previous.main, program.main);
+    }
+
+    @Test public void incremental_ParsesLikeFullParse() {
+        String[][] edits = {
+                // find, removed, inserted
+                { "int inc", "0", "void added() { }\n" },
+                { "void none() { }\n", "16", "" },
+                { "{ b = b - 1; }", "1", "" },
+                { "} } } }", "1", "" },
+                { "return 'a';", "11", "return 'a'; } }" },
+                { "char c()", "8", "char c(int x, )" },
+                { "void main", "0", "int tail(int a) { return a; }\n" },
+                { "int g;", "6", "int g; int;" },
+                { "#include", "8", "" },
+                { "void main() { g", "15", "void main() { } g" },
+                { "void none() { }", "15", "void none() { g = 1 }" },
+        };
+
+        for (String[] e : edits) {
+            TokenBuffer tokens = new Tokeniser(new Scanner(EDITED)).tokenise();
+            Program previous = new Parser(tokens).parse();
+            assertReparsesLikeFullParse(previous, edit(EDITED, e[0], Integer.parseInt(e[1]), e[2]));
+        }
+    }
+
+    private TokenEdit edit(String program, String find, int removed, String inserted) {
+        TokenBuffer tokens = new Tokeniser(new Scanner(program)).tokenise();
+        return Tokeniser.relex(tokens, program.indexOf(find), removed, inserted);
+    }
+
+    private Program assertReparsesLikeFullParse(Program previous, TokenEdit edit) {
+        ByteArrayOutputStream fullOut = new ByteArrayOutputStream();
+        Parser full = new Parser(edit.tokens);
+        Program expected = parseTo(full, fullOut);
+
+        ByteArrayOutputStream incrementalOut = new ByteArrayOutputStream();
+        Parser incremental = new IncrementalParser(previous, edit);
+        Program actual = parseTo(incremental, incrementalOut);
+
+        assertEquals(String.valueOf(expected), String.valueOf(actual));
+        assertEquals(fullOut.toString(), incrementalOut.toString());
+        assertEquals(full.getErrorCount(), incremental.getErrorCount());
+        assertEquals(full.getToken().position.toString(), incremental.getToken().position.toString());
+        return actual;
+    }
+
+    private Program parseTo(Parser parser, ByteArrayOutputStream out) {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(out));
+        try {
+            return parser.parse();
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    private String statements(int count) {
+        StringBuilder program = new StringBuilder("void main() {\n  int x;\n");
+        for (int i = 0; i < count; i++)
+            program.append("  x = x + ").append(i).append(";\n");
+        return program.append("}\n").toString();
+    }
+
+    private Program parseOnSmallStack(String program) throws Throwable {
+        return parseOnSmallStack(new Tokeniser(new Scanner(program)).tokenise().cursor(), new long[1]);
+    }
+
+    /*
+        Parse on a thread whose stack is far too small for one frame per list element, the bytes
+        it allocated doing so in allocated[0], -1 if the JVM does not tell.
+     */
+    private Program parseOnSmallStack(final TokenCursor cursor, final long[] allocated) throws Throwable {
+        final Program[] ast = new Program[1];
+        final Throwable[] failure = new Throwable[1];
+
+        Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long before = allocatedBytes();
+                    Parser p = new Parser(cursor);
+                    ast[0] = p.parse();
+                    allocated[0] = before < 0 ? -1 : allocatedBytes() - before;
+                    assertErrorCountAndEOF(p);
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            }
+        }, "parser", SMALL_STACK);
+        thread.start();
+        thread.join();
+
+        if (failure[0] != null)
+            throw failure[0];
+        return ast[0];
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
 
     private Parser getParser(String program) {
         tokeniser = new Tokeniser(new Scanner(program));
         return new Parser(tokeniser);
     }
 
+    private Parser getBufferedParser(String program) {
+        return new Parser(new Tokeniser(new Scanner(program)).tokenise());
+    }
+
     private Parser getParser(List<Token> tokens) {
         tokeniser = new MockTokeniser(tokens);
         return new Parser(tokeniser);
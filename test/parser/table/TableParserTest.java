@@ -0,0 +1,185 @@
+package parser.table;
+
+import ast.BinOp;
+import ast.Block;
+import ast.Expr;
+import ast.Program;
+import ast.statements.Assign;
+import ast.statements.If;
+import ast.statements.Return;
+import lexer.Scanner;
+import lexer.TokenBuffer;
+import lexer.Tokeniser;
+import org.junit.Test;
+import parser.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class TableParserTest {
+
+    private static final String GRAMMAR = "grammar/ebnf.txt";
+    private static final String TABLES = "src/parser/table/GrammarTables.java";
+
+    private static final String PROGRAM =
+            "#include \"io.h\"\n" +
+            "#include \"other.h\"\n" +
+            "int g;\n" +
+            "char c;\n" +
+            "int add(int a, int b) { return a + b; }\n" +
+            "void none() { return; }\n" +
+            "char pick(char x) {\n" +
+            "  if (x == 'a') if (g > 1) return 'b'; else return 'c';\n" +
+            "  { int d; d = 1; while (d <= 3) d = d + 1; }\n" +
+            "  return x;\n" +
+            "}\n" +
+            "void main() {\n" +
+            "  int i;\n" +
+            "  i = read_i();\n" +
+            "  c = read_c();\n" +
+            "  g = -i * (2 + -3) % add(i, g) - 4 / i - 5;\n" +
+            "  if (i != g) print_s(\"differ\\n\"); else { print_c(c); }\n" +
+            "  print_i(add(g, i));\n" +
+            "  none();\n" +
+            "  read_c();\n" +
+            "}\n";
+
+    /* Tables */
+
+    @Test public void tables_AreUpToDate() throws IOException {
+        String tables = new String(Files.readAllBytes(Paths.get(TABLES)), StandardCharsets.UTF_8);
+        try (Reader grammar = new InputStreamReader(new FileInputStream(GRAMMAR), StandardCharsets.UTF_8)) {
+            assertEquals("Regenerate " + TABLES + " with LLGenerator", LLGenerator.generate(grammar, GRAMMAR), tables);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void generate_FailsBeyondMaxLookahead() throws IOException {
+        String grammar =
+                "program ::= a EOF | b EOF\n" +
+                "a ::= \"int\" \"int\" \"int\" \"char\"\n" +
+                "b ::= \"int\" \"int\" \"int\" \"void\"\n";
+        LLGenerator.generate(new StringReader(grammar), "test");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void generate_FailsOnUndefinedRule() throws IOException {
+        LLGenerator.generate(new StringReader("program ::= a EOF\n"), "test");
+    }
+
+    /* Parsing */
+
+    @Test public void parse_BuildsTheSameTreeAsParser() {
+        assertParsesLikeParser(PROGRAM);
+        assertParsesLikeParser("void main() { }");
+        assertParsesLikeParser("int f() { return 1; } void main() { f(); }");
+    }
+
+    @Test public void parse_BindsElseToTheClosestIf() {
+        Program program = parse(PROGRAM);
+        If outer = (If) program.procs.get(2).block.statements.get(0);
+        assertNull(outer.elseStmt);
+        assertTrue(((If) outer.ifStmt).elseStmt instanceof Return);
+    }
+
+    @Test public void parse_StopsAtTheFirstError() {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+
+        TableParser parser;
+        Program program;
+        try {
+            parser = new TableParser(tokenise("void main() { x = ; y = ; }"));
+            program = parser.parse();
+        } finally {
+            System.setOut(out);
+        }
+
+        assertNull(program);
+        assertEquals(1, parser.getErrorCount());
+        assertTrue(printed.toString(), printed.toString().startsWith("Parsing error: expected ("));
+        assertTrue(printed.toString(), printed.toString().contains("found (SEMICOLON) at 1:20"));
+    }
+
+    @Test public void parse_NestsDeeplyOnSmallStack() throws Throwable {
+        int depth = 20000;
+        StringBuilder source = new StringBuilder("void main() { int x; ");
+        for (int i = 0; i < depth; i++)
+            source.append("{ ");
+        source.append("x = ");
+        for (int i = 0; i < depth; i++)
+            source.append('(');
+        source.append('x');
+        for (int i = 0; i < depth; i++)
+            source.append(" + 1)");
+        source.append("; ");
+        for (int i = 0; i < depth; i++)
+            source.append("} ");
+        source.append('}');
+
+        Program program = parseOnSmallStack(source.toString());
+
+        Block block = program.main.block;
+        for (int i = 0; i < depth; i++)
+            block = (Block) block.statements.get(0);
+        Expr expr = ((Assign) block.statements.get(0)).expr;
+        assertTrue(expr instanceof BinOp);
+    }
+
+    private void assertParsesLikeParser(String source) {
+        Parser parser = new Parser(tokenise(source));
+        Program expected = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+
+        TableParser tableParser = new TableParser(tokenise(source));
+        assertEquals(expected.toString(), String.valueOf(tableParser.parse()));
+        assertEquals(0, tableParser.getErrorCount());
+    }
+
+    private Program parse(String source) {
+        TableParser parser = new TableParser(tokenise(source));
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        return program;
+    }
+
+    /*
+        Parse on a thread whose stack is far too small for one frame per nested block.
+     */
+    private Program parseOnSmallStack(final String source) throws Throwable {
+        final Program[] program = new Program[1];
+        final Throwable[] failure = new Throwable[1];
+
+        Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    program[0] = parse(source);
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            }
+        }, "parser", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        if (failure[0] != null)
+            throw failure[0];
+        return program[0];
+    }
+
+    private TokenBuffer tokenise(String source) {
+        return new Tokeniser(new Scanner(source)).tokenise();
+    }
+}
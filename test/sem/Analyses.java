@@ -0,0 +1,56 @@
+package sem;
+
+import ast.Program;
+import ast.flat.FlatProgram;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+import sem.SemanticAnalyzer.Mode;
+import util.Diagnostics;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * What the semantic analysis tests compare analyses by: the number of errors found, then
+ * their messages one per line, recorded in Diagnostics rather than printed.
+ */
+final class Analyses {
+
+    private Analyses() {
+    }
+
+    static String analyze(String source, Mode mode) {
+        return analyze(parse(source), new SemanticAnalyzer(mode));
+    }
+
+    static String analyze(String source, SemanticAnalyzer analyzer) {
+        return analyze(parse(source), analyzer);
+    }
+
+    static String analyze(Program program, SemanticAnalyzer analyzer) {
+        Diagnostics diagnostics = new Diagnostics();
+        analyzer.setDiagnostics(diagnostics);
+        return analyzer.analyze(program) + "\n" + messages(diagnostics);
+    }
+
+    static String analyzeFlat(String source, Mode mode) {
+        Diagnostics diagnostics = new Diagnostics();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(mode);
+        analyzer.setDiagnostics(diagnostics);
+        return analyzer.analyze(FlatProgram.of(parse(source))) + "\n" + messages(diagnostics);
+    }
+
+    static Program parse(String source) {
+        Parser parser = new Parser(new Tokeniser(new Scanner(source)));
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        return program;
+    }
+
+    private static String messages(Diagnostics diagnostics) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < diagnostics.size(); i++)
+            sb.append(diagnostics.message(i)).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package sem;
+
+import ast.Program;
+import ast.Type;
+import ast.expressions.FunCallExpr;
+import ast.expressions.Var;
+import ast.statements.Assign;
+import org.junit.Test;
+import sem.SemanticAnalyzer.Mode;
+
+
+import static org.junit.Assert.*;
+import static sem.Analyses.*;
+
+public class FusedSemanticVisitorTest {
+
+    private static final String PROGRAM =
+            "int g;\n" +
+            "int add(int a, int b) { return a + b; }\n" +
+            "char pick(char c) { if (c == 'a') return 'b'; return c; }\n" +
+            "void main() {\n" +
+            "  int i;\n" +
+            "  { char i; i = 'a'; i = pick(i); print_c(i); }\n" +
+            "  i = add(g, i);\n" +
+            "  while (i > 0) i = i - 1;\n" +
+            "  print_i(i);\n" +
+            "}\n";
+
+    private static final String ERRONEOUS =
+            "int g;\n" +
+            "void v;\n" +
+            "int add(int a, int b) { return 'a'; }\n" +
+            "int add(int c) { return c; }\n" +
+            "void main() {\n" +
+            "  int i;\n" +
+            "  int i;\n" +
+            "  char c;\n" +
+            "  i = add(g, c) + add(h);\n" +
+            "  c = add;\n" +
+            "  i = undefined(i);\n" +
+            "  if (c) print_c(g);\n" +
+            "  while (c + 1) pick(g, c);\n" +
+            "  return i;\n" +
+            "}\n";
+
+    @Test
+    public void analyze_Annotates() {
+        Program program = parse(PROGRAM);
+        assertEquals(0, new SemanticAnalyzer(Mode.FUSED).analyze(program));
+
+        // i = add(g, i); resolves i to main's own declaration
+        Assign assign = (Assign) program.main.block.statements.get(1);
+        assertSame(program.main.block.varDecls.get(0), assign.var.getVarDecl());
+
+        Var g = (Var) ((FunCallExpr) assign.expr).arguments.get(0);
+        assertSame(program.varDecls.get(0), g.getVarDecl());
+        assertEquals(Type.INT, g.type);
+    }
+
+    @Test
+    public void analyze_ReportsAsTwoPasses() {
+        assertSameDiagnostics(PROGRAM);
+        assertSameDiagnostics(ERRONEOUS);
+        assertTrue(analyze(ERRONEOUS, Mode.FUSED).startsWith("19\n"));
+    }
+
+    @Test
+    public void analyzeFlat_ReportsAsTwoPasses() {
+        assertEquals(analyzeFlat(ERRONEOUS, Mode.SEQUENTIAL), analyzeFlat(ERRONEOUS, Mode.FUSED));
+        assertEquals("0\n", analyzeFlat(PROGRAM, Mode.FUSED));
+    }
+
+    private void assertSameDiagnostics(String source) {
+        assertEquals(analyze(source, Mode.SEQUENTIAL), analyze(source, Mode.FUSED));
+    }
+}
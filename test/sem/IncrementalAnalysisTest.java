@@ -0,0 +1,138 @@
+package sem;
+
+import ast.BinOp;
+import ast.Procedure;
+import ast.Program;
+import ast.expressions.FunCallExpr;
+import ast.statements.Assign;
+import ast.statements.Return;
+import lexer.Scanner;
+import lexer.TokenBuffer;
+import lexer.TokenEdit;
+import lexer.Tokeniser;
+import org.junit.Before;
+import org.junit.Test;
+import parser.IncrementalParser;
+import parser.Parser;
+import sem.SemanticAnalyzer.Mode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static sem.Analyses.analyze;
+
+public class IncrementalAnalysisTest {
+
+    private static final String PROGRAM =
+            "int x;\n" +
+            "char y;\n" +
+            "int f(int a) { return a + x; }\n" +
+            "int g(int a) { return f(a) * 2; }\n" +
+            "char h(char c) { y = c; return y; }\n" +
+            "void main() { x = g(x); print_c(h(y)); }\n";
+
+    private SemanticAnalyzer analyzer;
+    private String source;
+    private TokenBuffer tokens;
+    private Program program;
+
+    @Before
+    public void setUp() {
+        analyzer = new SemanticAnalyzer(Mode.INCREMENTAL);
+        source = PROGRAM;
+        tokens = new Tokeniser(new Scanner(source)).tokenise();
+        program = new Parser(tokens).parse();
+        assertAnalysesLikeSequential();
+    }
+
+    @Test
+    public void analyze_VisitsEveryProcedureFirst() {
+        assertEquals(4, analyzer.getRevisited().size());
+    }
+
+    @Test
+    public void analyze_UnchangedProgramRevisitsNothing() {
+        assertAnalysesLikeSequential();
+        assertTrue(analyzer.getRevisited().isEmpty());
+    }
+
+    @Test
+    public void analyze_RevisitsOnlyTheEditedBody() {
+        edit("return y;", 9, "return c;");
+        assertEquals(Collections.singletonList(procedure("h")), analyzer.getRevisited());
+    }
+
+    @Test
+    public void analyze_RelinksCallersOfEditedBodyWithSameSignature() {
+        edit("return a + x;", 13, "return a - x;");
+
+        Procedure f = procedure("f");
+        assertEquals(Collections.singletonList(f), analyzer.getRevisited());
+
+        // g still calls f, the new one
+        FunCallExpr call = (FunCallExpr) ((BinOp) ((Return) procedure("g").block.statements.get(0)).returnz).lhs;
+        assertSame(f, call.getProcedure());
+        assertEquals(Collections.singleton(f), analyzer.getIncrementalAnalysis().callees(procedure("g")));
+    }
+
+    @Test
+    public void analyze_RevisitsCallersOfChangedSignature() {
+        edit("int f(int a)", 12, "char f(int a)");
+        assertEquals(Arrays.asList(procedure("f"), procedure("g")), analyzer.getRevisited());
+    }
+
+    @Test
+    public void analyze_RevisitsReadersOfChangedGlobal() {
+        edit("int x;", 6, "char x;");
+        assertEquals(new HashSet<>(Arrays.asList(procedure("f"), procedure("main"))), new HashSet<>(analyzer.getRevisited()));
+    }
+
+    @Test
+    public void analyze_RelinksReadersOfGlobalWithSameType() {
+        edit("int x;", 6, "int x; int z;");
+        assertTrue(analyzer.getRevisited().isEmpty());
+
+        Assign assign = (Assign) program.main.block.statements.get(0);
+        assertSame(program.varDecls.get(0), assign.var.getVarDecl());
+        assertEquals(new HashSet<>(Arrays.asList(program.varDecls.get(0), program.varDecls.get(2))),
+                analyzer.getIncrementalAnalysis().globals(program.main));
+    }
+
+    @Test
+    public void analyze_RevisitsWhenANameIsTaken() {
+        edit("int g(", 0, "int g(int b) { return b; }\n");
+
+        // The g declared first now, the other one left as it was but its name taken
+        assertEquals(Arrays.asList(program.procs.get(1), program.procs.get(2)), analyzer.getRevisited());
+    }
+
+    private void edit(String find, int removed, String inserted) {
+        int offset = source.indexOf(find);
+        TokenEdit edit = Tokeniser.relex(tokens, offset, removed, inserted);
+        source = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        tokens = edit.tokens;
+
+        Parser parser = new IncrementalParser(program, edit);
+        program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+
+        assertAnalysesLikeSequential();
+    }
+
+    private void assertAnalysesLikeSequential() {
+        Program fresh = new Parser(new Tokeniser(new Scanner(source)).tokenise()).parse();
+        assertEquals(analyze(fresh, new SemanticAnalyzer()), analyze(program, analyzer));
+    }
+
+    private Procedure procedure(String name) {
+        if (name.equals("main"))
+            return program.main;
+        for (Procedure p : program.procs) {
+            if (p.name.equals(name))
+                return p;
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
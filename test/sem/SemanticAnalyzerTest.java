@@ -0,0 +1,53 @@
+package sem;
+
+import org.junit.Test;
+import sem.SemanticAnalyzer.Mode;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static sem.Analyses.*;
+
+public class SemanticAnalyzerTest {
+
+    private static final String ERRONEOUS =
+            "int g;\n" +
+            "void v;\n" +
+            "char c;\n" +
+            "int first(int a) { return c; }\n" +
+            "char second(char a, int b) { while (a) b = b - 1; return b; }\n" +
+            "void third(int a) { a = second(a, a); return a; }\n" +
+            "int fourth() { int x; x = first(g, g); return x + c; }\n" +
+            "void main() {\n" +
+            "  g = fourth();\n" +
+            "  third(c);\n" +
+            "  if (c == g) print_c(g);\n" +
+            "}\n";
+
+    @Test
+    public void parallel_ReportsAsSequential() {
+        String sequential = analyze(ERRONEOUS, new SemanticAnalyzer(Mode.SEQUENTIAL));
+        assertFalse(sequential.startsWith("0\n"));
+
+        assertEquals(sequential, analyze(ERRONEOUS, new SemanticAnalyzer(Mode.PARALLEL)));
+        assertEquals(sequential, analyze(ERRONEOUS, new SemanticAnalyzer(Mode.PARALLEL, new ForkJoinPool(4))));
+    }
+
+    @Test
+    public void parallel_ReportsAsSequentialOnFlatProgram() {
+        assertEquals(analyzeFlat(ERRONEOUS, Mode.SEQUENTIAL), analyzeFlat(ERRONEOUS, Mode.PARALLEL));
+    }
+
+    @Test
+    public void parallel_AnalysesManyProcedures() {
+        StringBuilder source = new StringBuilder("int g;\n");
+        for (int i = 0; i < 500; i++)
+            source.append("int p").append(i).append("(int a) { int x; x = a + g; return ").append(i % 7 == 0 ? "'c'" : "x").append("; }\n");
+        source.append("void main() { g = p499(g); }\n");
+
+        String sequential = analyze(source.toString(), new SemanticAnalyzer(Mode.SEQUENTIAL));
+        assertTrue(sequential.startsWith("72\n"));
+        assertEquals(sequential, analyze(source.toString(), new SemanticAnalyzer(Mode.PARALLEL)));
+        assertEquals(sequential, analyze(source.toString(), new SemanticAnalyzer(Mode.PARALLEL, new ForkJoinPool(4))));
+    }
+}
@@ -0,0 +1,186 @@
+package sem;
+
+import ast.Type;
+import ast.VarDecl;
+import ast.expressions.Var;
+import lexer.NameTable;
+import org.junit.Before;
+import org.junit.Test;
+import sem.name.Scope;
+import sem.name.Symbol;
+import sem.name.SymbolTable;
+import sem.name.symbols.VarSymbol;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+    private static final VarSymbol intFoo = new VarSymbol(new VarDecl(Type.INT, new Var("foo")));
+    private static final VarSymbol charFoo = new VarSymbol(new VarDecl(Type.CHAR, new Var("foo")));
+    private static final VarSymbol intBar = new VarSymbol(new VarDecl(Type.INT, new Var("bar")));
+
+    private SymbolTable table;
+
+    @Before
+    public void setUp() {
+        table = new SymbolTable();
+    }
+
+    @Test
+    public void builtinsAreGlobal() {
+        assertTrue(table.lookup("print_i").isProc());
+        assertTrue(table.lookup("read_c").isProc());
+        assertNull(table.lookup("foo"));
+    }
+
+    @Test
+    public void leaveScope_UncoversShadowedBinding() {
+        table.put(intFoo);
+        table.enterScope();
+        table.put(charFoo);
+        table.put(intBar);
+
+        assertSame(charFoo, table.lookup("foo"));
+        assertSame(intBar, table.lookupCurrent("bar"));
+
+        table.leaveScope();
+        assertSame(intFoo, table.lookup("foo"));
+        assertNull(table.lookup("bar"));
+        assertEquals(0, table.depth());
+    }
+
+    @Test
+    public void lookupCurrent_IgnoresOuterScopes() {
+        table.put(intFoo);
+        table.enterScope();
+
+        assertNull(table.lookupCurrent("foo"));
+        assertSame(intFoo, table.lookup("foo"));
+    }
+
+    @Test
+    public void put_ReplacesInSameScope() {
+        table.put(intFoo);
+        table.put(charFoo);
+        assertSame(charFoo, table.lookup("foo"));
+
+        table.enterScope();
+        table.leaveScope();
+        assertSame(charFoo, table.lookup("foo"));
+    }
+
+    @Test
+    public void bindingsAreReusedAcrossScopes() {
+        for (int i = 0; i < 1000; i++) {
+            table.enterScope();
+            table.put(intFoo);
+            table.enterScope();
+            table.put(charFoo);
+            assertSame(charFoo, table.lookup("foo"));
+            table.leaveScope();
+            assertSame(intFoo, table.lookup("foo"));
+            table.leaveScope();
+        }
+        assertNull(table.lookup("foo"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void leaveScope_FailsAtGlobalScope() {
+        table.leaveScope();
+    }
+
+    @Test
+    public void lookup_ByIdOfTheCompilationNames() {
+        NameTable names = new NameTable();
+        int foo = names.intern("foo");
+        table = new SymbolTable(names);
+        assertSame(names, table.getNames());
+
+        table.put(intFoo, names, foo);
+        assertSame(intFoo, table.lookup(names, foo));
+        assertSame(intFoo, table.lookup("foo"));
+
+        table.enterScope();
+        assertNull(table.lookupCurrent(names, foo));
+        table.put(charFoo, names, foo);
+        assertSame(charFoo, table.lookupCurrent(names, foo));
+        table.leaveScope();
+        assertSame(intFoo, table.lookup(names, foo));
+    }
+
+    @Test
+    public void lookup_ByIdOfAnotherNameTable() {
+        NameTable other = new NameTable();
+        int bar = other.intern("bar");
+        int foo = other.intern("foo");
+
+        table.put(intFoo);
+        assertSame(intFoo, table.lookup(other, foo));
+        assertNull(table.lookup(other, bar));
+
+        table.put(intBar, other, bar);
+        assertSame(intBar, table.lookup("bar"));
+        assertSame(intBar, table.lookup(other, bar));
+    }
+
+    /* Scope */
+
+    @Test
+    public void scope_OuterPutSeenFromInner() {
+        Scope outer = new Scope();
+        Scope inner = new Scope(outer);
+        inner.put(intBar);
+        outer.put(intFoo);
+
+        assertSame(intFoo, inner.lookup("foo"));
+        assertNull(inner.lookupCurrent("foo"));
+        assertNull(outer.lookup("bar"));
+        assertSame(intFoo, outer.getSymbolTable().get("foo"));
+
+        inner.getTable().leaveScope();
+        Symbol foo = outer.getTable().lookup("foo");
+        assertSame(intFoo, foo);
+    }
+
+    @Test
+    public void scope_SiblingsDoNotSeeEachOther() {
+        Scope global = new Scope();
+        Scope first = new Scope(global);
+        first.put(intFoo);
+
+        Scope second = new Scope(global);
+        assertNull(second.lookup("foo"));
+        assertNull(global.lookup("foo"));
+        assertEquals(1, global.getTable().depth());
+
+        second.put(intBar);
+        assertSame(intBar, second.lookupCurrent("bar"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void scope_ReplacedSiblingIsLeft() {
+        Scope global = new Scope();
+        Scope first = new Scope(global);
+        new Scope(global);
+
+        first.lookup("foo");
+    }
+
+    @Test
+    public void scope_CloseLeavesItsLevelAndInnerOnes() {
+        Scope global = new Scope();
+        Scope outer = new Scope(global);
+        Scope inner = new Scope(outer);
+        outer.put(intFoo);
+        inner.put(intBar);
+
+        outer.close();
+        assertEquals(0, global.getTable().depth());
+        assertNull(global.lookup("foo"));
+        assertNull(global.lookup("bar"));
+
+        Scope next = new Scope(global);
+        assertNull(next.lookup("foo"));
+        assertEquals(1, global.getTable().depth());
+    }
+}
@@ -0,0 +1,188 @@
+package util;
+
+import ast.Program;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+import sem.SemanticAnalyzer.Mode;
+import util.Diagnostics.Kind;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+public class DiagnosticsTest {
+
+    private static final String UNPARSABLE =
+            "int x;\n" +
+            "void main() { x = 1 +; $ x = ; }\n" +
+            "int f( { }\n";
+
+    private static final String ERRONEOUS =
+            "int g;\n" +
+            "void v;\n" +
+            "char c;\n" +
+            "int first(int a) { return c; }\n" +
+            "char second(char a, int b) { while (a) b = b - 1; return b; }\n" +
+            "int first() { return 100; }\n" +
+            "void main() { g = first(g); undeclared(c); if (c == g) print_c(g); }\n";
+
+    private PrintStream out;
+    private PrintStream err;
+    private ByteArrayOutputStream printedOut;
+    private ByteArrayOutputStream printedErr;
+
+    @Before
+    public void setUp() {
+        out = System.out;
+        err = System.err;
+        printedOut = new ByteArrayOutputStream();
+        printedErr = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printedOut));
+        System.setErr(new PrintStream(printedErr));
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(out);
+        System.setErr(err);
+    }
+
+    @Test
+    public void flush_FormatsInOrderToTheirStreams() {
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.add(Kind.LEXING, 1, 2, "unrecognised character (%s)", '$');
+        diagnostics.add(Kind.SEMANTIC, "Attempted to use an undeclared variable %s", "x");
+        diagnostics.add(Kind.PARSING, "100% literal");
+        assertEquals(3, diagnostics.size());
+        assertEquals(1, diagnostics.line(0));
+        assertEquals(2, diagnostics.column(0));
+        assertEquals(-1, diagnostics.line(1));
+        assertEquals("", printedOut.toString() + printedErr);
+
+        diagnostics.flush();
+        assertEquals(lines("Lexing error: unrecognised character ($) at 1:2", "Parsing error: 100% literal"), printedOut.toString());
+        assertEquals(lines("semantic error: Attempted to use an undeclared variable x"), printedErr.toString());
+
+        assertEquals(0, diagnostics.size());
+        assertEquals(0, diagnostics.getCount(Kind.SEMANTIC));
+    }
+
+    @Test
+    public void flush_CapsEachKind() {
+        Diagnostics diagnostics = new Diagnostics(2);
+        for (int i = 0; i < 5; i++)
+            diagnostics.add(Kind.SEMANTIC, "error %d", i);
+        diagnostics.add(Kind.PARSING, "only");
+
+        assertEquals(3, diagnostics.size());
+        assertEquals(5, diagnostics.getCount(Kind.SEMANTIC));
+
+        diagnostics.flush();
+        assertEquals(lines("Parsing error: only"), printedOut.toString());
+        assertEquals(lines("semantic error: error 0", "semantic error: error 1", "Semantic analysis: 3 more errors not shown"), printedErr.toString());
+    }
+
+    @Test
+    public void addAll_KeepsTheOrderAndCountsPastTheLimit() {
+        Diagnostics diagnostics = new Diagnostics(2);
+        diagnostics.add(Kind.PARSING, 1, 1, "first");
+        Diagnostics task = new Diagnostics(3);
+        for (int i = 0; i < 4; i++)
+            task.add(Kind.SEMANTIC, i + 2, 1, "error %d", i);
+
+        diagnostics.addAll(task);
+        assertEquals(3, task.size());
+        assertEquals(3, diagnostics.size());
+        assertEquals(4, diagnostics.getCount(Kind.SEMANTIC));
+        assertEquals(3, diagnostics.line(2));
+
+        diagnostics.flush();
+        assertEquals(lines("Parsing error: first at 1:1"), printedOut.toString());
+        assertEquals(lines("semantic error: error 0 at 2:1", "semantic error: error 1 at 3:1", "Semantic analysis: 2 more errors not shown"), printedErr.toString());
+    }
+
+    @Test
+    public void parser_RecordsAsPrinted() {
+        Parser parser = new Parser(new Tokeniser(new Scanner(UNPARSABLE)));
+        parser.parse();
+        String printed = printedOut.toString();
+        assertTrue(printed.contains("Lexing error") && printed.contains("Parsing error"));
+        printedOut.reset();
+
+        Diagnostics diagnostics = new Diagnostics();
+        Tokeniser tokeniser = new Tokeniser(new Scanner(UNPARSABLE));
+        tokeniser.setDiagnostics(diagnostics);
+        parser = new Parser(tokeniser);
+        parser.setDiagnostics(diagnostics);
+        parser.parse();
+        assertEquals("", printedOut.toString());
+
+        diagnostics.flush();
+        assertEquals(printed, printedOut.toString());
+    }
+
+    @Test
+    public void analyzer_RecordsAsPrinted() {
+        for (Mode mode : Mode.values()) {
+            int errors = new SemanticAnalyzer(mode).analyze(parse(ERRONEOUS));
+            assertTrue(errors > 0);
+            String printed = printedErr.toString();
+            printedErr.reset();
+
+            Diagnostics diagnostics = new Diagnostics();
+            SemanticAnalyzer analyzer = new SemanticAnalyzer(mode);
+            analyzer.setDiagnostics(diagnostics);
+            assertEquals(errors, analyzer.analyze(parse(ERRONEOUS)));
+            assertEquals("", printedErr.toString());
+
+            diagnostics.flush();
+            assertEquals(mode.toString(), printed, printedErr.toString());
+            printedErr.reset();
+        }
+    }
+
+    @Test
+    public void analyzer_PrintsWhatItRecordedWhenItFails() {
+        // Type checking the assignment to the undeclared variable fails after name analysis reported it
+        Program program = parse("void main() { if (1 == 1) x = 1; }\n");
+        try {
+            new SemanticAnalyzer().analyze(program);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals(lines("semantic error: Attempted to use an undeclared variable x"), printedErr.toString());
+        }
+    }
+
+    @Test
+    public void parser_RecordsPositions() {
+        Diagnostics diagnostics = new Diagnostics();
+        Parser parser = new Parser(new Tokeniser(new Scanner("int x;\nint f( { }\n")));
+        parser.setDiagnostics(diagnostics);
+        parser.parse();
+
+        assertEquals(2, diagnostics.size());
+        assertEquals(2, diagnostics.line(0));
+        assertEquals(8, diagnostics.column(0));
+        assertEquals("Parsing error: expected (RPAR) found (LBRA) at 2:8", diagnostics.message(0));
+    }
+
+    private static Program parse(String source) {
+        Parser parser = new Parser(new Tokeniser(new Scanner(source)));
+        Program program = parser.parse();
+        assertEquals(0, parser.getErrorCount());
+        return program;
+    }
+
+    private static String lines(String... lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines)
+            sb.append(line).append(System.lineSeparator());
+        return sb.toString();
+    }
+}